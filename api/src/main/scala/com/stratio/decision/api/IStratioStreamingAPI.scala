@@ -159,6 +159,20 @@ trait IStratioStreamingAPI {
   def insertData(streamName: String, data: List[ColumnNameValue])
 
 
+  /**
+   * Inserts several rows into a stream with a single message when the engine supports batch records.
+   * @param streamName
+   * @param rows
+   * @param topicName
+   */
+  @throws(classOf[StratioEngineStatusException])
+  @throws(classOf[StratioAPISecurityException])
+  def insertBatch(streamName: String, rows: List[List[ColumnNameValue]], topicName: String)
+
+  @throws(classOf[StratioEngineStatusException])
+  @throws(classOf[StratioAPISecurityException])
+  def insertBatch(streamName: String, rows: List[List[ColumnNameValue]])
+
   @throws(classOf[StratioEngineStatusException])
   @throws(classOf[StratioAPISecurityException])
   def insertDataWithPartition(streamName: String, data: List[ColumnNameValue], keys: List[ColumnNameValue])
@@ -331,4 +345,21 @@ trait IStratioStreamingAPI {
    */
   @throws(classOf[StratioEngineStatusException])
   def defineAcknowledgeTimeOut(timeOutInMs: Int): IStratioStreamingAPI
+
+  /**
+   * Operations that return a future instead of blocking until the engine acks them. At most
+   * defineMaxOutstandingRequests requests are pending at the same time, further requests fail without being sent.
+   */
+  def async: IStratioStreamingAsyncAPI
+
+  /**
+   * Applies to the requests sent from now on. The requests already pending keep counting against the previous limit.
+   */
+  def defineMaxOutstandingRequests(maxRequests: Int): IStratioStreamingAPI
+
+  /**
+   * Buffers the rows sent with insertData and sends them in batches of up to maxBatchSize rows, waiting at most
+   * lingerMs milliseconds. A maxBatchSize of one disables the batching.
+   */
+  def defineInsertBatching(lingerMs: Int, maxBatchSize: Int): IStratioStreamingAPI
 }
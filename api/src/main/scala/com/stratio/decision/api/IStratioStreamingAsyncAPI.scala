@@ -0,0 +1,91 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api
+
+import java.util.{List, Map}
+
+import com.stratio.decision.api.messaging.ColumnNameType
+import com.stratio.decision.commons.streams.StratioStream
+
+import scala.concurrent.Future
+
+/**
+ * Non blocking counterpart of the sync operations of IStratioStreamingAPI. Every operation completes when the engine
+ * acks it, and fails with the exception the blocking call would throw. Operations requested while
+ * defineMaxOutstandingRequests requests are pending fail right away with a StratioAPIGenericException.
+ */
+trait IStratioStreamingAsyncAPI {
+
+  /**
+   * @return a view of this API whose requests time out after the given milliseconds
+   */
+  def withTimeOut(timeOutInMs: Int): IStratioStreamingAsyncAPI
+
+  def createStream(streamName: String, columns: List[ColumnNameType]): Future[Unit]
+
+  def alterStream(streamName: String, columns: List[ColumnNameType]): Future[Unit]
+
+  def addQuery(streamName: String, query: String): Future[String]
+
+  def removeQuery(streamName: String, queryId: String): Future[Unit]
+
+  def dropStream(streamName: String): Future[Unit]
+
+  def listStreams(): Future[List[StratioStream]]
+
+  def saveToElasticsearch(streamName: String): Future[Unit]
+
+  def stopSaveToElasticsearch(streamName: String): Future[Unit]
+
+  def indexStream(streamName: String): Future[Unit]
+
+  def stopIndexStream(streamName: String): Future[Unit]
+
+  def saveToCassandra(streamName: String): Future[Unit]
+
+  def stopSaveToCassandra(streamName: String): Future[Unit]
+
+  def saveToMongo(streamName: String): Future[Unit]
+
+  def stopSaveToMongo(streamName: String): Future[Unit]
+
+  def saveToSolr(streamName: String): Future[Unit]
+
+  def stopSaveToSolr(streamName: String): Future[Unit]
+
+  def startSendToDrools(streamName: String, groupName: String, outputStream: String = null,
+    kafkaTopic: String = null): Future[Unit]
+
+  def stopSendToDrools(streamName: String): Future[Unit]
+
+  /**
+   * Sends the creation of all the streams, keeping at most defineMaxOutstandingRequests of them pending and sending
+   * the next one as soon as one is acked.
+   */
+  def createStreams(streams: Map[String, List[ColumnNameType]]): Future[Unit]
+
+  /**
+   * Sends all the queries, keeping at most defineMaxOutstandingRequests of them pending like createStreams.
+   *
+   * @return the query ids, in the same order as the queries
+   */
+  def addQueries(streamName: String, queries: List[String]): Future[List[String]]
+
+  /**
+   * Sends the drop of all the streams, keeping at most defineMaxOutstandingRequests of them pending like createStreams.
+   */
+  def dropStreams(streamNames: List[String]): Future[Unit]
+}
@@ -15,17 +15,18 @@
  */
 package com.stratio.decision.api
 
-import java.util.List
+import java.util.{List, UUID}
 
 import com.stratio.decision.api.dto.StratioQueryStream
-import com.stratio.decision.api.kafka.{KafkaConsumer, KafkaProducer}
+import com.stratio.decision.api.kafka.{KafkaConsumer, KafkaProducer, KafkaReplyConsumer}
 import com.stratio.decision.api.messaging.MessageBuilder.builder
 import com.stratio.decision.api.messaging.{ColumnNameType, _}
 import com.stratio.decision.api.zookeeper.ZookeeperConsumer
-import com.stratio.decision.commons.avro.{ColumnType, InsertMessage}
+import com.stratio.decision.commons.avro.{ColumnType, InsertMessage, InsertMessageFormat}
 import com.stratio.decision.commons.constants.InternalTopic
 import com.stratio.decision.commons.constants.STREAMING.{ZK_EPHEMERAL_NODE_STATUS_CONNECTED,
-ZK_EPHEMERAL_NODE_STATUS_INITIALIZED, ZK_EPHEMERAL_NODE_STATUS_PATH, ZK_EPHEMERAL_NODE_STATUS_GROUPS_DOWN, ZK_EPHEMERAL_GROUPS_STATUS_BASE_PATH}
+ZK_EPHEMERAL_NODE_STATUS_INITIALIZED, ZK_EPHEMERAL_NODE_STATUS_PATH, ZK_EPHEMERAL_NODE_STATUS_GROUPS_DOWN, ZK_EPHEMERAL_GROUPS_STATUS_BASE_PATH,
+ZK_EPHEMERAL_NODE_INSERT_MESSAGE_VERSIONS_PATH}
 import com.stratio.decision.commons.constants.STREAM_OPERATIONS.ACTION.{INDEX, LISTEN, SAVETO_CASSANDRA,
 SAVETO_MONGO, SAVETO_SOLR, STOP_INDEX, STOP_LISTEN, STOP_SAVETO_CASSANDRA, STOP_SAVETO_MONGO, STOP_SAVETO_SOLR,
 STOP_SENDTODROOLS, START_SENDTODROOLS}
@@ -73,17 +74,17 @@ class StratioStreamingAPI
 
     checkInsertStreamingStatus()
 
-    var topic : String = InternalTopic.TOPIC_DATA.getTopicName
-    if (topicName!=null) {
-      topic = topic.concat("_").concat(topicName)
-    }
+    val topic = dataTopic(topicName)
 
     if (checkTopicExists){
       topicService.createTopicIfNotExist(topic, 1, 1)
     }
 
     val insertStreamMessage = new InsertMessageBuilder(sessionId).build(streamName, data)
-    asyncOperation.performAsyncOperation(insertStreamMessage, topic)
+    insertBatcher match {
+      case Some(batcher) => batcher.add(insertStreamMessage, topic)
+      case None => asyncOperation.performAsyncOperation(insertStreamMessage, topic)
+    }
   }
 
   def insertData(streamName: String, data: List[ColumnNameValue]) = {
@@ -91,6 +92,22 @@ class StratioStreamingAPI
     insertData(streamName, data, null, false)
   }
 
+  def insertBatch(streamName: String, rows: List[List[ColumnNameValue]], topicName: String) = {
+    checkInsertStreamingStatus()
+    val builder = new InsertMessageBuilder(sessionId)
+    val messages = rows.map(row => builder.build(streamName, row))
+    asyncOperation.performAsyncBatchOperation(messages, dataTopic(topicName))
+  }
+
+  def insertBatch(streamName: String, rows: List[List[ColumnNameValue]]) = {
+    insertBatch(streamName, rows, null)
+  }
+
+  private def dataTopic(topicName: String): String = {
+    val topic = InternalTopic.TOPIC_DATA.getTopicName
+    if (topicName != null) topic.concat("_").concat(topicName) else topic
+  }
+
   def insertDataWithPartition(streamName: String, data: List[ColumnNameValue], keys: List[ColumnNameValue]) = {
     insertDataWithPartition(streamName, data, keys, PartitionerStrategyFactory.Strategy.HASH)
   }
@@ -373,7 +390,35 @@ class StratioStreamingAPI
     this
   }
 
+  def defineMaxOutstandingRequests(maxRequests: Int) = {
+    synchronized {
+      maxOutstandingRequests = maxRequests
+      // the next request builds the operation with the new limit, the pending ones complete in the current one
+      _futureOperation = None
+    }
+    this
+  }
+
+  def defineInsertBatching(lingerMs: Int, maxBatchSize: Int) = {
+    synchronized {
+      _insertBatcher.foreach(_.close())
+      _insertBatcher = None
+      insertBatchLingerMs = lingerMs
+      insertBatchMaxSize = maxBatchSize
+    }
+    this
+  }
+
+  override def async: IStratioStreamingAsyncAPI = new StratioStreamingAsyncAPI(this, ackTimeOut)
+
   override def close: Unit = {
+    Try {
+      synchronized(_insertBatcher.foreach(_.close()))
+    }
+    match {
+      case Failure(e: Throwable) => throw new StratioStreamingException("Error trying to send the pending inserts.")
+      case _ => ()
+    }
     Try {
       kafkaProducer.close()
     }
@@ -394,6 +439,12 @@ class StratioStreamingAPI
       case Failure(e: Throwable) => throw new StratioStreamingException("Error trying to close topicService.")
       case _ => ()
     }
+    Try {
+      if (isKafkaAckTransport) replyConsumer.foreach(_.close())
+    } match {
+      case Failure(e: Throwable) => throw new StratioStreamingException("Error trying to close the reply consumer.")
+      case _ => ()
+    }
     Try {
       zookeeperClient.close()
     } match {
@@ -421,6 +472,10 @@ class StratioStreamingAPI
   var clusterUp = false
   var ignoreGroupDown = false
   var numberOfClusterNodes = 1
+  @volatile var insertMessageFormat = InsertMessageFormat.V1
+  lazy val maxInsertMessageVersion =
+    if (config.hasPath("insertMessage.maxVersion")) config.getInt("insertMessage.maxVersion")
+    else InsertMessageFormat.latest.getVersion
   val streamingListeners = scala.collection.mutable.Map[String, KafkaConsumer]()
   lazy val kafkaProducer = new KafkaProducer(InternalTopic.TOPIC_REQUEST.getTopicName(), kafkaBroker)
   lazy val kafkaDataProducer = new KafkaProducer(InternalTopic.TOPIC_DATA.getTopicName(), kafkaBroker)
@@ -428,19 +483,33 @@ class StratioStreamingAPI
   lazy val zookeeperClient = CuratorFrameworkFactory.newClient(zookeeperCluster, retryPolicy)
   var topicService: TopicService = _
   var ackTimeOut = 8000
+  var maxOutstandingRequests =
+    if (config.hasPath("async.maxOutstandingRequests")) config.getInt("async.maxOutstandingRequests") else 256
+  var insertBatchLingerMs =
+    if (config.hasPath("insertBatch.lingerMs")) config.getInt("insertBatch.lingerMs") else 5
+  var insertBatchMaxSize =
+    if (config.hasPath("insertBatch.maxSize")) config.getInt("insertBatch.maxSize") else 1
   lazy val zookeeperConsumer = {
     zookeeperClient.start()
     new ZookeeperConsumer(zookeeperClient)
   }
+  val replyTopicName = InternalTopic.TOPIC_REPLY.getTopicName
+  lazy val replyConsumer: Option[KafkaReplyConsumer] =
+    if (isKafkaAckTransport) Some(new KafkaReplyConsumer(replyTopicName,
+      replyTopicName + "_" + UUID.randomUUID().toString, zookeeperCluster, kafkaZookeeperPath))
+    else None
   private var _syncOperation: Option[StreamingAPISyncOperation] = None
   private var _asyncOperation: Option[StreamingAPIAsyncOperation] = None
   private var _statusOperation: Option[StreamingAPIListOperation] = None
+  private var _futureOperation: Option[StreamingAPIFutureOperation] = None
+  private var _insertBatcher: Option[StreamingAPIInsertBatcher] = None
 
   private val partitionerStrategyFactory:PartitionerStrategyFactory = new PartitionerStrategyFactory()
 
   def syncOperation: StreamingAPISyncOperation =
     _syncOperation.getOrElse {
-      val initialized = new StreamingAPISyncOperation(kafkaProducer, zookeeperConsumer, ackTimeOut)
+      val initialized = new StreamingAPISyncOperation(kafkaProducer, zookeeperConsumer, ackTimeOut,
+        replyConsumer)
       setSyncOperation(initialized)
       initialized
     }
@@ -450,6 +519,7 @@ class StratioStreamingAPI
   def asyncOperation: StreamingAPIAsyncOperation =
     _asyncOperation.getOrElse {
       val initialized = new StreamingAPIAsyncOperation(kafkaDataProducer)
+      initialized.insertMessageFormat = insertMessageFormat
       setAsyncOperation(initialized)
       initialized
     }
@@ -458,13 +528,36 @@ class StratioStreamingAPI
 
   def statusOperation: StreamingAPIListOperation =
     _statusOperation.getOrElse {
-      val initialized = new StreamingAPIListOperation(kafkaProducer, zookeeperConsumer, ackTimeOut)
+      val initialized = new StreamingAPIListOperation(kafkaProducer, zookeeperConsumer, ackTimeOut,
+        replyConsumer)
       setStatusOperation(initialized)
       initialized
     }
 
   def setStatusOperation(value: StreamingAPIListOperation): Unit = _statusOperation = Option(value)
 
+  def futureOperation: StreamingAPIFutureOperation = synchronized {
+    _futureOperation.getOrElse {
+      val initialized = new StreamingAPIFutureOperation(kafkaProducer, zookeeperConsumer, maxOutstandingRequests,
+        replyConsumer)
+      setFutureOperation(initialized)
+      initialized
+    }
+  }
+
+  def setFutureOperation(value: StreamingAPIFutureOperation): Unit = _futureOperation = Option(value)
+
+  /**
+   * Single inserts are buffered and sent in batches only when insertBatch.maxSize is greater than one.
+   */
+  def insertBatcher: Option[StreamingAPIInsertBatcher] = synchronized {
+    if (_insertBatcher.isEmpty && insertBatchMaxSize > 1) {
+      _insertBatcher = Some(new StreamingAPIInsertBatcher(() => asyncOperation, insertBatchLingerMs,
+        insertBatchMaxSize))
+    }
+    _insertBatcher
+  }
+
   private def checkEphemeralNode() {
     val ephemeralNodePath = ZK_EPHEMERAL_NODE_STATUS_PATH
     if (!zookeeperConsumer.zNodeExists(ephemeralNodePath)) {
@@ -483,6 +576,7 @@ class StratioStreamingAPI
           streamingRunning = true
           clusterUp = true
           checkNumberOfClusterNodes
+          negotiateInsertMessageFormat
 
         case ZK_EPHEMERAL_NODE_STATUS_GROUPS_DOWN =>
           streamingUp = true
@@ -505,6 +599,22 @@ class StratioStreamingAPI
   }
 
 
+  /**
+   * Uses the latest insert message format supported by both the engine and this client, unless a lower one is forced
+   * with insertMessage.maxVersion. Every engine node publishes its own version and the lowest one is used, so a
+   * rolling upgrade keeps old nodes able to decode the messages. Engines that don't publish their version only
+   * understand v1 messages.
+   */
+  private def negotiateInsertMessageFormat(): Unit = {
+    val engineVersions = Try(zookeeperConsumer.getChildrenData(ZK_EPHEMERAL_NODE_INSERT_MESSAGE_VERSIONS_PATH)
+      .map(_.trim.toInt)).getOrElse(Seq())
+    val engineVersion = if (engineVersions.isEmpty) InsertMessageFormat.V1.getVersion else engineVersions.min
+    val version = Seq(engineVersion, InsertMessageFormat.latest.getVersion, maxInsertMessageVersion).min
+    insertMessageFormat = InsertMessageFormat.fromVersion(version)
+    _asyncOperation.foreach(_.insertMessageFormat = insertMessageFormat)
+    log.info("Using insert message format {}", insertMessageFormat)
+  }
+
   private def startEphemeralNodeWatch() {
     zookeeperClient.checkExists().watched().forPath(ZK_EPHEMERAL_NODE_STATUS_PATH)
     addListener()
@@ -516,9 +626,13 @@ class StratioStreamingAPI
 
     topicService.createTopicIfNotExist(streamingTopicName, 1, 1)
     topicService.createTopicIfNotExist(streamingDataTopicName, 1, 1);
+    if (isKafkaAckTransport) {
+      topicService.createTopicIfNotExist(replyTopicName, 1, 1)
+      log.info("Waiting for the acks in the reply topic {}", replyConsumer.get.topic)
+    }
   }
 
-  private def checkStreamingStatus() {
+  private[api] def checkStreamingStatus() {
     if (!streamingUp) throw new StratioEngineStatusException("Stratio Decision is down")
     if (!streamingRunning) throw new StratioEngineStatusException("Stratio Decision not yet initialized")
   }
@@ -548,6 +662,7 @@ class StratioStreamingAPI
                 streamingRunning = true
                 clusterUp = true
                 checkNumberOfClusterNodes
+                negotiateInsertMessageFormat
               }
               case Some(ZK_EPHEMERAL_NODE_STATUS_GROUPS_DOWN) => {
                 streamingUp = true
@@ -19,4 +19,13 @@ import com.typesafe.config.ConfigFactory
 
 trait StratioStreamingAPIConfig {
   val config = ConfigFactory.load("stratio-streaming.conf")
+
+  /**
+   * Where the engine acknowledges the sync operations: "zookeeper" (default) or "kafka", which uses a reply topic
+   * shared by every client.
+   */
+  lazy val ackTransport =
+    if (config.hasPath("ack.transport")) config.getString("ack.transport").toLowerCase else "zookeeper"
+
+  def isKafkaAckTransport: Boolean = ackTransport == "kafka"
 }
@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.{List, Map}
+
+import com.stratio.decision.api.messaging.MessageBuilder.builder
+import com.stratio.decision.api.messaging._
+import com.stratio.decision.commons.constants.STREAM_OPERATIONS.ACTION.{INDEX, SAVETO_CASSANDRA, SAVETO_MONGO,
+SAVETO_SOLR, START_SENDTODROOLS, STOP_INDEX, STOP_SAVETO_CASSANDRA, STOP_SAVETO_MONGO, STOP_SAVETO_SOLR,
+STOP_SENDTODROOLS}
+import com.stratio.decision.commons.constants.STREAM_OPERATIONS.DEFINITION
+import com.stratio.decision.commons.constants.STREAM_OPERATIONS.DEFINITION.{ADD_QUERY, ALTER, DROP, REMOVE_QUERY}
+import com.stratio.decision.commons.constants.STREAM_OPERATIONS.MANIPULATION.LIST
+import com.stratio.decision.commons.messages.StratioStreamingMessage
+import com.stratio.decision.commons.streams.StratioStream
+
+import scala.collection.JavaConversions._
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.{Future, Promise}
+import scala.util.control.NonFatal
+import scala.util.{Failure, Success}
+
+class StratioStreamingAsyncAPI(api: StratioStreamingAPI, timeOutInMs: Int)
+  extends IStratioStreamingAsyncAPI {
+
+  private def sessionId = api.sessionId
+
+  def withTimeOut(timeOutInMs: Int): IStratioStreamingAsyncAPI = new StratioStreamingAsyncAPI(api, timeOutInMs)
+
+  def createStream(streamName: String, columns: List[ColumnNameType]) =
+    perform(new MessageBuilderWithColumns(sessionId, DEFINITION.CREATE.toLowerCase).build(streamName, columns))
+
+  def alterStream(streamName: String, columns: List[ColumnNameType]) =
+    perform(new MessageBuilderWithColumns(sessionId, ALTER.toLowerCase).build(streamName, columns))
+
+  def addQuery(streamName: String, query: String): Future[String] =
+    perform(addQueryMessage(streamName, query))
+      .flatMap(_ => listStreams())
+      .map(streams => queryId(streams, streamName, query))
+
+  def removeQuery(streamName: String, queryId: String) =
+    perform(new QueryMessageBuilder(sessionId).build(streamName, queryId, REMOVE_QUERY.toLowerCase))
+
+  def dropStream(streamName: String) =
+    perform(new StreamMessageBuilder(sessionId).build(streamName, DROP.toLowerCase))
+
+  def listStreams(): Future[List[StratioStream]] =
+    attempt {
+      val listStreamMessage = builder.withOperation(LIST.toLowerCase)
+        .withSessionId(sessionId)
+        .build()
+      api.futureOperation.getListStreams(listStreamMessage, timeOutInMs).map(streams => seqAsJavaList(streams))
+    }
+
+  def saveToElasticsearch(streamName: String) = indexStream(streamName)
+
+  def stopSaveToElasticsearch(streamName: String) = stopIndexStream(streamName)
+
+  def indexStream(streamName: String) = streamOperation(streamName, INDEX)
+
+  def stopIndexStream(streamName: String) = streamOperation(streamName, STOP_INDEX)
+
+  def saveToCassandra(streamName: String) = streamOperation(streamName, SAVETO_CASSANDRA)
+
+  def stopSaveToCassandra(streamName: String) = streamOperation(streamName, STOP_SAVETO_CASSANDRA)
+
+  def saveToMongo(streamName: String) = streamOperation(streamName, SAVETO_MONGO)
+
+  def stopSaveToMongo(streamName: String) = streamOperation(streamName, STOP_SAVETO_MONGO)
+
+  def saveToSolr(streamName: String) = streamOperation(streamName, SAVETO_SOLR)
+
+  def stopSaveToSolr(streamName: String) = streamOperation(streamName, STOP_SAVETO_SOLR)
+
+  def startSendToDrools(streamName: String, groupName: String, outputStream: String = null,
+    kafkaTopic: String = null) =
+    perform(new DroolsMessageBuilder(streamName, START_SENDTODROOLS.toLowerCase)
+      .build(groupName, outputStream, kafkaTopic))
+
+  def stopSendToDrools(streamName: String) = streamOperation(streamName, STOP_SENDTODROOLS)
+
+  def createStreams(streams: Map[String, List[ColumnNameType]]) =
+    all(streams.toSeq) { case (streamName, columns) => createStream(streamName, columns) }
+
+  def addQueries(streamName: String, queries: List[String]): Future[List[String]] = {
+    val queryList = queries.toList
+    all(queryList)(query => perform(addQueryMessage(streamName, query)))
+      .flatMap(_ => listStreams())
+      .map(streams => seqAsJavaList(queryList.map(query => queryId(streams, streamName, query))))
+  }
+
+  def dropStreams(streamNames: List[String]) = all(streamNames.toSeq)(dropStream)
+
+  private def addQueryMessage(streamName: String, query: String) =
+    new QueryMessageBuilder(sessionId).build(streamName, query, ADD_QUERY.toLowerCase)
+
+  private def streamOperation(streamName: String, operation: String) =
+    perform(new StreamMessageBuilder(sessionId).build(streamName, operation.toLowerCase))
+
+  private def perform(message: => StratioStreamingMessage): Future[Unit] =
+    attempt(api.futureOperation.performOperation(message, timeOutInMs))
+
+  /**
+   * Runs the operation, turning a down engine or a failure sending the request into a failed future.
+   */
+  private def attempt[T](operation: => Future[T]): Future[T] = {
+    try {
+      api.checkStreamingStatus()
+      operation
+    } catch {
+      case NonFatal(e) => Future.failed(e)
+    }
+  }
+
+  /**
+   * Runs the operation for every item, keeping at most maxOutstandingRequests of them pending: each one starts as
+   * soon as a previous one completes, so the bulk operations are not rejected for having too many pending requests.
+   */
+  private def all[T](items: Seq[T])(operation: T => Future[Unit]): Future[Unit] = {
+    val pending = items.toIndexedSeq
+    val results = pending.map(_ => Promise[Unit]())
+    val next = new AtomicInteger()
+
+    def sendNext(): Unit = {
+      val index = next.getAndIncrement()
+      if (index < pending.size) {
+        val result = attempt(operation(pending(index)))
+        results(index).completeWith(result)
+        result.onComplete(_ => sendNext())
+      }
+    }
+
+    (1 to math.min(math.max(1, api.maxOutstandingRequests), pending.size)).foreach(_ => sendNext())
+    Future.sequence(results.map(_.future)).map(_ => ())
+  }
+
+  private def queryId(streams: List[StratioStream], streamName: String, query: String): String =
+    streams.find(_.getStreamName.equals(streamName))
+      .flatMap(_.getQueries.find(_.getQuery.equals(query)))
+      .map(_.getQueryId)
+      .getOrElse("")
+}
+
+object StratioStreamingAsyncAPI {
+
+  /**
+   * Bridges an operation of the async API to java code.
+   */
+  def toCompletableFuture[T](future: Future[T]): CompletableFuture[T] = {
+    val completableFuture = new CompletableFuture[T]()
+    future.onComplete {
+      case Success(value) => completableFuture.complete(value)
+      case Failure(e) => completableFuture.completeExceptionally(e)
+    }
+    completableFuture
+  }
+}
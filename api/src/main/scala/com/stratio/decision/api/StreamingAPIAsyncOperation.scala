@@ -16,12 +16,15 @@
 package com.stratio.decision.api
 
 import com.stratio.decision.api.kafka.KafkaProducer
-import com.stratio.decision.commons.avro.{ColumnType, InsertMessage}
+import com.stratio.decision.commons.avro.{ColumnType, InsertBatchMessage, InsertMessage, InsertMessageFormat,
+InsertMessageV2, TypedColumn}
 import com.stratio.decision.commons.messages.{ColumnNameTypeValue, StratioStreamingMessage}
 import collection.JavaConversions._
 
 class StreamingAPIAsyncOperation(tableProducer: KafkaProducer) {
 
+  @volatile var insertMessageFormat: InsertMessageFormat = InsertMessageFormat.V1
+
   def performAsyncOperation(message: StratioStreamingMessage, topicName:String) : Unit = {
     addAvroMessageToKafkaTopic(message, topicName)
   }
@@ -30,9 +33,64 @@ class StreamingAPIAsyncOperation(tableProducer: KafkaProducer) {
     performAsyncOperation(message, null)
   }
 
+  /**
+   * Sends several inserts at once. When the engine understands batch records, each run of consecutive messages of the
+   * same stream and columns travels as one multi-row record; otherwise every message is sent on its own.
+   */
+  def performAsyncBatchOperation(messages: Seq[StratioStreamingMessage], topicName: String): Unit = {
+    if (insertMessageFormat.supportsBatches) {
+      groupByColumns(messages).foreach(group =>
+        tableProducer.sendAvro(convertBatchMessage(group), group.head.getOperation, topicName))
+    } else {
+      messages.foreach(addAvroMessageToKafkaTopic(_, topicName))
+    }
+  }
+
+  private def groupByColumns(messages: Seq[StratioStreamingMessage]): Seq[Seq[StratioStreamingMessage]] =
+    messages.foldLeft(Vector.empty[Vector[StratioStreamingMessage]]) { (groups, message) =>
+      groups.lastOption match {
+        case Some(group) if sameBatch(group.head, message) => groups.init :+ (group :+ message)
+        case _ => groups :+ Vector(message)
+      }
+    }
+
+  private def sameBatch(first: StratioStreamingMessage, other: StratioStreamingMessage): Boolean =
+    first.getStreamName == other.getStreamName && first.getOperation == other.getOperation &&
+      first.getColumns.map(_.getColumn) == other.getColumns.map(_.getColumn)
+
+  private def convertBatchMessage(messages: Seq[StratioStreamingMessage]): InsertBatchMessage = {
+    val first = messages.head
+    val columns = new java.util.ArrayList[String]()
+    first.getColumns.foreach(column => columns.add(column.getColumn))
+
+    val rows = new java.util.ArrayList[java.util.List[AnyRef]](messages.size)
+    for (message <- messages) {
+      val row = new java.util.ArrayList[AnyRef](columns.size)
+      message.getColumns.foreach(column => row.add(InsertMessageFormat.toTypedValue(column.getValue)))
+      rows.add(row)
+    }
+
+    new InsertBatchMessage(first.getOperation, first.getStreamName, first.getSession_id, columns, rows)
+  }
+
   private def addAvroMessageToKafkaTopic(message: StratioStreamingMessage, topicName:String) = {
-    val avroKafkaMessage : InsertMessage = convertMessage(message)
-    tableProducer.sendAvro(avroKafkaMessage, message.getOperation, topicName)
+    insertMessageFormat match {
+      case InsertMessageFormat.V1 =>
+        val avroKafkaMessage : InsertMessage = convertMessage(message)
+        tableProducer.sendAvro(avroKafkaMessage, message.getOperation, topicName)
+      case _ =>
+        tableProducer.sendAvro(convertTypedMessage(message), message.getOperation, topicName)
+    }
+  }
+
+  private def convertTypedMessage(stratioStreamingMessage : StratioStreamingMessage) : InsertMessageV2 = {
+    val columns = new java.util.ArrayList[TypedColumn]()
+    for (messageColumn : ColumnNameTypeValue <- stratioStreamingMessage.getColumns) {
+      columns.add(new TypedColumn(messageColumn.getColumn, InsertMessageFormat.toTypedValue(messageColumn.getValue)))
+    }
+
+    new InsertMessageV2(stratioStreamingMessage.getOperation, stratioStreamingMessage.getStreamName,
+      stratioStreamingMessage.getSession_id, null, columns, null)
   }
 
   private def convertMessage(stratioStreamingMessage : StratioStreamingMessage) : InsertMessage = {
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api
+
+import java.util.UUID
+import java.util.concurrent.{ConcurrentHashMap, Executors, Semaphore, TimeUnit}
+
+import com.stratio.decision.api.kafka.{KafkaProducer, KafkaReplyConsumer}
+import com.stratio.decision.api.utils.StreamsParser
+import com.stratio.decision.api.zookeeper.ZookeeperConsumer
+import com.stratio.decision.commons.exceptions.{StratioAPIGenericException, StratioEngineConnectionException, StratioEngineOperationException}
+import com.stratio.decision.commons.messages.StratioStreamingMessage
+import com.stratio.decision.commons.streams.StratioStream
+
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.{Future, Promise}
+import scala.util.control.NonFatal
+
+/**
+ * Sends sync operations without waiting for their acks. Every request gets a unique request id and is kept in a
+ * map of outstanding requests until its ack arrives or its timeout expires. Once maxOutstandingRequests are pending,
+ * new requests are not sent and fail right away with a StratioAPIGenericException.
+ */
+class StreamingAPIFutureOperation(
+  kafkaProducer: KafkaProducer,
+  zookeeperConsumer: ZookeeperConsumer,
+  maxOutstandingRequests: Int,
+  replyConsumer: Option[KafkaReplyConsumer] = None)
+  extends StreamingAPIOperation {
+
+  import StreamingAPIFutureOperation._
+
+  private val slots = new Semaphore(maxOutstandingRequests)
+  private val outstandingRequests = new ConcurrentHashMap[String, Promise[String]]()
+
+  def outstanding: Int = outstandingRequests.size
+
+  /**
+   * Sends the message and completes with the reply of the engine.
+   */
+  def submit(message: StratioStreamingMessage, timeOutInMs: Int): Future[String] = {
+    message.setRequest_id(UUID.randomUUID().toString)
+    val requestId = message.getRequest_id
+    val promise = Promise[String]()
+
+    if (!slots.tryAcquire()) {
+      return Future.failed(new StratioAPIGenericException(
+        s"Too many outstanding requests: $maxOutstandingRequests requests are waiting for their ack"))
+    }
+    outstandingRequests.put(requestId, promise)
+
+    val timeout = timer.schedule(new Runnable {
+      override def run(): Unit = {
+        if (promise.tryFailure(new StratioEngineConnectionException("Acknowledge timeout expired" + message.getRequest))) {
+          log.error("Ack timeout expired for: " + message.getRequest)
+        }
+      }
+    }, timeOutInMs, TimeUnit.MILLISECONDS)
+
+    // the request completes once its slot is free, so a request sent when it completes is not rejected
+    val completed = Promise[String]()
+    promise.future.onComplete { reply =>
+      timeout.cancel(false)
+      replyConsumer.foreach(_.cancel(requestId))
+      outstandingRequests.remove(requestId)
+      slots.release()
+      completed.complete(reply)
+    }
+
+    try {
+      promise.completeWith(expectReply(message))
+      addMessageToKafkaTopic(message, requestId, kafkaProducer)
+    } catch {
+      case NonFatal(e) => promise.tryFailure(new StratioEngineOperationException("Error connecting with engine"))
+    }
+    completed.future
+  }
+
+  /**
+   * Completes once the engine acks the operation, failing as the sync operation would throw.
+   */
+  def performOperation(message: StratioStreamingMessage, timeOutInMs: Int): Future[Unit] =
+    submit(message, timeOutInMs).map(response => manageStreamingResponse(response, message))
+
+  def getListStreams(message: StratioStreamingMessage, timeOutInMs: Int): Future[List[StratioStream]] =
+    submit(message, timeOutInMs).map(StreamsParser.parse)
+
+  private def expectReply(message: StratioStreamingMessage): Future[String] = replyConsumer match {
+    case Some(consumer) =>
+      askForTheReplyIn(consumer.topic, message)
+      consumer.expectReply(message.getRequest_id)
+    case None =>
+      val zNodeFullPath = getOperationZNodeFullPath(message.getOperation.toLowerCase, message.getRequest_id)
+      zookeeperConsumer.readZNode(zNodeFullPath).map { _ =>
+        val response = zookeeperConsumer.getZNodeData(zNodeFullPath)
+        zookeeperConsumer.removeZNode(zNodeFullPath)
+        response.get
+      }
+  }
+}
+
+object StreamingAPIFutureOperation {
+
+  private val timer = Executors.newSingleThreadScheduledExecutor(new java.util.concurrent.ThreadFactory {
+    override def newThread(runnable: Runnable): Thread = {
+      val thread = new Thread(runnable, "decision-api-ack-timeouts")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+}
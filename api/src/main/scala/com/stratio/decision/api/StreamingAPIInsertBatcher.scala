@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api
+
+import java.io.Closeable
+import java.util.concurrent.{Executors, ThreadFactory, TimeUnit}
+
+import com.stratio.decision.commons.messages.StratioStreamingMessage
+import org.slf4j.LoggerFactory
+
+import scala.collection.mutable
+import scala.util.Try
+
+/**
+ * Buffers the inserts of each stream and topic, sending them as one batch when maxBatchSize rows are pending or
+ * lingerMs milliseconds after the last flush. Batches are sent while holding the lock, so the rows of a stream keep
+ * their order.
+ */
+class StreamingAPIInsertBatcher(asyncOperation: () => StreamingAPIAsyncOperation,
+                                val lingerMs: Int,
+                                val maxBatchSize: Int) extends Closeable {
+
+  require(lingerMs > 0, "The linger time must be positive")
+  require(maxBatchSize > 0, "The max batch size must be positive")
+
+  private val log = LoggerFactory.getLogger(getClass)
+
+  private val pending = mutable.LinkedHashMap[(String, String), mutable.ArrayBuffer[StratioStreamingMessage]]()
+
+  private val scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory {
+    override def newThread(runnable: Runnable): Thread = {
+      val thread = new Thread(runnable, "decision-insert-batcher")
+      thread.setDaemon(true)
+      thread
+    }
+  })
+
+  scheduler.scheduleWithFixedDelay(new Runnable {
+    override def run(): Unit = Try(flush()).failed.foreach(e => log.error("Error sending the pending inserts", e))
+  }, lingerMs, lingerMs, TimeUnit.MILLISECONDS)
+
+  def add(message: StratioStreamingMessage, topicName: String): Unit = synchronized {
+    val key = (message.getStreamName, topicName)
+    val batch = pending.getOrElseUpdate(key, new mutable.ArrayBuffer[StratioStreamingMessage](maxBatchSize))
+    batch += message
+    if (batch.size >= maxBatchSize) {
+      pending.remove(key)
+      send(topicName, batch)
+    }
+  }
+
+  def flush(): Unit = synchronized {
+    pending.foreach { case ((_, topicName), batch) => send(topicName, batch) }
+    pending.clear()
+  }
+
+  def pendingInserts: Int = synchronized {
+    pending.values.map(_.size).sum
+  }
+
+  override def close(): Unit = {
+    scheduler.shutdown()
+    flush()
+  }
+
+  private def send(topicName: String, batch: Seq[StratioStreamingMessage]): Unit =
+    asyncOperation().performAsyncBatchOperation(batch, topicName)
+}
@@ -17,7 +17,7 @@ package com.stratio.decision.api
 
 import java.util.{List, UUID}
 
-import com.stratio.decision.api.kafka.KafkaProducer
+import com.stratio.decision.api.kafka.{KafkaProducer, KafkaReplyConsumer}
 import com.stratio.decision.api.utils.StreamsParser
 import com.stratio.decision.api.zookeeper.ZookeeperConsumer
 import com.stratio.decision.commons.messages.StratioStreamingMessage
@@ -27,13 +27,18 @@ import scala.collection.JavaConversions._
 
 class StreamingAPIListOperation(kafkaProducer: KafkaProducer,
   zookeeperConsumer: ZookeeperConsumer,
-  ackTimeOutInMs: Int)
+  ackTimeOutInMs: Int,
+  replyConsumer: Option[KafkaReplyConsumer] = None)
   extends StreamingAPIOperation {
 
   def getListStreams(message: StratioStreamingMessage): List[StratioStream] = {
-    val zNodeUniqueId = UUID.randomUUID().toString
-    addMessageToKafkaTopic(message, zNodeUniqueId, kafkaProducer)
-    val jsonStreamingResponse = waitForTheStreamingResponse(zookeeperConsumer, message, ackTimeOutInMs)
+    val jsonStreamingResponse = replyConsumer match {
+      case Some(consumer) => sendAndWaitForTheKafkaResponse(consumer, message, kafkaProducer, ackTimeOutInMs)
+      case None =>
+        val zNodeUniqueId = UUID.randomUUID().toString
+        addMessageToKafkaTopic(message, zNodeUniqueId, kafkaProducer)
+        waitForTheStreamingResponse(zookeeperConsumer, message, ackTimeOutInMs)
+    }
     val parsedList = StreamsParser.parse(jsonStreamingResponse)
     parsedList
   }
@@ -16,10 +16,12 @@
 package com.stratio.decision.api
 
 import com.google.gson.Gson
-import com.stratio.decision.api.kafka.KafkaProducer
+import com.stratio.decision.api.kafka.{KafkaProducer, KafkaReplyConsumer}
 import com.stratio.decision.api.zookeeper.ZookeeperConsumer
+import com.stratio.decision.commons.constants.ReplyCode._
 import com.stratio.decision.commons.constants.STREAMING._
-import com.stratio.decision.commons.exceptions.{StratioEngineConnectionException, StratioEngineOperationException}
+import com.stratio.decision.commons.dto.ActionCallbackDto
+import com.stratio.decision.commons.exceptions.{StratioAPIGenericException, StratioAPISecurityException, StratioEngineConnectionException, StratioEngineOperationException}
 import com.stratio.decision.commons.messages.StratioStreamingMessage
 import org.slf4j.LoggerFactory
 
@@ -38,6 +40,37 @@ class StreamingAPIOperation
     tableProducer.send(kafkaMessage, message.getOperation)
   }
 
+  /**
+   * Sends the message asking the engine to reply in the given topic, and waits for the reply there.
+   */
+  protected def sendAndWaitForTheKafkaResponse(replyConsumer: KafkaReplyConsumer,
+    message: StratioStreamingMessage,
+    tableProducer: KafkaProducer,
+    ackTimeOutInMs: Int) = {
+    askForTheReplyIn(replyConsumer.topic, message)
+    val reply = replyConsumer.expectReply(message.getRequest_id)
+    try {
+      addMessageToKafkaTopic(message, message.getRequest_id, tableProducer)
+      Await.result(reply, ackTimeOutInMs milliseconds)
+    } catch {
+      case e: TimeoutException => {
+        log.error("Ack timeout expired for: " + message.getRequest)
+        throw new StratioEngineConnectionException("Acknowledge timeout expired" + message.getRequest)
+      }
+      case _: Throwable => {
+        throw new StratioEngineOperationException("Error connecting with engine")
+      }
+    } finally {
+      replyConsumer.cancel(message.getRequest_id)
+    }
+  }
+
+  protected def askForTheReplyIn(replyTopic: String, message: StratioStreamingMessage) = {
+    val parameters = Option(message.getAdditionalParameters).getOrElse(new java.util.HashMap[String, Object]())
+    parameters.put(REPLY_TOPIC_PARAMETER, replyTopic)
+    message.setAdditionalParameters(parameters)
+  }
+
   protected def getOperationZNodeFullPath(operation: String, uniqueId: String) = {
     val zookeeperBasePath = ZK_BASE_PATH
     val zookeeperPath = s"$zookeeperBasePath/$operation/$uniqueId"
@@ -66,4 +99,50 @@ class StreamingAPIOperation
       }
     }
   }
+
+  protected def manageStreamingResponse(response: String, message: StratioStreamingMessage) = {
+    val responseDto = parseTheEngineResponse(response)
+    responseDto match {
+      case None => throw new StratioAPIGenericException("StratioEngine error: Unable to parse the engine respsonse")
+      case Some(responseDto) =>
+        val replyCode = responseDto.getErrorCode
+        val replyDescription = responseDto.getDescription
+        replyCode match {
+          case s if s == OK.getCode() => {
+            val messageOperation = message.getOperation
+            val streamName = message.getStreamName
+            log.info(s"StratioEngine Ack received for the operation $messageOperation on the $streamName stream")
+          }
+          case s if s == KO_STREAM_OPERATION_NOT_ALLOWED.getCode() |
+            s == KO_STREAM_IS_NOT_USER_DEFINED.getCode() => {
+            createLogError(replyCode, replyDescription)
+            throw new StratioAPISecurityException(replyDescription)
+          }
+          case s if s == KO_STREAM_ALREADY_EXISTS.getCode() => {
+            log.warn("Stream already exists")
+          }
+          case _ => {
+            createLogError(replyCode, replyDescription)
+            throw new StratioEngineOperationException("StratioEngine error: " + replyDescription)
+          }
+        }
+    }
+
+  }
+
+  private def createLogError(responseCode: Int, errorDescription: String) = {
+    log.error(s"StratioAPI - [ACK_CODE,QUERY_STRING]: [$responseCode,$errorDescription]")
+  }
+
+  private def parseTheEngineResponse(response: String): Option[ActionCallbackDto] = {
+    try {
+      val parsedResponse = new Gson().fromJson(response, classOf[ActionCallbackDto])
+      parsedResponse.getErrorCode match {
+        case null => None
+        case _ => Some(parsedResponse)
+      }
+    } catch {
+      case _: Throwable => None
+    }
+  }
 }
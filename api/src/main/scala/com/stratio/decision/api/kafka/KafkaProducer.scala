@@ -15,13 +15,11 @@
  */
 package com.stratio.decision.api.kafka
 
-import java.io.{ByteArrayOutputStream, Closeable}
+import java.io.Closeable
 import java.util.{Properties, UUID}
 
-import com.stratio.decision.commons.avro.InsertMessage
+import com.stratio.decision.commons.avro.{InsertBatchMessage, InsertMessage, InsertMessageCodec, InsertMessageV2}
 import kafka.producer._
-import org.apache.avro.io.EncoderFactory
-import org.apache.avro.specific.SpecificDatumWriter
 import org.slf4j.LoggerFactory
 
 import org.apache.kafka.clients.producer.{ProducerRecord}
@@ -82,14 +80,24 @@ class KafkaProducer(topic: String,
   }
 
   def sendAvro(insertMessage: InsertMessage, key: String, anotherTopic:String) : Unit = {
+    sendAvroBytes(serializeInsertMessageToAvro(insertMessage), key, anotherTopic)
+  }
+
+  def sendAvro(insertMessage: InsertMessageV2, key: String, anotherTopic:String) : Unit = {
+    sendAvroBytes(serializeInsertMessageV2ToAvro(insertMessage), key, anotherTopic)
+  }
+
+  def sendAvro(insertBatchMessage: InsertBatchMessage, key: String, anotherTopic:String) : Unit = {
+    sendAvroBytes(serializeInsertBatchMessageToAvro(insertBatchMessage), key, anotherTopic)
+  }
+
+  private def sendAvroBytes(insertBytes: => Array[Byte], key: String, anotherTopic:String) : Unit = {
     try {
 
       val destinationTopic:String = if (anotherTopic!=null) anotherTopic else topic
 
       log.info("Sending Avro Message")
 
-      val insertBytes = serializeInsertMessageToAvro(insertMessage) // Avro schema serialization as a byte array
-
       val message = new ProducerRecord[String, Array[Byte]](destinationTopic, key, insertBytes)
       producerAvro.send(message)
 
@@ -101,17 +109,14 @@ class KafkaProducer(topic: String,
   }
 
 
-  def serializeInsertMessageToAvro(insertMessage: InsertMessage): Array[Byte] = {
-    val out = new ByteArrayOutputStream()
-    val encoder = EncoderFactory.get.binaryEncoder(out, null)
-    val writer = new SpecificDatumWriter[InsertMessage](InsertMessage.getClassSchema)
-
-    writer.write(insertMessage, encoder)
-    encoder.flush
-    out.close
-    out.toByteArray
-  }
+  // the codec of the calling thread reuses its writers, encoder and buffer between messages
+  def serializeInsertMessageToAvro(insertMessage: InsertMessage): Array[Byte] =
+    InsertMessageCodec.get.encode(insertMessage)
 
+  def serializeInsertMessageV2ToAvro(insertMessage: InsertMessageV2): Array[Byte] =
+    InsertMessageCodec.get.encode(insertMessage)
 
+  def serializeInsertBatchMessageToAvro(insertBatchMessage: InsertBatchMessage): Array[Byte] =
+    InsertMessageCodec.get.encode(insertBatchMessage)
 
 }
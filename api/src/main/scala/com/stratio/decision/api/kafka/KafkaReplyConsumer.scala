@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api.kafka
+
+import java.util.Properties
+import java.util.concurrent.ConcurrentHashMap
+
+import com.stratio.decision.commons.kafka.serializer.ZkStringSerializer
+import kafka.api.{OffsetRequest, PartitionOffsetRequestInfo}
+import kafka.common.TopicAndPartition
+import kafka.consumer.{Consumer, ConsumerConfig, SimpleConsumer}
+import kafka.serializer.StringDecoder
+import kafka.utils.{ZKGroupDirs, ZKGroupTopicDirs, ZkUtils}
+import org.I0Itec.zkclient.ZkClient
+import org.slf4j.LoggerFactory
+
+import scala.concurrent.{Future, Promise}
+import scala.util.control.NonFatal
+
+/**
+ * Reads the replies the engine publishes to the reply topic shared by every client and completes the request waiting
+ * for each one, matching them by request id. Every client reads the topic with its own consumer group, starting from
+ * the end of the topic when the consumer is created, and discards the replies of the other clients.
+ */
+class KafkaReplyConsumer(val topic: String,
+                         groupId: String,
+                         zookeeperConnect: String,
+                         kafkaZookeeperPath: String = "") {
+
+  private val log = LoggerFactory.getLogger(getClass)
+
+  private val pendingReplies = new ConcurrentHashMap[String, Promise[String]]()
+
+  private val zkClient = new ZkClient(zookeeperConnect + kafkaZookeeperPath, 10000, 10000, new ZkStringSerializer())
+
+  startFromTheEndOfTheTopic()
+
+  val props = new Properties()
+  props.put("group.id", groupId)
+  props.put("zookeeper.connect", zookeeperConnect + kafkaZookeeperPath)
+  props.put("auto.commit.enable", "false")
+  val connector = Consumer.create(new ConsumerConfig(props))
+
+  private val stream = connector.createMessageStreams(Map(topic -> 1), new StringDecoder(), new StringDecoder())
+    .apply(topic).head
+
+  private val readerThread = new Thread(new Runnable {
+    override def run(): Unit = {
+      try {
+        stream.foreach(reply => complete(reply.key, reply.message))
+      } catch {
+        case NonFatal(e) => log.debug("Reply consumer of topic {} stopped: {}", topic, e.getMessage)
+      }
+    }
+  }, s"reply-consumer-$groupId")
+  readerThread.setDaemon(true)
+  readerThread.start()
+
+  /**
+   * Registers the request before it is sent, so its reply can't be missed.
+   */
+  def expectReply(requestId: String): Future[String] = {
+    val promise = Promise[String]()
+    pendingReplies.put(requestId, promise)
+    promise.future
+  }
+
+  def cancel(requestId: String): Unit = pendingReplies.remove(requestId)
+
+  private[kafka] def complete(requestId: String, reply: String): Unit = {
+    Option(pendingReplies.remove(requestId)) match {
+      case Some(promise) => promise.trySuccess(reply)
+      case None => log.trace("Discarding reply of request {} as nobody is waiting for it", requestId)
+    }
+  }
+
+  /**
+   * Stores the current end of every partition as the offset of the group. Relying on auto.offset.reset would take the
+   * end when the fetcher starts, missing the replies of the requests sent before.
+   */
+  private def startFromTheEndOfTheTopic(): Unit = {
+    val topicDirs = new ZKGroupTopicDirs(groupId, topic)
+    for (partition <- ZkUtils.getPartitionsForTopics(zkClient, Seq(topic)).getOrElse(topic, Seq.empty)) {
+      val latestOffset = for {
+        leader <- ZkUtils.getLeaderForPartition(zkClient, topic, partition)
+        broker <- ZkUtils.getBrokerInfo(zkClient, leader)
+      } yield {
+        val consumer = new SimpleConsumer(broker.host, broker.port, 10000, 64 * 1024, groupId)
+        try {
+          val topicAndPartition = TopicAndPartition(topic, partition)
+          consumer.getOffsetsBefore(OffsetRequest(Map(topicAndPartition ->
+            PartitionOffsetRequestInfo(OffsetRequest.LatestTime, 1)))).partitionErrorAndOffsets(topicAndPartition)
+            .offsets.head
+        } finally {
+          consumer.close()
+        }
+      }
+      latestOffset match {
+        case Some(offset) =>
+          ZkUtils.updatePersistentPath(zkClient, s"${topicDirs.consumerOffsetDir}/$partition", offset.toString)
+        case None => log.warn("Leader of partition {} of the reply topic {} not found", partition, topic)
+      }
+    }
+  }
+
+  /**
+   * Stops the consumer and removes its group, which is only used by this client.
+   */
+  def close(): Unit = {
+    try {
+      connector.shutdown()
+      ZkUtils.deletePathRecursive(zkClient, new ZKGroupDirs(groupId).consumerGroupDir)
+    } finally {
+      zkClient.close()
+    }
+  }
+}
@@ -16,20 +16,55 @@
 package com.stratio.decision.api.zookeeper
 
 import org.apache.curator.framework.CuratorFramework
+import org.apache.curator.framework.api.{BackgroundCallback, CuratorEvent, CuratorWatcher}
+import org.apache.zookeeper.KeeperException.Code
+import org.apache.zookeeper.Watcher.Event.{EventType, KeeperState}
+import org.apache.zookeeper.{KeeperException, WatchedEvent}
 import org.slf4j.LoggerFactory
 
-import scala.concurrent.ExecutionContext.Implicits.global
-import scala.concurrent.Future
+import scala.collection.JavaConversions._
+import scala.concurrent.{Future, Promise}
+import scala.util.control.NonFatal
 
 class ZookeeperConsumer(zooKeeperClient: CuratorFramework) {
   val log = LoggerFactory.getLogger(getClass)
 
-  def readZNode(fullPath: String) = {
-    Future {
-      var nodeExists = zNodeExists(fullPath)
-      while (!nodeExists) {
-        nodeExists = zNodeExists(fullPath)
-      }
+  /**
+   * Completes when the znode exists. An exists watch is left on the path instead of polling it, so no thread is
+   * blocked while the ack is pending.
+   */
+  def readZNode(fullPath: String): Future[Unit] = {
+    val promise = Promise[Unit]()
+    watchZNode(fullPath, promise)
+    promise.future
+  }
+
+  private def watchZNode(fullPath: String, promise: Promise[Unit]): Unit = {
+    try {
+      zooKeeperClient.checkExists()
+        .usingWatcher(new CuratorWatcher {
+          override def process(event: WatchedEvent): Unit = {
+            if (event.getType == EventType.NodeCreated) {
+              promise.trySuccess(())
+            } else if (event.getType == EventType.None && event.getState == KeeperState.Expired
+              && !promise.isCompleted) {
+              // watches do not survive a new session
+              watchZNode(fullPath, promise)
+            }
+          }
+        })
+        .inBackground(new BackgroundCallback {
+          override def processResult(client: CuratorFramework, event: CuratorEvent): Unit = {
+            if (event.getStat != null) {
+              promise.trySuccess(())
+            } else if (event.getResultCode != Code.NONODE.intValue) {
+              promise.tryFailure(KeeperException.create(Code.get(event.getResultCode), fullPath))
+            }
+          }
+        })
+        .forPath(fullPath)
+    } catch {
+      case NonFatal(e) => promise.tryFailure(e)
     }
   }
 
@@ -40,6 +75,22 @@ class ZookeeperConsumer(zooKeeperClient: CuratorFramework) {
     }
   }
 
+  /**
+   * Data of every child of the znode. Children removed while they are being read are skipped.
+   */
+  def getChildrenData(fullPath: String): Seq[String] = {
+    if (!zNodeExists(fullPath)) {
+      Seq()
+    } else {
+      zooKeeperClient.getChildren.forPath(fullPath).toSeq.flatMap(child =>
+        try {
+          Some(new String(zooKeeperClient.getData.forPath(s"$fullPath/$child")))
+        } catch {
+          case e: KeeperException.NoNodeException => None
+        })
+    }
+  }
+
   def removeZNode(fullPath: String) = {
     if (zNodeExists(fullPath))
       zooKeeperClient.delete.forPath(fullPath)
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api
+
+import java.util.concurrent.atomic.AtomicInteger
+
+import com.stratio.decision.api.kafka.{KafkaProducer, KafkaReplyConsumer}
+import com.stratio.decision.api.messaging.ColumnNameType
+import com.stratio.decision.api.zookeeper.ZookeeperConsumer
+import com.stratio.decision.commons.constants.ColumnType
+import com.stratio.decision.commons.constants.ReplyCode._
+import org.junit.runner.RunWith
+import org.mockito.Matchers.anyString
+import org.mockito.Mockito
+import org.mockito.invocation.InvocationOnMock
+import org.mockito.stubbing.Answer
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FunSpec, GivenWhenThen, ShouldMatchers}
+
+import scala.collection.JavaConversions._
+import scala.concurrent.ExecutionContext.Implicits.global
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future}
+
+@RunWith(classOf[JUnitRunner])
+class StratioStreamingAsyncAPITest extends FunSpec
+  with GivenWhenThen
+  with ShouldMatchers
+  with MockitoSugar {
+
+  val kafkaProducerMock = mock[KafkaProducer]
+  val zookeeperConsumerMock = mock[ZookeeperConsumer]
+
+  /**
+   * Acks every request with OK after a while, counting the requests pending at the same time.
+   */
+  def newSlowReplyConsumer(pending: AtomicInteger, maxPending: AtomicInteger) = {
+    val errorCode = OK.getCode
+    val replyConsumerMock = mock[KafkaReplyConsumer]
+    Mockito.when(replyConsumerMock.topic).thenReturn("theReplyTopic")
+    Mockito.when(replyConsumerMock.expectReply(anyString())).thenAnswer(new Answer[Future[String]] {
+      override def answer(invocation: InvocationOnMock): Future[String] = {
+        maxPending.synchronized {
+          maxPending.set(math.max(maxPending.get, pending.incrementAndGet()))
+        }
+        Future {
+          Thread.sleep(20)
+          pending.decrementAndGet()
+          s"""{"errorCode":$errorCode}"""
+        }
+      }
+    })
+    replyConsumerMock
+  }
+
+  describe("The Decision async API") {
+    it("should create more streams than the max outstanding requests") {
+      Given("an API that allows two outstanding requests")
+      val pending = new AtomicInteger()
+      val maxPending = new AtomicInteger()
+      val api = new StratioStreamingAPI()
+      api.streamingUp = true
+      api.streamingRunning = true
+      api.defineMaxOutstandingRequests(2)
+      api.setFutureOperation(new StreamingAPIFutureOperation(kafkaProducerMock, zookeeperConsumerMock, 2,
+        Some(newSlowReplyConsumer(pending, maxPending))))
+      When("ten streams are created at once")
+      val columns = seqAsJavaList(Seq(new ColumnNameType("column1", ColumnType.STRING)))
+      val streams = (1 to 10).map(index => s"theStream$index" -> columns).toMap
+      Then("all of them should be created")
+      Await.result(api.async.createStreams(mapAsJavaMap(streams)), 5 seconds)
+      And("no more than two requests should have been pending at the same time")
+      maxPending.get should be(2)
+    }
+  }
+}
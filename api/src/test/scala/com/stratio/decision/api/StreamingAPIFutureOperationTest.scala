@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api
+
+import com.stratio.decision.api.kafka.{KafkaProducer, KafkaReplyConsumer}
+import com.stratio.decision.api.zookeeper.ZookeeperConsumer
+import com.stratio.decision.commons.constants.ReplyCode._
+import com.stratio.decision.commons.exceptions.{StratioAPIGenericException, StratioEngineConnectionException, StratioEngineOperationException}
+import com.stratio.decision.commons.messages.StratioStreamingMessage
+import org.junit.runner.RunWith
+import org.mockito.Matchers.anyString
+import org.mockito.Mockito
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FunSpec, GivenWhenThen, ShouldMatchers}
+
+import scala.collection.JavaConversions.seqAsJavaList
+import scala.concurrent.duration._
+import scala.concurrent.{Await, Future, Promise}
+
+@RunWith(classOf[JUnitRunner])
+class StreamingAPIFutureOperationTest extends FunSpec
+  with GivenWhenThen
+  with ShouldMatchers
+  with MockitoSugar {
+
+  val kafkaProducerMock = mock[KafkaProducer]
+  val zookeeperConsumerMock = mock[ZookeeperConsumer]
+
+  def newMessage = new StratioStreamingMessage("theOperation", "theStreamName", "sessionId", "requestId",
+    "theRequest", 123456, Seq(), Seq(), true)
+
+  def newReplyConsumer(reply: Future[String]) = {
+    val replyConsumerMock = mock[KafkaReplyConsumer]
+    Mockito.when(replyConsumerMock.topic).thenReturn("theReplyTopic")
+    Mockito.when(replyConsumerMock.expectReply(anyString())).thenReturn(reply)
+    replyConsumerMock
+  }
+
+  describe("The Decision API Future Operation") {
+    it("should complete the operations without blocking when the engine acks them") {
+      Given("an engine that acks every request with OK")
+      val errorCode = OK.getCode
+      val operation = new StreamingAPIFutureOperation(kafkaProducerMock, zookeeperConsumerMock, 20,
+        Some(newReplyConsumer(Future.successful( s"""{"errorCode":$errorCode}"""))))
+      When("several operations are performed at once")
+      val messages = (1 to 20).map(_ => newMessage)
+      val results = messages.map(message => operation.performOperation(message, 2000))
+      Then("all of them should complete, each one with its own request id")
+      results.foreach(result => Await.result(result, 2 seconds))
+      messages.map(_.getRequest_id).toSet.size should be(20)
+      operation.outstanding should be(0)
+    }
+
+    it("should fail the operation when the engine returns a KO return code") {
+      Given("a KO_GENERAL_ERROR engine response")
+      val errorCode = KO_GENERAL_ERROR.getCode
+      val operation = new StreamingAPIFutureOperation(kafkaProducerMock, zookeeperConsumerMock, 10,
+        Some(newReplyConsumer(Future.successful( s"""{"errorCode":$errorCode}"""))))
+      Then("the future should fail with a StratioEngineOperationException")
+      intercept[StratioEngineOperationException] {
+        Await.result(operation.performOperation(newMessage, 2000), 2 seconds)
+      }
+    }
+
+    it("should fail the operation and free its slot when the ack timeout expires") {
+      Given("an engine that never replies")
+      val operation = new StreamingAPIFutureOperation(kafkaProducerMock, zookeeperConsumerMock, 1,
+        Some(newReplyConsumer(Promise[String]().future)))
+      Then("the future should fail with a StratioEngineConnectionException")
+      intercept[StratioEngineConnectionException] {
+        Await.result(operation.performOperation(newMessage, 100), 2 seconds)
+      }
+      And("a new request should be accepted")
+      intercept[StratioEngineConnectionException] {
+        Await.result(operation.performOperation(newMessage, 100), 2 seconds)
+      }
+    }
+
+    it("should fail without blocking when there are too many outstanding requests") {
+      Given("an engine that never replies and room for one outstanding request")
+      val operation = new StreamingAPIFutureOperation(kafkaProducerMock, zookeeperConsumerMock, 1,
+        Some(newReplyConsumer(Promise[String]().future)))
+      val pending = operation.performOperation(newMessage, 2000)
+      When("another operation is performed")
+      val rejected = operation.performOperation(newMessage, 2000)
+      Then("it should fail right away with a StratioAPIGenericException")
+      rejected.isCompleted should be(true)
+      intercept[StratioAPIGenericException] {
+        Await.result(rejected, 2 seconds)
+      }
+      And("the pending operation should still be outstanding")
+      pending.isCompleted should be(false)
+      operation.outstanding should be(1)
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api
+
+import com.stratio.decision.api.kafka.KafkaProducer
+import com.stratio.decision.commons.avro.{InsertBatchMessage, InsertMessageFormat, InsertMessageV2}
+import com.stratio.decision.commons.messages.{ColumnNameTypeValue, StratioStreamingMessage}
+import org.junit.runner.RunWith
+import org.mockito.Matchers.{any, anyString, eq => mockEq}
+import org.mockito.{ArgumentCaptor, Mockito}
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.mock.MockitoSugar
+import org.scalatest.{FunSpec, GivenWhenThen, ShouldMatchers}
+
+import scala.collection.JavaConversions.{asScalaBuffer, seqAsJavaList}
+
+@RunWith(classOf[JUnitRunner])
+class StreamingAPIInsertBatcherTest extends FunSpec
+  with GivenWhenThen
+  with ShouldMatchers
+  with MockitoSugar {
+
+  def newMessage(streamName: String, columns: (String, AnyRef)*) = new StratioStreamingMessage("insert", streamName,
+    "sessionId", null, null, 123456, columns.map { case (name, value) => new ColumnNameTypeValue(name, null, value) },
+    Seq(), true)
+
+  def newAsyncOperation(format: InsertMessageFormat) = {
+    val kafkaProducerMock = mock[KafkaProducer]
+    val asyncOperation = new StreamingAPIAsyncOperation(kafkaProducerMock)
+    asyncOperation.insertMessageFormat = format
+    (kafkaProducerMock, asyncOperation)
+  }
+
+  def sentBatches(kafkaProducerMock: KafkaProducer, times: Int) = {
+    val captor = ArgumentCaptor.forClass(classOf[InsertBatchMessage])
+    Mockito.verify(kafkaProducerMock, Mockito.timeout(2000).times(times)).sendAvro(captor.capture(), mockEq("insert"),
+      mockEq("theTopic"))
+    captor.getAllValues.toList
+  }
+
+  describe("The Decision API insert batches") {
+    it("should send the rows of a stream with the same columns in one record") {
+      Given("an engine that supports batch records")
+      val (kafkaProducerMock, asyncOperation) = newAsyncOperation(InsertMessageFormat.V3)
+      When("a batch with two column layouts is sent")
+      asyncOperation.performAsyncBatchOperation(Seq(
+        newMessage("theStream", "name" -> "a", "value" -> Integer.valueOf(1)),
+        newMessage("theStream", "name" -> "b", "value" -> java.lang.Long.valueOf(2L)),
+        newMessage("theStream", "name" -> "c")), "theTopic")
+      Then("one record per layout should be sent, keeping the typed values")
+      val batches = sentBatches(kafkaProducerMock, 2)
+      batches(0).getStreamName should be("theStream")
+      batches(0).getColumns.toList should be(List("name", "value"))
+      batches(0).getRows.size should be(2)
+      batches(0).getRows.get(1).get(1) should be(2L)
+      batches(1).getRows.size should be(1)
+    }
+
+    it("should send one record per row to engines without batch records") {
+      Given("an engine that only understands v2 records")
+      val (kafkaProducerMock, asyncOperation) = newAsyncOperation(InsertMessageFormat.V2)
+      When("a batch of three rows is sent")
+      asyncOperation.performAsyncBatchOperation((1 to 3).map(i => newMessage("theStream", "name" -> i.toString)),
+        "theTopic")
+      Then("three single records should be sent")
+      Mockito.verify(kafkaProducerMock, Mockito.times(3)).sendAvro(any(classOf[InsertMessageV2]), anyString(),
+        anyString())
+      Mockito.verify(kafkaProducerMock, Mockito.never()).sendAvro(any(classOf[InsertBatchMessage]), anyString(),
+        anyString())
+    }
+
+    it("should send the buffered inserts once the batch is full") {
+      Given("a batcher of three rows with a long linger time")
+      val (kafkaProducerMock, asyncOperation) = newAsyncOperation(InsertMessageFormat.V3)
+      val batcher = new StreamingAPIInsertBatcher(() => asyncOperation, 60000, 3)
+      When("four inserts are added")
+      (1 to 4).foreach(i => batcher.add(newMessage("theStream", "name" -> i.toString), "theTopic"))
+      Then("the first three should be sent together and the last one kept")
+      sentBatches(kafkaProducerMock, 1).head.getRows.size should be(3)
+      batcher.pendingInserts should be(1)
+      When("the batcher is closed")
+      batcher.close()
+      Then("the remaining insert should be sent")
+      batcher.pendingInserts should be(0)
+      sentBatches(kafkaProducerMock, 2).last.getRows.size should be(1)
+    }
+
+    it("should send the buffered inserts after the linger time") {
+      Given("a batcher with a short linger time")
+      val (kafkaProducerMock, asyncOperation) = newAsyncOperation(InsertMessageFormat.V3)
+      val batcher = new StreamingAPIInsertBatcher(() => asyncOperation, 10, 1000)
+      When("a few inserts are added")
+      (1 to 5).foreach(i => batcher.add(newMessage("theStream", "name" -> i.toString), "theTopic"))
+      Then("they should be sent without filling the batch")
+      val deadline = System.currentTimeMillis + 2000
+      while (batcher.pendingInserts > 0 && System.currentTimeMillis < deadline) Thread.sleep(10)
+      batcher.pendingInserts should be(0)
+      val captor = ArgumentCaptor.forClass(classOf[InsertBatchMessage])
+      Mockito.verify(kafkaProducerMock, Mockito.atLeastOnce()).sendAvro(captor.capture(), anyString(), anyString())
+      captor.getAllValues.map(_.getRows.size).sum should be(5)
+      batcher.close()
+    }
+  }
+}
@@ -15,9 +15,10 @@
  */
 package com.stratio.decision.api
 
-import com.stratio.decision.api.kafka.KafkaProducer
+import com.stratio.decision.api.kafka.{KafkaProducer, KafkaReplyConsumer}
 import com.stratio.decision.api.zookeeper.ZookeeperConsumer
 import com.stratio.decision.commons.constants.ReplyCode._
+import com.stratio.decision.commons.constants.STREAMING.REPLY_TOPIC_PARAMETER
 import com.stratio.decision.commons.exceptions.{StratioEngineConnectionException, StratioAPIGenericException, StratioAPISecurityException, StratioEngineOperationException}
 import com.stratio.decision.commons.messages.StratioStreamingMessage
 import org.junit.runner.RunWith
@@ -96,6 +97,24 @@ class StreamingAPISyncOperationTest extends FunSpec
         stratioStreamingAPISyncOperation.performSyncOperation(stratioStreamingMessage)
       }
     }
+    it("should take the ack from the reply topic when there is a reply consumer") {
+      Given("an OK engine response published to the reply topic")
+      val errorCode = OK.getCode
+      val engineResponse = s"""{"errorCode":$errorCode}"""
+      val replyConsumerMock = mock[KafkaReplyConsumer]
+      val kafkaAckSyncOperation = new StreamingAPISyncOperation(kafkaProducerMock, zookeeperConsumerMock, 2000,
+        Some(replyConsumerMock))
+      val message = new StratioStreamingMessage("theOperation", "theStreamName", "sessionId", "kafkaRequestId",
+        "theRequest", 123456, Seq(), Seq(), true)
+      org.mockito.Mockito.when(replyConsumerMock.topic).thenReturn("theReplyTopic")
+      org.mockito.Mockito.when(replyConsumerMock.expectReply("kafkaRequestId")).thenReturn(Future.successful(engineResponse))
+      When("we perform the sync operation")
+      kafkaAckSyncOperation.performSyncOperation(message)
+      Then("the engine should have been asked to reply in the reply topic")
+      message.getAdditionalParameters.get(REPLY_TOPIC_PARAMETER) should be("theReplyTopic")
+      Mockito.verify(replyConsumerMock).cancel("kafkaRequestId")
+    }
+
     //TODO: Pending to re-enable after refactor the new Sync Wrapper layer because new Sharding-HA implementation
 /*
     it("should throw a StratioEngineOperationException when the engine returns an ERROR return code") {
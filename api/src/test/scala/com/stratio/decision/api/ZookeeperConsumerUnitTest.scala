@@ -73,6 +73,16 @@ class ZookeeperConsumerUnitTest
       }
     }
 
+    it("should complete the pending reads when the znodes are created after the call") {
+      Given("several reads waiting for znodes that do not exist yet")
+      val fullPaths = (1 to 100).map(_ => s"$operationFullPath/${UUID.randomUUID().toString}")
+      val reads = fullPaths.map(zookeeperConsumer.readZNode)
+      When("the znodes are created")
+      fullPaths.foreach(zookeeperClient.create().forPath(_))
+      Then("every read should complete within the timeout")
+      reads.foreach(read => Await.result(read, 1 seconds))
+    }
+
     it("should pick up the value from the zNode") {
       Given("a zNode with data")
       val uniqueId = UUID.randomUUID().toString
@@ -95,6 +105,27 @@ class ZookeeperConsumerUnitTest
       data.isDefined should be(false)
     }
 
+    it("should pick up the values of every child of the zNode") {
+      Given("a zNode with two children")
+      val fullPath = s"$operationFullPath/${UUID.randomUUID().toString}"
+      zookeeperClient.create().forPath(fullPath)
+      zookeeperClient.create().forPath(s"$fullPath/node_1", "2".getBytes())
+      zookeeperClient.create().forPath(s"$fullPath/node_2", "1".getBytes())
+      When("i fetch the values of the children")
+      val data = zookeeperConsumer.getChildrenData(fullPath)
+      Then("i should get the data of both children")
+      data.sorted should be(Seq("1", "2"))
+    }
+
+    it("should return no values when the zNode does not exist") {
+      Given("a non existing zNode")
+      val fullPath = s"$operationFullPath/${UUID.randomUUID().toString}"
+      When("i fetch the values of the children")
+      val data = zookeeperConsumer.getChildrenData(fullPath)
+      Then("i should get no values")
+      data should be('empty)
+    }
+
     it("should remove a zNode") {
       Given("an existing zNode")
       val uniqueId = UUID.randomUUID().toString
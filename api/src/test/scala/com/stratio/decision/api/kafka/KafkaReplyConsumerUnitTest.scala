@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.api.kafka
+
+import java.util.UUID
+
+import com.netflix.curator.test.TestingServer
+import com.stratio.decision.commons.constants.InternalTopic
+import org.junit.runner.RunWith
+import org.scalatest.junit.JUnitRunner
+import org.scalatest.{BeforeAndAfterAll, FunSpec, GivenWhenThen, ShouldMatchers}
+
+import scala.concurrent._
+import scala.concurrent.duration._
+
+@RunWith(classOf[JUnitRunner])
+class KafkaReplyConsumerUnitTest
+  extends FunSpec
+  with ShouldMatchers
+  with GivenWhenThen
+  with BeforeAndAfterAll {
+
+  val zookeeperCluster = "localhost:4712"
+  val zookeeperServer = new TestingServer(4712)
+  lazy val replyConsumer = new KafkaReplyConsumer(InternalTopic.TOPIC_REPLY.getTopicName,
+    "theGroup_" + UUID.randomUUID().toString, zookeeperCluster)
+
+  override def afterAll() {
+    replyConsumer.close()
+    zookeeperServer.close()
+  }
+
+  describe("The kafka reply consumer") {
+    it("should complete the request waiting for the reply") {
+      Given("a request expecting its reply")
+      val reply = replyConsumer.expectReply("request1")
+      When("its reply is read")
+      replyConsumer.complete("request1", "theReply")
+      Then("the request should get the reply")
+      Await.result(reply, 1 seconds) should be("theReply")
+      And("a duplicated reply should be discarded")
+      replyConsumer.complete("request1", "theDuplicatedReply")
+      Await.result(reply, 1 seconds) should be("theReply")
+    }
+
+    it("should discard the replies of the requests of other clients") {
+      Given("a request expecting its reply")
+      val reply = replyConsumer.expectReply("request2")
+      When("the reply of a request of another client is read")
+      replyConsumer.complete("otherClientRequest", "otherReply")
+      Then("the request should still wait for its own reply")
+      reply.isCompleted should be(false)
+      When("its own reply is read")
+      replyConsumer.complete("request2", "theReply")
+      Then("the request should get it")
+      Await.result(reply, 1 seconds) should be("theReply")
+    }
+
+    it("should discard the reply of a cancelled request") {
+      Given("a request expecting its reply")
+      val reply = replyConsumer.expectReply("request3")
+      When("the request is cancelled before its reply is read")
+      replyConsumer.cancel("request3")
+      replyConsumer.complete("request3", "theLateReply")
+      Then("the request should not be completed")
+      reply.isCompleted should be(false)
+    }
+  }
+}
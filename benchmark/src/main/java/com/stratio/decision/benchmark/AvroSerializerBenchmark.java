@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.stratio.decision.commons.avro.InsertMessageCodec;
+import com.stratio.decision.commons.avro.InsertMessageFormat;
+import com.stratio.decision.commons.avro.InsertMessageV2;
+import com.stratio.decision.commons.constants.ColumnType;
+import com.stratio.decision.commons.constants.StreamAction;
+import com.stratio.decision.commons.messages.ColumnNameTypeValue;
+import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.serializer.impl.JavaToAvroSerializer;
+
+/**
+ * Avro encoding and decoding of action messages. The legacy benchmarks reproduce the previous serializer, which
+ * created its buffer, encoder, decoder, writer and record for every message. Run it with the gc profiler to compare
+ * the allocation per message:
+ *
+ * java -jar benchmark/target/benchmarks.jar AvroSerializerBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class AvroSerializerBenchmark {
+
+    private JavaToAvroSerializer serializer;
+
+    private StratioStreamingMessage message;
+
+    private InsertMessageV2 insertMessage;
+
+    private byte[] payload;
+
+    private SpecificDatumReader<InsertMessageV2> legacyReader;
+
+    @Setup
+    public void setUp() throws IOException {
+        serializer = new JavaToAvroSerializer();
+
+        message = new StratioStreamingMessage();
+        message.setStreamName("sensor_grid");
+        message.setOperation("insert");
+        message.setSession_id("benchmark");
+        message.setTimestamp(System.currentTimeMillis());
+        message.setActiveActions(Collections.singleton(StreamAction.SAVE_TO_CASSANDRA));
+        message.addColumn(new ColumnNameTypeValue("name", ColumnType.STRING, "sensor-0042"));
+        message.addColumn(new ColumnNameTypeValue("data", ColumnType.DOUBLE, 21.75d));
+        message.addColumn(new ColumnNameTypeValue("counter", ColumnType.LONG, 1234567L));
+        message.addColumn(new ColumnNameTypeValue("status", ColumnType.INTEGER, 3));
+        message.addColumn(new ColumnNameTypeValue("enabled", ColumnType.BOOLEAN, true));
+
+        payload = serializer.serialize(message);
+        legacyReader = new SpecificDatumReader<>(InsertMessageV2.getClassSchema());
+        // a record of its own, as the codec reuses the records it decodes
+        insertMessage = decodeLegacy();
+    }
+
+    @Benchmark
+    public byte[] encodeLegacy() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
+        SpecificDatumWriter<InsertMessageV2> writer = new SpecificDatumWriter<>(InsertMessageV2.getClassSchema());
+
+        out.write(InsertMessageFormat.V2.getHeader());
+        writer.write(insertMessage, encoder);
+        encoder.flush();
+        out.close();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeReused() throws IOException {
+        return InsertMessageCodec.get().encode(insertMessage);
+    }
+
+    @Benchmark
+    public InsertMessageV2 decodeLegacy() throws IOException {
+        int headerLength = InsertMessageFormat.V2.getHeaderLength();
+        BinaryDecoder decoder = DecoderFactory.get().binaryDecoder(payload, headerLength, payload.length
+                - headerLength, null);
+        return legacyReader.read(null, decoder);
+    }
+
+    @Benchmark
+    public InsertMessageV2 decodeReused() throws IOException {
+        return InsertMessageCodec.get().decodeV2(payload);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(message);
+    }
+
+    @Benchmark
+    public StratioStreamingMessage deserialize() {
+        return serializer.deserialize(payload);
+    }
+}
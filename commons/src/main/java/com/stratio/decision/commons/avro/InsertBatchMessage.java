@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.commons.avro;
+@SuppressWarnings("all")
+@org.apache.avro.specific.AvroGenerated
+public class InsertBatchMessage extends org.apache.avro.specific.SpecificRecordBase implements org.apache.avro.specific.SpecificRecord {
+  private static final long serialVersionUID = -6283019458370212647L;
+  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"InsertBatchMessage\",\"namespace\":\"com.stratio.decision.commons.avro\",\"fields\":[{\"name\":\"operation\",\"type\":[\"null\",{\"type\":\"string\",\"avro.java.string\":\"String\"}],\"default\":null},{\"name\":\"streamName\",\"type\":{\"type\":\"string\",\"avro.java.string\":\"String\"}},{\"name\":\"sessionId\",\"type\":[\"null\",{\"type\":\"string\",\"avro.java.string\":\"String\"}],\"default\":null},{\"name\":\"columns\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"string\",\"avro.java.string\":\"String\"}}},{\"name\":\"rows\",\"type\":{\"type\":\"array\",\"items\":{\"type\":\"array\",\"items\":[\"null\",\"int\",\"long\",\"float\",\"double\",\"boolean\",{\"type\":\"string\",\"avro.java.string\":\"String\"}]}}}]}");
+  public static org.apache.avro.Schema getClassSchema() { return SCHEMA$; }
+  @Deprecated public java.lang.String operation;
+  @Deprecated public java.lang.String streamName;
+  @Deprecated public java.lang.String sessionId;
+  @Deprecated public java.util.List<java.lang.String> columns;
+  @Deprecated public java.util.List<java.util.List<java.lang.Object>> rows;
+
+  /**
+   * Default constructor.  Note that this does not initialize fields
+   * to their default values from the schema.
+   */
+  public InsertBatchMessage() {}
+
+  /**
+   * All-args constructor.
+   */
+  public InsertBatchMessage(java.lang.String operation, java.lang.String streamName, java.lang.String sessionId, java.util.List<java.lang.String> columns, java.util.List<java.util.List<java.lang.Object>> rows) {
+    this.operation = operation;
+    this.streamName = streamName;
+    this.sessionId = sessionId;
+    this.columns = columns;
+    this.rows = rows;
+  }
+
+  public org.apache.avro.Schema getSchema() { return SCHEMA$; }
+  // Used by DatumWriter.  Applications should not call. 
+  public java.lang.Object get(int field$) {
+    switch (field$) {
+    case 0: return operation;
+    case 1: return streamName;
+    case 2: return sessionId;
+    case 3: return columns;
+    case 4: return rows;
+    default: throw new org.apache.avro.AvroRuntimeException("Bad index");
+    }
+  }
+  // Used by DatumReader.  Applications should not call. 
+  @SuppressWarnings(value="unchecked")
+  public void put(int field$, java.lang.Object value$) {
+    switch (field$) {
+    case 0: operation = (java.lang.String)value$; break;
+    case 1: streamName = (java.lang.String)value$; break;
+    case 2: sessionId = (java.lang.String)value$; break;
+    case 3: columns = (java.util.List<java.lang.String>)value$; break;
+    case 4: rows = (java.util.List<java.util.List<java.lang.Object>>)value$; break;
+    default: throw new org.apache.avro.AvroRuntimeException("Bad index");
+    }
+  }
+
+  /**
+   * Gets the value of the 'operation' field.
+   */
+  public java.lang.String getOperation() {
+    return operation;
+  }
+
+  /**
+   * Sets the value of the 'operation' field.
+   * @param value the value to set.
+   */
+  public void setOperation(java.lang.String value) {
+    this.operation = value;
+  }
+
+  /**
+   * Gets the value of the 'streamName' field.
+   */
+  public java.lang.String getStreamName() {
+    return streamName;
+  }
+
+  /**
+   * Sets the value of the 'streamName' field.
+   * @param value the value to set.
+   */
+  public void setStreamName(java.lang.String value) {
+    this.streamName = value;
+  }
+
+  /**
+   * Gets the value of the 'sessionId' field.
+   */
+  public java.lang.String getSessionId() {
+    return sessionId;
+  }
+
+  /**
+   * Sets the value of the 'sessionId' field.
+   * @param value the value to set.
+   */
+  public void setSessionId(java.lang.String value) {
+    this.sessionId = value;
+  }
+
+  /**
+   * Gets the value of the 'columns' field.
+   */
+  public java.util.List<java.lang.String> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Sets the value of the 'columns' field.
+   * @param value the value to set.
+   */
+  public void setColumns(java.util.List<java.lang.String> value) {
+    this.columns = value;
+  }
+
+  /**
+   * Gets the value of the 'rows' field.
+   */
+  public java.util.List<java.util.List<java.lang.Object>> getRows() {
+    return rows;
+  }
+
+  /**
+   * Sets the value of the 'rows' field.
+   * @param value the value to set.
+   */
+  public void setRows(java.util.List<java.util.List<java.lang.Object>> value) {
+    this.rows = value;
+  }
+
+  private static final org.apache.avro.io.DatumWriter
+    WRITER$ = new org.apache.avro.specific.SpecificDatumWriter(SCHEMA$);
+
+  @Override public void writeExternal(java.io.ObjectOutput out)
+    throws java.io.IOException {
+    WRITER$.write(this, org.apache.avro.specific.SpecificData.getEncoder(out));
+  }
+
+  private static final org.apache.avro.io.DatumReader
+    READER$ = new org.apache.avro.specific.SpecificDatumReader(SCHEMA$);
+
+  @Override public void readExternal(java.io.ObjectInput in)
+    throws java.io.IOException {
+    READER$.read(this, org.apache.avro.specific.SpecificData.getDecoder(in));
+  }
+
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.commons.avro;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.avro.specific.SpecificDatumReader;
+import org.apache.avro.specific.SpecificDatumWriter;
+
+/**
+ * Avro encoding and decoding of insert messages. Writers, readers, encoders, decoders and the output buffer are
+ * confined to the calling thread and reused, so the only allocation left per encoded message is the resulting byte
+ * array.
+ */
+public final class InsertMessageCodec {
+
+    private static final int INITIAL_BUFFER_SIZE = 1024;
+
+    /**
+     * Buffers that grew over this size for a large message are not kept by the thread.
+     */
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<InsertMessageCodec> CODECS = new ThreadLocal<InsertMessageCodec>() {
+        @Override
+        protected InsertMessageCodec initialValue() {
+            return new InsertMessageCodec();
+        }
+    };
+
+    private final SpecificDatumWriter<InsertMessage> v1Writer = new SpecificDatumWriter<>(InsertMessage
+            .getClassSchema());
+
+    private final SpecificDatumWriter<InsertMessageV2> v2Writer = new SpecificDatumWriter<>(InsertMessageV2
+            .getClassSchema());
+
+    private final SpecificDatumWriter<InsertBatchMessage> batchWriter = new SpecificDatumWriter<>(InsertBatchMessage
+            .getClassSchema());
+
+    private final SpecificDatumReader<InsertMessage> v1Reader = new SpecificDatumReader<>(InsertMessage
+            .getClassSchema());
+
+    private final SpecificDatumReader<InsertMessageV2> v2Reader = new SpecificDatumReader<>(InsertMessageV2
+            .getClassSchema());
+
+    private final SpecificDatumReader<InsertBatchMessage> batchReader = new SpecificDatumReader<>(
+            InsertBatchMessage.getClassSchema());
+
+    private Buffer buffer = new Buffer(INITIAL_BUFFER_SIZE);
+
+    private BinaryEncoder encoder;
+
+    private BinaryDecoder decoder;
+
+    private InsertMessage v1Record;
+
+    private InsertMessageV2 v2Record;
+
+    private InsertBatchMessage batchRecord;
+
+    private InsertMessageCodec() {
+    }
+
+    /**
+     * Returns the codec of the calling thread. It must not be shared with other threads.
+     */
+    public static InsertMessageCodec get() {
+        return CODECS.get();
+    }
+
+    public byte[] encode(InsertMessage insertMessage) throws IOException {
+        startBuffer(InsertMessageFormat.V1);
+        v1Writer.write(insertMessage, encoder);
+        return endBuffer();
+    }
+
+    public byte[] encode(InsertMessageV2 insertMessage) throws IOException {
+        startBuffer(InsertMessageFormat.V2);
+        v2Writer.write(insertMessage, encoder);
+        return endBuffer();
+    }
+
+    public byte[] encode(InsertBatchMessage insertBatchMessage) throws IOException {
+        startBuffer(InsertMessageFormat.V3);
+        batchWriter.write(insertBatchMessage, encoder);
+        return endBuffer();
+    }
+
+    /**
+     * Decodes a v1 payload. The returned record is reused by the next v1 decoding of the same thread.
+     */
+    public InsertMessage decodeV1(byte[] payload) throws IOException {
+        decoder = DecoderFactory.get().binaryDecoder(payload, 0, payload.length, decoder);
+        v1Record = v1Reader.read(v1Record, decoder);
+        return v1Record;
+    }
+
+    /**
+     * Decodes a v2 payload, header included. The returned record is reused by the next v2 decoding of the same
+     * thread.
+     */
+    public InsertMessageV2 decodeV2(byte[] payload) throws IOException {
+        int headerLength = InsertMessageFormat.V2.getHeaderLength();
+        decoder = DecoderFactory.get().binaryDecoder(payload, headerLength, payload.length - headerLength, decoder);
+        v2Record = v2Reader.read(v2Record, decoder);
+        return v2Record;
+    }
+
+    /**
+     * Decodes a v3 batch payload, header included. The returned record is reused by the next batch decoding of the
+     * same thread.
+     */
+    public InsertBatchMessage decodeBatch(byte[] payload) throws IOException {
+        int headerLength = InsertMessageFormat.V3.getHeaderLength();
+        decoder = DecoderFactory.get().binaryDecoder(payload, headerLength, payload.length - headerLength, decoder);
+        batchRecord = batchReader.read(batchRecord, decoder);
+        return batchRecord;
+    }
+
+    private void startBuffer(InsertMessageFormat format) {
+        if (buffer.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+            buffer = new Buffer(INITIAL_BUFFER_SIZE);
+        }
+        buffer.reset();
+        if (format != InsertMessageFormat.V1) {
+            buffer.write(InsertMessageFormat.MAGIC_BYTE);
+            buffer.write(format.getVersion());
+        }
+        encoder = EncoderFactory.get().directBinaryEncoder(buffer, encoder);
+    }
+
+    private byte[] endBuffer() throws IOException {
+        encoder.flush();
+        return buffer.toByteArray();
+    }
+
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        Buffer(int size) {
+            super(size);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.commons.avro;
+
+import com.stratio.decision.commons.constants.ColumnType;
+
+/**
+ * Wire formats of the insert messages sent to the data and action topics. V1 payloads are plain {@link InsertMessage}
+ * records with stringified values. Newer formats start with {@link #MAGIC_BYTE} followed by the format version, so
+ * both can be read from the same topic. V3 adds {@link InsertBatchMessage} records carrying many rows of one stream;
+ * single rows are still written as V2.
+ */
+public enum InsertMessageFormat {
+
+    V1(1), V2(2), V3(3);
+
+    public static final byte MAGIC_BYTE = (byte) 0xC3;
+
+    public static final int HEADER_LENGTH = 2;
+
+    private final int version;
+
+    private InsertMessageFormat(int version) {
+        this.version = version;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getHeaderLength() {
+        return this == V1 ? 0 : HEADER_LENGTH;
+    }
+
+    public byte[] getHeader() {
+        return this == V1 ? new byte[0] : new byte[] { MAGIC_BYTE, (byte) version };
+    }
+
+    public static InsertMessageFormat latest() {
+        return V3;
+    }
+
+    public boolean supportsBatches() {
+        return version >= V3.version;
+    }
+
+    public static InsertMessageFormat fromVersion(int version) {
+        for (InsertMessageFormat format : values()) {
+            if (format.version == version) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported insert message version " + version);
+    }
+
+    /**
+     * A v1 payload never starts with the magic byte, as its first byte is the index of the operation union (0 or 2).
+     */
+    public static InsertMessageFormat fromPayload(byte[] payload) {
+        if (payload != null && payload.length >= HEADER_LENGTH && payload[0] == MAGIC_BYTE) {
+            return fromVersion(payload[1]);
+        }
+        return V1;
+    }
+
+    /**
+     * Converts a column value to one of the types allowed in the {@link TypedColumn} value union.
+     */
+    public static Object toTypedValue(Object value) {
+        if (value == null || value instanceof Integer || value instanceof Long || value instanceof Float
+                || value instanceof Double || value instanceof Boolean || value instanceof String) {
+            return value;
+        } else if (value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        } else {
+            return String.valueOf(value);
+        }
+    }
+
+    public static ColumnType getColumnType(Object typedValue) {
+        if (typedValue == null) {
+            return null;
+        }
+        for (ColumnType columnType : ColumnType.values()) {
+            if (columnType.getType().isInstance(typedValue)) {
+                return columnType;
+            }
+        }
+        return ColumnType.STRING;
+    }
+
+}
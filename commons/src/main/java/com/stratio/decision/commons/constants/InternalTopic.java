@@ -18,7 +18,8 @@ package com.stratio.decision.commons.constants;
 public enum InternalTopic {
 
     TOPIC_REQUEST("stratio_decision_requests"), TOPIC_DATA("stratio_decision_data"), TOPIC_ACTION(
-            "stratio_decision_action"), TOPIC_PARTITIONED_DATA_SUFFIX("partition_");
+            "stratio_decision_action"), TOPIC_PARTITIONED_DATA_SUFFIX("partition_"), TOPIC_REPLY(
+            "stratio_decision_reply");
 
 
     private final String topicName;
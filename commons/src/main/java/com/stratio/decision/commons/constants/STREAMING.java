@@ -27,6 +27,9 @@ public interface STREAMING {
     String ZK_EPHEMERAL_NODE_STATUS_INITIALIZED = "initialized";
     String ZK_EPHEMERAL_NODE_STATUS_GROUPS_DOWN = "groups_down";
 
+    String ZK_EPHEMERAL_NODE_INSERT_MESSAGE_VERSIONS_PATH = "/stratio/decision/insert_message_versions";
+    String INSERT_MESSAGE_VERSION_NODE_PREFIX = "node_";
+
     String ZK_EPHEMERAL_GROUPS_STATUS_BASE_PATH = "/stratio/decision/groups_status";
     String GROUPS_STATUS_BASE_PREFIX = "group_";
 
@@ -36,9 +39,16 @@ public interface STREAMING {
     String ZK_HIGH_AVAILABILITY_NODE = "/latch";
     String ZK_HIGH_AVAILABILITY_PATH = ZK_BASE_PATH + ZK_HIGH_AVAILABILITY_NODE;
 
+    String ZK_OFFSETS_NODE = "/offsets";
+    String ZK_OFFSETS_PATH = ZK_BASE_PATH + ZK_OFFSETS_NODE;
+
     String ZK_CLUSTER_MANAGER_NODE = "/manager";
     String ZK_CLUSTER_MANAGER_PATH = ZK_BASE_PATH + ZK_CLUSTER_MANAGER_NODE;
 
+    // Additional parameter of a request whose reply is expected in the kafka reply topic, instead of zookeeper.
+    // The engine always replies in InternalTopic.TOPIC_REPLY, whatever topic the parameter names
+    String REPLY_TOPIC_PARAMETER = "replyTopic";
+
     public interface STATS_NAMES {
         String SINK_STREAM_PREFIX = "VOID_";
         String BASE = "stratio_stats_base";
@@ -21,12 +21,14 @@ import com.stratio.decision.configuration.ConfigurationContext;
 import com.stratio.decision.configuration.FirstConfiguration;
 import com.stratio.decision.functions.ActionBaseContext;
 import com.stratio.decision.highAvailability.LeadershipManager;
+import com.stratio.decision.task.ElasticSearchRetentionTask;
 import com.stratio.decision.task.FailOverTask;
 import com.stratio.decision.utils.ZKUtils;
 import org.apache.spark.streaming.api.java.JavaStreamingContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 import java.io.IOException;
 
@@ -71,6 +73,15 @@ public class StreamingEngine {
 
                     ClusterSyncManager.getNode().initializedNodeStatus();
 
+                    if (configurationContext.getElasticSearchHosts() != null
+                            && configurationContext.getElasticSearchRetention() > 0) {
+                        ThreadPoolTaskScheduler retentionScheduler = annotationConfigApplicationContext.getBean
+                                ("elasticSearchRetentionScheduler", ThreadPoolTaskScheduler.class);
+                        retentionScheduler.scheduleAtFixedRate(annotationConfigApplicationContext.getBean
+                                        ("elasticSearchRetentionTask", ElasticSearchRetentionTask.class),
+                                configurationContext.getElasticSearchRetentionCheckInterval());
+                    }
+
                     context.awaitTermination();
 
                 } catch (Exception e) {
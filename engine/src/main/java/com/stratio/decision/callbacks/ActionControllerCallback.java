@@ -23,10 +23,17 @@ import com.stratio.decision.commons.constants.StreamAction;
 
 public abstract class ActionControllerCallback extends QueryCallback {
 
-    protected final Set<StreamAction> activeActions;
+    protected volatile Set<StreamAction> activeActions;
 
     public ActionControllerCallback(Set<StreamAction> activeActions) {
         this.activeActions = activeActions;
     }
 
+    /**
+     * Replaces the enabled actions. The set is shared with the emitted messages, so it must not be modified later.
+     */
+    public void setActiveActions(Set<StreamAction> activeActions) {
+        this.activeActions = activeActions;
+    }
+
 }
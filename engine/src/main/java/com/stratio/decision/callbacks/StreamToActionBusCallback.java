@@ -15,12 +15,12 @@
  */
 package com.stratio.decision.callbacks;
 
+import com.google.common.collect.ImmutableSet;
 import com.stratio.decision.commons.constants.InternalTopic;
 import com.stratio.decision.commons.constants.StreamAction;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
 import com.stratio.decision.serializer.Serializer;
-import kafka.javaapi.producer.Producer;
-import kafka.producer.KeyedMessage;
+import com.stratio.decision.service.ActionBusPublisherService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.siddhi.core.event.Event;
@@ -35,32 +35,27 @@ public class StreamToActionBusCallback extends ActionControllerCallback {
 
     private final String streamName;
 
-    private final Producer<String, byte[]> avroProducer;
+    private final ActionBusPublisherService actionBusPublisher;
 
     private final Serializer<StratioStreamingMessage, Event> javaToSiddhiSerializer;
-    private final Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer;
 
     private String groupId;
 
     public StreamToActionBusCallback(Set<StreamAction> activeActions, String streamName,
-            Producer<String, byte[]> avroProducer,
-            Serializer<StratioStreamingMessage, Event> javaToSiddhiSerializer,
-            Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer) {
+            ActionBusPublisherService actionBusPublisher,
+            Serializer<StratioStreamingMessage, Event> javaToSiddhiSerializer) {
         super(activeActions);
         this.streamName = streamName;
-        this.avroProducer = avroProducer;
+        this.actionBusPublisher = actionBusPublisher;
         this.javaToSiddhiSerializer = javaToSiddhiSerializer;
-        this.javaToAvroSerializer = javaToAvroSerializer;
     }
 
     public StreamToActionBusCallback(Set<StreamAction> activeActions, String streamName,
-            Producer<String, byte[]> avroProducer,
+            ActionBusPublisherService actionBusPublisher,
             Serializer<StratioStreamingMessage, Event> javaToSiddhiSerializer,
-            Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer,
             String groupId) {
 
-        this(activeActions, streamName, avroProducer, javaToSiddhiSerializer,
-                javaToAvroSerializer);
+        this(activeActions, streamName, actionBusPublisher, javaToSiddhiSerializer);
         this.groupId = groupId;
     }
 
@@ -75,21 +70,20 @@ public class StreamToActionBusCallback extends ActionControllerCallback {
             topicAction = topicAction.concat("_").concat(groupId);
         }
 
-        List<KeyedMessage<String, byte[]>> messages = new ArrayList<>();
+        // the messages are encoded later by the publisher senders, so they get their own copy of the actions
+        Set<StreamAction> actions = ImmutableSet.copyOf(this.activeActions);
+        List<StratioStreamingMessage> messages = new ArrayList<>(inEvents.length);
 
         for (Event event : inEvents) {
             StratioStreamingMessage messageObject = javaToSiddhiSerializer.deserialize(event);
 
             messageObject.setStreamName(streamName);
-            messageObject.setActiveActions(this.activeActions);
-
-            messages.add(new KeyedMessage<String, byte[]>(topicAction,
-                    javaToAvroSerializer.serialize(messageObject)));
+            messageObject.setActiveActions(actions);
 
+            messages.add(messageObject);
         }
 
-        if (messages.size() != 0) {
-            avroProducer.send(messages);
-        }
+        // avro encoding and the kafka send are done by the publisher senders, out of the siddhi thread
+        actionBusPublisher.publish(streamName, topicAction, messages);
     }
 }
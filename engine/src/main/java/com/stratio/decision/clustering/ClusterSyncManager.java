@@ -41,12 +41,14 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
+import com.stratio.decision.commons.avro.InsertMessageFormat;
 import com.stratio.decision.commons.constants.ReplyCode;
 import com.stratio.decision.commons.constants.STREAMING;
 import com.stratio.decision.commons.dto.ActionCallbackDto;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
 import com.stratio.decision.configuration.ConfigurationContext;
 import com.stratio.decision.task.FailOverTask;
+import com.stratio.decision.utils.KafkaReplyWriter;
 import com.stratio.decision.utils.ZKUtils;
 
 /**
@@ -78,6 +80,7 @@ public class ClusterSyncManager {
     private int ackTimeout;
 
     private String zookeeperHost;
+    private String kafkaHostsQuorum;
 
     private ZKUtils zkUtils;
 
@@ -115,6 +118,7 @@ public class ClusterSyncManager {
             configurationContext, FailOverTask failOverTask) {
 
         this.zookeeperHost = configurationContext.getZookeeperHostsQuorum();
+        this.kafkaHostsQuorum = configurationContext.getKafkaHostsQuorum();
         this.client = CuratorFrameworkFactory
                     .newClient(zookeeperHost, 10000, 8000, new ExponentialBackoffRetry(1000, Integer.MAX_VALUE));
         this.latchpath = latchpath;
@@ -183,7 +187,7 @@ public class ClusterSyncManager {
 
             // Single instance mode
             if (!clusteringEnabled){
-                zkUtils.createZNodeJsonReply(message, reply);
+                writeReply(message, reply);
             } else {
                 // Sharding mode
                 if (allAckEnabled) {
@@ -206,7 +210,7 @@ public class ClusterSyncManager {
                 } else {
 
                     if (isLeader()) {
-                        zkUtils.createZNodeJsonReply(message, reply);
+                        writeReply(message, reply);
                     }
                 }
             }
@@ -222,6 +226,18 @@ public class ClusterSyncManager {
     }
 
 
+    /**
+     * Sends the reply of the request to the kafka reply topic if the client asked for it, or to zookeeper.
+     */
+    public void writeReply(StratioStreamingMessage message, Object reply) throws Exception {
+        if (KafkaReplyWriter.isKafkaReply(message)) {
+            KafkaReplyWriter.getKafkaReplyWriter(kafkaHostsQuorum).write(message, reply);
+        } else {
+            zkUtils.createZNodeJsonReply(message, reply);
+        }
+    }
+
+
     private ActionCallbackDto manageBarrierResults(StratioStreamingMessage message, ActionCallbackDto reply, String path, Boolean
             success) throws Exception {
 
@@ -254,7 +270,7 @@ public class ClusterSyncManager {
 
          }
 
-        zkUtils.createZNodeJsonReply(message, clusterReply);
+        writeReply(message, clusterReply);
         client.delete().deletingChildrenIfNeeded().forPath(path);
 
         return clusterReply;
@@ -273,6 +289,13 @@ public class ClusterSyncManager {
                     .concat(groupId);
         }
 
+        // Every node registers the latest insert message format it is able to decode. Clients use the lowest one, so
+        // nodes running an older version keep reading the data topics during a rolling upgrade. It is registered
+        // before the status, because clients negotiate the format when the status changes
+        zkUtils.createEphemeralSequentialZNode(STREAMING.ZK_EPHEMERAL_NODE_INSERT_MESSAGE_VERSIONS_PATH.concat("/")
+                .concat(STREAMING.INSERT_MESSAGE_VERSION_NODE_PREFIX), String.valueOf(InsertMessageFormat.latest()
+                .getVersion()).getBytes());
+
         zkUtils.createEphemeralZNode(nodeStatusPath, STREAMING.ZK_EPHEMERAL_NODE_STATUS_INITIALIZED.getBytes());
 
         return nodeStatusPath;
@@ -55,6 +55,8 @@ public class ClusterSyncManagerLeaderListener implements LeaderLatchListener {
     private void initializeFailOverTask(){
 
         if (failOverTask!=null) {
+            failOverTask.takeOver();
+
             ThreadPoolTaskScheduler taskScheduler = new ThreadPoolTaskScheduler();
             taskScheduler.initialize();
 
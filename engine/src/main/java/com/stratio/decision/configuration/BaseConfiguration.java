@@ -18,6 +18,9 @@ package com.stratio.decision.configuration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+
+import com.codahale.metrics.MetricRegistry;
 
 @Configuration
 @Import({ StreamingContextConfiguration.class, ZookeeperConfiguration.class, KafkaConfiguration.class,
@@ -30,4 +33,13 @@ public class BaseConfiguration {
         return new ConfigurationContext();
     }
 
+    /**
+     * The only metric registry of the engine, also used by the metrics reporters and annotations.
+     */
+    @Bean
+    @Primary
+    public MetricRegistry metricRegistry() {
+        return new MetricRegistry();
+    }
+
 }
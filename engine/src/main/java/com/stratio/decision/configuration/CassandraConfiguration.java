@@ -22,8 +22,11 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
+import com.codahale.metrics.MetricRegistry;
 import com.datastax.driver.core.Cluster;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.policies.DCAwareRoundRobinPolicy;
+import com.datastax.driver.core.policies.TokenAwarePolicy;
 import com.stratio.decision.functions.SaveToCassandraActionExecutionFunction;
 import com.stratio.decision.service.SaveToCassandraOperationsService;
 
@@ -33,6 +36,9 @@ public class CassandraConfiguration {
     @Autowired
     private ConfigurationContext configurationContext;
 
+    @Autowired
+    private MetricRegistry metricRegistry;
+
     private static Logger log = LoggerFactory.getLogger(CassandraConfiguration.class);
 
 
@@ -41,7 +47,10 @@ public class CassandraConfiguration {
 
         log.debug("Creating Spring Bean for SaveToCassandraOperationsService");
 
-        return new SaveToCassandraOperationsService(cassandraSession());
+        return new SaveToCassandraOperationsService(cassandraSession(),
+                metricRegistry,
+                configurationContext.getCassandraMaxInFlightRequests(),
+                configurationContext.getCassandraTableConfiguration());
     }
 
 
@@ -54,6 +63,7 @@ public class CassandraConfiguration {
         try {
             session = Cluster.builder().addContactPoints(configurationContext.getCassandraHostsQuorum().split(","))
                     .withPort(configurationContext.getCassandraPort())
+                    .withLoadBalancingPolicy(new TokenAwarePolicy(DCAwareRoundRobinPolicy.builder().build()))
                     .build().connect();
         } catch (Exception e) {
             session = null;
@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.configuration;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Layout and storage options of the tables created by the cassandra action.
+ */
+public class CassandraTableConfigurationBean {
+
+    /**
+     * SIMPLE tables use the event timeuuid as primary key. TIME_BUCKETED tables are partitioned by a time bucket,
+     * and the shard column when the stream has it, with the event timeuuid as clustering key.
+     */
+    public enum Layout {
+        SIMPLE, TIME_BUCKETED
+    }
+
+    /**
+     * Bucket units that are also valid time window compaction units.
+     */
+    public static final Set<TimeUnit> TIME_WINDOW_UNITS = EnumSet.of(TimeUnit.MINUTES, TimeUnit.HOURS, TimeUnit.DAYS);
+
+    private Layout layout = Layout.SIMPLE;
+
+    private TimeUnit bucketUnit = TimeUnit.DAYS;
+
+    private Integer bucketSize = 1;
+
+    private String shardColumn;
+
+    private String compression = "";
+
+    private Boolean timeWindowCompaction = false;
+
+    private Integer defaultTtl = 0;
+
+    private Map<String, Integer> streamTtls = new HashMap<>();
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public void setLayout(Layout layout) {
+        this.layout = layout;
+    }
+
+    public TimeUnit getBucketUnit() {
+        return bucketUnit;
+    }
+
+    public void setBucketUnit(TimeUnit bucketUnit) {
+        this.bucketUnit = bucketUnit;
+    }
+
+    public Integer getBucketSize() {
+        return bucketSize;
+    }
+
+    public void setBucketSize(Integer bucketSize) {
+        this.bucketSize = bucketSize;
+    }
+
+    public long getBucketMillis() {
+        return bucketUnit.toMillis(bucketSize);
+    }
+
+    public String getShardColumn() {
+        return shardColumn;
+    }
+
+    public void setShardColumn(String shardColumn) {
+        this.shardColumn = shardColumn;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public Boolean getTimeWindowCompaction() {
+        return timeWindowCompaction;
+    }
+
+    public void setTimeWindowCompaction(Boolean timeWindowCompaction) {
+        this.timeWindowCompaction = timeWindowCompaction;
+    }
+
+    public Integer getDefaultTtl() {
+        return defaultTtl;
+    }
+
+    public void setDefaultTtl(Integer defaultTtl) {
+        this.defaultTtl = defaultTtl;
+    }
+
+    public Map<String, Integer> getStreamTtls() {
+        return streamTtls;
+    }
+
+    public void setStreamTtls(Map<String, Integer> streamTtls) {
+        this.streamTtls = streamTtls;
+    }
+
+    public Integer getTtl(String streamName) {
+        Integer ttl = streamTtls.get(streamName);
+        return ttl != null ? ttl : defaultTtl;
+    }
+}
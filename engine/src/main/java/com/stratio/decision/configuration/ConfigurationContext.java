@@ -51,6 +51,11 @@ public class ConfigurationContext {
 
     private final boolean failOverEnabled;
     private final long failOverPeriod;
+    private final Integer failOverCompactionThreshold;
+    private final Integer failOverSnapshotShards;
+    private final boolean siddhiCheckpointEnabled;
+    private final Long siddhiCheckpointPeriod;
+    private final Integer failOverRestoreThreads;
 
     private final boolean auditEnabled;
     private final boolean statsEnabled;
@@ -84,32 +89,106 @@ public class ConfigurationContext {
     private final List<String> elasticSearchHosts;
     private final String elasticSearchClusterName;
     private final Integer elasticSearchMaxBatchSize;
+    private final Integer elasticSearchConcurrentRequests;
+    private final Long elasticSearchBulkSize;
+    private final Long elasticSearchFlushInterval;
+    private final Long elasticSearchBackoffInitialDelay;
+    private final Integer elasticSearchBackoffMaxRetries;
+    private final String elasticSearchIndexDatePattern;
+    private final Long elasticSearchRetention;
+    private final Long elasticSearchRetentionCheckInterval;
 
     private final String solrHost;
     private final Boolean solrCloud;
     private final String solrDataDir;
     private final String solrCloudZkHost;
     private final Integer solrMaxBatchSize;
+    private final SolrCommitPolicy solrCommitPolicy;
+    private final Long solrCommitWithin;
 
     private final List<String> mongoHosts;
     private final String mongoUsername;
     private final String mongoPassword;
     private final Integer mongoMaxBatchSize;
+    private final String mongoWriteConcern;
+    private final Boolean mongoOrdered;
+    private final Integer mongoConcurrentBulks;
 
     private final Integer cassandraMaxBatchSize;
     private final BatchStatement.Type cassandraBatchType;
+    private final CassandraWriteMode cassandraWriteMode;
+    private final Integer cassandraMaxInFlightRequests;
+    private final CassandraTableConfigurationBean cassandraTableConfiguration;
 
     private final DroolsConfigurationBean droolsConfiguration;
 
+    private final KafkaIngestionMode requestIngestionMode;
+    private final KafkaIngestionMode actionIngestionMode;
+    private final KafkaIngestionMode dataIngestionMode;
+
+    private final Integer actionBusQueueSize;
+    private final Integer actionBusMaxBatchSize;
+    private final ActionBusOverflowPolicy actionBusOverflowPolicy;
+    private final Integer actionBusSenderThreads;
+
+    /**
+     * How a streaming context reads its kafka topics. RECEIVER uses a single receiver per context and consumer
+     * offsets kept by kafka in zookeeper. DIRECT reads without receivers, mapping each kafka partition to one RDD
+     * partition and keeping the consumed offsets under the decision zookeeper path.
+     */
+    public enum KafkaIngestionMode {
+        RECEIVER, DIRECT
+    }
+
+    /**
+     * How the cassandra action writes its rows. BATCH groups the inserts in batch statements of cassandraBatchType.
+     * ASYNC sends every insert on its own, asynchronously, routed to a replica of its partition and bounded by
+     * cassandraMaxInFlightRequests.
+     */
+    public enum CassandraWriteMode {
+        BATCH, ASYNC
+    }
+
+    /**
+     * How the solr action makes its documents visible. COMMIT_WITHIN lets solr commit them within solrCommitWithin
+     * milliseconds. SOFT and EXPLICIT send a soft or a hard commit to the written cores after every batch.
+     */
+    public enum SolrCommitPolicy {
+        COMMIT_WITHIN, SOFT, EXPLICIT
+    }
+
+    /**
+     * What a siddhi callback does when the action bus queue of its stream is full. BLOCK waits for the senders,
+     * DROP_OLDEST discards the oldest queued events and SPILL sends the queued events from the callback thread.
+     */
+    public enum ActionBusOverflowPolicy {
+        BLOCK, DROP_OLDEST, SPILL
+    }
+
     public enum ConfigurationKeys {
         CASSANDRA_HOSTS("cassandra.hosts"),
         CASSANDRA_PORT("cassandra.port"),
         CASSANDRA_MAX_BATCH_SIZE("cassandra.maxBatchSize"),
         CASSANDRA_BATCH_TYPE("cassandra.batchType"),
+        CASSANDRA_WRITE_MODE("cassandra.writeMode"),
+        CASSANDRA_MAX_IN_FLIGHT_REQUESTS("cassandra.maxInFlightRequests"),
+        CASSANDRA_TABLE_LAYOUT("cassandra.table.layout"),
+        CASSANDRA_TABLE_BUCKET_UNIT("cassandra.table.bucketUnit"),
+        CASSANDRA_TABLE_BUCKET_SIZE("cassandra.table.bucketSize"),
+        CASSANDRA_TABLE_SHARD_COLUMN("cassandra.table.shardColumn"),
+        CASSANDRA_TABLE_COMPRESSION("cassandra.table.compression"),
+        CASSANDRA_TABLE_TIME_WINDOW_COMPACTION("cassandra.table.timeWindowCompaction"),
+        CASSANDRA_TABLE_DEFAULT_TTL("cassandra.table.defaultTtl"),
+        CASSANDRA_TABLE_TTL("cassandra.table.ttl"),
         KAFKA_HOSTS("kafka.hosts"),
         ZOOKEEPER_HOSTS("zookeeper.hosts"),
         FAILOVER_ENABLED("clustering.failoverEnabled"),
         FAILOVER_PERIOD("clustering.failoverPeriod"),
+        FAILOVER_COMPACTION_THRESHOLD("clustering.failoverCompactionThreshold"),
+        FAILOVER_SNAPSHOT_SHARDS("clustering.failoverSnapshotShards"),
+        SIDDHI_CHECKPOINT_ENABLED("clustering.siddhiCheckpointEnabled"),
+        SIDDHI_CHECKPOINT_PERIOD("clustering.siddhiCheckpointPeriod"),
+        FAILOVER_RESTORE_THREADS("clustering.failoverRestoreThreads"),
         AUDIT_ENABLED("auditEnabled"),
         STATS_ENABLED("statsEnabled"),
         PRINT_STREAMS("printStreams"),
@@ -122,19 +201,39 @@ public class ConfigurationContext {
         KAFKA_SESSION_TIMEOUT("kafka.sessionTimeout"),
         KAFKA_CONNECTION_TIMEOUT("kafka.connectionTimeout"),
         KAFKA_ZK_PATH("kafka.zookeeperPath"),
+        KAFKA_REQUEST_INGESTION_MODE("kafka.ingestionMode.request"),
+        KAFKA_ACTION_INGESTION_MODE("kafka.ingestionMode.action"),
+        KAFKA_DATA_INGESTION_MODE("kafka.ingestionMode.data"),
+        KAFKA_ACTION_BUS_QUEUE_SIZE("kafka.actionBus.queueSize"),
+        KAFKA_ACTION_BUS_MAX_BATCH_SIZE("kafka.actionBus.maxBatchSize"),
+        KAFKA_ACTION_BUS_OVERFLOW_POLICY("kafka.actionBus.overflowPolicy"),
+        KAFKA_ACTION_BUS_SENDER_THREADS("kafka.actionBus.senderThreads"),
         DATA_TOPICS("clustering.dataTopics"),
         ELASTICSEARCH_HOST("elasticsearch.hosts"),
         ELASTICSEARCH_CLUSTER_NAME("elasticsearch.clusterName"),
         ELASTICSEARCH_MAX_BATCH_SIZE("elasticsearch.maxBatchSize"),
+        ELASTICSEARCH_CONCURRENT_REQUESTS("elasticsearch.concurrentRequests"),
+        ELASTICSEARCH_BULK_SIZE("elasticsearch.bulkSize"),
+        ELASTICSEARCH_FLUSH_INTERVAL("elasticsearch.flushInterval"),
+        ELASTICSEARCH_BACKOFF_INITIAL_DELAY("elasticsearch.backoff.initialDelay"),
+        ELASTICSEARCH_BACKOFF_MAX_RETRIES("elasticsearch.backoff.maxRetries"),
+        ELASTICSEARCH_INDEX_DATE_PATTERN("elasticsearch.indexDatePattern"),
+        ELASTICSEARCH_RETENTION("elasticsearch.retention"),
+        ELASTICSEARCH_RETENTION_CHECK_INTERVAL("elasticsearch.retentionCheckInterval"),
         SOLR_HOST("solr.host"),
         SOLR_CLOUD("solr.cloud"),
         SOLR_DATADIR("solr.dataDir"),
         SOLR_CLOUD_ZKHOST("solr.cloudZkHost"),
         SOLR_MAX_BATCH_SIZE("solr.maxBatchSize"),
+        SOLR_COMMIT_POLICY("solr.commitPolicy"),
+        SOLR_COMMIT_WITHIN("solr.commitWithin"),
         MONGO_HOST("mongo.hosts"),
         MONGO_USER("mongo.user"),
         MONGO_PASSWORD("mongo.password"),
         MONGO_MAX_BATCH_SIZE("mongo.maxBatchSize"),
+        MONGO_WRITE_CONCERN("mongo.writeConcern"),
+        MONGO_ORDERED("mongo.ordered"),
+        MONGO_CONCURRENT_BULKS("mongo.concurrentBulks"),
         CLUSTERING_GROUP_ID("clustering.groupId"),
         CLUSTERING_ENABLED("clustering.enabled"),
         CLUSTERING_GROUPS("clustering.clusterGroups"),
@@ -181,6 +280,20 @@ public class ConfigurationContext {
 
         this.failOverEnabled = config.getBoolean(ConfigurationKeys.FAILOVER_ENABLED.getKey());
         this.failOverPeriod = config.getDuration(ConfigurationKeys.FAILOVER_PERIOD.getKey(), TimeUnit.MILLISECONDS);
+        this.failOverCompactionThreshold = (Integer) this.getValueOrNull(ConfigurationKeys
+                .FAILOVER_COMPACTION_THRESHOLD.getKey(), config);
+        this.failOverSnapshotShards = (Integer) this.getValueOrNull(ConfigurationKeys.FAILOVER_SNAPSHOT_SHARDS
+                .getKey(), config);
+        this.siddhiCheckpointEnabled = this.getBoolean(ConfigurationKeys.SIDDHI_CHECKPOINT_ENABLED.getKey(), config);
+        this.siddhiCheckpointPeriod = getDurationOrNull(ConfigurationKeys.SIDDHI_CHECKPOINT_PERIOD.getKey(), config);
+        this.failOverRestoreThreads = (Integer) this.getValueOrNull(ConfigurationKeys.FAILOVER_RESTORE_THREADS
+                .getKey(), config);
+        if (this.siddhiCheckpointEnabled && this.getFailOverRestoreThreads() > 1) {
+            throw new IllegalArgumentException(String.format("%s must be 1 when %s is enabled, the siddhi state is "
+                    + "bound to the creation order of streams and queries",
+                    ConfigurationKeys.FAILOVER_RESTORE_THREADS.getKey(),
+                    ConfigurationKeys.SIDDHI_CHECKPOINT_ENABLED.getKey()));
+        }
         this.auditEnabled = config.getBoolean(ConfigurationKeys.AUDIT_ENABLED.getKey());
         this.statsEnabled = config.getBoolean(ConfigurationKeys.STATS_ENABLED.getKey());
         this.printStreams = config.getBoolean(ConfigurationKeys.PRINT_STREAMS.getKey());
@@ -203,6 +316,24 @@ public class ConfigurationContext {
         this.kafkaConnectionTimeout = config.getInt(ConfigurationKeys.KAFKA_CONNECTION_TIMEOUT.getKey());
         this.kafkaZookeeperPath = config.getString(ConfigurationKeys.KAFKA_ZK_PATH.getKey());
 
+        this.requestIngestionMode = getIngestionMode(ConfigurationKeys.KAFKA_REQUEST_INGESTION_MODE.getKey(), config);
+        this.actionIngestionMode = getIngestionMode(ConfigurationKeys.KAFKA_ACTION_INGESTION_MODE.getKey(), config);
+        this.dataIngestionMode = getIngestionMode(ConfigurationKeys.KAFKA_DATA_INGESTION_MODE.getKey(), config);
+
+        this.actionBusQueueSize = (Integer) this.getValueOrNull(ConfigurationKeys.KAFKA_ACTION_BUS_QUEUE_SIZE.getKey(),
+                config);
+        this.actionBusMaxBatchSize = (Integer) this.getValueOrNull(ConfigurationKeys.KAFKA_ACTION_BUS_MAX_BATCH_SIZE
+                .getKey(), config);
+        String overflowPolicy = (String) this.getValueOrNull(ConfigurationKeys.KAFKA_ACTION_BUS_OVERFLOW_POLICY
+                .getKey(), config);
+        if (overflowPolicy == null) {
+            this.actionBusOverflowPolicy = ActionBusOverflowPolicy.BLOCK;
+        } else {
+            this.actionBusOverflowPolicy = ActionBusOverflowPolicy.valueOf(overflowPolicy.toUpperCase());
+        }
+        this.actionBusSenderThreads = (Integer) this.getValueOrNull(ConfigurationKeys.KAFKA_ACTION_BUS_SENDER_THREADS
+                .getKey(), config);
+
         this.cassandraHosts = (List<String>) this.getListOrNull(ConfigurationKeys.CASSANDRA_HOSTS.getKey(), config);
         this.cassandraPort = (Integer) this.getValueOrNull(ConfigurationKeys.CASSANDRA_PORT.getKey(), config);
         this.cassandraMaxBatchSize = config.getInt(ConfigurationKeys.CASSANDRA_MAX_BATCH_SIZE.getKey());
@@ -215,10 +346,35 @@ public class ConfigurationContext {
             this.cassandraBatchType =  BatchStatement.Type.valueOf(batchType);
         }
 
+        String writeMode = (String) this.getValueOrNull(ConfigurationKeys.CASSANDRA_WRITE_MODE.getKey(), config);
+        if (writeMode == null) {
+            this.cassandraWriteMode = CassandraWriteMode.BATCH;
+        } else {
+            this.cassandraWriteMode = CassandraWriteMode.valueOf(writeMode.toUpperCase());
+        }
+        this.cassandraMaxInFlightRequests = (Integer) this.getValueOrNull(ConfigurationKeys
+                .CASSANDRA_MAX_IN_FLIGHT_REQUESTS.getKey(), config);
+        this.cassandraTableConfiguration = getCassandraTableConfiguration(config);
+
         this.elasticSearchHosts = (List<String>) this.getListOrNull(ConfigurationKeys.ELASTICSEARCH_HOST.getKey(), config);
         this.elasticSearchClusterName = (String) this.getValueOrNull(ConfigurationKeys.ELASTICSEARCH_CLUSTER_NAME.getKey(), config);
         this.elasticSearchMaxBatchSize = (Integer) this.getValueOrNull(ConfigurationKeys.ELASTICSEARCH_MAX_BATCH_SIZE
                 .getKey(), config);
+        this.elasticSearchConcurrentRequests = (Integer) this.getValueOrNull(ConfigurationKeys
+                .ELASTICSEARCH_CONCURRENT_REQUESTS.getKey(), config);
+        this.elasticSearchBulkSize = config.hasPath(ConfigurationKeys.ELASTICSEARCH_BULK_SIZE.getKey()) ?
+                config.getBytes(ConfigurationKeys.ELASTICSEARCH_BULK_SIZE.getKey()) : null;
+        this.elasticSearchFlushInterval = getDurationOrNull(ConfigurationKeys.ELASTICSEARCH_FLUSH_INTERVAL.getKey(),
+                config);
+        this.elasticSearchBackoffInitialDelay = getDurationOrNull(ConfigurationKeys
+                .ELASTICSEARCH_BACKOFF_INITIAL_DELAY.getKey(), config);
+        this.elasticSearchBackoffMaxRetries = (Integer) this.getValueOrNull(ConfigurationKeys
+                .ELASTICSEARCH_BACKOFF_MAX_RETRIES.getKey(), config);
+        this.elasticSearchIndexDatePattern = (String) this.getValueOrNull(ConfigurationKeys
+                .ELASTICSEARCH_INDEX_DATE_PATTERN.getKey(), config);
+        this.elasticSearchRetention = getDurationOrNull(ConfigurationKeys.ELASTICSEARCH_RETENTION.getKey(), config);
+        this.elasticSearchRetentionCheckInterval = getDurationOrNull(ConfigurationKeys
+                .ELASTICSEARCH_RETENTION_CHECK_INTERVAL.getKey(), config);
 
 
         this.solrHost = (String) this.getValueOrNull(ConfigurationKeys.SOLR_HOST.getKey(), config);
@@ -226,11 +382,22 @@ public class ConfigurationContext {
         this.solrDataDir = (String) this.getValueOrNull(ConfigurationKeys.SOLR_DATADIR.getKey(), config);
         this.solrCloudZkHost = (String) this.getValueOrNull(ConfigurationKeys.SOLR_CLOUD_ZKHOST.getKey(), config);
         this.solrMaxBatchSize =  (Integer) this.getValueOrNull(ConfigurationKeys.SOLR_MAX_BATCH_SIZE.getKey(), config);
+        String commitPolicy = (String) this.getValueOrNull(ConfigurationKeys.SOLR_COMMIT_POLICY.getKey(), config);
+        if (commitPolicy == null) {
+            this.solrCommitPolicy = SolrCommitPolicy.COMMIT_WITHIN;
+        } else {
+            this.solrCommitPolicy = SolrCommitPolicy.valueOf(commitPolicy.toUpperCase());
+        }
+        this.solrCommitWithin = getDurationOrNull(ConfigurationKeys.SOLR_COMMIT_WITHIN.getKey(), config);
 
         this.mongoHosts = (List<String>) this.getListOrNull(ConfigurationKeys.MONGO_HOST.getKey(), config);
         this.mongoUsername = (String) this.getValueOrNull(ConfigurationKeys.MONGO_USER.getKey(), config);
         this.mongoPassword = (String) this.getValueOrNull(ConfigurationKeys.MONGO_PASSWORD.getKey(), config);
         this.mongoMaxBatchSize = (Integer) this.getValueOrNull(ConfigurationKeys.MONGO_MAX_BATCH_SIZE.getKey(), config);
+        this.mongoWriteConcern = (String) this.getValueOrNull(ConfigurationKeys.MONGO_WRITE_CONCERN.getKey(), config);
+        this.mongoOrdered = this.getBoolean(ConfigurationKeys.MONGO_ORDERED.getKey(), config);
+        this.mongoConcurrentBulks = (Integer) this.getValueOrNull(ConfigurationKeys.MONGO_CONCURRENT_BULKS.getKey(),
+                config);
 
         this.clusterGroups = (List<String>) this.getListOrNull(ConfigurationKeys.CLUSTERING_GROUPS.getKey(),
                 config);
@@ -277,6 +444,60 @@ public class ConfigurationContext {
         return groupId;
     }
 
+    private CassandraTableConfigurationBean getCassandraTableConfiguration(Config config) {
+
+        CassandraTableConfigurationBean tableConfiguration = new CassandraTableConfigurationBean();
+
+        String layout = (String) this.getValueOrNull(ConfigurationKeys.CASSANDRA_TABLE_LAYOUT.getKey(), config);
+        if (layout != null) {
+            tableConfiguration.setLayout(CassandraTableConfigurationBean.Layout.valueOf(layout.toUpperCase()));
+        }
+        String bucketUnit = (String) this.getValueOrNull(ConfigurationKeys.CASSANDRA_TABLE_BUCKET_UNIT.getKey(),
+                config);
+        if (bucketUnit != null) {
+            tableConfiguration.setBucketUnit(TimeUnit.valueOf(bucketUnit.toUpperCase()));
+        }
+        Integer bucketSize = (Integer) this.getValueOrNull(ConfigurationKeys.CASSANDRA_TABLE_BUCKET_SIZE.getKey(),
+                config);
+        if (bucketSize != null) {
+            tableConfiguration.setBucketSize(bucketSize);
+        }
+        String shardColumn = (String) this.getValueOrNull(ConfigurationKeys.CASSANDRA_TABLE_SHARD_COLUMN.getKey(),
+                config);
+        if (shardColumn != null && !shardColumn.isEmpty()) {
+            tableConfiguration.setShardColumn(shardColumn);
+        }
+        String compression = (String) this.getValueOrNull(ConfigurationKeys.CASSANDRA_TABLE_COMPRESSION.getKey(),
+                config);
+        if (compression != null) {
+            tableConfiguration.setCompression(compression);
+        }
+        tableConfiguration.setTimeWindowCompaction(this.getBoolean(ConfigurationKeys
+                .CASSANDRA_TABLE_TIME_WINDOW_COMPACTION.getKey(), config));
+        if (tableConfiguration.getTimeWindowCompaction() && !CassandraTableConfigurationBean.TIME_WINDOW_UNITS
+                .contains(tableConfiguration.getBucketUnit())) {
+            throw new IllegalArgumentException(String.format("%s must be one of %s to use time window compaction",
+                    ConfigurationKeys.CASSANDRA_TABLE_BUCKET_UNIT.getKey(),
+                    CassandraTableConfigurationBean.TIME_WINDOW_UNITS));
+        }
+        Integer defaultTtl = (Integer) this.getValueOrNull(ConfigurationKeys.CASSANDRA_TABLE_DEFAULT_TTL.getKey(),
+                config);
+        if (defaultTtl != null) {
+            tableConfiguration.setDefaultTtl(defaultTtl);
+        }
+
+        Map<String, Integer> streamTtls = new HashMap<>();
+        if (config.hasPath(ConfigurationKeys.CASSANDRA_TABLE_TTL.getKey())) {
+            for (Map.Entry<String, Object> ttl : config.getConfig(ConfigurationKeys.CASSANDRA_TABLE_TTL.getKey())
+                    .root().unwrapped().entrySet()) {
+                streamTtls.put(ttl.getKey(), ((Number) ttl.getValue()).intValue());
+            }
+        }
+        tableConfiguration.setStreamTtls(streamTtls);
+
+        return tableConfiguration;
+    }
+
     private Map<String, DroolsConfigurationGroupBean> getDroolsConfigurationGroup(Config droolsConfig)  {
 
         Map<String, DroolsConfigurationGroupBean> groups= new HashMap<>();
@@ -369,6 +590,38 @@ public class ConfigurationContext {
         return failOverPeriod;
     }
 
+    public Integer getFailOverCompactionThreshold() {
+        if (failOverCompactionThreshold != null)
+            return failOverCompactionThreshold;
+        else
+            return 1000;
+    }
+
+    public Integer getFailOverSnapshotShards() {
+        if (failOverSnapshotShards != null)
+            return failOverSnapshotShards;
+        else
+            return 16;
+    }
+
+    public boolean isSiddhiCheckpointEnabled() {
+        return siddhiCheckpointEnabled;
+    }
+
+    public Long getSiddhiCheckpointPeriod() {
+        if (siddhiCheckpointPeriod != null)
+            return siddhiCheckpointPeriod;
+        else
+            return 300000L;
+    }
+
+    public Integer getFailOverRestoreThreads() {
+        if (failOverRestoreThreads != null)
+            return failOverRestoreThreads;
+        else
+            return 1;
+    }
+
     public boolean isAuditEnabled() {
         return auditEnabled;
     }
@@ -477,6 +730,74 @@ public class ConfigurationContext {
         return cassandraBatchType;
     }
 
+    public CassandraTableConfigurationBean getCassandraTableConfiguration() {
+        return cassandraTableConfiguration;
+    }
+
+    public CassandraWriteMode getCassandraWriteMode() {
+        return cassandraWriteMode;
+    }
+
+    public Integer getCassandraMaxInFlightRequests() {
+        if (cassandraMaxInFlightRequests != null)
+            return cassandraMaxInFlightRequests;
+        else
+            return 256;
+    }
+
+    public Integer getElasticSearchConcurrentRequests() {
+        if (elasticSearchConcurrentRequests != null)
+            return elasticSearchConcurrentRequests;
+        else
+            return 1;
+    }
+
+    public Long getElasticSearchBulkSize() {
+        if (elasticSearchBulkSize != null)
+            return elasticSearchBulkSize;
+        else
+            return 5L * 1024 * 1024;
+    }
+
+    public Long getElasticSearchFlushInterval() {
+        if (elasticSearchFlushInterval != null)
+            return elasticSearchFlushInterval;
+        else
+            return 1000L;
+    }
+
+    public Long getElasticSearchBackoffInitialDelay() {
+        if (elasticSearchBackoffInitialDelay != null)
+            return elasticSearchBackoffInitialDelay;
+        else
+            return 50L;
+    }
+
+    public Integer getElasticSearchBackoffMaxRetries() {
+        if (elasticSearchBackoffMaxRetries != null)
+            return elasticSearchBackoffMaxRetries;
+        else
+            return 8;
+    }
+
+    public String getElasticSearchIndexDatePattern() {
+        return elasticSearchIndexDatePattern;
+    }
+
+    public Long getElasticSearchRetention() {
+        if (elasticSearchRetention != null)
+            return elasticSearchRetention;
+        else
+            return 0L;
+    }
+
+    public Long getElasticSearchRetentionCheckInterval() {
+        if (elasticSearchRetentionCheckInterval != null)
+            return elasticSearchRetentionCheckInterval;
+        else
+            return 3600000L;
+    }
+
     public Integer getElasticSearchMaxBatchSize() {
         return elasticSearchMaxBatchSize;
     }
@@ -485,6 +806,24 @@ public class ConfigurationContext {
         return mongoMaxBatchSize;
     }
 
+    public String getMongoWriteConcern() {
+        if (mongoWriteConcern != null)
+            return mongoWriteConcern;
+        else
+            return "ACKNOWLEDGED";
+    }
+
+    public Boolean getMongoOrdered() {
+        return mongoOrdered;
+    }
+
+    public Integer getMongoConcurrentBulks() {
+        if (mongoConcurrentBulks != null)
+            return mongoConcurrentBulks;
+        else
+            return 4;
+    }
+
     public boolean isPartitionsEnabled() {
         return partitionsEnabled;
     }
@@ -498,10 +837,74 @@ public class ConfigurationContext {
 
     }
 
+    public SolrCommitPolicy getSolrCommitPolicy() {
+        return solrCommitPolicy;
+    }
+
+    public Long getSolrCommitWithin() {
+        if (solrCommitWithin != null)
+            return solrCommitWithin;
+        else
+            return 1000L;
+    }
+
     public HashMap<String, String> getSparkTunningProperties() {
         return sparkTunningProperties;
     }
 
+    public KafkaIngestionMode getRequestIngestionMode() {
+        return requestIngestionMode;
+    }
+
+    public KafkaIngestionMode getActionIngestionMode() {
+        return actionIngestionMode;
+    }
+
+    public KafkaIngestionMode getDataIngestionMode() {
+        return dataIngestionMode;
+    }
+
+    public Integer getActionBusQueueSize() {
+        if (actionBusQueueSize != null)
+            return actionBusQueueSize;
+        else
+            return 10000;
+    }
+
+    public Integer getActionBusMaxBatchSize() {
+        if (actionBusMaxBatchSize != null)
+            return actionBusMaxBatchSize;
+        else
+            return 500;
+    }
+
+    public ActionBusOverflowPolicy getActionBusOverflowPolicy() {
+        return actionBusOverflowPolicy;
+    }
+
+    public Integer getActionBusSenderThreads() {
+        if (actionBusSenderThreads != null)
+            return actionBusSenderThreads;
+        else
+            return 2;
+    }
+
+    private KafkaIngestionMode getIngestionMode(String key, Config config) {
+        String ingestionMode = (String) this.getValueOrNull(key, config);
+        if (ingestionMode == null) {
+            return KafkaIngestionMode.RECEIVER;
+        }
+        return KafkaIngestionMode.valueOf(ingestionMode.toUpperCase());
+    }
+
+    private Long getDurationOrNull(String key, Config config) {
+        if (config.hasPath(key)) {
+            return config.getDuration(key, TimeUnit.MILLISECONDS);
+        } else {
+            return null;
+        }
+    }
+
     private Object getValueOrNull(String key, Config config) {
         if (config.hasPath(key)) {
             return config.getAnyRef(key);
@@ -15,6 +15,7 @@
  */
 package com.stratio.decision.configuration;
 
+import com.stratio.decision.dao.KafkaOffsetsDao;
 import com.stratio.decision.dao.StreamStatusDao;
 import com.stratio.decision.dao.StreamingFailoverDao;
 import com.stratio.decision.factory.GsonFactory;
@@ -33,6 +34,11 @@ public class DaoConfiguration {
         return new StreamingFailoverDao(configurationContext, GsonFactory.getInstance());
     }
 
+    @Bean
+    public KafkaOffsetsDao kafkaOffsetsDao() throws Exception {
+        return new KafkaOffsetsDao(configurationContext);
+    }
+
     @Bean
     public StreamStatusDao streamStatusDao() {
         return new StreamStatusDao();
@@ -26,6 +26,12 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import com.codahale.metrics.MetricRegistry;
+import com.stratio.decision.service.ElasticSearchBulkService;
+import com.stratio.decision.service.ElasticSearchIndexService;
+import com.stratio.decision.task.ElasticSearchRetentionTask;
 
 /**
  * Created by josepablofernandez on 1/06/16.
@@ -36,6 +42,9 @@ public class ElasticSearchConfiguration {
     @Autowired
     ConfigurationContext configurationContext;
 
+    @Autowired
+    private MetricRegistry metricRegistry;
+
     private static Logger log = LoggerFactory.getLogger(ElasticSearchConfiguration.class);
 
     @Bean
@@ -58,4 +67,44 @@ public class ElasticSearchConfiguration {
         return  tc;
 
     }
+
+    @Bean(destroyMethod = "close")
+    public ElasticSearchBulkService elasticSearchBulkService() {
+
+        log.debug("Creating Spring Bean for elasticSearchBulkService");
+
+        Integer maxBatchSize = configurationContext.getElasticSearchMaxBatchSize();
+
+        return new ElasticSearchBulkService(elasticsearchClient(),
+                metricRegistry,
+                maxBatchSize == null ? 1000 : maxBatchSize,
+                configurationContext.getElasticSearchBulkSize(),
+                configurationContext.getElasticSearchConcurrentRequests(),
+                configurationContext.getElasticSearchFlushInterval(),
+                configurationContext.getElasticSearchBackoffInitialDelay(),
+                configurationContext.getElasticSearchBackoffMaxRetries());
+    }
+
+    @Bean
+    public ElasticSearchIndexService elasticSearchIndexService() {
+
+        log.debug("Creating Spring Bean for elasticSearchIndexService");
+
+        return new ElasticSearchIndexService(elasticsearchClient(),
+                configurationContext.getElasticSearchIndexDatePattern(),
+                configurationContext.getElasticSearchRetention());
+    }
+
+    @Bean
+    public ElasticSearchRetentionTask elasticSearchRetentionTask() {
+        return new ElasticSearchRetentionTask(elasticSearchIndexService());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler elasticSearchRetentionScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadNamePrefix("elasticsearch-retention-");
+        scheduler.setDaemon(true);
+        return scheduler;
+    }
 }
@@ -23,6 +23,7 @@ import com.ryantenney.metrics.spring.config.annotation.MetricsConfigurerAdapter;
 import com.stratio.decision.dao.StreamStatusDao;
 import com.stratio.decision.metrics.SiddhiStreamReporter;
 import com.stratio.decision.service.CallbackService;
+import com.stratio.decision.service.StreamMetadataService;
 import com.stratio.decision.service.StreamOperationServiceWithoutMetrics;
 import com.stratio.decision.service.StreamStatusMetricService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -44,6 +45,14 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
     @Autowired
     private ConfigurationContext configurationContext;
 
+    @Autowired
+    private BaseConfiguration baseConfiguration;
+
+    @Override
+    public MetricRegistry getMetricRegistry() {
+        return baseConfiguration.metricRegistry();
+    }
+
     @Override
     public void configureReporters(MetricRegistry metricRegistry) {
         if (configurationContext.isPrintStreams()) {
@@ -66,8 +75,12 @@ public class MetricsConfiguration extends MetricsConfigurerAdapter {
     @Autowired
     private CallbackService callbackService;
 
+    @Autowired
+    private StreamMetadataService streamMetadataService;
+
     @Bean
     public StreamOperationServiceWithoutMetrics streamOperationServiceWithoutMetrics() {
-        return new StreamOperationServiceWithoutMetrics(siddhiManager, streamStatusDao, callbackService, configurationContext);
+        return new StreamOperationServiceWithoutMetrics(siddhiManager, streamStatusDao, callbackService,
+                streamMetadataService, null, configurationContext);
     }
 }
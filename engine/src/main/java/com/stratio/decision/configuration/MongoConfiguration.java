@@ -27,11 +27,14 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Lazy;
 
+import com.codahale.metrics.MetricRegistry;
 import com.mongodb.DB;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoCredential;
 import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcern;
 import com.stratio.decision.commons.constants.STREAMING;
+import com.stratio.decision.service.MongoOperationsService;
 
 /**
  * Created by josepablofernandez on 31/05/16.
@@ -44,6 +47,9 @@ public class MongoConfiguration {
     @Autowired
     private ConfigurationContext configurationContext;
 
+    @Autowired
+    private MetricRegistry metricRegistry;
+
 
     @Bean
     public MongoClient mongoClient(){
@@ -91,4 +97,19 @@ public class MongoConfiguration {
        return mongoClient().getDB(STREAMING.STREAMING_KEYSPACE_NAME);
 
     }
+
+    @Bean(destroyMethod = "close")
+    @Lazy
+    public MongoOperationsService mongoOperationsService() {
+
+        WriteConcern writeConcern = WriteConcern.valueOf(configurationContext.getMongoWriteConcern().toUpperCase());
+        if (writeConcern == null) {
+            log.warn("Unknown MongoDB write concern {}, using ACKNOWLEDGED", configurationContext.getMongoWriteConcern());
+            writeConcern = WriteConcern.ACKNOWLEDGED;
+        }
+
+        log.debug("Creating Spring Bean for mongoOperationsService");
+        return new MongoOperationsService(mongoDB(), metricRegistry,
+                writeConcern, configurationContext.getMongoOrdered(), configurationContext.getMongoConcurrentBulks());
+    }
 }
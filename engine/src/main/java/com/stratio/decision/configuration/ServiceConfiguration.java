@@ -15,7 +15,7 @@
  */
 package com.stratio.decision.configuration;
 
-import com.stratio.decision.commons.avro.InsertMessage;
+import com.codahale.metrics.MetricRegistry;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
 import com.stratio.decision.dao.StreamStatusDao;
 import com.stratio.decision.dao.StreamingFailoverDao;
@@ -28,7 +28,6 @@ import com.stratio.decision.serializer.impl.KafkaToJavaSerializer;
 import com.stratio.decision.service.*;
 import kafka.javaapi.producer.Producer;
 
-import org.apache.avro.specific.SpecificDatumReader;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -63,11 +62,14 @@ public class ServiceConfiguration {
     @Autowired
     private DroolsConnectionContainer droolsConnectionContainer;
 
+    @Autowired
+    private MetricRegistry metricRegistry;
+
 
     @Bean
     public StreamOperationService streamOperationService() {
         return new StreamOperationService(siddhiManager, streamStatusDao, callbackService(),
-                droolsConnectionContainer, configurationContext);
+                streamMetadataService(), droolsConnectionContainer, configurationContext, metricRegistry);
     }
 
     @Bean
@@ -77,8 +79,16 @@ public class ServiceConfiguration {
 
     @Bean
     public CallbackService callbackService() {
-        return new CallbackService(producer, avroProducer, kafkaToJavaSerializer(), javaToSiddhiSerializer(),
-                javaToAvroSerializer());
+        return new CallbackService(producer, actionBusPublisherService(), kafkaToJavaSerializer(),
+                javaToSiddhiSerializer());
+    }
+
+    @Bean(destroyMethod = "close")
+    public ActionBusPublisherService actionBusPublisherService() {
+        return new ActionBusPublisherService(avroProducer, javaToAvroSerializer(),
+                metricRegistry,
+                configurationContext.getActionBusQueueSize(), configurationContext.getActionBusMaxBatchSize(),
+                configurationContext.getActionBusOverflowPolicy(), configurationContext.getActionBusSenderThreads());
     }
 
     @Bean
@@ -93,7 +103,7 @@ public class ServiceConfiguration {
 
     @Bean
     public Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer() {
-        return new JavaToAvroSerializer(new SpecificDatumReader(InsertMessage.getClassSchema()));
+        return new JavaToAvroSerializer();
     }
 
     @Bean
@@ -104,7 +114,10 @@ public class ServiceConfiguration {
     @Bean
     @Lazy
     public StreamingFailoverService streamingFailoverService() {
-        return new StreamingFailoverService(streamStatusDao, streamMetadataService(), streamingFailoverDao);
+        return new StreamingFailoverService(streamStatusDao, streamMetadataService(), streamingFailoverDao,
+                configurationContext.getFailOverCompactionThreshold(), configurationContext.isSiddhiCheckpointEnabled(),
+                configurationContext.getSiddhiCheckpointPeriod(), configurationContext.getFailOverRestoreThreads(),
+                metricRegistry);
     }
 
 
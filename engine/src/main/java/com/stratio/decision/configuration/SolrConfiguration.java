@@ -34,14 +34,15 @@ public class SolrConfiguration {
     @Autowired
     ConfigurationContext configurationContext;
 
-    @Bean
+    @Bean(destroyMethod = "close")
     public SolrOperationsService solrOperationsService() {
 
         log.debug("Creating Spring Bean for SolrOperationsService ");
 
 
         return  new SolrOperationsService(configurationContext.getSolrHost(), configurationContext
-                .getSolrCloudZkHost(), configurationContext.getSolrDataDir(), configurationContext.getSolrCloud());
+                .getSolrCloudZkHost(), configurationContext.getSolrDataDir(), configurationContext.getSolrCloud(),
+                configurationContext.getSolrCommitPolicy(), configurationContext.getSolrCommitWithin().intValue());
 
     }
 }
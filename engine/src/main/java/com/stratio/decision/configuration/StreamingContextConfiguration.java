@@ -15,16 +15,20 @@
  */
 package com.stratio.decision.configuration;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.spark.SparkConf;
 import org.apache.spark.storage.StorageLevel;
 import org.apache.spark.streaming.Duration;
 import org.apache.spark.streaming.api.java.JavaDStream;
 import org.apache.spark.streaming.api.java.JavaPairDStream;
+import org.apache.spark.streaming.api.java.JavaPairInputDStream;
 import org.apache.spark.streaming.api.java.JavaStreamingContext;
 import org.apache.spark.streaming.kafka.KafkaUtils;
 import org.elasticsearch.client.Client;
@@ -35,8 +39,6 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 
-import com.mongodb.DB;
-import com.mongodb.MongoClient;
 import com.stratio.decision.StreamingEngine;
 import com.stratio.decision.commons.avro.Action;
 import com.stratio.decision.commons.avro.ColumnType;
@@ -46,8 +48,11 @@ import com.stratio.decision.commons.constants.STREAM_OPERATIONS;
 import com.stratio.decision.commons.constants.StreamAction;
 import com.stratio.decision.commons.kafka.service.KafkaTopicService;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.configuration.ConfigurationContext.KafkaIngestionMode;
+import com.stratio.decision.dao.KafkaOffsetsDao;
 import com.stratio.decision.functions.FilterDataFunction;
 import com.stratio.decision.functions.PairDataFunction;
+import com.stratio.decision.functions.RequestDispatcherFunction;
 import com.stratio.decision.functions.SaveToCassandraActionExecutionFunction;
 import com.stratio.decision.functions.SaveToElasticSearchActionExecutionFunction;
 import com.stratio.decision.functions.SaveToMongoActionExecutionFunction;
@@ -65,14 +70,22 @@ import com.stratio.decision.functions.ddl.CreateStreamFunction;
 import com.stratio.decision.functions.dml.InsertIntoStreamFunction;
 import com.stratio.decision.functions.dml.ListStreamsFunction;
 import com.stratio.decision.functions.messages.AvroDeserializeMessageFunction;
+import com.stratio.decision.functions.messages.CommitKafkaOffsetsFunction;
 import com.stratio.decision.functions.messages.FilterAvroMessagesByOperationFunction;
-import com.stratio.decision.functions.messages.FilterMessagesByOperationFunction;
 import com.stratio.decision.functions.messages.KeepPayloadFromMessageFunction;
+import com.stratio.decision.functions.messages.MessageAndMetadataToTupleFunction;
 import com.stratio.decision.serializer.impl.KafkaToJavaSerializer;
 import com.stratio.decision.service.SaveToCassandraOperationsService;
+import com.stratio.decision.service.MongoOperationsService;
 import com.stratio.decision.service.SolrOperationsService;
 import com.stratio.decision.service.StreamOperationService;
+import com.stratio.decision.utils.KafkaReplyWriter;
 
+import kafka.common.TopicAndPartition;
+import kafka.serializer.Decoder;
+import kafka.serializer.DefaultDecoder;
+import kafka.serializer.StringDecoder;
+import scala.Tuple2;
 
 @Configuration
 @Import(ServiceConfiguration.class)
@@ -90,10 +103,7 @@ public class StreamingContextConfiguration {
     private KafkaToJavaSerializer kafkaToJavaSerializer;
 
     @Autowired
-    private MongoClient mongoClient;
-
-    @Autowired
-    private DB mongoDB;
+    private MongoOperationsService mongoOperationsService;
 
     @Autowired
     private SaveToCassandraOperationsService saveToCassandraOperationsService;
@@ -104,6 +114,9 @@ public class StreamingContextConfiguration {
     @Autowired
     private Client elasticsearchClient;
 
+    @Autowired
+    private KafkaOffsetsDao kafkaOffsetsDao;
+
     private KafkaTopicService kafkaTopicService;
 
 
@@ -159,164 +172,67 @@ public class StreamingContextConfiguration {
         reading the same topic with the same groupId, only one instance will be able to read from the topic
         */
 
-        JavaPairDStream<String, String> messages = KafkaUtils.createStream(context,
-                configurationContext.getZookeeperHostsQuorumWithPath(), configurationContext.getGroupId(), baseTopicMap);
-        messages.cache();
+        JavaPairDStream<String, String> messages;
+        CommitKafkaOffsetsFunction<String> commitKafkaOffsetsFunction = null;
+        if (configurationContext.getRequestIngestionMode() == KafkaIngestionMode.DIRECT) {
+            messages = createDirectStream(context, String.class, StringDecoder.class, baseTopicMap.keySet());
+            commitKafkaOffsetsFunction = new CommitKafkaOffsetsFunction<>(kafkaOffsetsDao);
+        } else {
+            messages = KafkaUtils.createStream(context, configurationContext.getZookeeperHostsQuorumWithPath(),
+                    configurationContext.getGroupId(), baseTopicMap);
+        }
 
-        KeepPayloadFromMessageFunction keepPayloadFromMessageFunction = new KeepPayloadFromMessageFunction();
-        CreateStreamFunction createStreamFunction = new CreateStreamFunction(streamOperationService,
-                configurationContext.getZookeeperHostsQuorumWithPath());
-        AlterStreamFunction alterStreamFunction = new AlterStreamFunction(streamOperationService,
-                configurationContext.getZookeeperHostsQuorumWithPath());
-        AddQueryToStreamFunction addQueryToStreamFunction = new AddQueryToStreamFunction(streamOperationService,
-                configurationContext.getZookeeperHostsQuorumWithPath());
-        ListenStreamFunction listenStreamFunction = new ListenStreamFunction(streamOperationService,
-                configurationContext.getZookeeperHostsQuorumWithPath());
-        ListStreamsFunction listStreamsFunction = new ListStreamsFunction(streamOperationService,
-                configurationContext.getZookeeperHostsQuorumWithPath());
+        String zookeeperHostsQuorumWithPath = configurationContext.getZookeeperHostsQuorumWithPath();
 
+        // Every request is parsed once and routed by its operation to the function in charge of it, so a batch of
+        // requests is handled by a single job whatever the number of operations registered
+        RequestDispatcherFunction requestDispatcherFunction = new RequestDispatcherFunction()
+                .register(new CreateStreamFunction(streamOperationService, zookeeperHostsQuorumWithPath))
+                .register(new AlterStreamFunction(streamOperationService, zookeeperHostsQuorumWithPath))
+                .register(new AddQueryToStreamFunction(streamOperationService, zookeeperHostsQuorumWithPath))
+                .register(new ListenStreamFunction(streamOperationService, zookeeperHostsQuorumWithPath))
+                .register(new ListStreamsFunction(streamOperationService, zookeeperHostsQuorumWithPath));
 
         if (configurationContext.getDroolsConfiguration() != null) {
-
-            SendToDroolsStreamFunction sendToDroolsStreamFunction = new SendToDroolsStreamFunction
-                    (streamOperationService, configurationContext.getZookeeperHostsQuorumWithPath());
-
-            JavaDStream<StratioStreamingMessage> sendToDroolsRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.START_SENDTODROOLS)).map(
-                    keepPayloadFromMessageFunction);
-
-            JavaDStream<StratioStreamingMessage> stopSendToDroolsRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.STOP_SENDTODROOLS)).map(
-                    keepPayloadFromMessageFunction);
-
-            sendToDroolsRequests.foreachRDD(sendToDroolsStreamFunction);
-
-            stopSendToDroolsRequests.foreachRDD(sendToDroolsStreamFunction);
-
+            requestDispatcherFunction.register(new SendToDroolsStreamFunction(streamOperationService,
+                    zookeeperHostsQuorumWithPath));
         } else {
             log.warn("Drools configuration not found.");
         }
 
-
         if (configurationContext.getCassandraHosts() != null) {
-            SaveToCassandraStreamFunction saveToCassandraStreamFunction = new SaveToCassandraStreamFunction(
-                    streamOperationService, configurationContext.getZookeeperHostsQuorumWithPath());
-
-            JavaDStream<StratioStreamingMessage> saveToCassandraRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.SAVETO_CASSANDRA)).map(
-                    keepPayloadFromMessageFunction);
-
-            JavaDStream<StratioStreamingMessage> stopSaveToCassandraRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.STOP_SAVETO_CASSANDRA)).map(
-                    keepPayloadFromMessageFunction);
-
-            saveToCassandraRequests.foreachRDD(saveToCassandraStreamFunction);
-
-            stopSaveToCassandraRequests.foreachRDD(saveToCassandraStreamFunction);
-
+            requestDispatcherFunction.register(new SaveToCassandraStreamFunction(streamOperationService,
+                    zookeeperHostsQuorumWithPath));
         } else {
             log.warn("Cassandra configuration not found.");
         }
 
         if (configurationContext.getElasticSearchHosts() != null) {
-            IndexStreamFunction indexStreamFunction = new IndexStreamFunction(streamOperationService,
-                    configurationContext.getZookeeperHostsQuorumWithPath());
-
-            JavaDStream<StratioStreamingMessage> streamToIndexerRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.INDEX)).map(
-                    keepPayloadFromMessageFunction);
-
-            JavaDStream<StratioStreamingMessage> stopStreamToIndexerRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.STOP_INDEX)).map(
-                    keepPayloadFromMessageFunction);
-
-            streamToIndexerRequests.foreachRDD(indexStreamFunction);
-
-            stopStreamToIndexerRequests.foreachRDD(indexStreamFunction);
+            requestDispatcherFunction.register(new IndexStreamFunction(streamOperationService,
+                    zookeeperHostsQuorumWithPath));
         } else {
             log.warn("Elasticsearch configuration not found.");
         }
 
         if (configurationContext.getSolrHost() != null) {
-            SaveToSolrStreamFunction solrStreamFunction = new SaveToSolrStreamFunction(streamOperationService,
-                    configurationContext.getZookeeperHostsQuorumWithPath());
-
-            JavaDStream<StratioStreamingMessage> saveToSolrRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.SAVETO_SOLR)).map(
-                    keepPayloadFromMessageFunction);
-
-            JavaDStream<StratioStreamingMessage> stopSaveToSolrRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.STOP_SAVETO_SOLR)).map(
-                    keepPayloadFromMessageFunction);
-
-            saveToSolrRequests.foreachRDD(solrStreamFunction);
-
-            stopSaveToSolrRequests.foreachRDD(solrStreamFunction);
+            requestDispatcherFunction.register(new SaveToSolrStreamFunction(streamOperationService,
+                    zookeeperHostsQuorumWithPath));
         } else {
             log.warn("Solr configuration not found.");
         }
 
         if (configurationContext.getMongoHosts() != null) {
-            SaveToMongoStreamFunction saveToMongoStreamFunction = new SaveToMongoStreamFunction(streamOperationService,
-                    configurationContext.getZookeeperHostsQuorumWithPath());
-
-            JavaDStream<StratioStreamingMessage> saveToMongoRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.SAVETO_MONGO)).map(
-                    keepPayloadFromMessageFunction);
-
-            JavaDStream<StratioStreamingMessage> stopSaveToMongoRequests = messages.filter(
-                    new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.STOP_SAVETO_MONGO)).map(
-                    keepPayloadFromMessageFunction);
-
-            saveToMongoRequests.foreachRDD(saveToMongoStreamFunction);
-
-            stopSaveToMongoRequests.foreachRDD(saveToMongoStreamFunction);
+            requestDispatcherFunction.register(new SaveToMongoStreamFunction(streamOperationService,
+                    zookeeperHostsQuorumWithPath));
         } else {
             log.warn("Mongodb configuration not found.");
         }
 
-        // Create a DStream for each command, so we can treat all related
-        // requests in the same way and also apply functions by command
-        JavaDStream<StratioStreamingMessage> createRequests = messages.filter(
-                new FilterMessagesByOperationFunction(STREAM_OPERATIONS.DEFINITION.CREATE)).map(
-                keepPayloadFromMessageFunction);
-
-        JavaDStream<StratioStreamingMessage> alterRequests = messages.filter(
-                new FilterMessagesByOperationFunction(STREAM_OPERATIONS.DEFINITION.ALTER)).map(
-                keepPayloadFromMessageFunction);
-
-        JavaDStream<StratioStreamingMessage> addQueryRequests = messages.filter(
-                new FilterMessagesByOperationFunction(STREAM_OPERATIONS.DEFINITION.ADD_QUERY)).map(
-                keepPayloadFromMessageFunction);
-
-        JavaDStream<StratioStreamingMessage> removeQueryRequests = messages.filter(
-                new FilterMessagesByOperationFunction(STREAM_OPERATIONS.DEFINITION.REMOVE_QUERY)).map(
-                keepPayloadFromMessageFunction);
-
-        JavaDStream<StratioStreamingMessage> listenRequests = messages.filter(
-                new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.LISTEN)).map(
-                keepPayloadFromMessageFunction);
-
-        JavaDStream<StratioStreamingMessage> stopListenRequests = messages.filter(
-                new FilterMessagesByOperationFunction(STREAM_OPERATIONS.ACTION.STOP_LISTEN)).map(
-                keepPayloadFromMessageFunction);
-
-        JavaDStream<StratioStreamingMessage> listRequests = messages.filter(
-                new FilterMessagesByOperationFunction(STREAM_OPERATIONS.MANIPULATION.LIST)).map(
-                keepPayloadFromMessageFunction);
-
-        JavaDStream<StratioStreamingMessage> dropRequests = messages.filter(
-                new FilterMessagesByOperationFunction(STREAM_OPERATIONS.DEFINITION.DROP)).map(
-                keepPayloadFromMessageFunction);
-
-        createRequests.foreachRDD(createStreamFunction);
-        alterRequests.foreachRDD(alterStreamFunction);
-        addQueryRequests.foreachRDD(addQueryToStreamFunction);
-        removeQueryRequests.foreachRDD(addQueryToStreamFunction);
-        listenRequests.foreachRDD(listenStreamFunction);
-        stopListenRequests.foreachRDD(listenStreamFunction);
-        listRequests.foreachRDD(listStreamsFunction);
-        dropRequests.foreachRDD(createStreamFunction);
+        messages.map(new KeepPayloadFromMessageFunction()).foreachRDD(requestDispatcherFunction);
+
+        if (commitKafkaOffsetsFunction != null) {
+            messages.foreachRDD(commitKafkaOffsetsFunction);
+        }
 
     }
 
@@ -343,12 +259,18 @@ public class StreamingContextConfiguration {
         Decision topics has only one partition (by default), so if we have two o more decision instances (consumers) reading the
         same topic with the same groupId, only one instance will be able to read from the topic
         */
-        JavaPairDStream<String, byte[]> messages = KafkaUtils.createStream(context, String.class, byte[].class,
-                kafka.serializer.StringDecoder.class, kafka.serializer.DefaultDecoder.class, kafkaParams, baseTopicMap,
-                StorageLevel.MEMORY_AND_DISK_SER());
+        JavaPairDStream<String, byte[]> messages;
+        CommitKafkaOffsetsFunction<byte[]> commitKafkaOffsetsFunction = null;
+        if (configurationContext.getActionIngestionMode() == KafkaIngestionMode.DIRECT) {
+            messages = createDirectStream(context, byte[].class, DefaultDecoder.class, baseTopicMap.keySet());
+            commitKafkaOffsetsFunction = new CommitKafkaOffsetsFunction<>(kafkaOffsetsDao);
+        } else {
+            messages = KafkaUtils.createStream(context, String.class, byte[].class, StringDecoder.class,
+                    DefaultDecoder.class, kafkaParams, baseTopicMap, StorageLevel.MEMORY_AND_DISK_SER());
+        }
 
         AvroDeserializeMessageFunction avroDeserializeMessageFunction = new AvroDeserializeMessageFunction();
-        JavaDStream<StratioStreamingMessage>  parsedDataDstream = messages.map(avroDeserializeMessageFunction);
+        JavaDStream<StratioStreamingMessage>  parsedDataDstream = messages.flatMap(avroDeserializeMessageFunction);
 
         JavaPairDStream<StreamAction, StratioStreamingMessage> pairedDataDstream = parsedDataDstream
                 .mapPartitionsToPair(new PairDataFunction());
@@ -362,7 +284,8 @@ public class StreamingContextConfiguration {
 
             SaveToCassandraActionExecutionFunction saveToCassandraActionExecutionFunction = new SaveToCassandraActionExecutionFunction(configurationContext.getCassandraHostsQuorum(),
                     configurationContext.getCassandraPort(), configurationContext.getCassandraMaxBatchSize(),
-                    configurationContext.getCassandraBatchType(), saveToCassandraOperationsService);
+                    configurationContext.getCassandraBatchType(), configurationContext.getCassandraWriteMode(),
+                    saveToCassandraOperationsService);
             if (saveToCassandraActionExecutionFunction.check()) {
                 log.info("Cassandra is configured properly");
                 groupedDataDstream.filter(new FilterDataFunction(StreamAction.SAVE_TO_CASSANDRA)).foreachRDD(
@@ -373,7 +296,7 @@ public class StreamingContextConfiguration {
 
             SaveToMongoActionExecutionFunction saveToMongoActionExecutionFunction = new SaveToMongoActionExecutionFunction(configurationContext.getMongoHosts(),
                     configurationContext.getMongoUsername(), configurationContext
-                    .getMongoPassword(), configurationContext.getMongoMaxBatchSize(), mongoClient, mongoDB);
+                    .getMongoPassword(), configurationContext.getMongoMaxBatchSize(), mongoOperationsService);
             if (saveToMongoActionExecutionFunction.check()) {
                 log.info("MongoDB is configured properly");
                 groupedDataDstream.filter(new FilterDataFunction(StreamAction.SAVE_TO_MONGO)).foreachRDD(
@@ -393,10 +316,7 @@ public class StreamingContextConfiguration {
             }
 
             SaveToSolrActionExecutionFunction saveToSolrActionExecutionFunction = new
-                    SaveToSolrActionExecutionFunction(configurationContext.getSolrHost(), configurationContext
-                    .getSolrCloudZkHost(),
-                    configurationContext.getSolrCloud(),
-                    configurationContext.getSolrDataDir(), configurationContext.getSolrMaxBatchSize(), solrOperationsService);
+                    SaveToSolrActionExecutionFunction(configurationContext.getSolrMaxBatchSize(), solrOperationsService);
             if (saveToSolrActionExecutionFunction.check()) {
                 log.info("Solr is configured properly");
                 groupedDataDstream.filter(new FilterDataFunction(StreamAction.SAVE_TO_SOLR)).foreachRDD(
@@ -411,6 +331,10 @@ public class StreamingContextConfiguration {
             e.printStackTrace();
         }
 
+        if (commitKafkaOffsetsFunction != null) {
+            messages.foreachRDD(commitKafkaOffsetsFunction);
+        }
+
     }
 
     private void configureDataContext(JavaStreamingContext context) {
@@ -431,19 +355,79 @@ public class StreamingContextConfiguration {
          Decision topics has only one partition (by default), so if we have two o more decision instances (consumers) reading the
          same topic with the same groupId, only one instance will be able to read from the topic
          */
-        JavaPairDStream<String, byte[]> messages = KafkaUtils.createStream(context, String.class, byte[].class,
-                kafka.serializer.StringDecoder.class, kafka.serializer.DefaultDecoder.class, kafkaParams, baseTopicMap,
-                StorageLevel.MEMORY_AND_DISK_SER());
+        JavaPairDStream<String, byte[]> messages;
+        CommitKafkaOffsetsFunction<byte[]> commitKafkaOffsetsFunction = null;
+        if (configurationContext.getDataIngestionMode() == KafkaIngestionMode.DIRECT) {
+            messages = createDirectStream(context, byte[].class, DefaultDecoder.class, baseTopicMap.keySet());
+            commitKafkaOffsetsFunction = new CommitKafkaOffsetsFunction<>(kafkaOffsetsDao);
+        } else {
+            messages = KafkaUtils.createStream(context, String.class, byte[].class, StringDecoder.class,
+                    DefaultDecoder.class, kafkaParams, baseTopicMap, StorageLevel.MEMORY_AND_DISK_SER());
+        }
 
         AvroDeserializeMessageFunction avroDeserializeMessageFunction = new AvroDeserializeMessageFunction();
         JavaDStream<StratioStreamingMessage>  insertRequests = messages.filter(
                 new FilterAvroMessagesByOperationFunction(STREAM_OPERATIONS.MANIPULATION.INSERT))
-                .map(avroDeserializeMessageFunction);
+                .flatMap(avroDeserializeMessageFunction);
 
         InsertIntoStreamFunction insertIntoStreamFunction = new InsertIntoStreamFunction(streamOperationService,
                 configurationContext.getZookeeperHostsQuorum());
         insertRequests.foreachRDD(insertIntoStreamFunction);
 
+        if (commitKafkaOffsetsFunction != null) {
+            messages.foreachRDD(commitKafkaOffsetsFunction);
+        }
+
+    }
+
+    /**
+     * Creates a receiver-less stream with one RDD partition per kafka partition. It resumes from the offsets stored
+     * by decision when every partition of the topics has one, otherwise it starts from the latest offsets.
+     */
+    @SuppressWarnings("unchecked")
+    private <V, D extends Decoder<V>> JavaPairDStream<String, V> createDirectStream(JavaStreamingContext context,
+            Class<V> valueClass, Class<D> valueDecoderClass, Collection<String> topics) {
+
+        HashMap<String, String> kafkaParams = new HashMap<>();
+        kafkaParams.put("metadata.broker.list", configurationContext.getKafkaHostsQuorum());
+        kafkaParams.put("group.id", configurationContext.getGroupId());
+
+        Map<TopicAndPartition, Long> fromOffsets = getStoredOffsets(topics);
+        if (fromOffsets != null) {
+            log.info("Resuming direct stream for topics {} from offsets {}", topics, fromOffsets);
+            Class<Tuple2<String, V>> recordClass = (Class<Tuple2<String, V>>) (Class<?>) Tuple2.class;
+            return JavaPairDStream.fromJavaDStream(KafkaUtils.createDirectStream(context, String.class, valueClass,
+                    StringDecoder.class, valueDecoderClass, recordClass, kafkaParams, fromOffsets,
+                    new MessageAndMetadataToTupleFunction<V>()));
+        }
+
+        log.info("No stored offsets found for topics {}. Starting direct stream from latest offsets", topics);
+        JavaPairInputDStream<String, V> messages = KafkaUtils.createDirectStream(context, String.class, valueClass,
+                StringDecoder.class, valueDecoderClass, kafkaParams, new HashSet<>(topics));
+        return messages;
+    }
+
+    private Map<TopicAndPartition, Long> getStoredOffsets(Collection<String> topics) {
+        Map<TopicAndPartition, Long> fromOffsets = new HashMap<>();
+        try {
+            for (String topic : topics) {
+                Integer partitions = kafkaTopicService.getNumPartitionsForTopic(topic);
+                if (partitions == null) {
+                    return null;
+                }
+                for (int partition = 0; partition < partitions; partition++) {
+                    Long offset = kafkaOffsetsDao.load(topic, partition);
+                    if (offset == null) {
+                        return null;
+                    }
+                    fromOffsets.put(new TopicAndPartition(topic, partition), offset);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error loading stored offsets for topics {}", topics, e);
+            return null;
+        }
+        return fromOffsets;
     }
 
     @PostConstruct
@@ -453,4 +437,13 @@ public class StreamingContextConfiguration {
                 configurationContext.getKafkaConnectionTimeout(), configurationContext.getKafkaSessionTimeout());
     }
 
+    /**
+     * Runs once the streaming context is stopped, so the replies of its last requests buffered by the async producer
+     * are sent before the engine exits.
+     */
+    @PreDestroy
+    private void shutdownKafkaReplyWriter() {
+        KafkaReplyWriter.shutdownKafkaReplyWriter();
+    }
+
 }
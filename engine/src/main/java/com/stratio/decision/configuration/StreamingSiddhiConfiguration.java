@@ -24,20 +24,25 @@ import org.wso2.siddhi.core.config.SiddhiConfiguration;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 @Configuration
 public class StreamingSiddhiConfiguration {
 
     public static final String QUERY_PLAN_IDENTIFIER = "StratioStreamingCEP-Cluster";
 
+    /**
+     * Siddhi element ids derive from the instance identifier, it has to be the same in every node so a node can
+     * restore the state checkpoint of another one.
+     */
+    public static final String INSTANCE_IDENTIFIER = "StratioStreamingCEP-Instance";
+
     @Autowired
     private ConfigurationContext configurationContext;
 
     @Bean(destroyMethod = "shutdown")
     public SiddhiManager siddhiManager() {
         SiddhiConfiguration conf = new SiddhiConfiguration();
-        conf.setInstanceIdentifier("StratioStreamingCEP-Instance-" + UUID.randomUUID().toString());
+        conf.setInstanceIdentifier(INSTANCE_IDENTIFIER);
         conf.setQueryPlanIdentifier(QUERY_PLAN_IDENTIFIER);
         conf.setDistributedProcessing(false);
 
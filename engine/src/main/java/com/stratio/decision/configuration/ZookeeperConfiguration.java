@@ -15,6 +15,7 @@
  */
 package com.stratio.decision.configuration;
 
+import com.codahale.metrics.MetricRegistry;
 import com.stratio.decision.commons.constants.STREAMING;
 import com.stratio.decision.utils.ZKUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +29,9 @@ public class ZookeeperConfiguration {
     @Autowired
     private ConfigurationContext configurationContext;
 
+    @Autowired
+    private MetricRegistry metricRegistry;
+
     @PostConstruct
     public void startUp() throws Exception {
 //        ZKUtils.getZKUtils(configurationContext.getZookeeperHostsQuorum()).createEphemeralZNode(
@@ -41,6 +45,7 @@ public class ZookeeperConfiguration {
         zkUtils.createEphemeralZNode(
                 zkPath, String.valueOf(System.currentTimeMillis()).getBytes());
 
+        zkUtils.setAckMetricRegistry(metricRegistry);
 
         if (!configurationContext.getKafkaZookeeperPath().isEmpty())    {
             if (!zkUtils.existZNode(configurationContext.getKafkaZookeeperPath()))
@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.dao;
+
+import com.stratio.decision.commons.constants.STREAMING;
+import com.stratio.decision.configuration.ConfigurationContext;
+import com.stratio.decision.utils.ZKUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class KafkaOffsetsDao {
+
+    private static final Logger log = LoggerFactory.getLogger(KafkaOffsetsDao.class);
+
+    private ZKUtils zkutils;
+
+    private String zkPath;
+
+    public KafkaOffsetsDao(ConfigurationContext configurationContext) throws Exception {
+        this.zkutils = ZKUtils.getZKUtils(configurationContext.getZookeeperHostsQuorum());
+
+        zkPath = STREAMING.ZK_OFFSETS_PATH.concat("/").concat(configurationContext.getGroupId());
+    }
+
+    public Long load(String topic, int partition) throws Exception {
+        String path = getPartitionPath(topic, partition);
+        if (zkutils.existZNode(path)) {
+            return Long.valueOf(new String(zkutils.getZNode(path)));
+        } else {
+            return null;
+        }
+    }
+
+    public void save(String topic, int partition, long offset) throws Exception {
+        log.debug("Saving offset {} for topic {} and partition {}", offset, topic, partition);
+        zkutils.setZNode(getPartitionPath(topic, partition), String.valueOf(offset).getBytes());
+    }
+
+    private String getPartitionPath(String topic, int partition) {
+        return zkPath.concat("/").concat(topic).concat("/").concat(String.valueOf(partition));
+    }
+
+}
@@ -24,44 +24,66 @@ import com.stratio.decision.streams.StreamStatusDTO;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
 
+/**
+ * Registry of stream statuses. Statuses are immutable snapshots: every change replaces the snapshot of the stream
+ * atomically, so readers never lock and never see a status being modified. The names of the changed streams are
+ * tracked until they are drained by the failover persistence. Streams, queries and the action queries are numbered in
+ * the order they are created, so the failover can create them again in the same order.
+ */
 public class StreamStatusDao {
 
     private static final Logger log = LoggerFactory.getLogger(StreamStatusDao.class);
 
-    private final Map<String, StreamStatusDTO> streamStatuses;
+    private final ConcurrentMap<String, StreamStatusDTO> streamStatuses;
+
+    private final Set<String> changedStreams;
+
+    private final AtomicLong creationSequence;
 
     public StreamStatusDao() {
         streamStatuses = new ConcurrentHashMap<>();
+        changedStreams = ConcurrentHashMap.newKeySet();
+        creationSequence = new AtomicLong();
     }
 
     public StreamStatusDTO createInferredStream(String streamName, List<ColumnNameTypeValue> columns) {
-        StreamStatusDTO streamStatus = null;
-        if (streamStatuses.get(streamName) == null) {
-            streamStatus = new StreamStatusDTO(streamName, Boolean.FALSE, columns);
-            streamStatuses.put(streamName, streamStatus);
+        StreamStatusDTO streamStatus = new StreamStatusDTO(streamName, Boolean.FALSE, columns, creationSequence
+                .incrementAndGet());
+        if (streamStatuses.putIfAbsent(streamName, streamStatus) != null) {
+            return null;
         }
+        changedStreams.add(streamName);
 
         return streamStatus;
     }
 
     public StreamStatusDTO create(String streamName, List<ColumnNameTypeValue> columns) {
-        StreamStatusDTO streamStatus = new StreamStatusDTO(streamName, Boolean.TRUE, columns);
+        StreamStatusDTO streamStatus = new StreamStatusDTO(streamName, Boolean.TRUE, columns, creationSequence
+                .incrementAndGet());
 
         if (streamStatuses.put(streamName, streamStatus) != null) {
             log.warn("Stream status of stream {} has been updated", streamName);
         }
+        changedStreams.add(streamName);
 
         return streamStatus;
     }
 
     public void remove(String streamName) {
-        streamStatuses.remove(streamName);
+        if (streamStatuses.remove(streamName) != null) {
+            changedStreams.add(streamName);
+        }
     }
 
     public StreamStatusDTO get(String streamName) {
@@ -69,107 +91,118 @@ public class StreamStatusDao {
     }
 
     public Map<String, StreamStatusDTO> getAll() {
-        return streamStatuses;
+        return Collections.unmodifiableMap(streamStatuses);
     }
 
     public void putAll(Map<String, StreamStatusDTO> streamStatuses) {
-        this.streamStatuses.putAll(streamStatuses);
+        for (Map.Entry<String, StreamStatusDTO> entry : streamStatuses.entrySet()) {
+            StreamStatusDTO streamStatus = new StreamStatusDTO(entry.getValue());
+            this.streamStatuses.put(entry.getKey(), streamStatus);
+            changedStreams.add(entry.getKey());
+
+            long lastCreated = Math.max(streamStatus.getCreationOrder(), streamStatus.getActionQueryCreationOrder());
+            for (QueryDTO query : streamStatus.getAddedQueries().values()) {
+                lastCreated = Math.max(lastCreated, query.getCreationOrder());
+            }
+            for (EngineActionDTO engineAction : streamStatus.getEngineActionsEnabled().values()) {
+                lastCreated = Math.max(lastCreated, engineAction.getCreationOrder());
+            }
+            creationSequence.accumulateAndGet(lastCreated, Math::max);
+        }
     }
 
-    public StreamStatusDTO addQuery(String streamName, String queryId, String queryRaw) {
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        if (streamStatus != null) {
-            streamStatus.getAddedQueries().put(queryId, new QueryDTO(queryRaw));
+    /**
+     * Returns the streams changed since the last call, created, modified or removed.
+     */
+    public Set<String> drainChangedStreams() {
+        Set<String> drained = new HashSet<>();
+        for (String streamName : changedStreams) {
+            if (changedStreams.remove(streamName)) {
+                drained.add(streamName);
+            }
         }
-        return streamStatus;
+        return drained;
+    }
+
+    /**
+     * Marks streams as changed again, when their changes could not be persisted.
+     */
+    public void markChanged(Collection<String> streamNames) {
+        changedStreams.addAll(streamNames);
+    }
+
+    public StreamStatusDTO addQuery(String streamName, String queryId, String queryRaw) {
+        QueryDTO query = new QueryDTO(queryRaw, creationSequence.incrementAndGet());
+        return update(streamName, streamStatus -> streamStatus.withQuery(queryId, query));
     }
 
     public void removeQuery(String streamName, String queryId) {
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        if (streamStatus != null) {
-            streamStatus.getAddedQueries().remove(queryId);
-        }
+        update(streamName, streamStatus -> streamStatus.withoutQuery(queryId));
     }
 
     public void enableAction(String streamName, StreamAction action) {
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        streamStatus.getActionsEnabled().add(action);
+        update(streamName, streamStatus -> streamStatus.withActionEnabled(action));
     }
 
     public void disableAction(String streamName, StreamAction action) {
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        streamStatus.getActionsEnabled().remove(action);
+        update(streamName, streamStatus -> streamStatus.withActionDisabled(action));
     }
 
     public Set<StreamAction> getEnabledActions(String streamName) {
         StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        Set<StreamAction> enabledActions = new HashSet<>();
         if (streamStatus != null) {
-            enabledActions = streamStatus.getActionsEnabled();
+            return streamStatus.getActionsEnabled();
         }
-        return enabledActions;
+        return Collections.emptySet();
     }
 
     public String getActionQuery(String streamName) {
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        String actionQueryId = streamStatus.getActionQueryId();
-        streamStatus.setActionQueryId(null);
-        return actionQueryId;
+        String[] actionQueryId = new String[1];
+        update(streamName, streamStatus -> {
+            actionQueryId[0] = streamStatus.getActionQueryId();
+            return streamStatus.withActionQueryId(null);
+        });
+        return actionQueryId[0];
     }
 
     public void setActionQuery(String streamName, String queryId) {
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        streamStatus.setActionQueryId(queryId);
+        long creationOrder = creationSequence.incrementAndGet();
+        update(streamName, streamStatus -> streamStatus.withActionQueryId(queryId, creationOrder));
     }
 
     public void enableEngineAction(String streamName, EngineActionType engineActionType, Map<String, Object>
             engineActionParams,
       String engineActionQueryId ){
 
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        Map<EngineActionType, EngineActionDTO> engineActionsEnabled = streamStatus.getEngineActionsEnabled();
-
         EngineActionDTO engineActionDTO = new EngineActionDTO(engineActionType, engineActionParams,
-                engineActionQueryId);
+                engineActionQueryId, creationSequence.incrementAndGet());
 
-        engineActionsEnabled.put(engineActionType, engineActionDTO);
+        update(streamName, streamStatus -> streamStatus.withEngineAction(engineActionDTO));
 
     }
 
     public void disableEngineAction(String streamName, EngineActionType engineActionType) {
 
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        Map<EngineActionType, EngineActionDTO> engineActionsEnabled = streamStatus.getEngineActionsEnabled();
-
-        if (engineActionsEnabled.containsKey(engineActionType)) {
-
-            engineActionsEnabled.remove(engineActionType);
-        }
+        update(streamName, streamStatus -> streamStatus.withoutEngineAction(engineActionType));
 
     }
 
     public Boolean isEngineActionEnabled(String streamName, EngineActionType engineActionType) {
 
         StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        Map<EngineActionType, EngineActionDTO> engineActionsEnabled = streamStatus.getEngineActionsEnabled();
 
-        if (engineActionsEnabled.containsKey(engineActionType)) {
-
-            return true;
-        }
-
-        return false;
+        return streamStatus.getEngineActionsEnabled().containsKey(engineActionType);
 
     }
 
     public String getEngineActionQueryId(String streamName, EngineActionType engineActionType) {
 
         StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        Map<EngineActionType, EngineActionDTO> engineActionsEnabled = streamStatus.getEngineActionsEnabled();
+        EngineActionDTO engineActionDTO = streamStatus.getEngineActionsEnabled().get(engineActionType);
 
-        if (engineActionsEnabled.containsKey(engineActionType)){
+        if (engineActionDTO != null){
 
-            return engineActionsEnabled.get(engineActionType).getEngineActionQueryId();
+            return engineActionDTO.getEngineActionQueryId();
 
         }
 
@@ -181,33 +214,39 @@ public class StreamStatusDao {
     public void updateEngineActionParameters(String streamName, EngineActionType engineActionType, Map<String, Object>
             engineActionParams){
 
-        StreamStatusDTO streamStatus = streamStatuses.get(streamName);
-        Map<EngineActionType, EngineActionDTO> engineActionsEnabled = streamStatus.getEngineActionsEnabled();
-
-        if (engineActionsEnabled.containsKey(engineActionType)){
-
-            EngineActionDTO engineActionDTO = engineActionsEnabled.get(engineActionType);
-            engineActionDTO.setEngineActionParameters(engineActionParams);
-
-            engineActionsEnabled.put(engineActionType, engineActionDTO);
-        }
+        update(streamName, streamStatus -> {
+            EngineActionDTO engineActionDTO = streamStatus.getEngineActionsEnabled().get(engineActionType);
+            if (engineActionDTO == null) {
+                return streamStatus;
+            }
+            return streamStatus.withEngineAction(new EngineActionDTO(engineActionType, engineActionParams,
+                    engineActionDTO.getEngineActionQueryId(), engineActionDTO.getCreationOrder()));
+        });
 
     }
 
     public void addColumn(String streamName, ColumnNameTypeValue column){
 
-        streamStatuses.get(streamName).getStreamDefinition().add(column);
-        streamStatuses.get(streamName).getStreamColumns().put(column.getColumn(), column);
+        update(streamName, streamStatus -> streamStatus.withColumn(column));
 
     }
 
     public Boolean existsColumnDefinition(String streamName, String columnName){
 
-        if (streamStatuses.get(streamName).getStreamColumns().containsKey(columnName))
-        {
-            return true;
-        }
+        return streamStatuses.get(streamName).getStreamColumns().containsKey(columnName);
+    }
 
-        return false;
+    /**
+     * Publishes the snapshot built from the current status of the stream, if the stream exists.
+     *
+     * @return the new status, or null if the stream does not exist
+     */
+    private StreamStatusDTO update(String streamName, UnaryOperator<StreamStatusDTO> change) {
+        StreamStatusDTO updated = streamStatuses.computeIfPresent(streamName, (name, streamStatus) -> change.apply(
+                streamStatus));
+        if (updated != null) {
+            changedStreams.add(streamName);
+        }
+        return updated;
     }
 }
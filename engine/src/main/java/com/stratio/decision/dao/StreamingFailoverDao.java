@@ -15,48 +15,334 @@
  */
 package com.stratio.decision.dao;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import com.stratio.decision.commons.constants.STREAMING;
 import com.stratio.decision.configuration.ConfigurationContext;
+import com.stratio.decision.model.FailoverChangeRecord;
 import com.stratio.decision.model.FailoverPersistenceStoreModel;
+import com.stratio.decision.streams.StreamStatusDTO;
 import com.stratio.decision.utils.ZKUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+/**
+ * Stores the failover data in zookeeper as a log of compressed change records, one znode per changed stream, that is
+ * periodically compacted into a snapshot split in several znodes:
+ *
+ * <pre>
+ * failoverStorage/changes/change-NNNNNNNNNN   change records, in order
+ * failoverStorage/snapshots/GENERATION/shard-N   snapshot shards
+ * failoverStorage/snapshot   current snapshot generation and last change included in it
+ * failoverStorage/siddhi/GENERATION/chunk-N   compressed siddhi state checkpoint
+ * failoverStorage/siddhiSnapshot   current siddhi checkpoint generation
+ * </pre>
+ *
+ * The failover data written by previous versions as a single json document in failoverStorage is still loaded, and
+ * replaced by the first compaction.
+ */
 public class StreamingFailoverDao  {
 
     private static final Logger log = LoggerFactory.getLogger(StreamingFailoverDao.class);
 
+    private static final Type SHARD_TYPE = new TypeToken<Map<String, StreamStatusDTO>>() {}.getType();
+
+    private static final String CHANGE_PREFIX = "change-";
+
+    private static final int MAX_ZNODE_SIZE = 1024 * 1024;
+
+    private static final int SIDDHI_CHUNK_SIZE = 512 * 1024;
+
     private ZKUtils zkutils;
 
     private Gson gson;
 
     private String zkPath;
 
+    private final String changesPath;
+
+    private final String snapshotsPath;
+
+    private final String snapshotPath;
+
+    private final String siddhiPath;
+
+    private final String siddhiSnapshotPath;
+
+    private final int snapshotShards;
+
+    private String lastCompactedChange;
+
+    private volatile int pendingChanges;
+
     public StreamingFailoverDao(ConfigurationContext configurationContext, Gson gson) throws Exception {
+        this(ZKUtils.getZKUtils(configurationContext.getZookeeperHostsQuorum()), gson,
+                configurationContext.getFailOverSnapshotShards());
+    }
+
+    public StreamingFailoverDao(ZKUtils zkutils, Gson gson, int snapshotShards) {
+        this.zkutils = zkutils;
         this.gson = gson;
-        this.zkutils = ZKUtils.getZKUtils(configurationContext.getZookeeperHostsQuorum());
+        this.snapshotShards = snapshotShards;
 
         zkPath = STREAMING.ZK_BASE_PATH.concat(STREAMING.ZK_PERSISTENCE_NODE);
+        changesPath = zkPath.concat("/changes");
+        snapshotsPath = zkPath.concat("/snapshots");
+        snapshotPath = zkPath.concat("/snapshot");
+        siddhiPath = zkPath.concat("/siddhi");
+        siddhiSnapshotPath = zkPath.concat("/siddhiSnapshot");
     }
 
-
+    /**
+     * Loads the last snapshot and replays the change records written after it.
+     *
+     * @return the stored stream statuses, or null if there is no failover data
+     */
     public FailoverPersistenceStoreModel load() throws Exception {
-        if (zkutils.existZNode(zkPath)) {
-            log.info("Failover loading data...");
+        Map<String, StreamStatusDTO> streamStatuses = new LinkedHashMap<>();
+        boolean found = false;
+
+        if (zkutils.existZNode(snapshotPath)) {
+            SnapshotMetadata metadata = gson.fromJson(new String(zkutils.getZNode(snapshotPath),
+                    StandardCharsets.UTF_8), SnapshotMetadata.class);
+            log.info("Failover loading snapshot {} with {} shards...", metadata.generation, metadata.shards);
+            for (int shard = 0; shard < metadata.shards; shard++) {
+                Map<String, StreamStatusDTO> shardStatuses = decompress(zkutils.getZNode(getShardPath(metadata
+                        .generation, shard)), SHARD_TYPE);
+                if (shardStatuses != null) {
+                    streamStatuses.putAll(shardStatuses);
+                }
+            }
+            lastCompactedChange = metadata.lastChange;
+            found = true;
+        } else if (zkutils.existZNode(zkPath)) {
             byte[] bytes = zkutils.getZNode(zkPath);
-            return gson.fromJson(new String(bytes), FailoverPersistenceStoreModel.class);
-//            return new FailoverPersistenceStoreModel(bytes);
-        } else {
+            if (bytes != null && bytes.length > 0) {
+                log.info("Failover loading data...");
+                FailoverPersistenceStoreModel legacyModel = gson.fromJson(new String(bytes),
+                        FailoverPersistenceStoreModel.class);
+                if (legacyModel != null && legacyModel.getStreamStatuses() != null) {
+                    streamStatuses.putAll(legacyModel.getStreamStatuses());
+                }
+                found = true;
+            }
+        }
+
+        List<String> changes = getChangesAfter(lastCompactedChange);
+        for (String change : changes) {
+            FailoverChangeRecord record = decompress(zkutils.getZNode(changesPath + "/" + change),
+                    FailoverChangeRecord.class);
+            if (record.isRemoved()) {
+                streamStatuses.remove(record.getStreamName());
+            } else {
+                streamStatuses.put(record.getStreamName(), record.getStreamStatus());
+            }
+        }
+        pendingChanges = changes.size();
+
+        log.info("Failover loaded {} streams, {} change records replayed", streamStatuses.size(), changes.size());
+
+        if (!found && changes.isEmpty()) {
+            return null;
+        }
+        return new FailoverPersistenceStoreModel(streamStatuses, null);
+    }
+
+    /**
+     * Appends one change record per changed stream to the change log.
+     */
+    public void appendChanges(List<FailoverChangeRecord> records) throws Exception {
+        for (FailoverChangeRecord record : records) {
+            zkutils.createSequentialZNode(changesPath + "/" + CHANGE_PREFIX, compress(record));
+            pendingChanges++;
+        }
+    }
+
+    /**
+     * Writes the given stream statuses as a new snapshot and removes the change records already included in it.
+     */
+    public void compact(Map<String, StreamStatusDTO> streamStatuses) throws Exception {
+        List<String> changes = getChangesAfter(null);
+        String lastChange = changes.isEmpty() ? lastCompactedChange : changes.get(changes.size() - 1);
+        String generation = String.valueOf(System.currentTimeMillis());
+
+        List<Map<String, StreamStatusDTO>> shards = new ArrayList<>(snapshotShards);
+        for (int shard = 0; shard < snapshotShards; shard++) {
+            shards.add(new HashMap<>());
+        }
+        for (Map.Entry<String, StreamStatusDTO> entry : streamStatuses.entrySet()) {
+            shards.get((entry.getKey().hashCode() & Integer.MAX_VALUE) % snapshotShards).put(entry.getKey(),
+                    entry.getValue());
+        }
+
+        int snapshotSize = 0;
+        for (int shard = 0; shard < snapshotShards; shard++) {
+            byte[] data = compress(shards.get(shard));
+            if (data.length > MAX_ZNODE_SIZE) {
+                log.warn("Failover snapshot shard {} takes {} bytes, increase the number of snapshot shards", shard,
+                        data.length);
+            }
+            zkutils.setZNode(getShardPath(generation, shard), data);
+            snapshotSize += data.length;
+        }
+
+        // the snapshot becomes visible here, older generations and compacted changes are useless from now on
+        zkutils.setZNode(snapshotPath, gson.toJson(new SnapshotMetadata(generation, snapshotShards, lastChange))
+                .getBytes(StandardCharsets.UTF_8));
+        lastCompactedChange = lastChange;
+        pendingChanges = 0;
+
+        for (String oldGeneration : zkutils.getChildren(snapshotsPath)) {
+            if (!generation.equals(oldGeneration)) {
+                zkutils.deleteZNode(snapshotsPath + "/" + oldGeneration);
+            }
+        }
+        for (String change : changes) {
+            zkutils.deleteZNode(changesPath + "/" + change);
+        }
+        byte[] legacyData = zkutils.getZNode(zkPath);
+        if (legacyData != null && legacyData.length > 0) {
+            zkutils.setZNode(zkPath, new byte[0]);
+        }
+
+        log.info("Failover snapshot {} saved. {} streams, {} bytes, {} change records compacted", generation,
+                streamStatuses.size(), snapshotSize, changes.size());
+    }
+
+    /**
+     * Stores a siddhi state checkpoint, compressed and split in chunks that fit in a znode. The previous checkpoint
+     * is kept until the new one is complete.
+     *
+     * @return stored size in bytes
+     */
+    public int saveSiddhiSnapshot(byte[] siddhiSnapshot) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(siddhiSnapshot);
+        }
+        byte[] data = bytes.toByteArray();
+
+        String generation = String.valueOf(System.currentTimeMillis());
+        int chunks = 0;
+        for (int offset = 0; offset < data.length; offset += SIDDHI_CHUNK_SIZE) {
+            zkutils.setZNode(getChunkPath(generation, chunks++), Arrays.copyOfRange(data, offset, Math.min(data
+                    .length, offset + SIDDHI_CHUNK_SIZE)));
+        }
+
+        zkutils.setZNode(siddhiSnapshotPath, gson.toJson(new SnapshotMetadata(generation, chunks, null)).getBytes
+                (StandardCharsets.UTF_8));
+
+        for (String oldGeneration : zkutils.getChildren(siddhiPath)) {
+            if (!generation.equals(oldGeneration)) {
+                zkutils.deleteZNode(siddhiPath + "/" + oldGeneration);
+            }
+        }
+
+        return data.length;
+    }
+
+    /**
+     * @return the last siddhi state checkpoint, or null if there is none
+     */
+    public byte[] loadSiddhiSnapshot() throws Exception {
+        if (!zkutils.existZNode(siddhiSnapshotPath)) {
             return null;
         }
+        SnapshotMetadata metadata = gson.fromJson(new String(zkutils.getZNode(siddhiSnapshotPath),
+                StandardCharsets.UTF_8), SnapshotMetadata.class);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        for (int chunk = 0; chunk < metadata.shards; chunk++) {
+            data.write(zkutils.getZNode(getChunkPath(metadata.generation, chunk)));
+        }
+
+        ByteArrayOutputStream siddhiSnapshot = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data.toByteArray()))) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                siddhiSnapshot.write(buffer, 0, read);
+            }
+        }
+        return siddhiSnapshot.toByteArray();
+    }
+
+    /**
+     * @return number of change records written since the last snapshot
+     */
+    public int getPendingChanges() {
+        return pendingChanges;
+    }
+
+    private List<String> getChangesAfter(String lastChange) throws Exception {
+        List<String> changes = new ArrayList<>();
+        for (String change : zkutils.getChildren(changesPath)) {
+            // sequence numbers have a fixed width, so names sort as numbers do
+            if (change.startsWith(CHANGE_PREFIX) && (lastChange == null || change.compareTo(lastChange) > 0)) {
+                changes.add(change);
+            }
+        }
+        Collections.sort(changes);
+        return changes;
+    }
+
+    private String getShardPath(String generation, int shard) {
+        return snapshotsPath + "/" + generation + "/shard-" + shard;
+    }
+
+    private String getChunkPath(String generation, int chunk) {
+        return siddhiPath + "/" + generation + "/chunk-" + chunk;
+    }
+
+    private byte[] compress(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            gson.toJson(value, writer);
+        }
+        return bytes.toByteArray();
+    }
+
+    private <T> T decompress(byte[] data, Type type) throws IOException {
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(data)),
+                StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, type);
+        }
     }
 
-    public void save(FailoverPersistenceStoreModel failoverPersistenceStoreModel) throws Exception {
-        log.info("Failover data to save. HASH {}, TOSTRING {} ", failoverPersistenceStoreModel.hashCode(),
-                failoverPersistenceStoreModel);
-//        zkutils.createZNode(STREAMING.ZK_PERSISTENCE_STORE_PATH, gson.toJson(failoverPersistenceStoreModel).getBytes());
-        zkutils.createZNode(zkPath, gson.toJson(failoverPersistenceStoreModel).getBytes());
+    private static class SnapshotMetadata {
+
+        private final String generation;
+        // snapshot shards, or chunks of a siddhi checkpoint. The field name is part of the stored pointer format
+        private final int shards;
+        private final String lastChange;
+
+        SnapshotMetadata(String generation, int shards, String lastChange) {
+            this.generation = generation;
+            this.shards = shards;
+            this.lastChange = lastChange;
+        }
     }
 
 }
@@ -47,7 +47,7 @@ public class ActionBaseContext implements Serializable {
         }
     }
 
-    public static ActionBaseContext getInstance() {
+    public static synchronized ActionBaseContext getInstance() {
 
         if (instance == null) {
             instance = new ActionBaseContext();
@@ -68,39 +68,46 @@ public abstract class ActionBaseFunction implements Function<JavaRDD<StratioStre
 
         rdd.foreach(new VoidFunction<StratioStreamingMessage>() {
             @Override public void call(StratioStreamingMessage message) throws Exception {
+                process(message);
+            }
+        });
+
+        return null;
+    }
+
+    /**
+     * Runs the start or stop action matching the message operation and acks the result.
+     */
+    protected void process(StratioStreamingMessage message) throws Exception {
+
+        try {
 
-                try {
-
-                    boolean defaultResponse = false;
-                    if (getStartOperationCommand() != null
-                            && getStartOperationCommand().equalsIgnoreCase(message.getOperation())) {
-                        if (validOperation(message, startValidators)) {
-                            defaultResponse = startAction(message);
-                        }
-                    } else if (getStopOperationCommand() != null
-                            && getStopOperationCommand().equalsIgnoreCase(message.getOperation())) {
-                        if (validOperation(message, stopValidators)) {
-                            defaultResponse = stopAction(message);
-                        }
-                    }
-
-                    if (defaultResponse) {
-                        ackStreamingOperation(message, new ActionCallbackDto(ReplyCode.OK.getCode()));
-                    }
-
-                } catch (RequestValidationException e) {
-                    log.error("Custom validation error", e);
-                    ackStreamingOperation(message, new ActionCallbackDto(e.getCode(), e.getMessage()));
-                } catch (Exception e) {
-                    log.error("Fatal validation error", e);
-                    ackStreamingOperation(message,
-                            new ActionCallbackDto(ReplyCode.KO_GENERAL_ERROR.getCode(), e.getMessage()));
+            boolean defaultResponse = false;
+            if (getStartOperationCommand() != null
+                    && getStartOperationCommand().equalsIgnoreCase(message.getOperation())) {
+                if (validOperation(message, startValidators)) {
+                    defaultResponse = startAction(message);
                 }
+            } else if (getStopOperationCommand() != null
+                    && getStopOperationCommand().equalsIgnoreCase(message.getOperation())) {
+                if (validOperation(message, stopValidators)) {
+                    defaultResponse = stopAction(message);
+                }
+            }
 
+            if (defaultResponse) {
+                ackStreamingOperation(message, new ActionCallbackDto(ReplyCode.OK.getCode()));
             }
-        });
 
-        return null;
+        } catch (RequestValidationException e) {
+            log.error("Custom validation error", e);
+            ackStreamingOperation(message, new ActionCallbackDto(e.getCode(), e.getMessage()));
+        } catch (Exception e) {
+            log.error("Fatal validation error", e);
+            ackStreamingOperation(message,
+                    new ActionCallbackDto(ReplyCode.KO_GENERAL_ERROR.getCode(), e.getMessage()));
+        }
+
     }
 
     private boolean validOperation(StratioStreamingMessage request, Set<RequestValidation> validators) throws Exception {
@@ -121,6 +128,10 @@ public abstract class ActionBaseFunction implements Function<JavaRDD<StratioStre
         return true;
     }
 
+    protected boolean isValidStartRequest(StratioStreamingMessage request) throws Exception {
+        return validOperation(request, startValidators);
+    }
+
     protected void ackStreamingOperation(StratioStreamingMessage message, ActionCallbackDto reply) throws Exception {
 //        ZKUtils.getZKUtils(zookeeperHost).createZNodeJsonReply(message, reply);
 
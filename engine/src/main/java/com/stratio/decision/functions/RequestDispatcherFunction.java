@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.functions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.api.java.function.VoidFunction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.stratio.decision.commons.messages.StratioStreamingMessage;
+
+/**
+ * Routes every request of a batch to the action function registered for its operation, so the whole request
+ * topic is handled by a single spark job instead of one filtered job per operation.
+ */
+public class RequestDispatcherFunction implements Function<JavaRDD<StratioStreamingMessage>, Void> {
+
+    private static final long serialVersionUID = -1829517390145267284L;
+
+    private static final Logger log = LoggerFactory.getLogger(RequestDispatcherFunction.class);
+
+    private final Map<String, ActionBaseFunction> functionsByOperation = new HashMap<>();
+
+    public RequestDispatcherFunction register(ActionBaseFunction function) {
+        register(function.getStartOperationCommand(), function);
+        register(function.getStopOperationCommand(), function);
+        return this;
+    }
+
+    private void register(String operation, ActionBaseFunction function) {
+        if (operation != null) {
+            functionsByOperation.put(operation.toLowerCase(), function);
+        }
+    }
+
+    @Override
+    public Void call(JavaRDD<StratioStreamingMessage> rdd) throws Exception {
+
+        rdd.foreach(new VoidFunction<StratioStreamingMessage>() {
+            @Override public void call(StratioStreamingMessage message) throws Exception {
+                dispatch(message);
+            }
+        });
+
+        return null;
+    }
+
+    protected void dispatch(StratioStreamingMessage message) throws Exception {
+        ActionBaseFunction function = null;
+        if (message.getOperation() != null) {
+            function = functionsByOperation.get(message.getOperation().toLowerCase());
+        }
+
+        if (function != null) {
+            function.process(message);
+        } else {
+            log.warn("No function registered for operation {} in request {}", message.getOperation(),
+                    message.getRequest_id());
+        }
+    }
+
+}
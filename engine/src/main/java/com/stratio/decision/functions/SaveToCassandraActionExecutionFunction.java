@@ -15,24 +15,27 @@
  */
 package com.stratio.decision.functions;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
 
 import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.FlatMapFunction;
+import org.apache.spark.api.java.function.VoidFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ResultSetFuture;
 import com.google.common.collect.Iterables;
-import com.stratio.decision.commons.constants.STREAMING;
+import com.google.common.collect.Lists;
 import com.stratio.decision.commons.constants.StreamAction;
-import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.configuration.ConfigurationContext.CassandraWriteMode;
 import com.stratio.decision.service.SaveToCassandraOperationsService;
 
-import scala.Tuple2;
-
 public class SaveToCassandraActionExecutionFunction extends BaseActionExecutionFunction {
 
     private static final long serialVersionUID = -3116164624590830333L;
@@ -43,17 +46,24 @@ public class SaveToCassandraActionExecutionFunction extends BaseActionExecutionF
     private final String cassandraQuorum;
     private final int cassandraPort;
     private final int maxBatchSize;
-    private final transient BatchStatement.Type batchType;
+    private final BatchStatement.Type batchType;
+    private final CassandraWriteMode writeMode;
 
 
     private  transient SaveToCassandraOperationsService cassandraTableOperationsService;
 
     public SaveToCassandraActionExecutionFunction(String cassandraQuorum, int cassandraPort, int maxBatchSize,
             BatchStatement.Type batchType) {
+        this(cassandraQuorum, cassandraPort, maxBatchSize, batchType, CassandraWriteMode.BATCH);
+    }
+
+    public SaveToCassandraActionExecutionFunction(String cassandraQuorum, int cassandraPort, int maxBatchSize,
+            BatchStatement.Type batchType, CassandraWriteMode writeMode) {
         this.cassandraQuorum = cassandraQuorum;
         this.cassandraPort = cassandraPort;
         this.maxBatchSize = maxBatchSize;
         this.batchType = batchType;
+        this.writeMode = writeMode;
     }
 
 
@@ -64,12 +74,41 @@ public class SaveToCassandraActionExecutionFunction extends BaseActionExecutionF
        this.cassandraTableOperationsService = cassandraTableOperationsService;
     }
 
+    public SaveToCassandraActionExecutionFunction(String cassandraQuorum, int cassandraPort, int maxBatchSize,
+            BatchStatement.Type batchType, CassandraWriteMode writeMode, SaveToCassandraOperationsService
+            cassandraTableOperationsService) {
+        this(cassandraQuorum, cassandraPort, maxBatchSize, batchType, writeMode);
+        this.cassandraTableOperationsService = cassandraTableOperationsService;
+    }
+
+    /**
+     * Messages are grouped by action upstream, so every Cassandra message arrives in a single tuple. They are spread
+     * again across the executors before writing, each partition using the session shared by its executor JVM.
+     */
     @Override
     public Void call(JavaPairRDD<StreamAction, Iterable<StratioStreamingMessage>> rdd) throws Exception {
 
-        List<Tuple2<StreamAction, Iterable<StratioStreamingMessage>>> rddContent = rdd.collect();
-        if (rddContent.size() != 0) {
-            process(rddContent.get(0)._2());
+        if (!rdd.isEmpty()) {
+            JavaRDD<StratioStreamingMessage> messages = rdd.values().flatMap(
+                    new FlatMapFunction<Iterable<StratioStreamingMessage>, StratioStreamingMessage>() {
+                        @Override public Iterable<StratioStreamingMessage> call(
+                                Iterable<StratioStreamingMessage> groupedMessages) throws Exception {
+                            return groupedMessages;
+                        }
+                    });
+
+            int parallelism = rdd.context().defaultParallelism();
+            if (parallelism > messages.partitions().size()) {
+                messages = messages.repartition(parallelism);
+            }
+
+            messages.foreachPartition(new VoidFunction<Iterator<StratioStreamingMessage>>() {
+                @Override public void call(Iterator<StratioStreamingMessage> partition) throws Exception {
+                    if (partition.hasNext()) {
+                        process(Lists.newArrayList(partition));
+                    }
+                }
+            });
         }
 
         return null;
@@ -84,6 +123,11 @@ public class SaveToCassandraActionExecutionFunction extends BaseActionExecutionF
     @Override
     public void process(Iterable<StratioStreamingMessage> messages) throws Exception {
 
+        if (writeMode == CassandraWriteMode.ASYNC) {
+            processAsync(messages);
+            return;
+        }
+
         Integer partitionSize = maxBatchSize;
 
         if (partitionSize <= 0){
@@ -102,26 +146,21 @@ public class SaveToCassandraActionExecutionFunction extends BaseActionExecutionF
                 BatchStatement batch = new BatchStatement(batchType);
 
                 for (StratioStreamingMessage stratioStreamingMessage : messageList) {
-                    Set<String> columns = getColumnSet(stratioStreamingMessage.getColumns());
-                    if (getCassandraTableOperationsService().getTableNames().get(stratioStreamingMessage.getStreamName())
-                            == null) {
-                        getCassandraTableOperationsService().createTable(stratioStreamingMessage.getStreamName(),
-                                stratioStreamingMessage.getColumns(), TIMESTAMP_FIELD);
-                        getCassandraTableOperationsService().refreshTablenames();
-                    }
-                    if (getCassandraTableOperationsService().getTableNames().get(stratioStreamingMessage.getStreamName()) != columns.hashCode()) {
-                        getCassandraTableOperationsService()
-                                .alterTable(stratioStreamingMessage.getStreamName(), columns,
-                                        stratioStreamingMessage.getColumns());
-                        getCassandraTableOperationsService().refreshTablenames();
+                    getCassandraTableOperationsService().ensureTable(stratioStreamingMessage.getStreamName(),
+                            stratioStreamingMessage.getColumns(), TIMESTAMP_FIELD);
+
+                    try {
+                        batch.add(getCassandraTableOperationsService().createBoundInsertStatement(
+                                stratioStreamingMessage.getStreamName(), stratioStreamingMessage.getColumns(),
+                                TIMESTAMP_FIELD));
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Discarding Cassandra row: {}", e.getMessage());
                     }
-
-                    batch.add(getCassandraTableOperationsService().createInsertStatement(
-                            stratioStreamingMessage.getStreamName(), stratioStreamingMessage.getColumns(),
-                            TIMESTAMP_FIELD));
                 }
 
-                getCassandraTableOperationsService().getSession().execute(batch);
+                if (batch.size() > 0) {
+                    getCassandraTableOperationsService().getSession().execute(batch);
+                }
             }
 
             }catch(Exception e){
@@ -130,31 +169,56 @@ public class SaveToCassandraActionExecutionFunction extends BaseActionExecutionF
 
     }
 
-    private SaveToCassandraOperationsService getCassandraTableOperationsService() {
-        if (cassandraTableOperationsService == null) {
-            cassandraTableOperationsService =  (SaveToCassandraOperationsService) ActionBaseContext.getInstance().getContext().getBean
-                    ("saveToCassandraOperationsService");
+    /**
+     * Every row is its own partition, so inserts are sent one by one to a replica of their partition instead of being
+     * batched. Waits for the pending writes so failures are reported by the task that sent them.
+     */
+    private void processAsync(Iterable<StratioStreamingMessage> messages) {
+        List<ResultSetFuture> futures = new ArrayList<>();
 
-            if (cassandraTableOperationsService.getSession() != null) {
-                if (cassandraTableOperationsService.getSession().getCluster().getMetadata().getKeyspace(STREAMING.STREAMING_KEYSPACE_NAME) == null) {
-                    cassandraTableOperationsService.createKeyspace(STREAMING.STREAMING_KEYSPACE_NAME);
+        try {
+            getCassandraTableOperationsService().checkKeyspace();
+
+            for (StratioStreamingMessage stratioStreamingMessage : messages) {
+                getCassandraTableOperationsService().ensureTable(stratioStreamingMessage.getStreamName(),
+                        stratioStreamingMessage.getColumns(), TIMESTAMP_FIELD);
+
+                BoundStatement statement;
+                try {
+                    statement = getCassandraTableOperationsService().createBoundInsertStatement(
+                            stratioStreamingMessage.getStreamName(), stratioStreamingMessage.getColumns(),
+                            TIMESTAMP_FIELD);
+                } catch (IllegalArgumentException e) {
+                    log.warn("Discarding Cassandra row: {}", e.getMessage());
+                    continue;
                 }
-                cassandraTableOperationsService.refreshTablenames();
+                futures.add(getCassandraTableOperationsService().executeAsync(stratioStreamingMessage.getStreamName(),
+                        statement));
             }
-
+        } catch (Exception e) {
+            log.error("Error in Cassandra sending asynchronous writes: {}", e.getMessage());
         }
 
-        return cassandraTableOperationsService;
+        int failedWrites = 0;
+        for (ResultSetFuture future : futures) {
+            try {
+                future.getUninterruptibly();
+            } catch (Exception e) {
+                failedWrites++;
+            }
+        }
+        if (failedWrites > 0) {
+            log.error("Error in Cassandra for {} of {} asynchronous writes", failedWrites, futures.size());
+        }
     }
 
-    private Set<String> getColumnSet(List<ColumnNameTypeValue> columns) {
-        Set<String> columnsSet = new HashSet<>();
-        for (ColumnNameTypeValue column : columns) {
-            columnsSet.add(column.getColumn());
+    private SaveToCassandraOperationsService getCassandraTableOperationsService() {
+        if (cassandraTableOperationsService == null) {
+            cassandraTableOperationsService =  (SaveToCassandraOperationsService) ActionBaseContext.getInstance().getContext().getBean
+                    ("saveToCassandraOperationsService");
         }
-        columnsSet.add(TIMESTAMP_FIELD);
 
-        return columnsSet;
+        return cassandraTableOperationsService;
     }
 
 }
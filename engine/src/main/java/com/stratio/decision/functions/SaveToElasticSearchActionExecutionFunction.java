@@ -19,9 +19,6 @@ import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.List;
 
-import org.elasticsearch.action.bulk.BulkProcessor;
-import org.elasticsearch.action.bulk.BulkRequest;
-import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -31,6 +28,8 @@ import org.slf4j.LoggerFactory;
 
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.service.ElasticSearchBulkService;
+import com.stratio.decision.service.ElasticSearchIndexService;
 
 public class SaveToElasticSearchActionExecutionFunction extends BaseActionExecutionFunction {
 
@@ -42,12 +41,14 @@ public class SaveToElasticSearchActionExecutionFunction extends BaseActionExecut
 
     private transient Client elasticSearchClient;
 
+    private transient ElasticSearchBulkService elasticSearchBulkService;
+
+    private transient ElasticSearchIndexService elasticSearchIndexService;
+
     private final List<String> elasticSearchHosts;
     private final String elasticSearchClusterName;
     private final Integer maxBatchSize;
 
-    private static final String INDEX_NAME = "stratiodecision";
-
     public SaveToElasticSearchActionExecutionFunction(List<String> elasticSearchHosts, String
             elasticSearchClusterName, Integer maxBatchSize) {
         this.elasticSearchHosts = elasticSearchHosts;
@@ -73,47 +74,33 @@ public class SaveToElasticSearchActionExecutionFunction extends BaseActionExecut
 
 
 
+    /**
+     * Documents are handed to the bulk service shared by the executor, which sends them in the background.
+     */
     @Override
     public void process(Iterable<StratioStreamingMessage> messages) throws Exception {
         try {
 
-
-             BulkProcessor bulkProcessor = BulkProcessor.builder(getClient(), new BulkProcessor.Listener(){
-                 @Override
-                 public void beforeBulk(long executionId, BulkRequest request) {
-                     log.debug("Going to execute new elastic search bulk composed of {} actions",  request
-                             .numberOfActions());
-                 }
-
-                 @Override
-                 public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
-                     log.debug("Executed elastic search bulk composed of {} actions", request.numberOfActions());
-                 }
-
-                 @Override
-                 public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
-                     log.error("Error executing elastic search bulk: {}", failure);
-                 }
-             }).setBulkActions(maxBatchSize).build();
-
-
             for (StratioStreamingMessage stratioStreamingMessage : messages) {
                 try {
 
+                    getIndexService().ensureTemplate(stratioStreamingMessage.getStreamName(),
+                            stratioStreamingMessage.getColumns());
+
                     XContentBuilder contentBuilder = XContentFactory.jsonBuilder().startObject();
 
                     for (ColumnNameTypeValue column : stratioStreamingMessage.getColumns()) {
                         contentBuilder = contentBuilder.field(column.getColumn(), column.getValue());
                     }
-                    contentBuilder = contentBuilder.field("@timestamp",
+                    contentBuilder = contentBuilder.field(ElasticSearchIndexService.TIMESTAMP_FIELD,
                             elasicSearchTimestampFormat.format(stratioStreamingMessage.getTimestamp()));
 
                     contentBuilder = contentBuilder.endObject();
-                    IndexRequestBuilder request = getClient().prepareIndex(INDEX_NAME,
+                    IndexRequestBuilder request = getClient().prepareIndex(getIndexService().getIndexName(
+                                    stratioStreamingMessage.getStreamName(), stratioStreamingMessage.getTimestamp()),
                             stratioStreamingMessage.getStreamName()).setSource(contentBuilder);
 
-
-                    bulkProcessor.add(request.request());
+                    getBulkService().add(request.request());
 
                 } catch (IOException e) {
                     log.error("Error generating a index to event element into stream {}",
@@ -122,15 +109,28 @@ public class SaveToElasticSearchActionExecutionFunction extends BaseActionExecut
 
             }
 
-            bulkProcessor.close();
-
-
         } catch (Exception e) {
             log.error("Error in ElasticSearch: " + e.getMessage());
         }
 
     }
 
+    private ElasticSearchIndexService getIndexService() {
+        if (elasticSearchIndexService == null) {
+            elasticSearchIndexService = (ElasticSearchIndexService) ActionBaseContext.getInstance().getContext()
+                    .getBean("elasticSearchIndexService");
+        }
+        return elasticSearchIndexService;
+    }
+
+    private ElasticSearchBulkService getBulkService() {
+        if (elasticSearchBulkService == null) {
+            elasticSearchBulkService = (ElasticSearchBulkService) ActionBaseContext.getInstance().getContext()
+                    .getBean("elasticSearchBulkService");
+        }
+        return elasticSearchBulkService;
+    }
+
     private Client getClient() {
         if (elasticSearchClient == null) {
 
@@ -15,22 +15,20 @@
  */
 package com.stratio.decision.functions;
 
-import java.net.UnknownHostException;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.Iterables;
 import com.mongodb.BasicDBObject;
-import com.mongodb.BulkWriteOperation;
-import com.mongodb.DB;
-import com.mongodb.MongoClient;
+import com.mongodb.DBObject;
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.service.MongoOperationsService;
 
 public class SaveToMongoActionExecutionFunction extends BaseActionExecutionFunction {
 
@@ -38,8 +36,7 @@ public class SaveToMongoActionExecutionFunction extends BaseActionExecutionFunct
 
     private static Logger log = LoggerFactory.getLogger(SaveToMongoActionExecutionFunction.class);
 
-    private transient MongoClient mongoClient;
-    private transient DB streamingDb;
+    private transient MongoOperationsService mongoOperationsService;
 
     private final List<String> mongoHosts;
     private final String username;
@@ -48,11 +45,10 @@ public class SaveToMongoActionExecutionFunction extends BaseActionExecutionFunct
 
 
     public SaveToMongoActionExecutionFunction(List<String> mongoHosts, String username, String password, Integer
-            maxBatchSize, MongoClient mongoClient, DB streamingDb) {
+            maxBatchSize, MongoOperationsService mongoOperationsService) {
 
         this(mongoHosts, username, password, maxBatchSize);
-        this.mongoClient = mongoClient;
-        this.streamingDb = streamingDb;
+        this.mongoOperationsService = mongoOperationsService;
     }
 
     public SaveToMongoActionExecutionFunction(List<String> mongoHosts, String username, String password, Integer
@@ -81,7 +77,7 @@ public class SaveToMongoActionExecutionFunction extends BaseActionExecutionFunct
 
             for (List<StratioStreamingMessage> messageList : partitionIterables) {
 
-                Map<String, BulkWriteOperation> elementsToInsert = new HashMap<String, BulkWriteOperation>();
+                Map<String, List<DBObject>> elementsToInsert = new LinkedHashMap<>();
 
                 for (StratioStreamingMessage event : messageList) {
                     BasicDBObject object = new BasicDBObject(TIMESTAMP_FIELD, event.getTimestamp());
@@ -89,22 +85,17 @@ public class SaveToMongoActionExecutionFunction extends BaseActionExecutionFunct
                         object.append(columnNameTypeValue.getColumn(), columnNameTypeValue.getValue());
                     }
 
-                    BulkWriteOperation bulkInsertOperation = elementsToInsert.get(event.getStreamName());
-
-                    if (bulkInsertOperation == null) {
-                        bulkInsertOperation = getDB().getCollection(event.getStreamName())
-                                .initializeUnorderedBulkOperation();
-
-                        elementsToInsert.put(event.getStreamName(), bulkInsertOperation);
-                        getDB().getCollection(event.getStreamName())
-                                .createIndex(new BasicDBObject(TIMESTAMP_FIELD, -1));
+                    List<DBObject> documents = elementsToInsert.get(event.getStreamName());
+                    if (documents == null) {
+                        documents = new ArrayList<>();
+                        elementsToInsert.put(event.getStreamName(), documents);
                     }
-
-                    bulkInsertOperation.insert(object);
+                    documents.add(object);
                 }
 
-                for (Entry<String, BulkWriteOperation> stratioStreamingMessage : elementsToInsert.entrySet()) {
-                    stratioStreamingMessage.getValue().execute();
+                int failed = getMongoOperationsService().insert(elementsToInsert);
+                if (failed > 0) {
+                    log.warn("{} documents could not be saved in Mongo", failed);
                 }
             }
 
@@ -116,28 +107,18 @@ public class SaveToMongoActionExecutionFunction extends BaseActionExecutionFunct
     @Override
     public Boolean check() throws Exception {
         try {
-            getDB().getStats();
+            getMongoOperationsService().getDB().getStats();
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
-    private MongoClient getMongoClient() throws UnknownHostException {
-
-        if (mongoClient == null){
-            mongoClient = (MongoClient) ActionBaseContext.getInstance().getContext().getBean
-                    ("mongoClient");
-        }
-
-        return mongoClient;
-    }
-
-    private DB getDB() throws UnknownHostException {
-        if (streamingDb == null) {
-            streamingDb= (DB) ActionBaseContext.getInstance().getContext().getBean
-                    ("mongoDB");
+    private MongoOperationsService getMongoOperationsService() {
+        if (mongoOperationsService == null) {
+            mongoOperationsService = (MongoOperationsService) ActionBaseContext.getInstance().getContext().getBean
+                    ("mongoOperationsService");
         }
-        return streamingDb;
+        return mongoOperationsService;
     }
 }
@@ -18,6 +18,7 @@ package com.stratio.decision.functions.dml;
 import com.stratio.decision.commons.constants.ReplyCode;
 import com.stratio.decision.commons.constants.STREAM_OPERATIONS;
 import com.stratio.decision.commons.dto.ActionCallbackDto;
+import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
 import com.stratio.decision.exception.RequestValidationException;
 import com.stratio.decision.exception.ServiceException;
@@ -26,6 +27,14 @@ import com.stratio.decision.functions.validator.RequestValidation;
 import com.stratio.decision.functions.validator.StreamNotExistsValidation;
 import com.stratio.decision.service.StreamOperationService;
 
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.VoidFunction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class InsertIntoStreamFunction extends ActionBaseFunction {
@@ -36,6 +45,53 @@ public class InsertIntoStreamFunction extends ActionBaseFunction {
         super(streamOperationService, zookeeperHost);
     }
 
+    @Override
+    public Void call(JavaRDD<StratioStreamingMessage> rdd) throws Exception {
+
+        rdd.foreachPartition(new VoidFunction<Iterator<StratioStreamingMessage>>() {
+            @Override public void call(Iterator<StratioStreamingMessage> messages) throws Exception {
+                insertPartition(messages);
+            }
+        });
+
+        return null;
+    }
+
+    /**
+     * Groups the partition messages by stream, keeping their order, and sends every group to Siddhi as a single
+     * batch. Start validations only depend on the stream name so they are checked once per group.
+     */
+    protected void insertPartition(Iterator<StratioStreamingMessage> messages) throws Exception {
+        Map<String, List<StratioStreamingMessage>> messagesByStream = new LinkedHashMap<>();
+        while (messages.hasNext()) {
+            StratioStreamingMessage message = messages.next();
+            List<StratioStreamingMessage> streamMessages = messagesByStream.get(message.getStreamName());
+            if (streamMessages == null) {
+                streamMessages = new ArrayList<>();
+                messagesByStream.put(message.getStreamName(), streamMessages);
+            }
+            streamMessages.add(message);
+        }
+
+        for (Map.Entry<String, List<StratioStreamingMessage>> entry : messagesByStream.entrySet()) {
+            List<StratioStreamingMessage> streamMessages = entry.getValue();
+            try {
+                if (!isValidStartRequest(streamMessages.get(0))) {
+                    log.warn("Discarding {} insert messages for stream {}", streamMessages.size(), entry.getKey());
+                    continue;
+                }
+
+                List<List<ColumnNameTypeValue>> rows = new ArrayList<>(streamMessages.size());
+                for (StratioStreamingMessage message : streamMessages) {
+                    rows.add(message.getColumns());
+                }
+                getStreamOperationService().sendBatch(entry.getKey(), rows);
+            } catch (Exception e) {
+                log.error("Error inserting {} messages into stream {}", streamMessages.size(), entry.getKey(), e);
+            }
+        }
+    }
+
     @Override
     protected String getStartOperationCommand() {
         return STREAM_OPERATIONS.MANIPULATION.INSERT;
@@ -25,7 +25,6 @@ import com.stratio.decision.functions.ActionBaseFunction;
 import com.stratio.decision.functions.validator.RequestValidation;
 import com.stratio.decision.functions.validator.StreamAllowedValidation;
 import com.stratio.decision.service.StreamOperationService;
-import com.stratio.decision.utils.ZKUtils;
 
 import java.util.List;
 import java.util.Set;
@@ -55,7 +54,7 @@ public class ListStreamsFunction extends ActionBaseFunction {
 
             if (ClusterSyncManager.getNode().isLeader()) {
 
-                ZKUtils.getZKUtils(getZookeeperHost()).createZNodeJsonReply(message,
+                ClusterSyncManager.getNode().writeReply(message,
                         new ListStreamsMessage(existingStreams.size(), System.currentTimeMillis(), existingStreams));
             }
         } catch (Exception e) {
@@ -15,15 +15,8 @@
  */
 package com.stratio.decision.functions.messages;
 
-import java.io.IOException;
+import org.apache.spark.api.java.function.FlatMapFunction;
 
-import org.apache.avro.io.BinaryDecoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.specific.SpecificDatumReader;
-import org.apache.spark.api.java.function.Function;
-
-import com.stratio.decision.commons.avro.InsertMessage;
-import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
 import com.stratio.decision.serializer.impl.JavaToAvroSerializer;
 
@@ -31,28 +24,31 @@ import scala.Tuple2;
 
 /**
  * Created by josepablofernandez on 14/03/16.
+ *
+ * Batch records are unpacked into one message per row, so they reach the stream in the same partition batches as
+ * single inserts.
  */
-public class AvroDeserializeMessageFunction implements Function<Tuple2<String, byte[]>, StratioStreamingMessage> {
+public class AvroDeserializeMessageFunction implements FlatMapFunction<Tuple2<String, byte[]>,
+        StratioStreamingMessage> {
 
     private static final long serialVersionUID = 5343621517983281408L;
 
     private JavaToAvroSerializer javaToAvroSerializer = null;
 
     @Override
-    public StratioStreamingMessage call(Tuple2<String, byte[]> message) {
+    public Iterable<StratioStreamingMessage> call(Tuple2<String, byte[]> message) {
 
-        return deserializeMessage(message._2());
+        return deserializeMessages(message._2());
 
     }
 
-    private StratioStreamingMessage deserializeMessage(byte[] data)  {
+    private Iterable<StratioStreamingMessage> deserializeMessages(byte[] data)  {
 
-        StratioStreamingMessage result = null;
         if (javaToAvroSerializer== null) {
-            javaToAvroSerializer = new JavaToAvroSerializer(new SpecificDatumReader(InsertMessage.getClassSchema()));
+            javaToAvroSerializer = new JavaToAvroSerializer();
         }
 
-        return javaToAvroSerializer.deserialize(data);
+        return javaToAvroSerializer.deserializeAll(data);
 
     }
 
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.functions.messages;
+
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.streaming.kafka.HasOffsetRanges;
+import org.apache.spark.streaming.kafka.OffsetRange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.stratio.decision.dao.KafkaOffsetsDao;
+import com.stratio.decision.functions.ActionBaseContext;
+
+/**
+ * Stores the offsets consumed by a direct kafka stream. It must be registered as the last output operation of the
+ * stream, so offsets are only saved once every other operation of the batch has finished. Empty ranges are saved
+ * too: the stream only resumes from stored offsets when every partition has one, so an idle partition must not be
+ * left without it.
+ */
+public class CommitKafkaOffsetsFunction<V> implements Function<JavaPairRDD<String, V>, Void> {
+
+    private static final long serialVersionUID = 2790345526329126117L;
+
+    private static final Logger log = LoggerFactory.getLogger(CommitKafkaOffsetsFunction.class);
+
+    private transient KafkaOffsetsDao kafkaOffsetsDao;
+
+    public CommitKafkaOffsetsFunction(KafkaOffsetsDao kafkaOffsetsDao) {
+        this.kafkaOffsetsDao = kafkaOffsetsDao;
+    }
+
+    @Override
+    public Void call(JavaPairRDD<String, V> rdd) throws Exception {
+        if (rdd.rdd() instanceof HasOffsetRanges) {
+            for (OffsetRange offsetRange : ((HasOffsetRanges) rdd.rdd()).offsetRanges()) {
+                getKafkaOffsetsDao().save(offsetRange.topic(), offsetRange.partition(), offsetRange.untilOffset());
+            }
+        } else {
+            log.warn("Offsets not available for rdd {}. Is it a direct kafka stream?", rdd.id());
+        }
+        return null;
+    }
+
+    private KafkaOffsetsDao getKafkaOffsetsDao() {
+        if (kafkaOffsetsDao == null) {
+            kafkaOffsetsDao = (KafkaOffsetsDao) ActionBaseContext.getInstance().getContext().getBean
+                    ("kafkaOffsetsDao");
+        }
+        return kafkaOffsetsDao;
+    }
+
+}
@@ -27,6 +27,8 @@ public class KeepPayloadFromMessageFunction implements Function<Tuple2<String, S
 	 */
     private static final long serialVersionUID = 7911766880059394316L;
 
+    private transient Gson gson;
+
     public KeepPayloadFromMessageFunction() {
 
     }
@@ -49,7 +51,10 @@ public class KeepPayloadFromMessageFunction implements Function<Tuple2<String, S
     }
 
     private Gson getGson() {
-        return new Gson();
+        if (gson == null) {
+            gson = new Gson();
+        }
+        return gson;
     }
 
 }
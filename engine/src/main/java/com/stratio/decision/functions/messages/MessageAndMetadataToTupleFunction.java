@@ -0,0 +1,32 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.functions.messages;
+
+import org.apache.spark.api.java.function.Function;
+
+import kafka.message.MessageAndMetadata;
+import scala.Tuple2;
+
+public class MessageAndMetadataToTupleFunction<V> implements Function<MessageAndMetadata<String, V>, Tuple2<String, V>> {
+
+    private static final long serialVersionUID = -4426180307582537631L;
+
+    @Override
+    public Tuple2<String, V> call(MessageAndMetadata<String, V> messageAndMetadata) {
+        return new Tuple2<>(messageAndMetadata.key(), messageAndMetadata.message());
+    }
+
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.model;
+
+import java.io.Serializable;
+
+import com.stratio.decision.streams.StreamStatusDTO;
+
+/**
+ * Change of the status of a stream stored in the failover change log. A null status means the stream was dropped.
+ */
+public class FailoverChangeRecord implements Serializable {
+
+    private static final long serialVersionUID = -2310640523125738451L;
+
+    private final String streamName;
+    private final StreamStatusDTO streamStatus;
+
+    public FailoverChangeRecord(String streamName, StreamStatusDTO streamStatus) {
+        this.streamName = streamName;
+        this.streamStatus = streamStatus;
+    }
+
+    public String getStreamName() {
+        return streamName;
+    }
+
+    public StreamStatusDTO getStreamStatus() {
+        return streamStatus;
+    }
+
+    public boolean isRemoved() {
+        return streamStatus == null;
+    }
+}
@@ -30,8 +30,7 @@ public class FailoverPersistenceStoreModel implements Serializable {
 
     public FailoverPersistenceStoreModel(Map<String, StreamStatusDTO> streamStatuses, byte[] siddhiSnapshot) {
         this.streamStatuses = streamStatuses;
-//        this.siddhiSnapshot = siddhiSnapshot.clone();
-        this.siddhiSnapshot = null;
+        this.siddhiSnapshot = siddhiSnapshot != null ? siddhiSnapshot.clone() : null;
     }
 
     public FailoverPersistenceStoreModel(byte[] bytes) {
@@ -134,7 +133,7 @@ public class FailoverPersistenceStoreModel implements Serializable {
     @Override
     public String toString() {
         return "FailoverPersistenceStoreModel [streamStatuses=" + streamStatuses + ", siddhiSnapshot="
-                + Arrays.toString(siddhiSnapshot) + "]";
+                + (siddhiSnapshot != null ? siddhiSnapshot.length + " bytes" : null) + "]";
     }
 
 }
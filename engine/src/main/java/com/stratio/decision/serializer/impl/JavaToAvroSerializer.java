@@ -15,23 +15,24 @@
  */
 package com.stratio.decision.serializer.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-import org.apache.avro.io.BinaryDecoder;
-import org.apache.avro.io.BinaryEncoder;
-import org.apache.avro.io.DecoderFactory;
-import org.apache.avro.io.EncoderFactory;
-import org.apache.avro.specific.SpecificDatumReader;
-import org.apache.avro.specific.SpecificDatumWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.stratio.decision.commons.avro.Action;
+import com.stratio.decision.commons.avro.InsertBatchMessage;
 import com.stratio.decision.commons.avro.ColumnType;
 import com.stratio.decision.commons.avro.InsertMessage;
+import com.stratio.decision.commons.avro.InsertMessageCodec;
+import com.stratio.decision.commons.avro.InsertMessageFormat;
+import com.stratio.decision.commons.avro.InsertMessageV2;
+import com.stratio.decision.commons.avro.TypedColumn;
 import com.stratio.decision.commons.constants.StreamAction;
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
@@ -44,15 +45,46 @@ public class JavaToAvroSerializer  implements Serializer<StratioStreamingMessage
 
     private static final long serialVersionUID = -3164736956154831507L;
 
-    private SpecificDatumReader datumReader =  null;
+    private static final Logger log = LoggerFactory.getLogger(JavaToAvroSerializer.class);
 
-    public JavaToAvroSerializer(SpecificDatumReader datumReader) {
-        this.datumReader = datumReader;
+    private final InsertMessageFormat format;
+
+    public JavaToAvroSerializer() {
+        this(InsertMessageFormat.latest());
+    }
+
+    public JavaToAvroSerializer(InsertMessageFormat format) {
+        this.format = format;
     }
 
     @Override
     public byte[] serialize(StratioStreamingMessage object) {
 
+        if (format == InsertMessageFormat.V1) {
+            return serializeV1(object);
+        }
+
+        List<TypedColumn> columns = new ArrayList<>();
+        if (object.getColumns() != null) {
+            for (ColumnNameTypeValue messageColumn : object.getColumns()) {
+                columns.add(new TypedColumn(messageColumn.getColumn(), InsertMessageFormat.toTypedValue(messageColumn
+                        .getValue())));
+            }
+        }
+
+        InsertMessageV2 insertMessage = new InsertMessageV2(object.getOperation(), object.getStreamName(), object
+                .getSession_id(), object.getTimestamp(), columns, getActions(object));
+
+        try {
+            return InsertMessageCodec.get().encode(insertMessage);
+        } catch (IOException e) {
+            log.error("Error serializing insert message", e);
+            return null;
+        }
+    }
+
+    private byte[] serializeV1(StratioStreamingMessage object) {
+
         List<com.stratio.decision.commons.avro.ColumnType> columns = null;
 
         if (object.getColumns() != null) {
@@ -75,6 +107,20 @@ public class JavaToAvroSerializer  implements Serializer<StratioStreamingMessage
 
         }
 
+        InsertMessage insertMessage =  new InsertMessage(object.getOperation(), object.getStreamName(), object
+                .getSession_id(), object.getTimestamp(), columns, getActions(object));
+
+        try {
+            return InsertMessageCodec.get().encode(insertMessage);
+        } catch (IOException e) {
+            log.error("Error serializing insert message", e);
+            return null;
+        }
+
+    }
+
+    private List<Action> getActions(StratioStreamingMessage object) {
+
         List<Action> actions = new ArrayList<>();
 
         if (object.getActiveActions() != null){
@@ -103,53 +149,96 @@ public class JavaToAvroSerializer  implements Serializer<StratioStreamingMessage
             });
         }
 
-        InsertMessage insertMessage =  new InsertMessage(object.getOperation(), object.getStreamName(), object
-                .getSession_id(), object.getTimestamp(), columns, actions);
-
-        return getInsertMessageBytes(insertMessage);
-
+        return actions;
     }
 
 
-    private byte[] getInsertMessageBytes(InsertMessage insertMessage){
-
-        byte[] result = null;
+    @Override
+    public StratioStreamingMessage deserialize(byte[] object) {
 
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(out, null);
-        SpecificDatumWriter writer = new SpecificDatumWriter<InsertMessage>(InsertMessage.getClassSchema());
+        StratioStreamingMessage result = null;
 
         try {
-            writer.write(insertMessage, encoder);
-            encoder.flush();
-            out.close();
-            result = out.toByteArray();
-        }catch (IOException e){
-            return null;
+            // the decoded records are reused by the codec, so they are converted right away
+            InsertMessageFormat payloadFormat = InsertMessageFormat.fromPayload(object);
+            if (payloadFormat == InsertMessageFormat.V1) {
+                result = convertMessage(InsertMessageCodec.get().decodeV1(object));
+            } else if (payloadFormat.supportsBatches()) {
+                throw new IllegalArgumentException("Batch payloads hold several messages, use deserializeAll");
+            } else {
+                result = convertMessage(InsertMessageCodec.get().decodeV2(object));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Error deserializing insert message", e);
         }
 
         return result;
+    }
+
+    /**
+     * Deserializes a payload of any format into its messages: one per row for a batch record, a single one
+     * otherwise. Payloads that cannot be read give an empty list.
+     */
+    public List<StratioStreamingMessage> deserializeAll(byte[] object) {
+
+        if (!InsertMessageFormat.fromPayload(object).supportsBatches()) {
+            StratioStreamingMessage result = deserialize(object);
+            return result == null ? Collections.<StratioStreamingMessage>emptyList() : Collections.singletonList(result);
+        }
 
+        try {
+            return convertMessages(InsertMessageCodec.get().decodeBatch(object));
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Error deserializing insert batch message", e);
+            return Collections.emptyList();
+        }
     }
 
+    private List<StratioStreamingMessage> convertMessages(InsertBatchMessage insertBatchMessage) {
 
-    @Override
-    public StratioStreamingMessage deserialize(byte[] object) {
+        List<String> columnNames = insertBatchMessage.getColumns();
+        List<StratioStreamingMessage> messages = new ArrayList<>(insertBatchMessage.getRows().size());
 
-        StratioStreamingMessage result = null;
-        BinaryDecoder bd = DecoderFactory.get().binaryDecoder(object, null);
+        for (List<Object> row : insertBatchMessage.getRows()) {
+
+            if (row.size() != columnNames.size()) {
+                log.warn("Discarding a row of stream {} with {} values for {} columns", insertBatchMessage
+                        .getStreamName(), row.size(), columnNames.size());
+                continue;
+            }
+
+            StratioStreamingMessage stratioStreamingMessage = new StratioStreamingMessage();
+            stratioStreamingMessage.setStreamName(insertBatchMessage.getStreamName());
+            stratioStreamingMessage.setOperation(insertBatchMessage.getOperation());
+            stratioStreamingMessage.setSession_id(insertBatchMessage.getSessionId());
 
-        if (datumReader == null) {
-            datumReader =  new SpecificDatumReader(InsertMessage.getClassSchema());
+            for (int i = 0; i < row.size(); i++) {
+                Object value = row.get(i);
+                stratioStreamingMessage.addColumn(new ColumnNameTypeValue(columnNames.get(i), InsertMessageFormat
+                        .getColumnType(value), value));
+            }
+
+            messages.add(stratioStreamingMessage);
         }
-        try {
-            InsertMessage insertMessage =  (InsertMessage) datumReader.read(null, bd);
-            result = convertMessage(insertMessage);
-        } catch (IOException e) {
-            e.printStackTrace();
+
+        return messages;
+    }
+
+    private StratioStreamingMessage convertMessage(InsertMessageV2 insertMessage) {
+
+        StratioStreamingMessage stratioStreamingMessage = new StratioStreamingMessage();
+        stratioStreamingMessage.setStreamName(insertMessage.getStreamName());
+        stratioStreamingMessage.setOperation(insertMessage.getOperation());
+        stratioStreamingMessage.setSession_id(insertMessage.getSessionId());
+        stratioStreamingMessage.setTimestamp(insertMessage.getTimestamp());
+        stratioStreamingMessage.setActiveActions(getActiveActions(insertMessage.getActions()));
+
+        for (TypedColumn data : insertMessage.getData()) {
+            stratioStreamingMessage.addColumn(new ColumnNameTypeValue(data.getColumn(), InsertMessageFormat
+                    .getColumnType(data.getValue()), data.getValue()));
         }
 
-        return result;
+        return stratioStreamingMessage;
     }
 
 
@@ -165,40 +254,7 @@ public class JavaToAvroSerializer  implements Serializer<StratioStreamingMessage
 
         stratioStreamingMessage.setTimestamp(insertMessage.getTimestamp());
 
-        if (insertMessage.getActions() == null){
-            stratioStreamingMessage.setActiveActions(null);
-        } else {
-
-            Set<StreamAction> activeActions = new HashSet<>();
-
-            insertMessage.getActions().forEach(
-                    action -> {
-
-                        switch (action) {
-                        case LISTEN:
-                            activeActions.add(StreamAction.LISTEN);
-                            break;
-                        case SAVE_TO_CASSANDRA:
-                            activeActions.add(StreamAction.SAVE_TO_CASSANDRA);
-                            break;
-                        case SAVE_TO_ELASTICSEARCH:
-                            activeActions.add(StreamAction.SAVE_TO_ELASTICSEARCH);
-                            break;
-                        case SAVE_TO_MONGO:
-                            activeActions.add(StreamAction.SAVE_TO_MONGO);
-                            break;
-                        case SAVE_TO_SOLR:
-                            activeActions.add(StreamAction.SAVE_TO_SOLR);
-                            break;
-                        default:
-                            ;
-                        }
-
-                    }
-            );
-
-            stratioStreamingMessage.setActiveActions(activeActions);
-        }
+        stratioStreamingMessage.setActiveActions(getActiveActions(insertMessage.getActions()));
 
         insertMessage.getData().forEach(
 
@@ -254,6 +310,43 @@ public class JavaToAvroSerializer  implements Serializer<StratioStreamingMessage
 
     }
 
+    private Set<StreamAction> getActiveActions(List<Action> actions) {
+
+        if (actions == null) {
+            return null;
+        }
+
+        Set<StreamAction> activeActions = new HashSet<>();
+
+        actions.forEach(
+                action -> {
+
+                    switch (action) {
+                    case LISTEN:
+                        activeActions.add(StreamAction.LISTEN);
+                        break;
+                    case SAVE_TO_CASSANDRA:
+                        activeActions.add(StreamAction.SAVE_TO_CASSANDRA);
+                        break;
+                    case SAVE_TO_ELASTICSEARCH:
+                        activeActions.add(StreamAction.SAVE_TO_ELASTICSEARCH);
+                        break;
+                    case SAVE_TO_MONGO:
+                        activeActions.add(StreamAction.SAVE_TO_MONGO);
+                        break;
+                    case SAVE_TO_SOLR:
+                        activeActions.add(StreamAction.SAVE_TO_SOLR);
+                        break;
+                    default:
+                        ;
+                    }
+
+                }
+        );
+
+        return activeActions;
+    }
+
     @Override
     public List<byte[]> serialize(List<StratioStreamingMessage> object) {
 
@@ -15,15 +15,12 @@
  */
 package com.stratio.decision.serializer.impl;
 
-import com.stratio.decision.commons.constants.ColumnType;
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
 import com.stratio.decision.serializer.Serializer;
 import com.stratio.decision.service.StreamMetadataService;
 import org.wso2.siddhi.core.event.Event;
 import org.wso2.siddhi.core.event.in.InEvent;
-import org.wso2.siddhi.query.api.definition.Attribute;
-import org.wso2.siddhi.query.api.definition.Attribute.Type;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -40,22 +37,14 @@ public class JavaToSiddhiSerializer implements Serializer<StratioStreamingMessag
 
     @Override
     public Event serialize(StratioStreamingMessage object) {
-        Object[] values = new Object[object.getColumns().size()];
-        for (ColumnNameTypeValue column : object.getColumns()) {
-            values[streamMetadataService.getAttributePosition(object.getStreamName(), column.getColumn())] = column
-                    .getValue();
-        }
+        Object[] values = streamMetadataService.getCodec(object.getStreamName()).toRawEventData(object.getColumns());
         return new InEvent(object.getStreamName(), System.currentTimeMillis(), values);
     }
 
     @Override
     public StratioStreamingMessage deserialize(Event object) {
-        List<ColumnNameTypeValue> columns = new ArrayList<>();
-        for (int i = 0; i < object.getData().length; i++) {
-            Object data = object.getData()[i];
-            Attribute attribute = streamMetadataService.getAttribute(object.getStreamId(), i);
-            columns.add(new ColumnNameTypeValue(attribute.getName(), encodeSiddhiType(attribute.getType()), data));
-        }
+        List<ColumnNameTypeValue> columns = streamMetadataService.getCodec(object.getStreamId()).toColumns(object
+                .getData());
         return new StratioStreamingMessage(object.getStreamId(), object.getTimeStamp(), columns);
     }
 
@@ -81,23 +70,4 @@ public class JavaToSiddhiSerializer implements Serializer<StratioStreamingMessag
         return result;
     }
 
-    private ColumnType encodeSiddhiType(Type type) {
-        switch (type) {
-        case STRING:
-            return ColumnType.STRING;
-        case BOOL:
-            return ColumnType.BOOLEAN;
-        case DOUBLE:
-            return ColumnType.DOUBLE;
-        case INT:
-            return ColumnType.INTEGER;
-        case LONG:
-            return ColumnType.LONG;
-        case FLOAT:
-            return ColumnType.FLOAT;
-        default:
-            throw new RuntimeException("Unsupported Column type: " + type);
-        }
-    }
-
 }
@@ -0,0 +1,277 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.configuration.ConfigurationContext.ActionBusOverflowPolicy;
+import com.stratio.decision.serializer.Serializer;
+
+import kafka.javaapi.producer.Producer;
+import kafka.producer.KeyedMessage;
+
+/**
+ * Hands the output events of the siddhi queries over to the action bus without blocking the siddhi threads. Every
+ * stream has its own bounded queue, drained by a single sender at a time so the stream keeps its order, and the
+ * avro encoding and the kafka send are done by the sender pool.
+ */
+public class ActionBusPublisherService {
+
+    private static final Logger log = LoggerFactory.getLogger(ActionBusPublisherService.class);
+
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final Producer<String, byte[]> avroProducer;
+
+    private final Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer;
+
+    private final MetricRegistry metricRegistry;
+
+    private final int queueSize;
+
+    private final int maxBatchSize;
+
+    private final ActionBusOverflowPolicy overflowPolicy;
+
+    private final ExecutorService senderPool;
+
+    private final Timer enqueueTime;
+
+    private final ConcurrentMap<String, StreamQueue> queues = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    public ActionBusPublisherService(Producer<String, byte[]> avroProducer,
+            Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer, MetricRegistry metricRegistry,
+            int queueSize, int maxBatchSize, ActionBusOverflowPolicy overflowPolicy, int senderThreads) {
+        this.avroProducer = avroProducer;
+        this.javaToAvroSerializer = javaToAvroSerializer;
+        this.metricRegistry = metricRegistry;
+        this.queueSize = queueSize;
+        this.maxBatchSize = maxBatchSize;
+        this.overflowPolicy = overflowPolicy;
+        this.senderPool = Executors.newFixedThreadPool(senderThreads, new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("action-bus-sender-%d").build());
+        this.enqueueTime = metricRegistry.timer("actionbus.enqueue.time");
+    }
+
+    /**
+     * Queues the messages of a stream to be sent to the given topic. Depending on the overflow policy a full queue
+     * blocks the caller, drops its oldest messages or makes the caller send the queued messages by itself, in order.
+     */
+    public void publish(String streamName, String topic, List<StratioStreamingMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        StreamQueue queue = getQueue(streamName);
+        Timer.Context time = enqueueTime.time();
+        try {
+            for (StratioStreamingMessage message : messages) {
+                queue.offer(new KeyedMessage<>(topic, message));
+            }
+        } finally {
+            time.stop();
+        }
+        schedule(queue);
+    }
+
+    /**
+     * Forgets the queue of the stream. Messages already queued are still sent.
+     */
+    public void remove(String streamName) {
+        StreamQueue queue = queues.remove(streamName);
+        if (queue != null) {
+            metricRegistry.remove(queue.metricName("queue.depth"));
+        }
+    }
+
+    public int getQueueDepth(String streamName) {
+        StreamQueue queue = queues.get(streamName);
+        return queue != null ? queue.size.get() : 0;
+    }
+
+    /**
+     * Sends every queued message and stops the sender pool.
+     */
+    public void close() throws InterruptedException {
+        closed = true;
+        for (StreamQueue queue : queues.values()) {
+            schedule(queue);
+        }
+        senderPool.shutdown();
+        if (!senderPool.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Action bus sender pool did not finish sending the queued messages");
+        }
+    }
+
+    private StreamQueue getQueue(String streamName) {
+        StreamQueue queue = queues.get(streamName);
+        if (queue == null) {
+            final StreamQueue newQueue = new StreamQueue(streamName);
+            queue = queues.putIfAbsent(streamName, newQueue);
+            if (queue == null) {
+                queue = newQueue;
+                metricRegistry.remove(queue.metricName("queue.depth"));
+                metricRegistry.register(queue.metricName("queue.depth"), new Gauge<Integer>() {
+                    @Override
+                    public Integer getValue() {
+                        return newQueue.size.get();
+                    }
+                });
+            }
+        }
+        return queue;
+    }
+
+    private void schedule(StreamQueue queue) {
+        if (!queue.messages.isEmpty() && queue.scheduled.compareAndSet(false, true)) {
+            if (closed && senderPool.isShutdown()) {
+                queue.drain();
+            } else {
+                senderPool.execute(queue);
+            }
+        }
+    }
+
+    private KeyedMessage<String, byte[]> encode(KeyedMessage<String, StratioStreamingMessage> pending) {
+        return new KeyedMessage<>(pending.topic(), javaToAvroSerializer.serialize(pending.message()));
+    }
+
+    private class StreamQueue implements Runnable {
+
+        private final String streamName;
+
+        private final Queue<KeyedMessage<String, StratioStreamingMessage>> messages = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private final ReentrantLock sendLock = new ReentrantLock();
+
+        private final Counter dropped;
+
+        private final Counter spilled;
+
+        private final Counter failed;
+
+        StreamQueue(String streamName) {
+            this.streamName = streamName;
+            this.dropped = metricRegistry.counter(metricName("dropped"));
+            this.spilled = metricRegistry.counter(metricName("spilled"));
+            this.failed = metricRegistry.counter(metricName("failed"));
+        }
+
+        String metricName(String name) {
+            return MetricRegistry.name("actionbus", streamName, name);
+        }
+
+        void offer(KeyedMessage<String, StratioStreamingMessage> message) {
+            while (size.incrementAndGet() > queueSize) {
+                size.decrementAndGet();
+                switch (overflowPolicy) {
+                case DROP_OLDEST:
+                    if (messages.poll() != null) {
+                        size.decrementAndGet();
+                        dropped.inc();
+                    }
+                    break;
+                case SPILL:
+                    spilled.inc();
+                    sendBatch();
+                    break;
+                default:
+                    schedule(this);
+                    LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                }
+            }
+            messages.offer(message);
+        }
+
+        @Override
+        public void run() {
+            drain();
+        }
+
+        void drain() {
+            try {
+                while (sendBatch() > 0) {
+                    // keeps sending until the queue is empty
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            // a message queued while this sender was finishing would otherwise wait for the next publish
+            schedule(this);
+        }
+
+        /**
+         * Sends the next batch of queued messages. Senders and spilling callers take the batches under the same lock,
+         * so the stream messages are sent in order whichever thread sends them.
+         *
+         * @return number of sent messages
+         */
+        int sendBatch() {
+            sendLock.lock();
+            try {
+                List<KeyedMessage<String, byte[]>> batch = new ArrayList<>();
+                KeyedMessage<String, StratioStreamingMessage> message;
+                while (batch.size() < maxBatchSize && (message = messages.poll()) != null) {
+                    size.decrementAndGet();
+                    batch.add(encode(message));
+                }
+                send(batch);
+                return batch.size();
+            } finally {
+                sendLock.unlock();
+            }
+        }
+
+        private void send(List<KeyedMessage<String, byte[]>> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                avroProducer.send(batch);
+            } catch (RuntimeException e) {
+                failed.inc(batch.size());
+                log.error("Error sending {} messages of stream {} to the action bus", batch.size(), streamName, e);
+            }
+        }
+    }
+}
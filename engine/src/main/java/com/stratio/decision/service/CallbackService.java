@@ -27,63 +27,59 @@ import kafka.javaapi.producer.Producer;
 import org.wso2.siddhi.core.event.Event;
 import org.wso2.siddhi.core.query.output.callback.QueryCallback;
 
-import java.util.HashMap;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 public class CallbackService {
 
     private final Producer<String, String> producer;
-    private final Producer<String, byte[]> avroProducer;
+    private final ActionBusPublisherService actionBusPublisher;
     private final Serializer<String, StratioStreamingMessage> kafkaToJavaSerializer;
     private final Serializer<StratioStreamingMessage, Event> javaToSiddhiSerializer;
-    private final Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer;
 
-    private final Map<String, ActionControllerCallback> referencedCallbacks;
-    private final Map<String, EngineActionCallback> referencedEngineCallbacks;
+    private final ConcurrentMap<String, ActionControllerCallback> referencedCallbacks;
+    private final ConcurrentMap<String, EngineActionCallback> referencedEngineCallbacks;
 
     public CallbackService(Producer<String, String> producer,
-            Producer<String, byte[]> avroProducer,
+            ActionBusPublisherService actionBusPublisher,
             Serializer<String, StratioStreamingMessage> kafkaToJavaSerializer,
-            Serializer<StratioStreamingMessage, Event> javaToSiddhiSerializer,
-            Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer) {
+            Serializer<StratioStreamingMessage, Event> javaToSiddhiSerializer) {
         this.producer = producer;
-        this.avroProducer = avroProducer;
+        this.actionBusPublisher = actionBusPublisher;
         this.kafkaToJavaSerializer = kafkaToJavaSerializer;
         this.javaToSiddhiSerializer = javaToSiddhiSerializer;
-        this.javaToAvroSerializer = javaToAvroSerializer;
-        this.referencedCallbacks = new HashMap<>();
-        this.referencedEngineCallbacks = new HashMap<>();
+        this.referencedCallbacks = new ConcurrentHashMap<>();
+        this.referencedEngineCallbacks = new ConcurrentHashMap<>();
     }
 
     public QueryCallback add(String streamName, Set<StreamAction> actions) {
 
-        ActionControllerCallback callback = referencedCallbacks.get(streamName);
-
-        if (callback == null) {
-            callback = new StreamToActionBusCallback(actions, streamName, avroProducer,
-                    javaToSiddhiSerializer, javaToAvroSerializer);
-            referencedCallbacks.put(streamName, callback);
-        }
-
-        return callback;
+        return referencedCallbacks.computeIfAbsent(streamName, name -> new StreamToActionBusCallback(actions, name,
+                actionBusPublisher, javaToSiddhiSerializer));
     }
 
     public QueryCallback add(String streamName, Set<StreamAction> actions, String groupId) {
 
-        ActionControllerCallback callback = referencedCallbacks.get(streamName);
-
-        if (callback == null) {
-            callback = new StreamToActionBusCallback(actions, streamName, avroProducer,
-                    javaToSiddhiSerializer, javaToAvroSerializer, groupId);
-            referencedCallbacks.put(streamName, callback);
-        }
+        return referencedCallbacks.computeIfAbsent(streamName, name -> new StreamToActionBusCallback(actions, name,
+                actionBusPublisher, javaToSiddhiSerializer, groupId));
+    }
 
-        return callback;
+    /**
+     * Publishes the latest snapshot of the enabled actions of a stream to its callback. The snapshot is read while
+     * the callback entry is locked, so concurrent updates can't leave an older snapshot published after a newer one.
+     */
+    public void updateActions(String streamName, Supplier<Set<StreamAction>> actions) {
+        referencedCallbacks.computeIfPresent(streamName, (name, callback) -> {
+            callback.setActiveActions(actions.get());
+            return callback;
+        });
     }
 
     public void remove(String streamName) {
         referencedCallbacks.remove(streamName);
+        actionBusPublisher.remove(streamName);
     }
 
 
@@ -91,17 +87,8 @@ public class CallbackService {
 
         String key = streamName.concat("#").concat(action.toString());
 
-        EngineActionCallback callback = referencedEngineCallbacks.get(key);
-
-        if (callback == null) {
-
-            callback = new EngineActionCallback(streamName, engineAction, producer, kafkaToJavaSerializer,
-                    javaToSiddhiSerializer);
-
-            referencedEngineCallbacks.put(key, callback);
-        }
-
-        return callback;
+        return referencedEngineCallbacks.computeIfAbsent(key, k -> new EngineActionCallback(streamName, engineAction,
+                producer, kafkaToJavaSerializer, javaToSiddhiSerializer));
     }
 
     public void removeEngineAction(String streamName, EngineActionType action) {
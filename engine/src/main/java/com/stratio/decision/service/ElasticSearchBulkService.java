@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.rest.RestStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Long lived bulk indexing shared by every elastic search action running in the same JVM. Documents are sent when a
+ * bulk is full or when the flush interval expires, and documents rejected by a busy cluster are retried with an
+ * exponential backoff.
+ */
+public class ElasticSearchBulkService {
+
+    private static final Logger log = LoggerFactory.getLogger(ElasticSearchBulkService.class);
+
+    private final Client client;
+
+    private final BulkProcessor bulkProcessor;
+
+    private final ScheduledExecutorService retryScheduler;
+
+    private final long backoffInitialDelay;
+
+    private final int backoffMaxRetries;
+
+    private final ConcurrentMap<Long, Timer.Context> runningBulks = new ConcurrentHashMap<>();
+
+    private final Timer bulkTime;
+
+    private final Counter successCount;
+
+    private final Counter failureCount;
+
+    private final Counter retryCount;
+
+    public ElasticSearchBulkService(Client client, MetricRegistry metricRegistry, int bulkActions, long bulkSize,
+            int concurrentRequests, long flushInterval, long backoffInitialDelay, int backoffMaxRetries) {
+        this.client = client;
+        this.backoffInitialDelay = backoffInitialDelay;
+        this.backoffMaxRetries = backoffMaxRetries;
+
+        this.bulkTime = metricRegistry.timer("elasticsearch.bulk.time");
+        this.successCount = metricRegistry.counter("elasticsearch.bulk.success");
+        this.failureCount = metricRegistry.counter("elasticsearch.bulk.failures");
+        this.retryCount = metricRegistry.counter("elasticsearch.bulk.retries");
+
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setDaemon(true)
+                .setNameFormat("elasticsearch-bulk-retry-%d").build());
+
+        this.bulkProcessor = BulkProcessor.builder(client, new BulkListener())
+                .setBulkActions(bulkActions)
+                .setBulkSize(new ByteSizeValue(bulkSize))
+                .setConcurrentRequests(concurrentRequests)
+                .setFlushInterval(TimeValue.timeValueMillis(flushInterval))
+                .build();
+    }
+
+    public void add(ActionRequest request) {
+        bulkProcessor.add(request);
+    }
+
+    public void flush() {
+        bulkProcessor.flush();
+    }
+
+    public void close() {
+        bulkProcessor.close();
+        retryScheduler.shutdown();
+    }
+
+    /**
+     * Counts the bulk results and returns the requests rejected because the cluster was overloaded.
+     */
+    private List<ActionRequest> processResponse(BulkRequest request, BulkResponse response) {
+        List<ActionRequest> rejected = new ArrayList<>();
+        for (BulkItemResponse item : response.getItems()) {
+            if (!item.isFailed()) {
+                successCount.inc();
+            } else if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                rejected.add(request.requests().get(item.getItemId()));
+            } else {
+                failureCount.inc();
+                log.debug("Error indexing document into {}/{}: {}", item.getIndex(), item.getType(),
+                        item.getFailureMessage());
+            }
+        }
+        return rejected;
+    }
+
+    private boolean isRejection(Throwable failure) {
+        return ExceptionsHelper.unwrapCause(failure) instanceof EsRejectedExecutionException;
+    }
+
+    private void retry(final List<ActionRequest> requests, final int attempt) {
+        if (requests.isEmpty()) {
+            return;
+        }
+        if (attempt > backoffMaxRetries) {
+            failureCount.inc(requests.size());
+            log.error("Discarding {} documents rejected by elastic search after {} retries", requests.size(),
+                    backoffMaxRetries);
+            return;
+        }
+
+        retryCount.inc(requests.size());
+        long delay = backoffInitialDelay * (1L << (attempt - 1));
+        retryScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                final BulkRequest retryRequest = new BulkRequest();
+                for (ActionRequest request : requests) {
+                    retryRequest.add(request);
+                }
+
+                final Timer.Context time = bulkTime.time();
+                client.bulk(retryRequest, new ActionListener<BulkResponse>() {
+                    @Override
+                    public void onResponse(BulkResponse response) {
+                        time.stop();
+                        retry(processResponse(retryRequest, response), attempt + 1);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable failure) {
+                        time.stop();
+                        if (isRejection(failure)) {
+                            retry(requests, attempt + 1);
+                        } else {
+                            failureCount.inc(requests.size());
+                            log.error("Error executing elastic search bulk retry: {}", failure.getMessage());
+                        }
+                    }
+                });
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private class BulkListener implements BulkProcessor.Listener {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request) {
+            log.debug("Going to execute new elastic search bulk composed of {} actions", request.numberOfActions());
+            runningBulks.put(executionId, bulkTime.time());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            stopTimer(executionId);
+            log.debug("Executed elastic search bulk composed of {} actions", request.numberOfActions());
+            retry(processResponse(request, response), 1);
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            stopTimer(executionId);
+            if (isRejection(failure)) {
+                retry(new ArrayList<>(request.requests()), 1);
+            } else {
+                failureCount.inc(request.numberOfActions());
+                log.error("Error executing elastic search bulk: {}", failure.getMessage());
+            }
+        }
+
+        private void stopTimer(long executionId) {
+            Timer.Context time = runningBulks.remove(executionId);
+            if (time != null) {
+                time.stop();
+            }
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.stratio.decision.commons.constants.ColumnType;
+import com.stratio.decision.commons.messages.ColumnNameTypeValue;
+
+/**
+ * Names the elastic search indices of the streams. When an index date pattern is configured every stream is written
+ * into its own time based indices, created from a template with the stream column types, and indices older than the
+ * retention are deleted as a whole.
+ */
+public class ElasticSearchIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(ElasticSearchIndexService.class);
+
+    public static final String INDEX_NAME = "stratiodecision";
+
+    public static final String TIMESTAMP_FIELD = "@timestamp";
+
+    private final Client client;
+
+    private final DateTimeFormatter indexDateFormatter;
+
+    private final long retention;
+
+    private final ConcurrentMap<String, Map<String, ColumnType>> templateColumns = new ConcurrentHashMap<>();
+
+    public ElasticSearchIndexService(Client client, String indexDatePattern, long retention) {
+        this.client = client;
+        this.retention = retention;
+        if (indexDatePattern == null || indexDatePattern.isEmpty()) {
+            this.indexDateFormatter = null;
+        } else {
+            this.indexDateFormatter = new DateTimeFormatterBuilder().appendPattern(indexDatePattern)
+                    .parseDefaulting(ChronoField.MONTH_OF_YEAR, 1)
+                    .parseDefaulting(ChronoField.DAY_OF_MONTH, 1)
+                    .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+                    .toFormatter().withZone(ZoneOffset.UTC);
+        }
+    }
+
+    public boolean isRollingEnabled() {
+        return indexDateFormatter != null;
+    }
+
+    public String getIndexName(String streamName, long timestamp) {
+        if (!isRollingEnabled()) {
+            return INDEX_NAME;
+        }
+        return getIndexPrefix(streamName).concat(indexDateFormatter.format(Instant.ofEpochMilli(timestamp)));
+    }
+
+    /**
+     * Puts the index template of the stream when it has columns the current template doesn't know. Templates only
+     * apply to new indices, current ones keep mapping new columns dynamically.
+     */
+    public void ensureTemplate(String streamName, List<ColumnNameTypeValue> columns) throws IOException {
+        if (!isRollingEnabled() || containsColumns(templateColumns.get(streamName), columns)) {
+            return;
+        }
+
+        synchronized (this) {
+            Map<String, ColumnType> knownColumns = templateColumns.get(streamName);
+            if (containsColumns(knownColumns, columns)) {
+                return;
+            }
+
+            Map<String, ColumnType> templateFields = new LinkedHashMap<>();
+            if (knownColumns != null) {
+                templateFields.putAll(knownColumns);
+            }
+            for (ColumnNameTypeValue column : columns) {
+                templateFields.put(column.getColumn(), column.getType());
+            }
+
+            client.admin().indices().preparePutTemplate(getIndexPrefix(streamName).concat("template"))
+                    .setTemplate(getIndexPrefix(streamName).concat("*"))
+                    .addMapping(streamName, getMapping(streamName, templateFields))
+                    .get();
+
+            templateColumns.put(streamName, Collections.unmodifiableMap(templateFields));
+        }
+    }
+
+    /**
+     * Deletes the stream indices whose date is older than the retention.
+     *
+     * @return number of deleted indices
+     */
+    public int deleteExpiredIndices() {
+        if (!isRollingEnabled() || retention <= 0) {
+            return 0;
+        }
+
+        long limit = System.currentTimeMillis() - retention;
+        List<String> expiredIndices = new ArrayList<>();
+        GetIndexResponse response = client.admin().indices().prepareGetIndex().addIndices(INDEX_NAME.concat("-*"))
+                .get();
+        for (String index : response.getIndices()) {
+            ImmutableOpenMap<String, MappingMetaData> mappings = response.getMappings().get(index);
+            if (mappings == null) {
+                continue;
+            }
+            // stream indices hold a single mapping named as the stream
+            Iterator<String> streamNames = mappings.keysIt();
+            while (streamNames.hasNext()) {
+                Long indexTime = getIndexTime(index, getIndexPrefix(streamNames.next()));
+                if (indexTime != null && indexTime < limit) {
+                    expiredIndices.add(index);
+                    break;
+                }
+            }
+        }
+
+        if (!expiredIndices.isEmpty()) {
+            log.info("Deleting expired elastic search indices {}", expiredIndices);
+            client.admin().indices().prepareDelete(expiredIndices.toArray(new String[expiredIndices.size()])).get();
+        }
+        return expiredIndices.size();
+    }
+
+    protected Long getIndexTime(String index, String indexPrefix) {
+        if (!index.startsWith(indexPrefix)) {
+            return null;
+        }
+        try {
+            String date = index.substring(indexPrefix.length());
+            return LocalDateTime.from(indexDateFormatter.parse(date)).toInstant(ZoneOffset.UTC).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            log.warn("Index {} doesn't match the index date pattern", index);
+            return null;
+        }
+    }
+
+    protected String getIndexPrefix(String streamName) {
+        return INDEX_NAME.concat("-").concat(escapeStreamName(streamName)).concat("-");
+    }
+
+    /**
+     * Index names are lowercase and the stream name is followed by a dash, so the name is escaped to keep the indices
+     * of every stream apart: an upper case letter becomes '+' and the letter in lower case, and any character other
+     * than a lower case letter, a digit or '_' becomes "++" and its four hex digits code. Streams "Foo" and "foo" or
+     * "a" and "a-b" never share indices or match each other's index pattern.
+     */
+    protected String escapeStreamName(String streamName) {
+        StringBuilder escaped = new StringBuilder(streamName.length());
+        for (char c : streamName.toCharArray()) {
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '_') {
+                escaped.append(c);
+            } else if (c >= 'A' && c <= 'Z') {
+                escaped.append('+').append(Character.toLowerCase(c));
+            } else {
+                escaped.append("++").append(String.format("%04x", (int) c));
+            }
+        }
+        return escaped.toString();
+    }
+
+    private boolean containsColumns(Map<String, ColumnType> knownColumns, List<ColumnNameTypeValue> columns) {
+        if (knownColumns == null) {
+            return false;
+        }
+        for (ColumnNameTypeValue column : columns) {
+            if (!knownColumns.containsKey(column.getColumn())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private XContentBuilder getMapping(String streamName, Map<String, ColumnType> columns) throws IOException {
+        XContentBuilder mapping = XContentFactory.jsonBuilder().startObject().startObject(streamName)
+                .startObject("properties");
+        for (Map.Entry<String, ColumnType> column : columns.entrySet()) {
+            mapping.startObject(column.getKey()).field("type", getFieldType(column.getValue())).endObject();
+        }
+        mapping.startObject(TIMESTAMP_FIELD).field("type", "date").endObject();
+        return mapping.endObject().endObject().endObject();
+    }
+
+    private String getFieldType(ColumnType type) {
+        if (type == null) {
+            return "string";
+        }
+        switch (type) {
+        case BOOLEAN:
+            return "boolean";
+        case DOUBLE:
+            return "double";
+        case FLOAT:
+            return "float";
+        case INTEGER:
+            return "integer";
+        case LONG:
+            return "long";
+        default:
+            return "string";
+        }
+    }
+}
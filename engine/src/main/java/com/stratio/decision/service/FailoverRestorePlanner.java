@@ -0,0 +1,415 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.stratio.decision.commons.constants.EngineActionType;
+import com.stratio.decision.commons.constants.StreamAction;
+import com.stratio.decision.streams.EngineActionDTO;
+import com.stratio.decision.streams.QueryDTO;
+import com.stratio.decision.streams.StreamStatusDTO;
+
+/**
+ * Restores the stream statuses stored by the failover. Streams connected through queries form a group, groups don't
+ * share any stream and are restored in parallel. The restore goes by phases: streams, queries (the ones writing a
+ * stream before the ones reading it), inferred streams (registered once), actions and engine actions.
+ * <p>
+ * The siddhi state checkpoint is bound to the order the siddhi elements were created, so when it is enabled the
+ * restore goes instead one element at a time, in the order they were created, in a single thread.
+ */
+public class FailoverRestorePlanner {
+
+    private static final Logger log = LoggerFactory.getLogger(FailoverRestorePlanner.class);
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private static final Pattern OUTPUT_STREAM = Pattern.compile("insert\\s+into\\s+([A-Za-z_][A-Za-z0-9_]*)",
+            Pattern.CASE_INSENSITIVE);
+
+    private final StreamOperationService streamOperationService;
+
+    private final int threads;
+
+    private final boolean creationOrder;
+
+    private final AtomicInteger failures = new AtomicInteger();
+
+    public FailoverRestorePlanner(StreamOperationService streamOperationService, int threads) {
+        this(streamOperationService, threads, false);
+    }
+
+    /**
+     * @param creationOrder restore the elements in the order they were created, required by the siddhi state
+     *                      checkpoint
+     */
+    public FailoverRestorePlanner(StreamOperationService streamOperationService, int threads,
+            boolean creationOrder) {
+        if (creationOrder && threads > 1) {
+            throw new IllegalArgumentException(String.format("The restore in creation order runs in a single "
+                    + "thread, cannot use %d threads", threads));
+        }
+        this.streamOperationService = streamOperationService;
+        this.threads = threads;
+        this.creationOrder = creationOrder;
+    }
+
+    /**
+     * @return number of streams, queries or actions that could not be restored
+     */
+    public int restore(Map<String, StreamStatusDTO> streamStatuses) throws Exception {
+        long start = System.nanoTime();
+        if (creationOrder) {
+            planCreationOrder(streamStatuses).forEach(step -> step.action.run());
+            logPhase("creation order", start, 1);
+            return failures.get();
+        }
+
+        List<RestoreGroup> groups = plan(streamStatuses);
+        logPhase("plan", start, groups.size());
+
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("failover-restore-%d").setDaemon(true).build()) : null;
+        try {
+            runPhase("streams", groups, executor, this::restoreStreams);
+            runPhase("queries", groups, executor, this::restoreQueries);
+
+            start = System.nanoTime();
+            streamOperationService.registerInferredStreams();
+            logPhase("inferred streams", start, groups.size());
+
+            runPhase("actions", groups, executor, this::restoreActions);
+            runPhase("engine actions", groups, executor, this::restoreEngineActions);
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+
+        return failures.get();
+    }
+
+    List<RestoreGroup> plan(Map<String, StreamStatusDTO> streamStatuses) {
+        Map<String, String> parents = new HashMap<>();
+        for (String streamName : streamStatuses.keySet()) {
+            parents.put(streamName, streamName);
+        }
+
+        List<PlannedQuery> queries = new ArrayList<>();
+        for (StreamStatusDTO streamStatus : streamStatuses.values()) {
+            for (QueryDTO query : streamStatus.getAddedQueries().values()) {
+                PlannedQuery plannedQuery = new PlannedQuery(streamStatus.getStreamName(), query.getQueryRaw(),
+                        streamStatuses.keySet());
+                queries.add(plannedQuery);
+                for (String referencedStream : plannedQuery.streams) {
+                    union(parents, streamStatus.getStreamName(), referencedStream);
+                }
+            }
+        }
+
+        Map<String, RestoreGroup> groups = new LinkedHashMap<>();
+        for (StreamStatusDTO streamStatus : streamStatuses.values()) {
+            groups.computeIfAbsent(find(parents, streamStatus.getStreamName()), root -> new RestoreGroup()).streams
+                    .add(streamStatus);
+        }
+        for (PlannedQuery query : queries) {
+            groups.get(find(parents, query.streamName)).queries.add(query);
+        }
+        for (RestoreGroup group : groups.values()) {
+            group.queries = sortByDependencies(group.queries);
+        }
+
+        return new ArrayList<>(groups.values());
+    }
+
+    /**
+     * Orders every stream, query, action query and engine action by its creation order. Elements without one, stored
+     * by an older version, go first in the phase order, and ties are broken by stream name so every node plans the
+     * same sequence.
+     */
+    List<RestoreStep> planCreationOrder(Map<String, StreamStatusDTO> streamStatuses) {
+        List<RestoreStep> steps = new ArrayList<>();
+        for (StreamStatusDTO stream : streamStatuses.values()) {
+            String streamName = stream.getStreamName();
+            steps.add(new RestoreStep(stream.getCreationOrder(), RestoreStep.Kind.STREAM, streamName, "", () -> {
+                // inferred streams are already registered by the query writing into them
+                if (!Boolean.FALSE.equals(stream.getUserDefined()) || !streamOperationService.streamExist(
+                        streamName)) {
+                    restoreStream(stream);
+                }
+            }));
+            for (QueryDTO query : stream.getAddedQueries().values()) {
+                steps.add(new RestoreStep(query.getCreationOrder(), RestoreStep.Kind.QUERY, streamName, query
+                        .getQueryRaw(), () -> restoreQuery(streamName, query.getQueryRaw(), true)));
+            }
+            if (!stream.getActionsEnabled().isEmpty()) {
+                steps.add(new RestoreStep(stream.getActionQueryCreationOrder(), RestoreStep.Kind.ACTIONS, streamName,
+                        "", () -> restoreStreamActions(stream)));
+            }
+            for (Map.Entry<EngineActionType, EngineActionDTO> engineAction : stream.getEngineActionsEnabled()
+                    .entrySet()) {
+                steps.add(new RestoreStep(engineAction.getValue().getCreationOrder(), RestoreStep.Kind.ENGINE_ACTION,
+                        streamName, engineAction.getKey().name(), () -> restoreEngineAction(stream, engineAction)));
+            }
+        }
+
+        steps.sort(Comparator.<RestoreStep>comparingLong(step -> step.creationOrder).thenComparing(step -> step.kind)
+                .thenComparing(step -> step.streamName).thenComparing(step -> step.element));
+        return steps;
+    }
+
+    private void restoreStreams(RestoreGroup group) {
+        group.streams.forEach(this::restoreStream);
+    }
+
+    private void restoreQueries(RestoreGroup group) {
+        for (PlannedQuery query : group.queries) {
+            restoreQuery(query.streamName, query.queryRaw, false);
+        }
+    }
+
+    private void restoreActions(RestoreGroup group) {
+        group.streams.forEach(this::restoreStreamActions);
+    }
+
+    private void restoreEngineActions(RestoreGroup group) {
+        for (StreamStatusDTO stream : group.streams) {
+            for (Map.Entry<EngineActionType, EngineActionDTO> engineAction : stream.getEngineActionsEnabled()
+                    .entrySet()) {
+                restoreEngineAction(stream, engineAction);
+            }
+        }
+    }
+
+    private void restoreStream(StreamStatusDTO stream) {
+        try {
+            if (Boolean.FALSE.equals(stream.getUserDefined())) {
+                streamOperationService.createInternalStream(stream.getStreamName(), stream.getStreamDefinition());
+            } else {
+                streamOperationService.createStream(stream.getStreamName(), stream.getStreamDefinition());
+            }
+        } catch (RuntimeException e) {
+            failed("stream " + stream.getStreamName(), e);
+        }
+    }
+
+    private void restoreQuery(String streamName, String queryRaw, boolean registerInferredStreams) {
+        try {
+            if (registerInferredStreams) {
+                streamOperationService.addQuery(streamName, queryRaw);
+            } else {
+                streamOperationService.addQueryWithoutInferredStreams(streamName, queryRaw);
+            }
+        } catch (RuntimeException e) {
+            failed("query " + queryRaw, e);
+        }
+    }
+
+    private void restoreStreamActions(StreamStatusDTO stream) {
+        for (StreamAction action : stream.getActionsEnabled()) {
+            try {
+                streamOperationService.enableAction(stream.getStreamName(), action);
+            } catch (RuntimeException e) {
+                failed("action " + action + " of stream " + stream.getStreamName(), e);
+            }
+        }
+    }
+
+    private void restoreEngineAction(StreamStatusDTO stream, Map.Entry<EngineActionType, EngineActionDTO>
+            engineAction) {
+        try {
+            streamOperationService.enableEngineAction(stream.getStreamName(), engineAction.getKey(),
+                    engineAction.getValue().getEngineActionParameters());
+        } catch (RuntimeException e) {
+            failed("engine action " + engineAction.getKey() + " of stream " + stream.getStreamName(), e);
+        }
+    }
+
+    private void runPhase(String phase, List<RestoreGroup> groups, ExecutorService executor,
+            Consumer<RestoreGroup> step) throws Exception {
+        long start = System.nanoTime();
+        if (executor == null) {
+            groups.forEach(step);
+        } else {
+            List<Future<?>> futures = new ArrayList<>(groups.size());
+            for (RestoreGroup group : groups) {
+                futures.add(executor.submit(() -> step.accept(group)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        logPhase(phase, start, groups.size());
+    }
+
+    private void logPhase(String phase, long start, int groups) {
+        log.info("Failover restore phase {} done in {} ms, {} stream groups", phase,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), groups);
+    }
+
+    private void failed(String element, RuntimeException e) {
+        failures.incrementAndGet();
+        log.error("Failover restore error. Cannot restore {}", element, e);
+    }
+
+    /**
+     * Orders the queries so that the ones writing into a stream go before the ones reading from it. Queries in a
+     * cycle keep their original order.
+     */
+    private static List<PlannedQuery> sortByDependencies(List<PlannedQuery> queries) {
+        Map<PlannedQuery, Integer> pendingInputs = new LinkedHashMap<>();
+        Map<String, List<PlannedQuery>> readers = new HashMap<>();
+        Map<String, Integer> writers = new HashMap<>();
+
+        for (PlannedQuery query : queries) {
+            if (query.output != null) {
+                writers.merge(query.output, 1, Integer::sum);
+            }
+        }
+        for (PlannedQuery query : queries) {
+            int inputs = 0;
+            for (String stream : query.streams) {
+                if (!stream.equals(query.output) && writers.containsKey(stream)) {
+                    readers.computeIfAbsent(stream, s -> new ArrayList<>()).add(query);
+                    inputs += writers.get(stream);
+                }
+            }
+            pendingInputs.put(query, inputs);
+        }
+
+        List<PlannedQuery> sorted = new ArrayList<>(queries.size());
+        Deque<PlannedQuery> ready = new ArrayDeque<>();
+        pendingInputs.forEach((query, inputs) -> {
+            if (inputs == 0) {
+                ready.add(query);
+            }
+        });
+        while (!ready.isEmpty()) {
+            PlannedQuery query = ready.poll();
+            sorted.add(query);
+            if (query.output != null) {
+                for (PlannedQuery reader : readers.getOrDefault(query.output, new ArrayList<>())) {
+                    if (pendingInputs.merge(reader, -1, Integer::sum) == 0) {
+                        ready.add(reader);
+                    }
+                }
+            }
+        }
+
+        if (sorted.size() < queries.size()) {
+            for (PlannedQuery query : queries) {
+                if (pendingInputs.get(query) > 0) {
+                    sorted.add(query);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    private static String find(Map<String, String> parents, String streamName) {
+        String root = streamName;
+        while (!root.equals(parents.get(root))) {
+            root = parents.get(root);
+        }
+        parents.put(streamName, root);
+        return root;
+    }
+
+    private static void union(Map<String, String> parents, String stream, String otherStream) {
+        parents.put(find(parents, otherStream), find(parents, stream));
+    }
+
+    static class RestoreStep {
+
+        enum Kind {
+            STREAM, QUERY, ACTIONS, ENGINE_ACTION
+        }
+
+        final long creationOrder;
+
+        final Kind kind;
+
+        final String streamName;
+
+        /** query or engine action the step restores, empty for the stream and its actions */
+        final String element;
+
+        final Runnable action;
+
+        RestoreStep(long creationOrder, Kind kind, String streamName, String element, Runnable action) {
+            this.creationOrder = creationOrder;
+            this.kind = kind;
+            this.streamName = streamName;
+            this.element = element;
+            this.action = action;
+        }
+    }
+
+    static class RestoreGroup {
+
+        final List<StreamStatusDTO> streams = new ArrayList<>();
+
+        List<PlannedQuery> queries = new ArrayList<>();
+    }
+
+    static class PlannedQuery {
+
+        final String streamName;
+
+        final String queryRaw;
+
+        final String output;
+
+        /** stored streams the query reads from or writes into */
+        final Set<String> streams = new HashSet<>();
+
+        PlannedQuery(String streamName, String queryRaw, Set<String> knownStreams) {
+            this.streamName = streamName;
+            this.queryRaw = queryRaw;
+
+            Matcher output = OUTPUT_STREAM.matcher(queryRaw);
+            this.output = output.find() && knownStreams.contains(output.group(1)) ? output.group(1) : null;
+
+            Matcher identifiers = IDENTIFIER.matcher(queryRaw);
+            while (identifiers.find()) {
+                if (knownStreams.contains(identifiers.group())) {
+                    streams.add(identifiers.group());
+                }
+            }
+        }
+    }
+}
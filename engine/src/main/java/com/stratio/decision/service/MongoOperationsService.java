@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteException;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+
+/**
+ * Writes stream documents into the decision mongo database. Collection handles are cached and their indexes created
+ * once per JVM, and the bulks of different collections run concurrently on a bounded pool.
+ */
+public class MongoOperationsService {
+
+    private static final Logger log = LoggerFactory.getLogger(MongoOperationsService.class);
+
+    public static final String TIMESTAMP_FIELD = "timestamp";
+
+    private final DB db;
+
+    private final MetricRegistry metricRegistry;
+
+    private final WriteConcern writeConcern;
+
+    private final boolean ordered;
+
+    private final ThreadPoolExecutor bulkExecutor;
+
+    private final ConcurrentMap<String, DBCollection> collections = new ConcurrentHashMap<>();
+
+    public MongoOperationsService(DB db, MetricRegistry metricRegistry, WriteConcern writeConcern, boolean ordered,
+            int concurrentBulks) {
+        this.db = db;
+        this.metricRegistry = metricRegistry;
+        this.writeConcern = writeConcern;
+        this.ordered = ordered;
+        // Bulks that do not fit in the queue are run by the calling thread, which also throttles the producer
+        this.bulkExecutor = new ThreadPoolExecutor(concurrentBulks, concurrentBulks, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(concurrentBulks * 2), new ThreadFactoryBuilder().setDaemon(true)
+                        .setNameFormat("mongo-bulk-%d").build(), new ThreadPoolExecutor.CallerRunsPolicy());
+        this.bulkExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    public DB getDB() {
+        return db;
+    }
+
+    /**
+     * Returns the cached collection of the stream, creating its timestamp index the first time it is used.
+     */
+    public DBCollection getCollection(String streamName) {
+        DBCollection collection = collections.get(streamName);
+        if (collection == null) {
+            collection = db.getCollection(streamName);
+            collection.createIndex(new BasicDBObject(TIMESTAMP_FIELD, -1));
+            DBCollection previous = collections.putIfAbsent(streamName, collection);
+            if (previous != null) {
+                collection = previous;
+            }
+        }
+        return collection;
+    }
+
+    /**
+     * Inserts the documents of every stream, one bulk per stream, and waits for all of them. Returns the number of
+     * documents that could not be written.
+     */
+    public int insert(Map<String, List<DBObject>> documentsByStream) throws InterruptedException {
+        List<Future<Integer>> results = new ArrayList<>();
+        for (Map.Entry<String, List<DBObject>> documents : documentsByStream.entrySet()) {
+            if (!documents.getValue().isEmpty()) {
+                results.add(bulkExecutor.submit(new BulkInsert(documents.getKey(), documents.getValue())));
+            }
+        }
+
+        int failed = 0;
+        for (Future<Integer> result : results) {
+            try {
+                failed += result.get();
+            } catch (ExecutionException e) {
+                log.error("Error running mongo bulk insert", e.getCause());
+            }
+        }
+        return failed;
+    }
+
+    public void close() {
+        bulkExecutor.shutdown();
+    }
+
+    private BulkWriteOperation initializeBulkOperation(DBCollection collection) {
+        if (ordered) {
+            return collection.initializeOrderedBulkOperation();
+        } else {
+            return collection.initializeUnorderedBulkOperation();
+        }
+    }
+
+    private class BulkInsert implements Callable<Integer> {
+
+        private final String streamName;
+
+        private final List<DBObject> documents;
+
+        BulkInsert(String streamName, List<DBObject> documents) {
+            this.streamName = streamName;
+            this.documents = documents;
+        }
+
+        @Override
+        public Integer call() throws Exception {
+            BulkWriteOperation bulk = initializeBulkOperation(getCollection(streamName));
+            for (DBObject document : documents) {
+                bulk.insert(document);
+            }
+
+            Timer.Context time = metricRegistry.timer("mongo.bulk." + streamName).time();
+            int failed = 0;
+            try {
+                bulk.execute(writeConcern);
+            } catch (BulkWriteException e) {
+                failed = ordered ? documents.size() - e.getWriteResult().getInsertedCount() : e.getWriteErrors()
+                        .size();
+                log.error("Error inserting {} documents into {}: {}", failed, streamName, e.getMessage());
+            } catch (MongoException e) {
+                failed = documents.size();
+                log.error("Error inserting {} documents into {}: {}", failed, streamName, e.getMessage());
+            } finally {
+                time.stop();
+            }
+
+            if (failed > 0) {
+                metricRegistry.counter("mongo.bulk." + streamName + ".errors").inc(failed);
+            }
+            return failed;
+        }
+    }
+}
@@ -15,25 +15,48 @@
  */
 package com.stratio.decision.service;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.ColumnDefinitions;
 import com.datastax.driver.core.ColumnMetadata;
 import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.KeyspaceMetadata;
+import com.datastax.driver.core.Metadata;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.SchemaChangeListenerBase;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.TableMetadata;
 import com.datastax.driver.core.exceptions.AlreadyExistsException;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.core.utils.UUIDs;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.stratio.decision.commons.constants.STREAMING;
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
+import com.stratio.decision.configuration.CassandraTableConfigurationBean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
 
 
 public class SaveToCassandraOperationsService {
@@ -42,12 +65,58 @@ public class SaveToCassandraOperationsService {
 
     private  final Session session;
 
-    private HashMap<String, Integer> tablenames = new HashMap<>();
+    private final ConcurrentMap<String, Set<String>> tableColumns = new ConcurrentHashMap<>();
+
+    private final Set<String> shardedTables = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean keyspaceChecked = false;
+
+    private TableSchemaChangeListener schemaChangeListener;
+
+    private final ConcurrentMap<String, PreparedStatement> insertStatements = new ConcurrentHashMap<>();
+
+    private final Counter insertStatementHits;
+
+    private final Counter insertStatementMisses;
+
+    private final MetricRegistry metricRegistry;
+
+    private final Semaphore inFlightRequests;
+
+    private final CassandraTableConfigurationBean tableConfiguration;
+
+    private static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 256;
+
+    public static final String TIME_BUCKET_COLUMN = "time_bucket";
+
+    private static final Comparator<ColumnNameTypeValue> COLUMN_NAME_COMPARATOR = new Comparator<ColumnNameTypeValue>() {
+        @Override
+        public int compare(ColumnNameTypeValue column1, ColumnNameTypeValue column2) {
+            return column1.getColumn().compareTo(column2.getColumn());
+        }
+    };
 
     public SaveToCassandraOperationsService(Session session) {
+        this(session, new MetricRegistry());
+    }
 
-        this.session = session;
+    public SaveToCassandraOperationsService(Session session, MetricRegistry metricRegistry) {
+        this(session, metricRegistry, DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+    }
+
+    public SaveToCassandraOperationsService(Session session, MetricRegistry metricRegistry, int maxInFlightRequests) {
+        this(session, metricRegistry, maxInFlightRequests, new CassandraTableConfigurationBean());
+    }
 
+    public SaveToCassandraOperationsService(Session session, MetricRegistry metricRegistry, int maxInFlightRequests,
+            CassandraTableConfigurationBean tableConfiguration) {
+
+        this.session = session;
+        this.tableConfiguration = tableConfiguration;
+        this.metricRegistry = metricRegistry;
+        this.inFlightRequests = new Semaphore(maxInFlightRequests);
+        this.insertStatementHits = metricRegistry.counter("cassandra.insert.statements.cache.hits");
+        this.insertStatementMisses = metricRegistry.counter("cassandra.insert.statements.cache.misses");
 
     }
 
@@ -64,29 +133,120 @@ public class SaveToCassandraOperationsService {
     }
 
     public void refreshTablenames() {
-        Collection<TableMetadata> tableMetadatas = session.getCluster().getMetadata()
-                .getKeyspace(STREAMING.STREAMING_KEYSPACE_NAME).getTables();
-        tablenames = new HashMap<>();
-        for (TableMetadata tableMetadata : tableMetadatas) {
-            Set<String> columns = new HashSet<>();
-            for (ColumnMetadata columnMetadata : tableMetadata.getColumns()) {
-                columns.add(columnMetadata.getName());
+        KeyspaceMetadata keyspaceMetadata = session.getCluster().getMetadata()
+                .getKeyspace(STREAMING.STREAMING_KEYSPACE_NAME);
+        if (keyspaceMetadata == null) {
+            tableColumns.clear();
+            shardedTables.clear();
+            return;
+        }
+
+        Set<String> tableNames = new HashSet<>();
+        for (TableMetadata tableMetadata : keyspaceMetadata.getTables()) {
+            updateTableColumns(tableMetadata);
+            tableNames.add(tableMetadata.getName());
+        }
+        tableColumns.keySet().retainAll(tableNames);
+        shardedTables.retainAll(tableNames);
+    }
+
+    /**
+     * Creates the keyspace and loads the table registry the first time it is called. From then on the registry is
+     * kept up to date by the DDL run through this service and by the driver schema change events.
+     */
+    public void checkKeyspace() {
+        if (keyspaceChecked) {
+            return;
+        }
+
+        synchronized (this) {
+            if (!keyspaceChecked && session != null) {
+                Cluster cluster = session.getCluster();
+                if (cluster.getMetadata().getKeyspace(STREAMING.STREAMING_KEYSPACE_NAME) == null) {
+                    createKeyspace(STREAMING.STREAMING_KEYSPACE_NAME);
+                }
+                if (schemaChangeListener == null) {
+                    schemaChangeListener = new TableSchemaChangeListener();
+                    cluster.register(schemaChangeListener);
+                }
+                refreshTablenames();
+                keyspaceChecked = true;
             }
-            tablenames.put(tableMetadata.getName(), columns.hashCode());
         }
     }
 
+    /**
+     * Creates the stream table or adds the missing columns to it, unless the registry already knows all of them.
+     */
+    public void ensureTable(String streamName, List<ColumnNameTypeValue> columns, String timestampColumnName) {
+        if (containsColumns(tableColumns.get(streamName), columns)) {
+            return;
+        }
 
-    public void checkKeyspace() {
+        synchronized (this) {
+            if (tableColumns.get(streamName) == null) {
+                createTable(streamName, columns, timestampColumnName);
+            }
+            Set<String> knownColumns = tableColumns.get(streamName);
+            if (knownColumns != null && !containsColumns(knownColumns, columns)) {
+                alterTable(streamName, knownColumns, columns);
+            }
+        }
+    }
+
+    public Set<String> getTableColumns(String streamName) {
+        return tableColumns.get(streamName);
+    }
+
+    private boolean containsColumns(Set<String> knownColumns, List<ColumnNameTypeValue> columns) {
+        if (knownColumns == null) {
+            return false;
+        }
+        for (ColumnNameTypeValue column : columns) {
+            if (!knownColumns.contains(column.getColumn())) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        if (session!= null && session.getCluster().getMetadata().getKeyspace
-                (STREAMING.STREAMING_KEYSPACE_NAME) == null) {
-            createKeyspace(STREAMING.STREAMING_KEYSPACE_NAME);
+    private void updateTableColumns(TableMetadata tableMetadata) {
+        Set<String> columns = new HashSet<>();
+        for (ColumnMetadata columnMetadata : tableMetadata.getColumns()) {
+            columns.add(columnMetadata.getName());
         }
+        tableColumns.put(tableMetadata.getName(), Collections.unmodifiableSet(columns));
 
-        refreshTablenames();
+        String shardColumn = tableConfiguration.getShardColumn();
+        boolean sharded = false;
+        for (ColumnMetadata partitionKeyColumn : tableMetadata.getPartitionKey()) {
+            sharded |= partitionKeyColumn.getName().equals(shardColumn);
+        }
+        if (sharded) {
+            shardedTables.add(tableMetadata.getName());
+        } else {
+            shardedTables.remove(tableMetadata.getName());
+        }
     }
 
+    private void refreshTable(String tableName) {
+        KeyspaceMetadata keyspaceMetadata = session.getCluster().getMetadata()
+                .getKeyspace(STREAMING.STREAMING_KEYSPACE_NAME);
+        TableMetadata tableMetadata = keyspaceMetadata == null ? null : keyspaceMetadata.getTable(Metadata.quote(
+                tableName));
+        if (tableMetadata != null) {
+            updateTableColumns(tableMetadata);
+        }
+    }
+
+    private void addTableColumns(String tableName, Collection<String> columnNames) {
+        Set<String> columns = new HashSet<>(columnNames);
+        Set<String> knownColumns = tableColumns.get(tableName);
+        if (knownColumns != null) {
+            columns.addAll(knownColumns);
+        }
+        tableColumns.put(tableName, Collections.unmodifiableSet(columns));
+    }
 
     public void createKeyspace(String keyspaceName) {
         session.execute(String.format(
@@ -96,20 +256,56 @@ public class SaveToCassandraOperationsService {
 
     public void createTable(String tableName, List<ColumnNameTypeValue> columns, String timestampColumnName) {
         StringBuilder sb = new StringBuilder();
+        HashMap<String, String> fieldsAndTypes = getStreamFieldsAndTypes(columns);
+        Set<String> columnNames = new HashSet<>(fieldsAndTypes.keySet());
+        columnNames.add(timestampColumnName);
 
-        for (Entry<String, String> entry : getStreamFieldsAndTypes(columns).entrySet()) {
+        for (Entry<String, String> entry : fieldsAndTypes.entrySet()) {
             sb.append(addQuotes(entry.getKey()));
             sb.append(" ");
             sb.append(entry.getValue());
             sb.append(",");
         }
+
+        String primaryKey = addQuotes(timestampColumnName);
+        StringBuilder options = new StringBuilder(String.format("compression = {'sstable_compression': '%s'}",
+                tableConfiguration.getCompression()));
+
+        boolean sharded = false;
+        if (tableConfiguration.getLayout() == CassandraTableConfigurationBean.Layout.TIME_BUCKETED) {
+            String partitionKey = addQuotes(TIME_BUCKET_COLUMN);
+            String shardColumn = tableConfiguration.getShardColumn();
+            if (shardColumn != null && fieldsAndTypes.containsKey(shardColumn)) {
+                partitionKey = partitionKey.concat(", ").concat(addQuotes(shardColumn));
+                sharded = true;
+            }
+            sb.append(addQuotes(TIME_BUCKET_COLUMN)).append(" ").append(DataType.Name.BIGINT.toString()).append(",");
+            columnNames.add(TIME_BUCKET_COLUMN);
+            primaryKey = String.format("(%s), %s", partitionKey, addQuotes(timestampColumnName));
+            options.append(String.format(" AND CLUSTERING ORDER BY (%s DESC)", addQuotes(timestampColumnName)));
+        }
+        if (tableConfiguration.getTimeWindowCompaction()) {
+            options.append(String.format(" AND compaction = {'class': 'TimeWindowCompactionStrategy', "
+                            + "'compaction_window_unit': '%s', 'compaction_window_size': %s}",
+                    tableConfiguration.getBucketUnit().name(), tableConfiguration.getBucketSize()));
+        }
+        int ttl = tableConfiguration.getTtl(tableName);
+        if (ttl > 0) {
+            options.append(String.format(" AND default_time_to_live = %s", ttl));
+        }
+
         try {
             session.execute(String
-                    .format("CREATE TABLE %s.%s (%s timeuuid, %s PRIMARY KEY (%s)) WITH compression = {'sstable_compression': ''}",
+                    .format("CREATE TABLE %s.%s (%s timeuuid, %s PRIMARY KEY (%s)) WITH %s",
                             STREAMING.STREAMING_KEYSPACE_NAME, addQuotes(tableName), addQuotes(timestampColumnName),
-                            sb.toString(), addQuotes(timestampColumnName)));
+                            sb.toString(), primaryKey, options.toString()));
+            if (sharded) {
+                shardedTables.add(tableName);
+            }
+            addTableColumns(tableName, columnNames);
         } catch (AlreadyExistsException e) {
             log.info("Stream table {} already exists", tableName);
+            refreshTable(tableName);
         }
     }
 
@@ -122,18 +318,170 @@ public class SaveToCassandraOperationsService {
         return insert;
     }
 
+    /**
+     * Binds the column values to a prepared insert statement. Statements are cached by stream and column set, so
+     * columns are bound in column name order. Rows of time bucketed tables get the bucket of their timeuuid.
+     */
+    public BoundStatement createBoundInsertStatement(String streamName, List<ColumnNameTypeValue> columns,
+            String timestampColumnName) {
+        List<ColumnNameTypeValue> orderedColumns = new ArrayList<>(columns);
+        Collections.sort(orderedColumns, COLUMN_NAME_COMPARATOR);
+
+        StringBuilder key = new StringBuilder(getInsertStatementKeyPrefix(streamName));
+        for (ColumnNameTypeValue column : orderedColumns) {
+            key.append(column.getColumn()).append(',');
+        }
+        Set<String> knownColumns = tableColumns.get(streamName);
+        boolean timeBucketed = knownColumns != null && knownColumns.contains(TIME_BUCKET_COLUMN);
+        if (shardedTables.contains(streamName)) {
+            checkShardValue(streamName, orderedColumns);
+        }
+        if (timeBucketed) {
+            key.append(TIME_BUCKET_COLUMN);
+        }
+
+        PreparedStatement preparedStatement = insertStatements.get(key.toString());
+        if (preparedStatement == null) {
+            insertStatementMisses.inc();
+            Insert insert = QueryBuilder.insertInto(addQuotes(STREAMING.STREAMING_KEYSPACE_NAME), addQuotes(streamName));
+            for (ColumnNameTypeValue column : orderedColumns) {
+                insert.value(addQuotes(column.getColumn()), QueryBuilder.bindMarker());
+            }
+            insert.value(addQuotes(timestampColumnName), QueryBuilder.bindMarker());
+            if (timeBucketed) {
+                insert.value(addQuotes(TIME_BUCKET_COLUMN), QueryBuilder.bindMarker());
+            }
+            preparedStatement = session.prepare(insert);
+            insertStatements.put(key.toString(), preparedStatement);
+        } else {
+            insertStatementHits.inc();
+        }
+
+        ColumnDefinitions variables = preparedStatement.getVariables();
+        Object[] values = new Object[orderedColumns.size() + (timeBucketed ? 2 : 1)];
+        for (int i = 0; i < orderedColumns.size(); i++) {
+            values[i] = toCassandraValue(orderedColumns.get(i).getValue(), variables.getType(i));
+        }
+        UUID timestamp = UUIDs.timeBased();
+        values[orderedColumns.size()] = timestamp;
+        if (timeBucketed) {
+            values[orderedColumns.size() + 1] = getTimeBucket(UUIDs.unixTimestamp(timestamp));
+        }
+
+        return preparedStatement.bind(values);
+    }
+
+    /**
+     * Executes the statement asynchronously, waiting first while the max number of in flight requests is reached.
+     * Write latencies are recorded per stream.
+     */
+    public ResultSetFuture executeAsync(final String streamName, Statement statement) throws InterruptedException {
+        inFlightRequests.acquire();
+
+        final Timer.Context latency = metricRegistry.timer(MetricRegistry.name("cassandra.write", streamName)).time();
+        ResultSetFuture future;
+        try {
+            future = session.executeAsync(statement);
+        } catch (RuntimeException e) {
+            inFlightRequests.release();
+            throw e;
+        }
+
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet result) {
+                latency.stop();
+                inFlightRequests.release();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                latency.stop();
+                inFlightRequests.release();
+                log.debug("Error writing to Cassandra stream {}: {}", streamName, t.getMessage());
+            }
+        });
+
+        return future;
+    }
+
     public void alterTable(String streamName, Set<String> oldColumnNames, List<ColumnNameTypeValue> columns) {
 
         StringBuilder sb = new StringBuilder();
+        List<String> addedColumns = new ArrayList<>();
 
         for (Entry<String, String> entry : getStreamFieldsAndTypes(columns).entrySet()) {
             if (!oldColumnNames.contains(entry.getKey())) {
                 sb.append(String.format("ALTER TABLE %s.%s ADD %s %s;", STREAMING.STREAMING_KEYSPACE_NAME,
                         addQuotes(streamName), addQuotes(entry.getKey()), entry.getValue()));
+                addedColumns.add(entry.getKey());
             }
         }
         if (!"".equals(sb.toString())) {
             session.execute(sb.toString());
+            addTableColumns(streamName, addedColumns);
+            invalidateInsertStatements(streamName);
+        }
+    }
+
+    public void invalidateInsertStatements(String streamName) {
+        String keyPrefix = getInsertStatementKeyPrefix(streamName);
+        for (String key : insertStatements.keySet()) {
+            if (key.startsWith(keyPrefix)) {
+                insertStatements.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Rows of tables partitioned by the shard column must have a value for it, otherwise their partition key would be
+     * incomplete.
+     */
+    private void checkShardValue(String streamName, List<ColumnNameTypeValue> columns) {
+        String shardColumn = tableConfiguration.getShardColumn();
+        for (ColumnNameTypeValue column : columns) {
+            if (column.getColumn().equals(shardColumn) && column.getValue() != null) {
+                return;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Row of stream %s has no value for the shard column %s",
+                streamName, shardColumn));
+    }
+
+    public long getTimeBucket(long timestamp) {
+        long bucketMillis = tableConfiguration.getBucketMillis();
+        return timestamp - (timestamp % bucketMillis);
+    }
+
+    private String getInsertStatementKeyPrefix(String streamName) {
+        return streamName.concat(":");
+    }
+
+    /**
+     * Bound values must match the column type exactly, unlike inline CQL literals. Long stream columns are stored as
+     * double and some clients send every value as a string.
+     */
+    private Object toCassandraValue(Object value, DataType type) {
+        if (value == null) {
+            return null;
+        }
+
+        switch (type.getName()) {
+        case BOOLEAN:
+            return value instanceof Boolean ? value : Boolean.valueOf(value.toString());
+        case DOUBLE:
+            return value instanceof Number ? ((Number) value).doubleValue() : Double.valueOf(value.toString());
+        case FLOAT:
+            return value instanceof Number ? ((Number) value).floatValue() : Float.valueOf(value.toString());
+        case INT:
+            return value instanceof Number ? ((Number) value).intValue() : Integer.valueOf(value.toString());
+        case BIGINT:
+            return value instanceof Number ? ((Number) value).longValue() : Long.valueOf(value.toString());
+        case TEXT:
+        case VARCHAR:
+            return value.toString();
+        default:
+            return value;
         }
     }
 
@@ -172,14 +520,49 @@ public class SaveToCassandraOperationsService {
         return fields;
     }
 
-    public HashMap<String, Integer> getTableNames(){
-        return tablenames;
-    }
 
     public Session getSession(){
         return session;
     }
 
+    private class TableSchemaChangeListener extends SchemaChangeListenerBase {
+
+        @Override
+        public void onTableAdded(TableMetadata table) {
+            if (isStreamingTable(table)) {
+                updateTableColumns(table);
+            }
+        }
+
+        @Override
+        public void onTableChanged(TableMetadata current, TableMetadata previous) {
+            if (isStreamingTable(current)) {
+                updateTableColumns(current);
+                invalidateInsertStatements(current.getName());
+            }
+        }
+
+        @Override
+        public void onTableRemoved(TableMetadata table) {
+            if (isStreamingTable(table)) {
+                tableColumns.remove(table.getName());
+                shardedTables.remove(table.getName());
+                invalidateInsertStatements(table.getName());
+            }
+        }
 
+        @Override
+        public void onKeyspaceRemoved(KeyspaceMetadata keyspace) {
+            if (STREAMING.STREAMING_KEYSPACE_NAME.equals(keyspace.getName())) {
+                keyspaceChecked = false;
+                tableColumns.clear();
+                shardedTables.clear();
+                insertStatements.clear();
+            }
+        }
 
+        private boolean isStreamingTable(TableMetadata table) {
+            return STREAMING.STREAMING_KEYSPACE_NAME.equals(table.getKeyspace().getName());
+        }
+    }
 }
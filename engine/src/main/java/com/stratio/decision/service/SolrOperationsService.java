@@ -18,6 +18,7 @@ package com.stratio.decision.service;
 import com.stratio.decision.commons.constants.ColumnType;
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.configuration.ConfigurationContext.SolrCommitPolicy;
 import org.apache.commons.io.FileUtils;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
@@ -25,6 +26,7 @@ import org.apache.solr.client.solrj.impl.CloudSolrClient;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.request.CoreAdminRequest;
 import org.apache.solr.client.solrj.response.CoreAdminResponse;
+import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CoreAdminParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,7 +48,10 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class SolrOperationsService {
 
@@ -60,11 +65,86 @@ public class SolrOperationsService {
 
     private Boolean isCloud;
 
+    private SolrCommitPolicy commitPolicy;
+
+    private int commitWithin;
+
+    private volatile SolrClient solrClient;
+
+    private final Set<String> cores = ConcurrentHashMap.newKeySet();
+
     public SolrOperationsService(String solrHosts, String zkHosts, String dataDir, Boolean isCloud) {
+        this(solrHosts, zkHosts, dataDir, isCloud, SolrCommitPolicy.EXPLICIT, 0);
+    }
+
+    public SolrOperationsService(String solrHosts, String zkHosts, String dataDir, Boolean isCloud,
+            SolrCommitPolicy commitPolicy, int commitWithin) {
         this.solrHosts = solrHosts;
         this.zkHosts = zkHosts;
         this.dataDir = dataDir;
         this.isCloud = isCloud;
+        this.commitPolicy = commitPolicy;
+        this.commitWithin = commitWithin;
+    }
+
+    public SolrOperationsService(String solrHosts, String zkHosts, String dataDir, Boolean isCloud,
+            SolrCommitPolicy commitPolicy, int commitWithin, SolrClient solrClient) {
+        this(solrHosts, zkHosts, dataDir, isCloud, commitPolicy, commitWithin);
+        this.solrClient = solrClient;
+    }
+
+    /**
+     * Creates the core of the message stream unless it is already known. The cached core list is only refreshed
+     * when it misses the core.
+     */
+    public void ensureCore(StratioStreamingMessage message) throws IOException, URISyntaxException,
+            SolrServerException, ParserConfigurationException, SAXException, TransformerException,
+            InterruptedException {
+        String core = message.getStreamName();
+        if (cores.contains(core)) {
+            return;
+        }
+
+        synchronized (cores) {
+            if (cores.contains(core)) {
+                return;
+            }
+            cores.addAll(getCoreList());
+            if (!cores.contains(core)) {
+                createCore(message);
+                cores.add(core);
+            }
+        }
+    }
+
+    /**
+     * Adds the documents to the core, asking solr to commit them within the configured time when the commit policy
+     * is COMMIT_WITHIN.
+     */
+    public void add(String core, Collection<SolrInputDocument> documents) throws IOException, SolrServerException {
+        if (commitPolicy == SolrCommitPolicy.COMMIT_WITHIN) {
+            getSolrclient(core).add(core, documents, commitWithin);
+        } else {
+            getSolrclient(core).add(core, documents);
+        }
+    }
+
+    /**
+     * Commits the given cores following the commit policy. Nothing is done for COMMIT_WITHIN.
+     */
+    public void commit(Collection<String> cores) throws IOException, SolrServerException {
+        if (commitPolicy == SolrCommitPolicy.COMMIT_WITHIN) {
+            return;
+        }
+        for (String core : cores) {
+            getSolrclient(core).commit(core, true, true, commitPolicy == SolrCommitPolicy.SOFT);
+        }
+    }
+
+    public void close() throws IOException {
+        if (solrClient != null) {
+            solrClient.close();
+        }
     }
 
     public void createCore(StratioStreamingMessage message) throws IOException, URISyntaxException, SolrServerException, ParserConfigurationException, SAXException, TransformerException, InterruptedException {
@@ -154,12 +234,20 @@ public class SolrOperationsService {
         return coreList;
     }
 
+    /**
+     * Solr clients are thread safe, so a single client is shared by every core. Requests set the target core.
+     */
     private SolrClient getSolrclient(String core) {
-        SolrClient solrClient;
-        if (isCloud) {
-            solrClient = new CloudSolrClient(zkHosts);
-        } else {
-            solrClient = new HttpSolrClient("http://" + solrHosts + "/solr");
+        if (solrClient == null) {
+            synchronized (this) {
+                if (solrClient == null) {
+                    if (isCloud) {
+                        solrClient = new CloudSolrClient(zkHosts);
+                    } else {
+                        solrClient = new HttpSolrClient("http://" + solrHosts + "/solr");
+                    }
+                }
+            }
         }
         return solrClient;
     }
@@ -15,13 +15,21 @@
  */
 package com.stratio.decision.service;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.wso2.siddhi.core.SiddhiManager;
 import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+
+import com.stratio.decision.utils.StreamRowCodec;
 
 public class StreamMetadataService {
 
     private final SiddhiManager siddhiManager;
 
+    private final ConcurrentMap<String, StreamRowCodec> codecs = new ConcurrentHashMap<>();
+
     public StreamMetadataService(SiddhiManager siddhiManager) {
         this.siddhiManager = siddhiManager;
     }
@@ -34,6 +42,45 @@ public class StreamMetadataService {
         return siddhiManager.getStreamDefinition(streamName).getAttributeList().get(columnOrder);
     }
 
+    /**
+     * Returns the row codec of the stream, compiling it the first time. Streams inferred by siddhi from the queries
+     * get their codec this way.
+     */
+    public StreamRowCodec getCodec(String streamName) {
+        StreamRowCodec codec = codecs.get(streamName);
+        if (codec == null) {
+            codec = new StreamRowCodec(getStreamDefinition(streamName));
+            // a codec compiled meanwhile by an alteration of the stream is newer than this one
+            StreamRowCodec previous = codecs.putIfAbsent(streamName, codec);
+            if (previous != null) {
+                codec = previous;
+            }
+        }
+        return codec;
+    }
+
+    /**
+     * Compiles the codec of the current stream definition and replaces the previous one, if any. It must be called
+     * whenever the stream definition changes.
+     */
+    public StreamRowCodec compileCodec(String streamName) {
+        StreamRowCodec codec = new StreamRowCodec(getStreamDefinition(streamName));
+        codecs.put(streamName, codec);
+        return codec;
+    }
+
+    public void removeCodec(String streamName) {
+        codecs.remove(streamName);
+    }
+
+    private StreamDefinition getStreamDefinition(String streamName) {
+        StreamDefinition streamDefinition = siddhiManager.getStreamDefinition(streamName);
+        if (streamDefinition == null) {
+            throw new IllegalArgumentException("Stream " + streamName + " does not exist");
+        }
+        return streamDefinition;
+    }
+
     public byte[] getSnapshot() {
         return siddhiManager.snapshot();
     }
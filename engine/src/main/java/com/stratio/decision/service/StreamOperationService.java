@@ -15,6 +15,7 @@
  */
 package com.stratio.decision.service;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.annotation.Timed;
 import com.ryantenney.metrics.annotation.Counted;
 import com.stratio.decision.commons.constants.EngineActionType;
@@ -33,16 +34,29 @@ import java.util.Map;
 
 public class StreamOperationService extends StreamOperationServiceWithoutMetrics {
 
+    private final MetricRegistry metricRegistry;
+
     public StreamOperationService(SiddhiManager siddhiManager, StreamStatusDao streamStatusDao, CallbackService callbackService) {
         super(siddhiManager, streamStatusDao, callbackService);
+        this.metricRegistry = new MetricRegistry();
     }
 
 
     public StreamOperationService(SiddhiManager siddhiManager, StreamStatusDao streamStatusDao, CallbackService
         callbackService, DroolsConnectionContainer droolsConnectionContainer, ConfigurationContext configurationContext) {
             super(siddhiManager, streamStatusDao, callbackService, droolsConnectionContainer, configurationContext);
+            this.metricRegistry = new MetricRegistry();
         }
 
+    public StreamOperationService(SiddhiManager siddhiManager, StreamStatusDao streamStatusDao,
+            CallbackService callbackService, StreamMetadataService streamMetadataService,
+            DroolsConnectionContainer droolsConnectionContainer, ConfigurationContext configurationContext,
+            MetricRegistry metricRegistry) {
+        super(siddhiManager, streamStatusDao, callbackService, streamMetadataService, droolsConnectionContainer,
+                configurationContext);
+        this.metricRegistry = metricRegistry;
+    }
+
     @Override
     @Counted(absolute = true, name = "streams.total.created", monotonic = true)
     public void createStream(String streamName, List<ColumnNameTypeValue> columns) {
@@ -77,6 +91,12 @@ public class StreamOperationService extends StreamOperationServiceWithoutMetrics
         return super.addQuery(streamName, queryString);
     }
 
+    @Override
+    @Counted(absolute = true, name = "queries.total.added", monotonic = true)
+    public String addQueryWithoutInferredStreams(String streamName, String queryString) {
+        return super.addQueryWithoutInferredStreams(streamName, queryString);
+    }
+
     @Override
     @Counted(absolute = true, name = "queries.total.removed", monotonic = true)
     public void removeQuery(String queryId, String streamName) {
@@ -120,6 +140,15 @@ public class StreamOperationService extends StreamOperationServiceWithoutMetrics
         super.send(streamName, columns);
     }
 
+    @Override
+    @Timed(absolute = true, name = "streams.send.batch.time")
+    public int sendBatch(String streamName, List<List<ColumnNameTypeValue>> rows) throws ServiceException {
+        int sent = super.sendBatch(streamName, rows);
+        metricRegistry.histogram("streams.send.batch.size").update(sent);
+        metricRegistry.counter("streams.send.events").inc(sent);
+        return sent;
+    }
+
     @Override
     public void enableEngineAction(String streamName, EngineActionType engineActionType, Map<String, Object>
             engineActionParams) {
@@ -31,9 +31,13 @@ import com.stratio.decision.functions.engine.DroolsEngineAction;
 import com.stratio.decision.streams.QueryDTO;
 import com.stratio.decision.streams.StreamStatusDTO;
 import com.stratio.decision.utils.SiddhiUtils;
+import com.stratio.decision.utils.StreamRowCodec;
 
 import org.kie.api.runtime.KieContainer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.stream.input.InputHandler;
 import org.wso2.siddhi.query.api.QueryFactory;
 import org.wso2.siddhi.query.api.definition.Attribute;
 import org.wso2.siddhi.query.api.definition.StreamDefinition;
@@ -47,21 +51,32 @@ import java.util.Map;
  * Created by ajnavarro on 27/11/14.
  */
 public class StreamOperationServiceWithoutMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(StreamOperationServiceWithoutMetrics.class);
+
     private final SiddhiManager siddhiManager;
 
     private final StreamStatusDao streamStatusDao;
 
     private final CallbackService callbackService;
 
+    private final StreamMetadataService streamMetadataService;
+
     private  ConfigurationContext configurationContext;
 
     private  DroolsConnectionContainer droolsConnectionContainer;
 
     public StreamOperationServiceWithoutMetrics(SiddhiManager siddhiManager, StreamStatusDao streamStatusDao,
                                                 CallbackService callbackService) {
+        this(siddhiManager, streamStatusDao, callbackService, new StreamMetadataService(siddhiManager));
+    }
+
+    public StreamOperationServiceWithoutMetrics(SiddhiManager siddhiManager, StreamStatusDao streamStatusDao,
+            CallbackService callbackService, StreamMetadataService streamMetadataService) {
         this.siddhiManager = siddhiManager;
         this.streamStatusDao = streamStatusDao;
         this.callbackService = callbackService;
+        this.streamMetadataService = streamMetadataService;
     }
 
 
@@ -71,6 +86,14 @@ public class StreamOperationServiceWithoutMetrics {
         this.configurationContext = configurationContext;
     }
 
+    public StreamOperationServiceWithoutMetrics(SiddhiManager siddhiManager, StreamStatusDao streamStatusDao,
+            CallbackService callbackService, StreamMetadataService streamMetadataService,
+            DroolsConnectionContainer droolsConnectionContainer, ConfigurationContext configurationContext) {
+        this(siddhiManager, streamStatusDao, callbackService, streamMetadataService);
+        this.droolsConnectionContainer = droolsConnectionContainer;
+        this.configurationContext = configurationContext;
+    }
+
 
     public StreamOperationServiceWithoutMetrics(SiddhiManager siddhiManager, StreamStatusDao streamStatusDao,
         CallbackService callbackService, DroolsConnectionContainer droolsConnectionContainer, ConfigurationContext configurationContext) {
@@ -85,6 +108,7 @@ public class StreamOperationServiceWithoutMetrics {
             newStream.attribute(column.getColumn(), getSiddhiType(column.getType()));
         }
         siddhiManager.defineStream(newStream);
+        streamMetadataService.compileCodec(streamName);
         streamStatusDao.createInferredStream(streamName, columns);
      }
 
@@ -96,6 +120,7 @@ public class StreamOperationServiceWithoutMetrics {
             }
         }
         siddhiManager.defineStream(newStream);
+        streamMetadataService.compileCodec(streamName);
         streamStatusDao.create(streamName, columns);
     }
 
@@ -145,6 +170,11 @@ public class StreamOperationServiceWithoutMetrics {
             }
         }
 
+        if (addedColumns > 0) {
+            // events already being converted keep the previous codec, the new columns are null for them
+            streamMetadataService.compileCodec(streamName);
+        }
+
         return addedColumns;
     }
 
@@ -156,18 +186,35 @@ public class StreamOperationServiceWithoutMetrics {
             siddhiManager.removeQuery(queryId);
         }
         siddhiManager.removeStream(streamName);
+        streamMetadataService.removeCodec(streamName);
         streamStatusDao.remove(streamName);
     }
 
 
     public String addQuery(String streamName, String queryString) {
+        String queryId = addQueryWithoutInferredStreams(streamName, queryString);
+        registerInferredStreams();
+        return queryId;
+    }
+
+    /**
+     * Adds a query without registering the streams siddhi infers from it. Used to add many queries at once,
+     * calling {@link #registerInferredStreams()} after the last one.
+     */
+    public String addQueryWithoutInferredStreams(String streamName, String queryString) {
         String queryId = siddhiManager.addQuery(queryString);
         streamStatusDao.addQuery(streamName, queryId, queryString);
+        return queryId;
+    }
+
+    public void registerInferredStreams() {
         for (StreamDefinition streamDefinition : siddhiManager.getStreamDefinitions()) {
             // XXX refactor to obtain exactly siddhi inferred streams.
-            streamStatusDao.createInferredStream(streamDefinition.getStreamId(),  castToColumnNameTypeValue(streamDefinition.getAttributeList()));
+            if (streamStatusDao.createInferredStream(streamDefinition.getStreamId(),
+                    castToColumnNameTypeValue(streamDefinition.getAttributeList())) != null) {
+                streamMetadataService.removeCodec(streamDefinition.getStreamId());
+            }
         }
-        return queryId;
     }
 
     private List<ColumnNameTypeValue> castToColumnNameTypeValue(List<Attribute> attributeList) {
@@ -234,12 +281,15 @@ public class StreamOperationServiceWithoutMetrics {
         }
 
         streamStatusDao.enableAction(streamName, action);
+        callbackService.updateActions(streamName, () -> streamStatusDao.getEnabledActions(streamName));
     }
 
     public void disableAction(String streamName, StreamAction action) {
         streamStatusDao.disableAction(streamName, action);
 
-        if (streamStatusDao.getEnabledActions(streamName).size() == 0) {
+        callbackService.updateActions(streamName, () -> streamStatusDao.getEnabledActions(streamName));
+
+        if (streamStatusDao.getEnabledActions(streamName).isEmpty()) {
             String actionQueryId = streamStatusDao.getActionQuery(streamName);
             if (actionQueryId != null) {
                 siddhiManager.removeQuery(actionQueryId);
@@ -345,7 +395,7 @@ public class StreamOperationServiceWithoutMetrics {
     public void send(String streamName, List<ColumnNameTypeValue> columns) throws ServiceException {
         try {
             siddhiManager.getInputHandler(streamName).send(
-                    SiddhiUtils.getOrderedValues(siddhiManager.getStreamDefinition(streamName), columns));
+                    streamMetadataService.getCodec(streamName).toEventData(columns));
         } catch (InterruptedException e) {
             throw new ServiceException(String.format("Error sending data to stream %s, column data: %s", streamName,
                     columns), e);
@@ -353,6 +403,37 @@ public class StreamOperationServiceWithoutMetrics {
 
     }
 
+    /**
+     * Sends a batch of rows to a stream, looking up the stream input handler and row codec only once. Rows that
+     * don't match the stream definition are discarded.
+     *
+     * @return number of rows sent to the stream
+     */
+    public int sendBatch(String streamName, List<List<ColumnNameTypeValue>> rows) throws ServiceException {
+        InputHandler inputHandler = siddhiManager.getInputHandler(streamName);
+        StreamRowCodec codec = streamMetadataService.getCodec(streamName);
+
+        List<Object[]> events = new ArrayList<>(rows.size());
+        for (List<ColumnNameTypeValue> columns : rows) {
+            try {
+                events.add(codec.toEventData(columns));
+            } catch (RuntimeException e) {
+                log.warn("Discarding data for stream {}, column data: {}. {}", streamName, columns, e.getMessage());
+            }
+        }
+
+        try {
+            for (Object[] event : events) {
+                inputHandler.send(event);
+            }
+        } catch (InterruptedException e) {
+            throw new ServiceException(String.format("Error sending batch of %s events to stream %s", events.size(),
+                    streamName), e);
+        }
+
+        return events.size();
+    }
+
     private Attribute.Type getSiddhiType(ColumnType originalType) {
         switch (originalType) {
             case STRING:
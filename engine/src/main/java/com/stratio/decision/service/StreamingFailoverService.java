@@ -15,23 +15,43 @@
  */
 package com.stratio.decision.service;
 
-import com.stratio.decision.commons.constants.EngineActionType;
-import com.stratio.decision.commons.constants.StreamAction;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.stratio.decision.dao.StreamStatusDao;
 import com.stratio.decision.dao.StreamingFailoverDao;
+import com.stratio.decision.model.FailoverChangeRecord;
 import com.stratio.decision.model.FailoverPersistenceStoreModel;
-import com.stratio.decision.streams.EngineActionDTO;
-import com.stratio.decision.streams.QueryDTO;
-import com.stratio.decision.streams.StreamStatusDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class StreamingFailoverService {
 
+    private static final Logger log = LoggerFactory.getLogger(StreamingFailoverService.class);
+
+    private static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
     private final StreamStatusDao streamStatusDao;
     private final StreamMetadataService streamMetadataService;
     private final StreamingFailoverDao streamingFailoverDao;
+    private final int compactionThreshold;
+    private final boolean siddhiCheckpointEnabled;
+    private final long siddhiCheckpointPeriod;
+    private final int restoreThreads;
+
+    private final Timer checkpointTimer;
+    private final Histogram checkpointSize;
+    private final Timer restoreTimer;
+    private final Histogram restoreSize;
+
+    private boolean compactionPending;
+    private long lastCheckpoint;
 
     @Autowired
     private StreamOperationService streamOperationService;
@@ -39,44 +59,119 @@ public class StreamingFailoverService {
 
     public StreamingFailoverService(StreamStatusDao streamStatusDao, StreamMetadataService streamMetadataService,
                                     StreamingFailoverDao streamingFailoverDao) {
+        this(streamStatusDao, streamMetadataService, streamingFailoverDao, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    public StreamingFailoverService(StreamStatusDao streamStatusDao, StreamMetadataService streamMetadataService,
+            StreamingFailoverDao streamingFailoverDao, int compactionThreshold) {
+        this(streamStatusDao, streamMetadataService, streamingFailoverDao, compactionThreshold, false, 0, 1,
+                new MetricRegistry());
+    }
+
+    public StreamingFailoverService(StreamStatusDao streamStatusDao, StreamMetadataService streamMetadataService,
+            StreamingFailoverDao streamingFailoverDao, int compactionThreshold, boolean siddhiCheckpointEnabled,
+            long siddhiCheckpointPeriod, int restoreThreads, MetricRegistry metricRegistry) {
         this.streamStatusDao = streamStatusDao;
         this.streamMetadataService = streamMetadataService;
         this.streamingFailoverDao = streamingFailoverDao;
+        this.compactionThreshold = compactionThreshold;
+        this.siddhiCheckpointEnabled = siddhiCheckpointEnabled;
+        this.siddhiCheckpointPeriod = siddhiCheckpointPeriod;
+        this.restoreThreads = restoreThreads;
+
+        this.checkpointTimer = metricRegistry.timer("failover.siddhi.checkpoint.time");
+        this.checkpointSize = metricRegistry.histogram("failover.siddhi.checkpoint.size");
+        this.restoreTimer = metricRegistry.timer("failover.siddhi.restore.time");
+        this.restoreSize = metricRegistry.histogram("failover.siddhi.restore.size");
     }
 
     public synchronized void load() throws Exception {
         FailoverPersistenceStoreModel failoverPersistenceStoreModel = streamingFailoverDao.load();
         if (failoverPersistenceStoreModel != null) {
-            streamStatusDao.putAll(failoverPersistenceStoreModel.getStreamStatuses());
-            Map<String, StreamStatusDTO> streamsStatus = failoverPersistenceStoreModel.getStreamStatuses();
-            for (Map.Entry<String, StreamStatusDTO> entry : streamsStatus.entrySet()) {
-                StreamStatusDTO stream = entry.getValue();
-                streamOperationService.createStream(stream.getStreamName(), stream.getStreamDefinition());
-                for (Map.Entry<String, QueryDTO> query : stream.getAddedQueries().entrySet()) {
-                    streamOperationService.addQuery(entry.getKey(), query.getValue().getQueryRaw());
-                }
-                for (StreamAction action : stream.getActionsEnabled()) {
-                    streamOperationService.enableAction(entry.getKey(), action);
-                }
-
-                // Enable engine actions
-                for (Map.Entry<EngineActionType, EngineActionDTO> engineAction : stream.getEngineActionsEnabled()
-                        .entrySet()) {
-
-                    streamOperationService.enableEngineAction(stream.getStreamName(), engineAction.getKey(),
-                            engineAction.getValue().getEngineActionParameters());
-                }
+            long start = System.currentTimeMillis();
+            // the siddhi checkpoint can only be restored into elements created in the same order
+            int failures = new FailoverRestorePlanner(streamOperationService, restoreThreads,
+                    siddhiCheckpointEnabled).restore(failoverPersistenceStoreModel.getStreamStatuses());
+            log.info("Failover restored {} streams in {} ms, {} errors", failoverPersistenceStoreModel
+                    .getStreamStatuses().size(), System.currentTimeMillis() - start, failures);
 
+            // the restored streams are written as a fresh snapshot instead of a change record each
+            streamStatusDao.drainChangedStreams();
+            compactionPending = true;
+        }
+    }
 
+    /**
+     * Appends a change record for every stream changed since the last save, and compacts the change log into a new
+     * snapshot once it grows over the compaction threshold.
+     */
+    public synchronized void save() throws Exception {
+        Set<String> changedStreams = streamStatusDao.drainChangedStreams();
+        if (!changedStreams.isEmpty()) {
+            List<FailoverChangeRecord> records = new ArrayList<>(changedStreams.size());
+            for (String streamName : changedStreams) {
+                records.add(new FailoverChangeRecord(streamName, streamStatusDao.get(streamName)));
             }
-//            streamMetadataService.setSnapshot(failoverPersistenceStoreModel.getSiddhiSnapshot());
+            try {
+                streamingFailoverDao.appendChanges(records);
+            } catch (Exception e) {
+                streamStatusDao.markChanged(changedStreams);
+                throw e;
+            }
+        }
+
+        if (compactionPending || streamingFailoverDao.getPendingChanges() >= compactionThreshold) {
+            log.debug("Compacting {} failover change records", streamingFailoverDao.getPendingChanges());
+            streamingFailoverDao.compact(streamStatusDao.getAll());
+            compactionPending = false;
+        }
+
+        if (siddhiCheckpointEnabled && System.currentTimeMillis() - lastCheckpoint >= siddhiCheckpointPeriod) {
+            checkpointSiddhi();
         }
     }
 
-    public synchronized void save() throws Exception {
-//        streamingFailoverDao.save(new FailoverPersistenceStoreModel(streamStatusDao.getAll(), streamMetadataService
-//                .getSnapshot()));
-        streamingFailoverDao.save(new FailoverPersistenceStoreModel(streamStatusDao.getAll(), null));
+    /**
+     * Stores the current siddhi state, so windows and aggregations survive a failover.
+     */
+    public synchronized void checkpointSiddhi() throws Exception {
+        long start = System.nanoTime();
+        int size = streamingFailoverDao.saveSiddhiSnapshot(streamMetadataService.getSnapshot());
+        long elapsed = System.nanoTime() - start;
+
+        checkpointTimer.update(elapsed, TimeUnit.NANOSECONDS);
+        checkpointSize.update(size);
+        lastCheckpoint = System.currentTimeMillis();
+        log.info("Siddhi state checkpoint saved. {} bytes in {} ms", size, TimeUnit.NANOSECONDS.toMillis(elapsed));
+    }
+
+    /**
+     * Restores the last siddhi state checkpoint. It has to be called once the streams and queries are restored, as
+     * the state is bound to them.
+     *
+     * @return true if a checkpoint was restored
+     */
+    public synchronized boolean restoreSiddhi() throws Exception {
+        if (!siddhiCheckpointEnabled) {
+            return false;
+        }
+
+        long start = System.nanoTime();
+        byte[] siddhiSnapshot = streamingFailoverDao.loadSiddhiSnapshot();
+        if (siddhiSnapshot == null) {
+            log.info("No siddhi state checkpoint to restore");
+            return false;
+        }
+        streamMetadataService.setSnapshot(siddhiSnapshot);
+        long elapsed = System.nanoTime() - start;
+
+        restoreTimer.update(elapsed, TimeUnit.NANOSECONDS);
+        restoreSize.update(siddhiSnapshot.length);
+        // the restored state is the newest one, no need to checkpoint it again right now
+        lastCheckpoint = System.currentTimeMillis();
+        log.info("Siddhi state checkpoint restored. {} bytes in {} ms", siddhiSnapshot.length, TimeUnit.NANOSECONDS
+                .toMillis(elapsed));
+        return true;
     }
 
 }
@@ -30,13 +30,20 @@ public class EngineActionDTO implements Serializable {
     private EngineActionType engineActionType;
     private Map<String, Object> engineActionParameters;
     private String engineActionQueryId;
+    private long creationOrder;
 
     public EngineActionDTO(EngineActionType engineActionType, Map<String, Object> engineActionParameters, String
             engineActionQueryId) {
+        this(engineActionType, engineActionParameters, engineActionQueryId, 0);
+    }
+
+    public EngineActionDTO(EngineActionType engineActionType, Map<String, Object> engineActionParameters, String
+            engineActionQueryId, long creationOrder) {
 
         this.engineActionType = engineActionType;
         this.engineActionParameters = engineActionParameters;
         this.engineActionQueryId = engineActionQueryId;
+        this.creationOrder = creationOrder;
     }
 
 
@@ -63,4 +70,8 @@ public class EngineActionDTO implements Serializable {
     public void setEngineActionQueryId(String engineActionQueryId) {
         this.engineActionQueryId = engineActionQueryId;
     }
+
+    public long getCreationOrder() {
+        return creationOrder;
+    }
 }
@@ -23,14 +23,28 @@ public class QueryDTO implements Serializable {
 
     private final String queryRaw;
 
+    private final long creationOrder;
+
     public QueryDTO(String queryRaw) {
+        this(queryRaw, 0);
+    }
+
+    public QueryDTO(String queryRaw, long creationOrder) {
         this.queryRaw = queryRaw;
+        this.creationOrder = creationOrder;
     }
 
     public String getQueryRaw() {
         return queryRaw;
     }
 
+    /**
+     * Position of the query in the sequence of siddhi elements created by the engine, 0 if unknown.
+     */
+    public long getCreationOrder() {
+        return creationOrder;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj != null) {
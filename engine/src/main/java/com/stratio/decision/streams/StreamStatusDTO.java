@@ -22,70 +22,145 @@ import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import java.io.Serializable;
 import java.util.*;
 
+/**
+ * Immutable snapshot of the status of a stream. Every change builds a new snapshot through the {@code with}
+ * methods, so a snapshot (and the collections it returns) can be read from any thread without locking.
+ */
 public class StreamStatusDTO implements Serializable {
 
     private static final long serialVersionUID = -714024710449331531L;
 
-    private String streamName;
-    private List<ColumnNameTypeValue> streamDefinition;
-    private Map<String, ColumnNameTypeValue> streamColumns;
-    private String actionQueryId;
+    private final String streamName;
+    private final List<ColumnNameTypeValue> streamDefinition;
+    private final Map<String, ColumnNameTypeValue> streamColumns;
+    private final String actionQueryId;
 
-    private Boolean userDefined;
+    private final Boolean userDefined;
     private final Set<StreamAction> actionsEnabled;
     private final Map<String, QueryDTO> addedQueries;
 
-    private Map<EngineActionType, EngineActionDTO> engineActionsEnabled;
+    private final Map<EngineActionType, EngineActionDTO> engineActionsEnabled;
+
+    private final long creationOrder;
+    private final long actionQueryCreationOrder;
 
     public StreamStatusDTO(String streamName, Boolean userDefined, List<ColumnNameTypeValue> columns) {
+        this(streamName, userDefined, columns, 0);
+    }
+
+    public StreamStatusDTO(String streamName, Boolean userDefined, List<ColumnNameTypeValue> columns,
+            long creationOrder) {
+        this(streamName, userDefined, columns, null, Collections.<StreamAction>emptySet(),
+                Collections.<String, QueryDTO>emptyMap(), Collections.<EngineActionType, EngineActionDTO>emptyMap(),
+                creationOrder, 0);
+    }
+
+    /**
+     * Copies a status whose collections may be mutable, such as one deserialized from the failover store.
+     */
+    public StreamStatusDTO(StreamStatusDTO other) {
+        this(other.streamName, other.userDefined, other.streamDefinition, other.actionQueryId,
+                other.actionsEnabled, other.addedQueries, other.engineActionsEnabled, other.creationOrder,
+                other.actionQueryCreationOrder);
+    }
+
+    private StreamStatusDTO(String streamName, Boolean userDefined, List<ColumnNameTypeValue> columns,
+            String actionQueryId, Set<StreamAction> actionsEnabled, Map<String, QueryDTO> addedQueries,
+            Map<EngineActionType, EngineActionDTO> engineActionsEnabled, long creationOrder,
+            long actionQueryCreationOrder) {
         this.streamName = streamName;
         this.userDefined = userDefined;
-        this.actionsEnabled = new HashSet<>();
-        this.addedQueries = new HashMap<>();
+        this.actionQueryId = actionQueryId;
+        this.creationOrder = creationOrder;
+        this.actionQueryCreationOrder = actionQueryCreationOrder;
+        this.actionsEnabled = Collections.unmodifiableSet(copy(actionsEnabled));
+        this.addedQueries = Collections.unmodifiableMap(copy(addedQueries));
+        this.engineActionsEnabled = Collections.unmodifiableMap(copy(engineActionsEnabled));
+
+        List<ColumnNameTypeValue> definition = new ArrayList<>();
+        Map<String, ColumnNameTypeValue> columnsByName = new HashMap<>();
+        if (columns != null) {
+            columns.forEach(column -> {
+                definition.add(column);
+                columnsByName.put(column.getColumn(), column);
+            });
+        }
+        this.streamDefinition = Collections.unmodifiableList(definition);
+        this.streamColumns = Collections.unmodifiableMap(columnsByName);
+    }
 
-        this.engineActionsEnabled = new HashMap<>();
+    public StreamStatusDTO withActionEnabled(StreamAction action) {
+        Set<StreamAction> actions = copy(actionsEnabled);
+        actions.add(action);
+        return new StreamStatusDTO(streamName, userDefined, streamDefinition, actionQueryId, actions, addedQueries,
+                engineActionsEnabled, creationOrder, actionQueryCreationOrder);
+    }
 
-        this.streamColumns = new HashMap();
-        this.streamDefinition = new ArrayList<>();
+    public StreamStatusDTO withActionDisabled(StreamAction action) {
+        Set<StreamAction> actions = copy(actionsEnabled);
+        actions.remove(action);
+        return new StreamStatusDTO(streamName, userDefined, streamDefinition, actionQueryId, actions, addedQueries,
+                engineActionsEnabled, creationOrder, actionQueryCreationOrder);
+    }
 
-        columns.forEach( column -> {
-            streamDefinition.add(column);
-            streamColumns.put(column.getColumn(), column);
-        });
+    public StreamStatusDTO withActionQueryId(String actionQueryId) {
+        return withActionQueryId(actionQueryId, actionQueryCreationOrder);
+    }
 
+    public StreamStatusDTO withActionQueryId(String actionQueryId, long actionQueryCreationOrder) {
+        return new StreamStatusDTO(streamName, userDefined, streamDefinition, actionQueryId, actionsEnabled,
+                addedQueries, engineActionsEnabled, creationOrder, actionQueryCreationOrder);
+    }
 
+    public StreamStatusDTO withQuery(String queryId, QueryDTO query) {
+        Map<String, QueryDTO> queries = copy(addedQueries);
+        queries.put(queryId, query);
+        return new StreamStatusDTO(streamName, userDefined, streamDefinition, actionQueryId, actionsEnabled, queries,
+                engineActionsEnabled, creationOrder, actionQueryCreationOrder);
     }
 
-    public String getStreamName() {
-        return streamName;
+    public StreamStatusDTO withoutQuery(String queryId) {
+        Map<String, QueryDTO> queries = copy(addedQueries);
+        queries.remove(queryId);
+        return new StreamStatusDTO(streamName, userDefined, streamDefinition, actionQueryId, actionsEnabled, queries,
+                engineActionsEnabled, creationOrder, actionQueryCreationOrder);
     }
 
-    public void setStreamName(String streamName) {
-        this.streamName = streamName;
+    public StreamStatusDTO withEngineAction(EngineActionDTO engineAction) {
+        Map<EngineActionType, EngineActionDTO> engineActions = copy(engineActionsEnabled);
+        engineActions.put(engineAction.getEngineActionType(), engineAction);
+        return new StreamStatusDTO(streamName, userDefined, streamDefinition, actionQueryId, actionsEnabled,
+                addedQueries, engineActions, creationOrder, actionQueryCreationOrder);
     }
 
-    public List<ColumnNameTypeValue> getStreamDefinition() {
-        return streamDefinition;
+    public StreamStatusDTO withoutEngineAction(EngineActionType engineActionType) {
+        Map<EngineActionType, EngineActionDTO> engineActions = copy(engineActionsEnabled);
+        engineActions.remove(engineActionType);
+        return new StreamStatusDTO(streamName, userDefined, streamDefinition, actionQueryId, actionsEnabled,
+                addedQueries, engineActions, creationOrder, actionQueryCreationOrder);
     }
 
-    public void setStreamDefinition(List<ColumnNameTypeValue> streamDefinition) {
-        this.streamDefinition = streamDefinition;
+    public StreamStatusDTO withColumn(ColumnNameTypeValue column) {
+        List<ColumnNameTypeValue> columns = new ArrayList<>(streamDefinition);
+        columns.add(column);
+        return new StreamStatusDTO(streamName, userDefined, columns, actionQueryId, actionsEnabled, addedQueries,
+                engineActionsEnabled, creationOrder, actionQueryCreationOrder);
     }
 
-    public Boolean getUserDefined() {
-        return userDefined;
+    public String getStreamName() {
+        return streamName;
     }
 
-    public void setUserDefined(Boolean userDefined) {
-        this.userDefined = userDefined;
+    public List<ColumnNameTypeValue> getStreamDefinition() {
+        return streamDefinition;
     }
 
-    public String getActionQueryId() {
-        return actionQueryId;
+    public Boolean getUserDefined() {
+        return userDefined;
     }
 
-    public void setActionQueryId(String actionQueryId) {
-        this.actionQueryId = actionQueryId;
+    public String getActionQueryId() {
+        return actionQueryId;
     }
 
     public Set<StreamAction> getActionsEnabled() {
@@ -103,4 +178,26 @@ public class StreamStatusDTO implements Serializable {
     public Map<String, ColumnNameTypeValue> getStreamColumns() {
         return streamColumns;
     }
+
+    /**
+     * Position of the stream in the sequence of siddhi elements created by the engine, 0 if unknown.
+     */
+    public long getCreationOrder() {
+        return creationOrder;
+    }
+
+    /**
+     * Position of the query feeding the actions of the stream in the same sequence, 0 if unknown.
+     */
+    public long getActionQueryCreationOrder() {
+        return actionQueryCreationOrder;
+    }
+
+    private static <T> Set<T> copy(Set<T> set) {
+        return set != null ? new LinkedHashSet<>(set) : new LinkedHashSet<>();
+    }
+
+    private static <K, V> Map<K, V> copy(Map<K, V> map) {
+        return map != null ? new HashMap<>(map) : new HashMap<>();
+    }
 }
@@ -0,0 +1,42 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.task;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.stratio.decision.service.ElasticSearchIndexService;
+
+public class ElasticSearchRetentionTask implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(ElasticSearchRetentionTask.class);
+
+    private final ElasticSearchIndexService elasticSearchIndexService;
+
+    public ElasticSearchRetentionTask(ElasticSearchIndexService elasticSearchIndexService) {
+        this.elasticSearchIndexService = elasticSearchIndexService;
+    }
+
+    @Override
+    public void run() {
+        try {
+            elasticSearchIndexService.deleteExpiredIndices();
+        } catch (Exception e) {
+            log.error("Error deleting expired elastic search indices: {}", e.getMessage());
+        }
+    }
+
+}
@@ -16,9 +16,13 @@
 package com.stratio.decision.task;
 
 import com.stratio.decision.service.StreamingFailoverService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class FailOverTask implements Runnable {
 
+    private static final Logger log = LoggerFactory.getLogger(FailOverTask.class);
+
     private final StreamingFailoverService streamingFailoverService;
 
     public FailOverTask(StreamingFailoverService streamingFailoverService, Boolean failOverEnabled) throws Exception {
@@ -28,6 +32,17 @@ public class FailOverTask implements Runnable {
         }
     }
 
+    /**
+     * Restores the checkpointed siddhi state when this node becomes the leader.
+     */
+    public void takeOver() {
+        try {
+            streamingFailoverService.restoreSiddhi();
+        } catch (Exception e) {
+            log.error("Error restoring siddhi state, windows and aggregations start empty", e);
+        }
+    }
+
     @Override
     public void run() {
         try {
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.utils;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.stratio.decision.commons.constants.InternalTopic;
+import com.stratio.decision.commons.constants.STREAMING;
+import com.stratio.decision.commons.messages.StratioStreamingMessage;
+
+import kafka.javaapi.producer.Producer;
+import kafka.producer.KeyedMessage;
+import kafka.producer.ProducerConfig;
+
+/**
+ * Publishes the reply of a request to the reply topic, keyed by the request id. The topic is fixed, whatever the
+ * request names, so a client cannot make the engine write into other topics.
+ */
+public class KafkaReplyWriter {
+
+    private static Logger logger = LoggerFactory.getLogger(KafkaReplyWriter.class);
+
+    private static final Gson gson = new Gson();
+
+    private static final String REPLY_TOPIC = InternalTopic.TOPIC_REPLY.getTopicName();
+
+    private static KafkaReplyWriter self;
+
+    private final Producer<String, String> producer;
+
+    public KafkaReplyWriter(Producer<String, String> producer) {
+        this.producer = producer;
+    }
+
+    public static synchronized KafkaReplyWriter getKafkaReplyWriter(String kafkaHostsQuorum) {
+        if (self == null) {
+            Properties properties = new Properties();
+            properties.put("serializer.class", "kafka.serializer.StringEncoder");
+            properties.put("metadata.broker.list", kafkaHostsQuorum);
+            properties.put("producer.type", "async");
+            // replies are waited for, so they are not held to fill a batch
+            properties.put("queue.buffering.max.ms", "5");
+
+            self = new KafkaReplyWriter(new Producer<String, String>(new ProducerConfig(properties)));
+        }
+        return self;
+    }
+
+    public static synchronized void shutdownKafkaReplyWriter() {
+        if (self != null) {
+            self.producer.close();
+            self = null;
+        }
+    }
+
+    /**
+     * @return true if the client waits for the reply of the request in the reply topic, false if in zookeeper
+     */
+    public static boolean isKafkaReply(StratioStreamingMessage request) {
+        Map<String, Object> parameters = request.getAdditionalParameters();
+        return parameters != null && parameters.get(STREAMING.REPLY_TOPIC_PARAMETER) != null;
+    }
+
+    public void write(StratioStreamingMessage request, Object reply) {
+        Object replyTopic = request.getAdditionalParameters().get(STREAMING.REPLY_TOPIC_PARAMETER);
+        if (!REPLY_TOPIC.equals(replyTopic.toString())) {
+            logger.warn("Reply of {} request {} asked for topic {}, sent to topic {} instead", request.getOperation(),
+                    request.getRequest_id(), replyTopic, REPLY_TOPIC);
+        }
+        producer.send(new KeyedMessage<>(REPLY_TOPIC, request.getRequest_id(), gson.toJson(reply)));
+
+        logger.debug("Reply of {} request {} sent to topic {}", request.getOperation(), request.getRequest_id(),
+                REPLY_TOPIC);
+    }
+}
@@ -60,6 +60,9 @@ public class SiddhiUtils {
             } else if (column.getValue() instanceof Double) {
                 orderedValues[streamMetaData.getAttributePosition(column.getColumn())] = decodeSiddhiValue(
                         (Double) column.getValue(), streamMetaData.getAttributeType(column.getColumn()));
+            } else if (column.getValue() instanceof Number) {
+                orderedValues[streamMetaData.getAttributePosition(column.getColumn())] = decodeSiddhiValue(
+                        (Number) column.getValue(), streamMetaData.getAttributeType(column.getColumn()));
             } else {
                 orderedValues[streamMetaData.getAttributePosition(column.getColumn())] = column.getValue();
             }
@@ -110,6 +113,28 @@ public class SiddhiUtils {
 
     }
 
+    /**
+     * Typed insert messages carry native numbers, that only need a conversion when they don't match the column type.
+     */
+    protected static Object decodeSiddhiValue(Number originalValue, Attribute.Type type) {
+
+        switch (type) {
+        case STRING:
+            return String.valueOf(originalValue);
+        case DOUBLE:
+            return originalValue instanceof Double ? originalValue : originalValue.doubleValue();
+        case INT:
+            return originalValue instanceof Integer ? originalValue : originalValue.intValue();
+        case LONG:
+            return originalValue instanceof Long ? originalValue : originalValue.longValue();
+        case FLOAT:
+            return originalValue instanceof Float ? originalValue : originalValue.floatValue();
+        default:
+            throw new RuntimeException("Unsupported Column type: " + originalValue + "/" + type.toString());
+        }
+
+    }
+
     public static Boolean isStreamAllowedForThisOperation(String streamName, String operation) {
 
         switch (operation.toUpperCase()) {
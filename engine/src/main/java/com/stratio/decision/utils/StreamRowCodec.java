@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.query.api.exception.AttributeNotExistException;
+
+import com.stratio.decision.commons.constants.ColumnType;
+import com.stratio.decision.commons.messages.ColumnNameTypeValue;
+
+/**
+ * Conversion between stream rows and siddhi event data, compiled from a stream definition. Columns that come in the
+ * order of the definition are resolved by comparing their name with the one at the same position, the rest with a
+ * single map lookup. A codec never changes, altering a stream means compiling a new one.
+ */
+public final class StreamRowCodec {
+
+    private final String streamName;
+
+    private final String[] names;
+
+    private final Attribute.Type[] types;
+
+    private final ColumnType[] columnTypes;
+
+    private final Map<String, Integer> positions;
+
+    public StreamRowCodec(StreamDefinition streamDefinition) {
+        List<Attribute> attributes = streamDefinition.getAttributeList();
+
+        this.streamName = streamDefinition.getStreamId();
+        this.names = new String[attributes.size()];
+        this.types = new Attribute.Type[attributes.size()];
+        this.columnTypes = new ColumnType[attributes.size()];
+        this.positions = new HashMap<>(attributes.size() * 2);
+
+        for (int i = 0; i < attributes.size(); i++) {
+            Attribute attribute = attributes.get(i);
+            names[i] = attribute.getName();
+            types[i] = attribute.getType();
+            columnTypes[i] = getColumnType(attribute.getType());
+            positions.put(attribute.getName(), i);
+        }
+    }
+
+    public String getStreamName() {
+        return streamName;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the position of a column, checking first the expected position.
+     */
+    public int getPosition(String column, int expectedPosition) {
+        if (expectedPosition < names.length && names[expectedPosition].equals(column)) {
+            return expectedPosition;
+        }
+        Integer position = positions.get(column);
+        if (position == null) {
+            throw new AttributeNotExistException("No attribute with name " + column + " exist in Stream "
+                    + streamName);
+        }
+        return position;
+    }
+
+    /**
+     * Orders the column values as the stream definition does, converting them to the attribute types. Same as
+     * {@link SiddhiUtils#getOrderedValues}.
+     */
+    public Object[] toEventData(List<ColumnNameTypeValue> columns) {
+        Object[] data = new Object[names.length];
+        int expectedPosition = 0;
+        for (ColumnNameTypeValue column : columns) {
+            int position = getPosition(column.getColumn(), expectedPosition++);
+            data[position] = convert(column.getValue(), types[position]);
+        }
+        return data;
+    }
+
+    /**
+     * Orders the column values as the stream definition does, without any conversion.
+     */
+    public Object[] toRawEventData(List<ColumnNameTypeValue> columns) {
+        Object[] data = new Object[names.length];
+        int expectedPosition = 0;
+        for (ColumnNameTypeValue column : columns) {
+            data[getPosition(column.getColumn(), expectedPosition++)] = column.getValue();
+        }
+        return data;
+    }
+
+    public List<ColumnNameTypeValue> toColumns(Object[] data) {
+        List<ColumnNameTypeValue> columns = new ArrayList<>(data.length);
+        for (int i = 0; i < data.length; i++) {
+            if (columnTypes[i] == null) {
+                throw new RuntimeException("Unsupported Column type: " + types[i]);
+            }
+            columns.add(new ColumnNameTypeValue(names[i], columnTypes[i], data[i]));
+        }
+        return columns;
+    }
+
+    private static Object convert(Object value, Attribute.Type type) {
+        if (value instanceof String) {
+            return SiddhiUtils.decodeSiddhiValue((String) value, type);
+        } else if (value instanceof Double) {
+            return SiddhiUtils.decodeSiddhiValue((Double) value, type);
+        } else if (value instanceof Number) {
+            return SiddhiUtils.decodeSiddhiValue((Number) value, type);
+        } else {
+            return value;
+        }
+    }
+
+    private static ColumnType getColumnType(Attribute.Type type) {
+        switch (type) {
+        case STRING:
+            return ColumnType.STRING;
+        case BOOL:
+            return ColumnType.BOOLEAN;
+        case DOUBLE:
+            return ColumnType.DOUBLE;
+        case INT:
+            return ColumnType.INTEGER;
+        case LONG:
+            return ColumnType.LONG;
+        case FLOAT:
+            return ColumnType.FLOAT;
+        default:
+            return null;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.api.transaction.CuratorTransaction;
+import org.apache.curator.framework.api.transaction.CuratorTransactionFinal;
+import org.apache.zookeeper.KeeperException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Queues ack replies and writes them to zookeeper from a single thread, grouping every pending reply in one
+ * multi-op transaction. Operation parent paths are created once and remembered.
+ */
+public class ZKAckWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZKAckWriter.class);
+
+    public static final String LATENCY_METRIC = MetricRegistry.name("zk", "ack", "latency");
+
+    private static final int MAX_BATCH_SIZE = 128;
+    private static final int MAX_KNOWN_PARENTS = 1024;
+    private static final long POLL_INTERVAL_MS = 100;
+    private static final long CLOSE_TIMEOUT_MS = 5000;
+
+    private final CuratorFramework client;
+    private final BlockingQueue<PendingAck> queue = new LinkedBlockingQueue<>();
+    private final Set<String> knownParents = ConcurrentHashMap.newKeySet();
+    private final Thread flusher;
+
+    private volatile Histogram latency;
+    private volatile boolean running = true;
+
+    public ZKAckWriter(CuratorFramework client) {
+        this(client, new MetricRegistry());
+    }
+
+    public ZKAckWriter(CuratorFramework client, MetricRegistry metricRegistry) {
+        this.client = client;
+        this.latency = metricRegistry.histogram(LATENCY_METRIC);
+
+        flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flushLoop();
+            }
+        }, "zk-ack-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Moves the latency histogram to the given registry, so it is reported with the rest of the engine metrics.
+     */
+    public void setMetricRegistry(MetricRegistry metricRegistry) {
+        this.latency = metricRegistry.histogram(LATENCY_METRIC);
+    }
+
+    /**
+     * Queues a reply node. Any existing node in the same path is replaced.
+     *
+     * @return a future completed once the node has been written
+     */
+    public Future<Void> write(String path, byte[] data) {
+        PendingAck ack = new PendingAck(path, data);
+        if (!running) {
+            ack.done.completeExceptionally(new IllegalStateException("Ack writer is closed"));
+            return ack.done;
+        }
+        queue.add(ack);
+        return ack.done;
+    }
+
+    /**
+     * Stops accepting replies and writes the ones already queued.
+     */
+    public void close() {
+        running = false;
+        try {
+            flusher.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flushLoop() {
+
+        List<PendingAck> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingAck first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                logger.info("Shutting down zookeeper ack writer with {} pending replies", queue.size());
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.error("Unexpected error writing zookeeper acks", e);
+                for (PendingAck ack : batch) {
+                    ack.done.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<PendingAck> batch) {
+
+        try {
+            for (PendingAck ack : batch) {
+                ensureParent(ack.getParent());
+            }
+            commit(batch);
+        } catch (Exception e) {
+            // A retried request may already have its node, or the cleaner may have removed a cached parent.
+            logger.debug("Ack transaction of {} replies failed ({}), writing them one by one", batch.size(),
+                    e.getMessage());
+            knownParents.clear();
+            for (PendingAck ack : batch) {
+                try {
+                    writeSingle(ack);
+                } catch (Exception single) {
+                    logger.error("Error writing ack node {}: {}", ack.getPath(), single.getMessage());
+                    ack.done.completeExceptionally(single);
+                }
+            }
+        }
+
+        long now = System.nanoTime();
+        for (PendingAck ack : batch) {
+            if (ack.done.complete(null)) {
+                latency.update(TimeUnit.NANOSECONDS.toMicros(now - ack.enqueuedAt));
+            }
+        }
+        logger.debug("{} ack replies written to zookeeper", batch.size());
+    }
+
+    void ensureParent(String parent) throws Exception {
+        if (knownParents.contains(parent)) {
+            return;
+        }
+        createParent(parent);
+        if (knownParents.size() >= MAX_KNOWN_PARENTS) {
+            knownParents.clear();
+        }
+        knownParents.add(parent);
+    }
+
+    void createParent(String parent) throws Exception {
+        try {
+            client.create().creatingParentsIfNeeded().forPath(parent);
+        } catch (KeeperException.NodeExistsException e) {
+            // already there
+        }
+    }
+
+    void commit(List<PendingAck> batch) throws Exception {
+        CuratorTransaction transaction = client.inTransaction();
+        CuratorTransactionFinal last = null;
+        for (PendingAck ack : batch) {
+            last = transaction.create().forPath(ack.getPath(), ack.getData()).and();
+            transaction = last;
+        }
+        last.commit();
+    }
+
+    void writeSingle(PendingAck ack) throws Exception {
+        if (client.checkExists().forPath(ack.getPath()) != null) {
+            client.delete().deletingChildrenIfNeeded().forPath(ack.getPath());
+        }
+        client.create().creatingParentsIfNeeded().forPath(ack.getPath(), ack.getData());
+    }
+
+    static class PendingAck {
+
+        private final String path;
+        private final byte[] data;
+        private final long enqueuedAt;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingAck(String path, byte[] data) {
+            this.path = path;
+            this.data = data;
+            this.enqueuedAt = System.nanoTime();
+        }
+
+        String getPath() {
+            return path;
+        }
+
+        String getParent() {
+            return path.substring(0, path.lastIndexOf('/'));
+        }
+
+        byte[] getData() {
+            return data;
+        }
+    }
+}
@@ -15,8 +15,11 @@
  */
 package com.stratio.decision.utils;
 
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -29,6 +32,7 @@ import org.apache.zookeeper.data.Stat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.gson.Gson;
 import com.stratio.decision.commons.constants.STREAMING;
 import com.stratio.decision.commons.constants.STREAM_OPERATIONS;
@@ -38,8 +42,11 @@ public class ZKUtils {
 
     private static Logger logger = LoggerFactory.getLogger(ZKUtils.class);
 
+    private static final Gson gson = new Gson();
+
     private static ZKUtils self;
     private CuratorFramework client;
+    private ZKAckWriter ackWriter;
     private ExecutorService backgroundZookeeperCleanerTasks;
     private String groupId;
 
@@ -63,6 +70,7 @@ public class ZKUtils {
         } else {
             backgroundZookeeperCleanerTasks = Executors.newFixedThreadPool(1);
             backgroundZookeeperCleanerTasks.submit(new ZookeeperBackgroundCleaner(client, groupId));
+            ackWriter = new ZKAckWriter(client);
         }
 
 
@@ -87,6 +95,7 @@ public class ZKUtils {
     public static void shutdownZKUtils() {
         if (self != null) {
             self.backgroundZookeeperCleanerTasks.shutdownNow();
+            self.ackWriter.close();
             self.client.close();
         }
     }
@@ -109,26 +118,21 @@ public class ZKUtils {
 
     }
 
-    public void createZNodeJsonReply(StratioStreamingMessage request, Object reply) throws Exception {
-
+    public void setAckMetricRegistry(MetricRegistry metricRegistry) {
+        ackWriter.setMetricRegistry(metricRegistry);
+    }
 
-//        String path = STREAMING.ZK_BASE_PATH + "/" + request.getOperation().toLowerCase() + "/"
-//                    + request.getRequest_id();
-//
-//
-//        if (client.checkExists().forPath(path) != null) {
-//            client.delete().deletingChildrenIfNeeded().forPath(path);
-//        }
-//
-//        client.create().creatingParentsIfNeeded().forPath(path, new Gson().toJson(reply).getBytes());
+    /**
+     * Queues the reply of the request. It is written to zookeeper in background, batched with other replies.
+     */
+    public void createZNodeJsonReply(StratioStreamingMessage request, Object reply) throws Exception {
 
         String path = STREAMING.ZK_BASE_PATH + "/" + request.getOperation().toLowerCase() + "/"
                 + request.getRequest_id();
 
-        createZNodeJsonReplyForPath(request, reply, path);
-
+        ackWriter.write(path, gson.toJson(reply).getBytes());
 
-        logger.info("**** ZKUTILS " + request.getOperation() + "//" + request.getRequest_id() + "//" + reply + "//"
+        logger.debug("**** ZKUTILS " + request.getOperation() + "//" + request.getRequest_id() + "//" + reply + "//"
                 + path);
 
     }
@@ -142,36 +146,74 @@ public class ZKUtils {
 
     }
 
+    /**
+     * Writes the reply of this node for the request, waiting until it is in zookeeper because the ack barrier reads
+     * it right after.
+     */
     public void createTempZNodeJsonReply(StratioStreamingMessage request, Object reply, String groupId) throws Exception {
 
 
         String path = getTempZNodeJsonReplyPath(request) + "/" + groupId;
 
-        createZNodeJsonReplyForPath(request, reply, path);
+        try {
+            ackWriter.write(path, gson.toJson(reply).getBytes()).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
 
-        logger.info("**** ZKUTILS. Temporal ack Node " + request.getOperation() + "//" + request.getRequest_id() +
+        logger.debug("**** ZKUTILS. Temporal ack Node " + request.getOperation() + "//" + request.getRequest_id() +
                 "//" + reply + "//" + path);
 
     }
 
 
-    private void createZNodeJsonReplyForPath(StratioStreamingMessage request, Object reply, String path) throws
-            Exception {
-
+    public void createZNode(String path, byte[] data) throws Exception {
         if (client.checkExists().forPath(path) != null) {
             client.delete().deletingChildrenIfNeeded().forPath(path);
         }
 
-        client.create().creatingParentsIfNeeded().forPath(path, new Gson().toJson(reply).getBytes());
+        client.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path, data);
     }
 
+    public void setZNode(String path, byte[] data) throws Exception {
+        if (client.checkExists().forPath(path) == null) {
+            client.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path, data);
+        } else {
+            client.setData().forPath(path, data);
+        }
+    }
 
-    public void createZNode(String path, byte[] data) throws Exception {
+    /**
+     * Creates a persistent sequential znode.
+     *
+     * @return the path of the created znode, with its sequence number
+     */
+    public String createSequentialZNode(String pathPrefix, byte[] data) throws Exception {
+        return client.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT_SEQUENTIAL).forPath
+                (pathPrefix, data);
+    }
+
+    /**
+     * Creates an ephemeral sequential znode, so several clients can register under the same parent.
+     *
+     * @return the path of the created znode, with its sequence number
+     */
+    public String createEphemeralSequentialZNode(String pathPrefix, byte[] data) throws Exception {
+        return client.create().creatingParentsIfNeeded().withMode(CreateMode.EPHEMERAL_SEQUENTIAL).forPath
+                (pathPrefix, data);
+    }
+
+    public List<String> getChildren(String path) throws Exception {
+        if (client.checkExists().forPath(path) == null) {
+            return Collections.emptyList();
+        }
+        return client.getChildren().forPath(path);
+    }
+
+    public void deleteZNode(String path) throws Exception {
         if (client.checkExists().forPath(path) != null) {
             client.delete().deletingChildrenIfNeeded().forPath(path);
         }
-
-        client.create().creatingParentsIfNeeded().withMode(CreateMode.PERSISTENT).forPath(path, data);
     }
 
     public byte[] getZNode(String path) throws Exception {
@@ -217,7 +259,8 @@ public class ZKUtils {
             while (children.hasNext()) {
 
                 String childrenPath = children.next();
-                if (!STREAMING.ZK_HIGH_AVAILABILITY_NODE.equals('/'+childrenPath) && !STREAMING.ZK_PERSISTENCE_NODE.equals('/'+childrenPath)) {
+                if (!STREAMING.ZK_HIGH_AVAILABILITY_NODE.equals('/'+childrenPath) && !STREAMING.ZK_PERSISTENCE_NODE.equals('/'+childrenPath)
+                        && !STREAMING.ZK_OFFSETS_NODE.equals('/'+childrenPath)) {
                     if (client.getChildren().forPath(path + "/" + childrenPath).size() > 0) {
                         counter += removeOldChildZnodes(path + "/" + childrenPath);
                     } else {
@@ -17,11 +17,11 @@ package com.stratio.decision.callbacks;
 
 import static org.junit.Assert.assertNull;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.verify;
 
 import java.util.List;
 import java.util.Set;
 
-import org.apache.avro.specific.SpecificDatumReader;
 import org.apache.commons.collections.set.ListOrderedSet;
 import org.junit.After;
 import org.junit.Before;
@@ -32,14 +32,16 @@ import org.mockito.Mockito;
 import org.wso2.siddhi.core.SiddhiManager;
 import org.wso2.siddhi.core.event.Event;
 
-import com.stratio.decision.commons.avro.InsertMessage;
+import com.codahale.metrics.MetricRegistry;
 import com.stratio.decision.commons.constants.StreamAction;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.configuration.ConfigurationContext.ActionBusOverflowPolicy;
 import com.stratio.decision.configuration.StreamingSiddhiConfiguration;
 import com.stratio.decision.factory.GsonFactory;
 import com.stratio.decision.serializer.impl.JavaToAvroSerializer;
 import com.stratio.decision.serializer.impl.JavaToSiddhiSerializer;
 import com.stratio.decision.serializer.impl.KafkaToJavaSerializer;
+import com.stratio.decision.service.ActionBusPublisherService;
 import com.stratio.decision.service.StreamMetadataService;
 import com.stratio.decision.service.StreamsHelper;
 
@@ -55,6 +57,7 @@ public class StreamToActionBusCallbackTest {
     private JavaToAvroSerializer javaToAvroSerializer;
     private StreamMetadataService metadataService;
     private SiddhiManager siddhiManager;
+    private ActionBusPublisherService actionBusPublisher;
     private StreamToActionBusCallback cbk;
     private static final String streamName= "testStream";
     @Mock
@@ -68,7 +71,7 @@ public class StreamToActionBusCallbackTest {
         siddhiManager.defineStream(StreamsHelper.STREAM_DEFINITION);
         metadataService= new StreamMetadataService(siddhiManager);
         javaToSiddhiSerializer= new JavaToSiddhiSerializer(metadataService);
-        javaToAvroSerializer = new JavaToAvroSerializer(new SpecificDatumReader(InsertMessage.getClassSchema()));
+        javaToAvroSerializer = new JavaToAvroSerializer();
 
         Set<StreamAction> activeActions= new ListOrderedSet();
         activeActions.add(StreamAction.LISTEN);
@@ -79,8 +82,10 @@ public class StreamToActionBusCallbackTest {
         //doNothing().when(producer).send(km);
         doNothing().when(producer).send(Matchers.<List<KeyedMessage<String, String>>>any());
 
-        cbk= new StreamToActionBusCallback(activeActions, streamName, avroProducer,
-                javaToSiddhiSerializer, javaToAvroSerializer);
+        actionBusPublisher= new ActionBusPublisherService(avroProducer, javaToAvroSerializer, new MetricRegistry(),
+                10, 10, ActionBusOverflowPolicy.BLOCK, 1);
+        cbk= new StreamToActionBusCallback(activeActions, streamName, actionBusPublisher,
+                javaToSiddhiSerializer);
     }
 
     @After
@@ -102,5 +107,8 @@ public class StreamToActionBusCallbackTest {
 
         assertNull("Unexpected exception found", ex);
 
+        actionBusPublisher.close();
+        verify(avroProducer).send(Matchers.<List<KeyedMessage<String, byte[]>>>any());
+
     }
 }
\ No newline at end of file
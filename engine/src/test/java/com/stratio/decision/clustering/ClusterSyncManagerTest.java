@@ -23,7 +23,9 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.contains;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -34,12 +36,14 @@ import org.apache.curator.framework.recipes.cache.PathChildrenCacheEvent;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.powermock.api.mockito.PowerMockito;
 import org.powermock.reflect.internal.WhiteboxImpl;
 
 import com.google.gson.Gson;
+import com.stratio.decision.commons.avro.InsertMessageFormat;
 import com.stratio.decision.commons.constants.ReplyCode;
 import com.stratio.decision.commons.constants.STREAMING;
 import com.stratio.decision.commons.dto.ActionCallbackDto;
@@ -173,6 +177,20 @@ public class ClusterSyncManagerTest {
 
     }
 
+    @Test
+    public void testInitializedNodeStatusShouldRegisterTheNodeInsertMessageVersion() throws Exception {
+
+        String nodeStatusPath = clusterSyncManager.initializedNodeStatus();
+
+        InOrder order = inOrder(zkUtils);
+        order.verify(zkUtils).createEphemeralSequentialZNode(
+                eq(STREAMING.ZK_EPHEMERAL_NODE_INSERT_MESSAGE_VERSIONS_PATH.concat("/").concat(STREAMING
+                        .INSERT_MESSAGE_VERSION_NODE_PREFIX)),
+                eq(String.valueOf(InsertMessageFormat.latest().getVersion()).getBytes()));
+        order.verify(zkUtils).createEphemeralZNode(eq(nodeStatusPath), any(byte[].class));
+
+    }
+
 
     @Test
     public void testInitializedGroupStatusShouldBeInitilized() throws Exception {
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stratio.decision.commons.constants.ColumnType;
+import com.stratio.decision.commons.constants.StreamAction;
+import com.stratio.decision.commons.messages.ColumnNameTypeValue;
+import com.stratio.decision.service.StreamsHelper;
+import com.stratio.decision.streams.StreamStatusDTO;
+
+public class StreamStatusDaoTest {
+
+    private StreamStatusDao streamStatusDao;
+
+    @Before
+    public void setUp() throws Exception {
+        streamStatusDao = new StreamStatusDao();
+        streamStatusDao.create(StreamsHelper.STREAM_NAME, StreamsHelper.COLUMNS);
+    }
+
+    @Test
+    public void testEnabledActionsAreSnapshots() throws Exception {
+        Set<StreamAction> before = streamStatusDao.getEnabledActions(StreamsHelper.STREAM_NAME);
+
+        streamStatusDao.enableAction(StreamsHelper.STREAM_NAME, StreamAction.LISTEN);
+
+        assertTrue("Expected empty snapshot", before.isEmpty());
+        assertTrue("Expected action not found",
+                streamStatusDao.getEnabledActions(StreamsHelper.STREAM_NAME).contains(StreamAction.LISTEN));
+
+        streamStatusDao.disableAction(StreamsHelper.STREAM_NAME, StreamAction.LISTEN);
+
+        assertTrue("Expected empty actions", streamStatusDao.getEnabledActions(StreamsHelper.STREAM_NAME).isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotsCannotBeModified() throws Exception {
+        streamStatusDao.getEnabledActions(StreamsHelper.STREAM_NAME).add(StreamAction.LISTEN);
+    }
+
+    @Test
+    public void testAddQueryPublishesNewStatus() throws Exception {
+        StreamStatusDTO before = streamStatusDao.get(StreamsHelper.STREAM_NAME);
+
+        StreamStatusDTO after = streamStatusDao.addQuery(StreamsHelper.STREAM_NAME, StreamsHelper.QUERY_ID,
+                StreamsHelper.QUERY);
+
+        assertNotSame("Expected a new status", before, after);
+        assertFalse("Unexpected query found", before.getAddedQueries().containsKey(StreamsHelper.QUERY_ID));
+        assertTrue("Expected query not found", streamStatusDao.get(StreamsHelper.STREAM_NAME).getAddedQueries()
+                .containsKey(StreamsHelper.QUERY_ID));
+    }
+
+    @Test
+    public void testElementsAreNumberedInCreationOrder() throws Exception {
+        streamStatusDao.addQuery(StreamsHelper.STREAM_NAME, StreamsHelper.QUERY_ID, StreamsHelper.QUERY);
+        streamStatusDao.setActionQuery(StreamsHelper.STREAM_NAME, "actionQuery");
+        streamStatusDao.create(StreamsHelper.STREAM_NAME2, StreamsHelper.COLUMNS2);
+
+        StreamStatusDTO streamStatus = streamStatusDao.get(StreamsHelper.STREAM_NAME);
+        assertEquals("Expected value not found", 1, streamStatus.getCreationOrder());
+        assertEquals("Expected value not found", 2, streamStatus.getAddedQueries().get(StreamsHelper.QUERY_ID)
+                .getCreationOrder());
+        assertEquals("Expected value not found", 3, streamStatus.getActionQueryCreationOrder());
+        assertEquals("Expected value not found", 4, streamStatusDao.get(StreamsHelper.STREAM_NAME2)
+                .getCreationOrder());
+    }
+
+    @Test
+    public void testGetActionQueryClearsIt() throws Exception {
+        streamStatusDao.setActionQuery(StreamsHelper.STREAM_NAME, "actionQuery");
+
+        assertEquals("Expected value not found", "actionQuery",
+                streamStatusDao.getActionQuery(StreamsHelper.STREAM_NAME));
+        assertNull("Unexpected value found", streamStatusDao.getActionQuery(StreamsHelper.STREAM_NAME));
+    }
+
+    @Test
+    public void testAddColumn() throws Exception {
+        streamStatusDao.addColumn(StreamsHelper.STREAM_NAME, new ColumnNameTypeValue("extra", ColumnType.STRING,
+                null));
+
+        assertTrue("Expected column not found",
+                streamStatusDao.existsColumnDefinition(StreamsHelper.STREAM_NAME, "extra"));
+        assertEquals("Expected value not found", StreamsHelper.COLUMNS.size() + 1,
+                streamStatusDao.get(StreamsHelper.STREAM_NAME).getStreamDefinition().size());
+    }
+}
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.dao;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.stratio.decision.commons.constants.STREAMING;
+import com.stratio.decision.factory.GsonFactory;
+import com.stratio.decision.model.FailoverChangeRecord;
+import com.stratio.decision.model.FailoverPersistenceStoreModel;
+import com.stratio.decision.service.StreamsHelper;
+import com.stratio.decision.streams.StreamStatusDTO;
+import com.stratio.decision.utils.ZKUtils;
+
+public class StreamingFailoverDaoTest {
+
+    private static final String CHANGES_PATH = STREAMING.ZK_PERSISTENCE_STORE_PATH + "/changes";
+
+    private static final String SNAPSHOTS_PATH = STREAMING.ZK_PERSISTENCE_STORE_PATH + "/snapshots";
+
+    private static final String SNAPSHOT_PATH = STREAMING.ZK_PERSISTENCE_STORE_PATH + "/snapshot";
+
+    private final Map<String, byte[]> znodes = new TreeMap<>();
+
+    private int sequence;
+
+    private StreamingFailoverDao dao;
+
+    @Before
+    public void setUp() throws Exception {
+        ZKUtils zkUtils = mock(ZKUtils.class);
+
+        when(zkUtils.getZNode(anyString())).thenAnswer(new Answer<byte[]>() {
+            @Override
+            public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                return znodes.get(invocation.getArguments()[0]);
+            }
+        });
+        when(zkUtils.existZNode(anyString())).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return znodes.containsKey(invocation.getArguments()[0])
+                        || !getChildren((String) invocation.getArguments()[0]).isEmpty();
+            }
+        });
+        when(zkUtils.getChildren(anyString())).thenAnswer(new Answer<List<String>>() {
+            @Override
+            public List<String> answer(InvocationOnMock invocation) throws Throwable {
+                return getChildren((String) invocation.getArguments()[0]);
+            }
+        });
+        when(zkUtils.createSequentialZNode(anyString(), any(byte[].class))).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                String path = invocation.getArguments()[0] + String.format("%010d", sequence++);
+                znodes.put(path, (byte[]) invocation.getArguments()[1]);
+                return path;
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                znodes.put((String) invocation.getArguments()[0], (byte[]) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(zkUtils).setZNode(anyString(), any(byte[].class));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                String path = (String) invocation.getArguments()[0];
+                znodes.keySet().removeIf(key -> key.equals(path) || key.startsWith(path + "/"));
+                return null;
+            }
+        }).when(zkUtils).deleteZNode(anyString());
+
+        dao = new StreamingFailoverDao(zkUtils, GsonFactory.getInstance(), 4);
+    }
+
+    @Test
+    public void testLoadWithoutData() throws Exception {
+        assertNull("Unexpected failover data found", dao.load());
+    }
+
+    @Test
+    public void testReplayChanges() throws Exception {
+        dao.appendChanges(Arrays.asList(change(StreamsHelper.STREAM_NAME), change(StreamsHelper.STREAM_NAME2)));
+        dao.appendChanges(Collections.singletonList(new FailoverChangeRecord(StreamsHelper.STREAM_NAME, null)));
+
+        FailoverPersistenceStoreModel model = dao.load();
+
+        assertEquals("Expected value not found", 3, dao.getPendingChanges());
+        assertEquals("Expected value not found", Collections.singleton(StreamsHelper.STREAM_NAME2),
+                model.getStreamStatuses().keySet());
+        assertEquals("Expected value not found", StreamsHelper.COLUMNS2.size(),
+                model.getStreamStatuses().get(StreamsHelper.STREAM_NAME2).getStreamDefinition().size());
+    }
+
+    @Test
+    public void testCompactAndReplayLaterChanges() throws Exception {
+        dao.appendChanges(Arrays.asList(change(StreamsHelper.STREAM_NAME), change(StreamsHelper.STREAM_NAME2)));
+
+        Map<String, StreamStatusDTO> streamStatuses = new HashMap<>();
+        streamStatuses.put(StreamsHelper.STREAM_NAME, status(StreamsHelper.STREAM_NAME));
+        streamStatuses.put(StreamsHelper.STREAM_NAME2, status(StreamsHelper.STREAM_NAME2));
+        dao.compact(streamStatuses);
+
+        assertEquals("Expected value not found", 0, dao.getPendingChanges());
+        assertTrue("Unexpected change records found", getChildren(CHANGES_PATH).isEmpty());
+
+        dao.appendChanges(Collections.singletonList(new FailoverChangeRecord(StreamsHelper.STREAM_NAME, null)));
+
+        FailoverPersistenceStoreModel model = dao.load();
+
+        assertEquals("Expected value not found", 1, dao.getPendingChanges());
+        assertFalse("Unexpected stream found", model.getStreamStatuses().containsKey(StreamsHelper.STREAM_NAME));
+        assertTrue("Expected stream not found", model.getStreamStatuses().containsKey(StreamsHelper.STREAM_NAME2));
+    }
+
+    @Test
+    public void testLoadSnapshotPointerWithShards() throws Exception {
+        Map<String, StreamStatusDTO> streamStatuses = new HashMap<>();
+        streamStatuses.put(StreamsHelper.STREAM_NAME, status(StreamsHelper.STREAM_NAME));
+        streamStatuses.put(StreamsHelper.STREAM_NAME2, status(StreamsHelper.STREAM_NAME2));
+        dao.compact(streamStatuses);
+
+        String generation = getChildren(SNAPSHOTS_PATH).get(0);
+        znodes.put(SNAPSHOT_PATH, ("{\"generation\":\"" + generation + "\",\"shards\":4}").getBytes(
+                StandardCharsets.UTF_8));
+
+        FailoverPersistenceStoreModel model = dao.load();
+
+        assertEquals("Expected value not found", streamStatuses.keySet(), model.getStreamStatuses().keySet());
+    }
+
+    @Test
+    public void testSiddhiSnapshotRoundTrip() throws Exception {
+        assertNull("Unexpected siddhi snapshot found", dao.loadSiddhiSnapshot());
+
+        byte[] siddhiSnapshot = new byte[2 * 1024 * 1024];
+        new Random(7).nextBytes(siddhiSnapshot);
+        dao.saveSiddhiSnapshot(new byte[] { 1, 2, 3 });
+        dao.saveSiddhiSnapshot(siddhiSnapshot);
+
+        assertArrayEquals("Expected siddhi snapshot not found", siddhiSnapshot, dao.loadSiddhiSnapshot());
+        assertEquals("Expected only the last checkpoint", 1,
+                getChildren(STREAMING.ZK_PERSISTENCE_STORE_PATH + "/siddhi").size());
+    }
+
+    private FailoverChangeRecord change(String streamName) {
+        return new FailoverChangeRecord(streamName, status(streamName));
+    }
+
+    private StreamStatusDTO status(String streamName) {
+        return new StreamStatusDTO(streamName, true, StreamsHelper.STREAM_NAME.equals(streamName) ? StreamsHelper
+                .COLUMNS : StreamsHelper.COLUMNS2);
+    }
+
+    private List<String> getChildren(String path) {
+        Set<String> children = new LinkedHashSet<>();
+        for (String key : znodes.keySet()) {
+            if (key.startsWith(path + "/")) {
+                children.add(key.substring(path.length() + 1).split("/")[0]);
+            }
+        }
+        return new ArrayList<>(children);
+    }
+}
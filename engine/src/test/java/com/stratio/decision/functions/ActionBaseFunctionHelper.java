@@ -19,7 +19,6 @@ import com.stratio.decision.clustering.ClusterSyncManager;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
 import com.stratio.decision.configuration.ConfigurationContext;
 import com.stratio.decision.configuration.SchredulerConfiguration;
-import com.stratio.decision.configuration.ServiceConfiguration;
 import com.stratio.decision.configuration.StreamingSiddhiConfiguration;
 import com.stratio.decision.dao.StreamStatusDao;
 import com.stratio.decision.functions.validator.RequestValidation;
@@ -75,8 +74,7 @@ public abstract class ActionBaseFunctionHelper {
 
         siddhiManager= new StreamingSiddhiConfiguration().siddhiManager();
         streamStatusDao= new StreamStatusDao();
-        ServiceConfiguration serviceConfiguration= new ServiceConfiguration();
-        callbackService= serviceConfiguration.callbackService();
+        callbackService= StreamsHelper.callbackService(siddhiManager);
 
         streamOperationsService= new StreamOperationService(siddhiManager, streamStatusDao, callbackService);
 
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.functions;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stratio.decision.commons.constants.STREAM_OPERATIONS;
+import com.stratio.decision.commons.messages.StratioStreamingMessage;
+
+public class RequestDispatcherFunctionTest {
+
+    private ActionBaseFunction createStreamFunction;
+
+    private ActionBaseFunction listStreamsFunction;
+
+    private RequestDispatcherFunction requestDispatcherFunction;
+
+    @Before
+    public void setUp() throws Exception {
+        createStreamFunction = mock(ActionBaseFunction.class);
+        when(createStreamFunction.getStartOperationCommand()).thenReturn(STREAM_OPERATIONS.DEFINITION.CREATE);
+        when(createStreamFunction.getStopOperationCommand()).thenReturn(STREAM_OPERATIONS.DEFINITION.DROP);
+
+        listStreamsFunction = mock(ActionBaseFunction.class);
+        when(listStreamsFunction.getStartOperationCommand()).thenReturn(STREAM_OPERATIONS.MANIPULATION.LIST);
+
+        requestDispatcherFunction = new RequestDispatcherFunction().register(createStreamFunction).register
+                (listStreamsFunction);
+    }
+
+    @Test
+    public void testDispatchByStartAndStopOperation() throws Exception {
+        StratioStreamingMessage create = getMessage(STREAM_OPERATIONS.DEFINITION.CREATE.toUpperCase());
+        StratioStreamingMessage drop = getMessage(STREAM_OPERATIONS.DEFINITION.DROP);
+        StratioStreamingMessage list = getMessage(STREAM_OPERATIONS.MANIPULATION.LIST);
+
+        requestDispatcherFunction.dispatch(create);
+        requestDispatcherFunction.dispatch(drop);
+        requestDispatcherFunction.dispatch(list);
+
+        verify(createStreamFunction).process(create);
+        verify(createStreamFunction).process(drop);
+        verify(listStreamsFunction).process(list);
+        verify(listStreamsFunction, never()).process(create);
+    }
+
+    @Test
+    public void testDispatchUnknownOperation() throws Exception {
+        StratioStreamingMessage unknown = getMessage("unknown");
+
+        requestDispatcherFunction.dispatch(unknown);
+        requestDispatcherFunction.dispatch(getMessage(null));
+
+        verify(createStreamFunction, never()).process(unknown);
+        verify(listStreamsFunction, never()).process(unknown);
+    }
+
+    private StratioStreamingMessage getMessage(String operation) {
+        StratioStreamingMessage message = new StratioStreamingMessage();
+        message.setOperation(operation);
+        message.setStreamName("testStream");
+        return message;
+    }
+
+}
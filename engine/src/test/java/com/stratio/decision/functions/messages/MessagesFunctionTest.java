@@ -15,13 +15,26 @@
  */
 package com.stratio.decision.functions.messages;
 
+import com.stratio.decision.commons.avro.InsertBatchMessage;
+import com.stratio.decision.commons.avro.InsertMessageCodec;
 import com.stratio.decision.commons.constants.STREAM_OPERATIONS;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.dao.KafkaOffsetsDao;
+import kafka.message.MessageAndMetadata;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.rdd.RDD;
+import org.apache.spark.streaming.kafka.HasOffsetRanges;
+import org.apache.spark.streaming.kafka.OffsetRange;
 import org.junit.Before;
 import org.junit.Test;
 import scala.Tuple2;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
 
 /**
  * Created by aitor on 9/25/15.
@@ -56,4 +69,62 @@ public class MessagesFunctionTest {
         assertEquals("Expected streamName not found", "testStream", message.getStreamName());
         assertEquals("Expected value not found", "name", message.getColumns().get(0).getValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testMessageAndMetadataToTuple() throws Exception {
+        MessageAndMetadata<String, byte[]> messageAndMetadata = mock(MessageAndMetadata.class);
+        byte[] payload = new byte[] { 1, 2, 3 };
+        when(messageAndMetadata.key()).thenReturn(STREAM_OPERATIONS.MANIPULATION.INSERT);
+        when(messageAndMetadata.message()).thenReturn(payload);
+
+        Tuple2<String, byte[]> tuple = new MessageAndMetadataToTupleFunction<byte[]>().call(messageAndMetadata);
+        assertEquals("Expected key not found", STREAM_OPERATIONS.MANIPULATION.INSERT, tuple._1());
+        assertArrayEquals("Expected payload not found", payload, tuple._2());
+    }
+
+    @Test
+    public void testAvroBatchIsFlattened() throws Exception {
+        InsertBatchMessage batch = new InsertBatchMessage(STREAM_OPERATIONS.MANIPULATION.INSERT, "testStream", null,
+                Arrays.asList("name"), Arrays.asList(Arrays.<Object>asList("a"), Arrays.<Object>asList("b"),
+                Arrays.<Object>asList("c")));
+        Tuple2<String, byte[]> tuple = new Tuple2<>(STREAM_OPERATIONS.MANIPULATION.INSERT, InsertMessageCodec.get()
+                .encode(batch));
+
+        List<StratioStreamingMessage> messages = new ArrayList<>();
+        for (StratioStreamingMessage message : new AvroDeserializeMessageFunction().call(tuple)) {
+            messages.add(message);
+        }
+
+        assertEquals("Expected one message per row", 3, messages.size());
+        assertEquals("Expected value not found", "c", messages.get(2).getColumns().get(0).getValue());
+    }
+
+    @Test
+    public void testCommitKafkaOffsets() throws Exception {
+        KafkaOffsetsDao kafkaOffsetsDao = mock(KafkaOffsetsDao.class);
+        RDD rdd = mock(RDD.class, withSettings().extraInterfaces(HasOffsetRanges.class));
+        when(((HasOffsetRanges) rdd).offsetRanges()).thenReturn(new OffsetRange[] {
+                OffsetRange.create("topic", 0, 10L, 25L), OffsetRange.create("topic", 1, 7L, 7L) });
+        JavaPairRDD<String, byte[]> pairRdd = mock(JavaPairRDD.class);
+        when(pairRdd.rdd()).thenReturn(rdd);
+
+        new CommitKafkaOffsetsFunction<byte[]>(kafkaOffsetsDao).call(pairRdd);
+
+        verify(kafkaOffsetsDao).save("topic", 0, 25L);
+        verify(kafkaOffsetsDao).save("topic", 1, 7L);
+    }
+
+    @Test
+    public void testCommitKafkaOffsetsOfIdlePartition() throws Exception {
+        KafkaOffsetsDao kafkaOffsetsDao = mock(KafkaOffsetsDao.class);
+        RDD rdd = mock(RDD.class, withSettings().extraInterfaces(HasOffsetRanges.class));
+        when(((HasOffsetRanges) rdd).offsetRanges()).thenReturn(new OffsetRange[] {
+                OffsetRange.create("topic", 0, 0L, 0L) });
+        JavaPairRDD<String, byte[]> pairRdd = mock(JavaPairRDD.class);
+        when(pairRdd.rdd()).thenReturn(rdd);
+
+        new CommitKafkaOffsetsFunction<byte[]>(kafkaOffsetsDao).call(pairRdd);
+
+        verify(kafkaOffsetsDao).save("topic", 0, 0L);
+    }
+}
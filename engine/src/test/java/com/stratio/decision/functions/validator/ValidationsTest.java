@@ -19,7 +19,6 @@ import com.stratio.decision.commons.constants.ReplyCode;
 import com.stratio.decision.commons.constants.STREAM_OPERATIONS;
 import com.stratio.decision.commons.constants.StreamAction;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
-import com.stratio.decision.configuration.ServiceConfiguration;
 import com.stratio.decision.configuration.StreamingSiddhiConfiguration;
 import com.stratio.decision.dao.StreamStatusDao;
 import com.stratio.decision.exception.RequestValidationException;
@@ -50,8 +49,7 @@ public class ValidationsTest {
     public void setUp() throws Exception {
         siddhiManager= new StreamingSiddhiConfiguration().siddhiManager();
         streamStatusDao= new StreamStatusDao();
-        ServiceConfiguration serviceConfiguration= new ServiceConfiguration();
-        callbackService= serviceConfiguration.callbackService();
+        callbackService= StreamsHelper.callbackService(siddhiManager);
 
         streamOperationsService= new StreamOperationService(siddhiManager, streamStatusDao, callbackService);
     }
@@ -17,9 +17,9 @@ package com.stratio.decision.metrics;
 
 import com.codahale.metrics.*;
 import com.codahale.metrics.jvm.FileDescriptorRatioGauge;
-import com.stratio.decision.configuration.ServiceConfiguration;
 import com.stratio.decision.configuration.StreamingSiddhiConfiguration;
 import com.stratio.decision.dao.StreamStatusDao;
+import com.stratio.decision.service.StreamsHelper;
 import com.stratio.decision.service.StreamOperationServiceWithoutMetrics;
 import org.junit.Before;
 import org.junit.Test;
@@ -45,10 +45,9 @@ public class SiddhiStreamReporterTest {
     @Before
     public void setUp() throws Exception {
         SiddhiManager siddhiManager= new StreamingSiddhiConfiguration().siddhiManager();
-        ServiceConfiguration serviceConfiguration= new ServiceConfiguration();
 
         streamOperationService= new StreamOperationServiceWithoutMetrics(
-                siddhiManager, new StreamStatusDao(), serviceConfiguration.callbackService());
+                siddhiManager, new StreamStatusDao(), StreamsHelper.callbackService(siddhiManager));
 
         builder= SiddhiStreamReporter.forRegistry(new MetricRegistry(), streamOperationService);
     }
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.serializer.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.stratio.decision.commons.avro.InsertBatchMessage;
+import com.stratio.decision.commons.avro.InsertMessageCodec;
+import com.stratio.decision.commons.avro.InsertMessageFormat;
+import com.stratio.decision.commons.constants.ColumnType;
+import com.stratio.decision.commons.constants.StreamAction;
+import com.stratio.decision.commons.messages.ColumnNameTypeValue;
+import com.stratio.decision.commons.messages.StratioStreamingMessage;
+
+public class JavaToAvroSerializerTest {
+
+    private JavaToAvroSerializer serializer;
+
+    private JavaToAvroSerializer v1Serializer;
+
+    @Before
+    public void setUp() throws Exception {
+        serializer = new JavaToAvroSerializer();
+        v1Serializer = new JavaToAvroSerializer(InsertMessageFormat.V1);
+    }
+
+    @Test
+    public void testTypedValuesRoundTrip() throws Exception {
+        byte[] payload = serializer.serialize(getMessage());
+
+        assertEquals(InsertMessageFormat.V2, InsertMessageFormat.fromPayload(payload));
+
+        StratioStreamingMessage result = serializer.deserialize(payload);
+        assertEquals("testStream", result.getStreamName());
+        assertEquals(Collections.singleton(StreamAction.LISTEN), result.getActiveActions());
+        assertColumn(result.getColumns().get(0), "name", ColumnType.STRING, "name");
+        assertColumn(result.getColumns().get(1), "value", ColumnType.INTEGER, 3);
+        assertColumn(result.getColumns().get(2), "numberl", ColumnType.LONG, 123L);
+        assertColumn(result.getColumns().get(3), "numberf", ColumnType.FLOAT, 13.5f);
+        assertColumn(result.getColumns().get(4), "numberd", ColumnType.DOUBLE, 1.5d);
+        assertColumn(result.getColumns().get(5), "enabled", ColumnType.BOOLEAN, true);
+        assertColumn(result.getColumns().get(6), "empty", null, null);
+    }
+
+    @Test
+    public void testV1PayloadsAreStillAccepted() throws Exception {
+        byte[] payload = v1Serializer.serialize(getMessage());
+
+        assertEquals(InsertMessageFormat.V1, InsertMessageFormat.fromPayload(payload));
+        assertNotEquals(InsertMessageFormat.MAGIC_BYTE, payload[0]);
+
+        StratioStreamingMessage result = serializer.deserialize(payload);
+        assertEquals("testStream", result.getStreamName());
+        assertColumn(result.getColumns().get(1), "value", ColumnType.INTEGER, 3);
+        assertColumn(result.getColumns().get(2), "numberl", ColumnType.LONG, 123L);
+    }
+
+    @Test
+    public void testDecodedMessagesAreNotShared() throws Exception {
+        StratioStreamingMessage other = getMessage();
+        other.setStreamName("otherStream");
+        byte[] payload = serializer.serialize(getMessage());
+        byte[] otherPayload = serializer.serialize(other);
+
+        StratioStreamingMessage result = serializer.deserialize(payload);
+        StratioStreamingMessage otherResult = serializer.deserialize(otherPayload);
+
+        assertEquals("testStream", result.getStreamName());
+        assertEquals(7, result.getColumns().size());
+        assertEquals("otherStream", otherResult.getStreamName());
+        assertTrue(payload != serializer.serialize(getMessage()));
+    }
+
+    @Test
+    public void testTypedPayloadIsSmaller() throws Exception {
+        StratioStreamingMessage message = getMessage();
+
+        assertTrue(serializer.serialize(message).length < v1Serializer.serialize(message).length);
+    }
+
+    @Test
+    public void testBatchPayloadIsUnpackedByRow() throws Exception {
+        InsertBatchMessage batch = new InsertBatchMessage("insert", "testStream", "session", Arrays.asList("name",
+                "value", "empty"), Arrays.asList(Arrays.<Object>asList("first", 1, null), Arrays.<Object>asList(
+                "second", 2L, 2.5d)));
+        byte[] payload = InsertMessageCodec.get().encode(batch);
+
+        assertEquals(InsertMessageFormat.V3, InsertMessageFormat.fromPayload(payload));
+
+        List<StratioStreamingMessage> results = serializer.deserializeAll(payload);
+        assertEquals(2, results.size());
+        assertEquals("testStream", results.get(0).getStreamName());
+        assertEquals("insert", results.get(1).getOperation());
+        assertEquals("session", results.get(1).getSession_id());
+        assertColumn(results.get(0).getColumns().get(0), "name", ColumnType.STRING, "first");
+        assertColumn(results.get(0).getColumns().get(1), "value", ColumnType.INTEGER, 1);
+        assertColumn(results.get(0).getColumns().get(2), "empty", null, null);
+        assertColumn(results.get(1).getColumns().get(1), "value", ColumnType.LONG, 2L);
+        assertColumn(results.get(1).getColumns().get(2), "empty", ColumnType.DOUBLE, 2.5d);
+
+        assertNull(serializer.deserialize(payload));
+    }
+
+    @Test
+    public void testBatchRowsWithWrongArityAreDiscarded() throws Exception {
+        InsertBatchMessage batch = new InsertBatchMessage("insert", "testStream", null, Arrays.asList("name",
+                "value"), Arrays.asList(Arrays.<Object>asList("first"), Arrays.<Object>asList("second", 2)));
+
+        List<StratioStreamingMessage> results = serializer.deserializeAll(InsertMessageCodec.get().encode(batch));
+
+        assertEquals(1, results.size());
+        assertColumn(results.get(0).getColumns().get(0), "name", ColumnType.STRING, "second");
+    }
+
+    @Test
+    public void testSingleMessagesAreDeserializedAsOneElementList() throws Exception {
+        List<StratioStreamingMessage> results = serializer.deserializeAll(serializer.serialize(getMessage()));
+
+        assertEquals(1, results.size());
+        assertEquals(7, results.get(0).getColumns().size());
+        assertTrue(serializer.deserializeAll(new byte[0]).isEmpty());
+    }
+
+    private void assertColumn(ColumnNameTypeValue column, String name, ColumnType type, Object value) {
+        assertEquals(name, column.getColumn());
+        assertEquals(type, column.getType());
+        assertEquals(value, column.getValue());
+    }
+
+    private StratioStreamingMessage getMessage() {
+        StratioStreamingMessage message = new StratioStreamingMessage();
+        message.setOperation("insert");
+        message.setStreamName("testStream");
+        message.setSession_id("session");
+        message.setActiveActions(Collections.singleton(StreamAction.LISTEN));
+        message.addColumn(new ColumnNameTypeValue("name", ColumnType.STRING, "name"));
+        message.addColumn(new ColumnNameTypeValue("value", ColumnType.INTEGER, 3));
+        message.addColumn(new ColumnNameTypeValue("numberl", ColumnType.LONG, 123L));
+        message.addColumn(new ColumnNameTypeValue("numberf", ColumnType.FLOAT, 13.5f));
+        message.addColumn(new ColumnNameTypeValue("numberd", ColumnType.DOUBLE, 1.5d));
+        message.addColumn(new ColumnNameTypeValue("enabled", ColumnType.BOOLEAN, true));
+        message.addColumn(new ColumnNameTypeValue("empty", null, null));
+        return message;
+    }
+
+}
@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.codahale.metrics.MetricRegistry;
+import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.configuration.ConfigurationContext.ActionBusOverflowPolicy;
+import com.stratio.decision.serializer.Serializer;
+
+import kafka.javaapi.producer.Producer;
+import kafka.producer.KeyedMessage;
+
+public class ActionBusPublisherServiceTest {
+
+    private static final String TOPIC = "stratio_decision_action";
+
+    private static final String OTHER_STREAM_NAME = "otherStream";
+
+    private static final String OTHER_TOPIC = "stratio_decision_action_other";
+
+    private Producer<String, byte[]> avroProducer;
+
+    private Serializer<StratioStreamingMessage, byte[]> javaToAvroSerializer;
+
+    private MetricRegistry metricRegistry;
+
+    private CountDownLatch senderBlocked;
+
+    private ActionBusPublisherService service;
+
+    @Before
+    public void setUp() throws Exception {
+        avroProducer = mock(Producer.class);
+        javaToAvroSerializer = mock(Serializer.class);
+        when(javaToAvroSerializer.serialize(any(StratioStreamingMessage.class))).thenReturn(new byte[0]);
+        metricRegistry = new MetricRegistry();
+
+        // keeps the only sender busy so the queue fills up
+        senderBlocked = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                senderBlocked.await();
+                return null;
+            }
+        }).when(avroProducer).send(Matchers.<List<KeyedMessage<String, byte[]>>>any());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        senderBlocked.countDown();
+        service.close();
+    }
+
+    @Test
+    public void testDropOldest() throws Exception {
+        service = new ActionBusPublisherService(avroProducer, javaToAvroSerializer, metricRegistry, 2, 10,
+                ActionBusOverflowPolicy.DROP_OLDEST, 1);
+
+        service.publish(StreamsHelper.STREAM_NAME, TOPIC, Arrays.asList(message()));
+        waitForSender();
+        service.publish(StreamsHelper.STREAM_NAME, TOPIC, Arrays.asList(message(), message(), message()));
+
+        assertEquals(2, service.getQueueDepth(StreamsHelper.STREAM_NAME));
+        assertEquals(1, metricRegistry.counter("actionbus." + StreamsHelper.STREAM_NAME + ".dropped").getCount());
+        assertEquals(2, metricRegistry.getGauges().get("actionbus." + StreamsHelper.STREAM_NAME + ".queue.depth")
+                .getValue());
+    }
+
+    @Test
+    public void testSpill() throws Exception {
+        service = new ActionBusPublisherService(avroProducer, javaToAvroSerializer, metricRegistry, 1, 10,
+                ActionBusOverflowPolicy.SPILL, 1);
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                List<KeyedMessage<String, byte[]>> batch = (List<KeyedMessage<String, byte[]>>) invocation
+                        .getArguments()[0];
+                if (OTHER_TOPIC.equals(batch.get(0).topic())) {
+                    senderBlocked.await();
+                }
+                return null;
+            }
+        }).when(avroProducer).send(Matchers.<List<KeyedMessage<String, byte[]>>>any());
+
+        // the only sender is kept busy by another stream
+        service.publish(OTHER_STREAM_NAME, OTHER_TOPIC, Arrays.asList(message()));
+        while (service.getQueueDepth(OTHER_STREAM_NAME) > 0) {
+            Thread.sleep(5);
+        }
+        service.publish(StreamsHelper.STREAM_NAME, TOPIC, Arrays.asList(message(), message()));
+
+        assertEquals(1, service.getQueueDepth(StreamsHelper.STREAM_NAME));
+        assertEquals(1, metricRegistry.counter("actionbus." + StreamsHelper.STREAM_NAME + ".spilled").getCount());
+        verify(avroProducer, times(2)).send(Matchers.<List<KeyedMessage<String, byte[]>>>any());
+        verify(avroProducer, never()).send(any(KeyedMessage.class));
+    }
+
+    @Test
+    public void testQueuedMessagesAreSentOnClose() throws Exception {
+        senderBlocked.countDown();
+        service = new ActionBusPublisherService(avroProducer, javaToAvroSerializer, metricRegistry, 100, 10,
+                ActionBusOverflowPolicy.BLOCK, 2);
+
+        service.publish(StreamsHelper.STREAM_NAME, TOPIC, Arrays.asList(message(), message(), message()));
+        service.close();
+
+        assertEquals(0, service.getQueueDepth(StreamsHelper.STREAM_NAME));
+        verify(javaToAvroSerializer, times(3)).serialize(any(StratioStreamingMessage.class));
+        verify(avroProducer, never()).send(any(KeyedMessage.class));
+        assertEquals(1, metricRegistry.timer("actionbus.enqueue.time").getCount());
+    }
+
+    private void waitForSender() throws InterruptedException {
+        while (service.getQueueDepth(StreamsHelper.STREAM_NAME) > 0) {
+            Thread.sleep(5);
+        }
+    }
+
+    private StratioStreamingMessage message() {
+        return new StratioStreamingMessage(StreamsHelper.STREAM_NAME, System.currentTimeMillis(),
+                StreamsHelper.COLUMNS);
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.Client;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class ElasticSearchBulkServiceTest {
+
+    private Client client;
+
+    private MetricRegistry metricRegistry;
+
+    private ElasticSearchBulkService service;
+
+    @Before
+    public void setUp() throws Exception {
+        client = mock(Client.class);
+        metricRegistry = new MetricRegistry();
+        // without concurrent requests every bulk is executed by the thread that fills it
+        service = new ElasticSearchBulkService(client, metricRegistry, 2, 1024 * 1024, 0, 60000, 1, 1);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service.close();
+    }
+
+    @Test
+    public void testBulkMetrics() throws Exception {
+        BulkResponse response = new BulkResponse(new BulkItemResponse[] {
+                new BulkItemResponse(0, "index", new IndexResponse("index", "stream", "1", 1, true)),
+                new BulkItemResponse(1, "index", new IndexResponse("index", "stream", "2", 1, true)) }, 10);
+        ActionFuture<BulkResponse> future = mock(ActionFuture.class);
+        when(future.actionGet()).thenReturn(response);
+        when(client.bulk(Mockito.any(BulkRequest.class))).thenReturn(future);
+
+        service.add(new IndexRequest("index", "stream").source("{\"field\":1}"));
+        service.add(new IndexRequest("index", "stream").source("{\"field\":2}"));
+
+        assertEquals(1, metricRegistry.timer("elasticsearch.bulk.time").getCount());
+        assertEquals(2, metricRegistry.counter("elasticsearch.bulk.success").getCount());
+        assertEquals(0, metricRegistry.counter("elasticsearch.bulk.failures").getCount());
+    }
+}
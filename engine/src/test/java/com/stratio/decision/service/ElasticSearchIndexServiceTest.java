@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import org.elasticsearch.client.Client;
+import org.junit.Test;
+
+public class ElasticSearchIndexServiceTest {
+
+    // 2016-03-15T10:20:00Z
+    private static final long TIMESTAMP = 1458037200000L;
+
+    @Test
+    public void testSingleIndexWithoutDatePattern() throws Exception {
+        ElasticSearchIndexService service = new ElasticSearchIndexService(mock(Client.class), "", 0);
+
+        assertEquals(ElasticSearchIndexService.INDEX_NAME, service.getIndexName("myStream", TIMESTAMP));
+        assertEquals(0, service.deleteExpiredIndices());
+    }
+
+    @Test
+    public void testDailyIndexName() throws Exception {
+        ElasticSearchIndexService service = new ElasticSearchIndexService(mock(Client.class), "yyyy.MM.dd", 0);
+
+        assertEquals("stratiodecision-my+stream-2016.03.15", service.getIndexName("myStream", TIMESTAMP));
+        assertEquals(Long.valueOf(1458000000000L), service.getIndexTime("stratiodecision-my+stream-2016.03.15",
+                service.getIndexPrefix("myStream")));
+        assertNull(service.getIndexTime("stratiodecision-my+stream-template", service.getIndexPrefix("myStream")));
+    }
+
+    @Test
+    public void testMonthlyIndexName() throws Exception {
+        ElasticSearchIndexService service = new ElasticSearchIndexService(mock(Client.class), "yyyy.MM", 0);
+
+        assertEquals("stratiodecision-my+stream-2016.03", service.getIndexName("myStream", TIMESTAMP));
+        assertEquals(Long.valueOf(1456790400000L), service.getIndexTime("stratiodecision-my+stream-2016.03",
+                service.getIndexPrefix("myStream")));
+    }
+
+    @Test
+    public void testDashedDailyIndexName() throws Exception {
+        ElasticSearchIndexService service = new ElasticSearchIndexService(mock(Client.class), "yyyy-MM-dd", 0);
+
+        assertEquals("stratiodecision-my+stream-2016-03-15", service.getIndexName("myStream", TIMESTAMP));
+        assertEquals(Long.valueOf(1458000000000L), service.getIndexTime("stratiodecision-my+stream-2016-03-15",
+                service.getIndexPrefix("myStream")));
+        assertNull(service.getIndexTime("stratiodecision-otherstream-2016-03-15",
+                service.getIndexPrefix("myStream")));
+    }
+
+    @Test
+    public void testStreamNamesDoNotShareIndices() throws Exception {
+        ElasticSearchIndexService service = new ElasticSearchIndexService(mock(Client.class), "yyyy.MM.dd", 0);
+
+        assertEquals("stratiodecision-+foo-2016.03.15", service.getIndexName("Foo", TIMESTAMP));
+        assertEquals("stratiodecision-foo-2016.03.15", service.getIndexName("foo", TIMESTAMP));
+        assertEquals("stratiodecision-a++002db-2016.03.15", service.getIndexName("a-b", TIMESTAMP));
+        assertEquals("stratiodecision-my_stream-2016.03.15", service.getIndexName("my_stream", TIMESTAMP));
+        assertNull(service.getIndexTime(service.getIndexName("a-b", TIMESTAMP), service.getIndexPrefix("a")));
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import com.stratio.decision.commons.constants.StreamAction;
+import com.stratio.decision.streams.QueryDTO;
+import com.stratio.decision.streams.StreamStatusDTO;
+
+public class FailoverRestorePlannerTest {
+
+    private static final String FILTER_QUERY = "from testStream[value >= 50] select name, value insert into filtered;";
+
+    private static final String ALERT_QUERY = "from filtered[value >= 100] select name insert into alerts;";
+
+    private StreamOperationService streamOperationService;
+
+    private Map<String, StreamStatusDTO> streamStatuses;
+
+    @Before
+    public void setUp() throws Exception {
+        streamOperationService = mock(StreamOperationService.class);
+
+        streamStatuses = new LinkedHashMap<>();
+        // the query reading "filtered" is stored before the one writing it
+        put(new StreamStatusDTO("filtered", false, StreamsHelper.COLUMNS3).withQuery("q2", new QueryDTO(ALERT_QUERY)));
+        put(new StreamStatusDTO("alerts", false, StreamsHelper.COLUMNS3));
+        put(new StreamStatusDTO(StreamsHelper.STREAM_NAME, true, StreamsHelper.COLUMNS).withQuery("q1",
+                new QueryDTO(FILTER_QUERY)).withActionEnabled(StreamAction.LISTEN));
+        put(new StreamStatusDTO(StreamsHelper.STREAM_NAME2, true, StreamsHelper.COLUMNS2));
+    }
+
+    @Test
+    public void testPlanGroupsConnectedStreams() throws Exception {
+        List<FailoverRestorePlanner.RestoreGroup> groups = new FailoverRestorePlanner(streamOperationService, 1)
+                .plan(streamStatuses);
+
+        assertEquals("Expected value not found", 2, groups.size());
+        assertEquals("Expected value not found", 3, groups.get(0).streams.size());
+        assertEquals("Expected value not found", FILTER_QUERY, groups.get(0).queries.get(0).queryRaw);
+        assertEquals("Expected value not found", ALERT_QUERY, groups.get(0).queries.get(1).queryRaw);
+        assertEquals("Expected value not found", 1, groups.get(1).streams.size());
+    }
+
+    @Test
+    public void testRestoreInPhases() throws Exception {
+        assertEquals("Unexpected failures", 0, new FailoverRestorePlanner(streamOperationService, 2).restore(
+                streamStatuses));
+
+        verify(streamOperationService).createInternalStream("filtered", streamStatuses.get("filtered")
+                .getStreamDefinition());
+        verify(streamOperationService).createStream(StreamsHelper.STREAM_NAME2, streamStatuses.get(StreamsHelper
+                .STREAM_NAME2).getStreamDefinition());
+
+        InOrder inOrder = inOrder(streamOperationService);
+        inOrder.verify(streamOperationService).addQueryWithoutInferredStreams(StreamsHelper.STREAM_NAME,
+                FILTER_QUERY);
+        inOrder.verify(streamOperationService).addQueryWithoutInferredStreams("filtered", ALERT_QUERY);
+        inOrder.verify(streamOperationService).registerInferredStreams();
+        inOrder.verify(streamOperationService).enableAction(StreamsHelper.STREAM_NAME, StreamAction.LISTEN);
+    }
+
+    @Test
+    public void testRestoreInCreationOrder() throws Exception {
+        streamStatuses.clear();
+        put(new StreamStatusDTO("alerts", false, StreamsHelper.COLUMNS3, 6));
+        put(new StreamStatusDTO("filtered", false, StreamsHelper.COLUMNS3, 3).withQuery("q2", new QueryDTO(
+                ALERT_QUERY, 5)));
+        put(new StreamStatusDTO(StreamsHelper.STREAM_NAME, true, StreamsHelper.COLUMNS, 1).withQuery("q1",
+                new QueryDTO(FILTER_QUERY, 2)).withActionEnabled(StreamAction.LISTEN).withActionQueryId(null, 4));
+        // "filtered" is registered by the query writing into it
+        when(streamOperationService.streamExist("filtered")).thenReturn(true);
+
+        assertEquals("Unexpected failures", 0, new FailoverRestorePlanner(streamOperationService, 1, true).restore(
+                streamStatuses));
+
+        InOrder inOrder = inOrder(streamOperationService);
+        inOrder.verify(streamOperationService).createStream(StreamsHelper.STREAM_NAME, streamStatuses.get(
+                StreamsHelper.STREAM_NAME).getStreamDefinition());
+        inOrder.verify(streamOperationService).addQuery(StreamsHelper.STREAM_NAME, FILTER_QUERY);
+        inOrder.verify(streamOperationService).enableAction(StreamsHelper.STREAM_NAME, StreamAction.LISTEN);
+        inOrder.verify(streamOperationService).addQuery("filtered", ALERT_QUERY);
+        inOrder.verify(streamOperationService).createInternalStream("alerts", streamStatuses.get("alerts")
+                .getStreamDefinition());
+        verify(streamOperationService, never()).createInternalStream("filtered", streamStatuses.get("filtered")
+                .getStreamDefinition());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRestoreInCreationOrderRejectsSeveralThreads() throws Exception {
+        new FailoverRestorePlanner(streamOperationService, 2, true);
+    }
+
+    private void put(StreamStatusDTO streamStatus) {
+        streamStatuses.put(streamStatus.getStreamName(), streamStatus);
+    }
+}
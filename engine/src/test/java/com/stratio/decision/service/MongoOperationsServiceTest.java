@@ -0,0 +1,98 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BulkWriteOperation;
+import com.mongodb.DB;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.MongoException;
+import com.mongodb.WriteConcern;
+
+public class MongoOperationsServiceTest {
+
+    private DB db;
+
+    private DBCollection collection;
+
+    private BulkWriteOperation bulk;
+
+    private MetricRegistry metricRegistry;
+
+    private MongoOperationsService service;
+
+    @Before
+    public void setUp() throws Exception {
+        db = mock(DB.class);
+        collection = mock(DBCollection.class);
+        bulk = mock(BulkWriteOperation.class);
+        metricRegistry = new MetricRegistry();
+
+        when(db.getCollection(StreamsHelper.STREAM_NAME)).thenReturn(collection);
+        when(collection.initializeUnorderedBulkOperation()).thenReturn(bulk);
+
+        service = new MongoOperationsService(db, metricRegistry, WriteConcern.ACKNOWLEDGED, false, 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        service.close();
+    }
+
+    @Test
+    public void testIndexIsCreatedOnce() throws Exception {
+        Map<String, List<DBObject>> documents = Collections.singletonMap(StreamsHelper.STREAM_NAME,
+                Arrays.<DBObject>asList(new BasicDBObject("a", 1), new BasicDBObject("a", 2)));
+
+        assertEquals(0, service.insert(documents));
+        assertEquals(0, service.insert(documents));
+
+        verify(db, times(1)).getCollection(StreamsHelper.STREAM_NAME);
+        verify(collection, times(1)).createIndex(any(DBObject.class));
+        verify(bulk, times(4)).insert(any(DBObject.class));
+        verify(bulk, times(2)).execute(WriteConcern.ACKNOWLEDGED);
+        assertEquals(2, metricRegistry.timer("mongo.bulk." + StreamsHelper.STREAM_NAME).getCount());
+    }
+
+    @Test
+    public void testFailedBulkIsCounted() throws Exception {
+        when(bulk.execute(WriteConcern.ACKNOWLEDGED)).thenThrow(new MongoException("boom"));
+        Map<String, List<DBObject>> documents = Collections.singletonMap(StreamsHelper.STREAM_NAME,
+                Arrays.<DBObject>asList(new BasicDBObject("a", 1)));
+
+        assertEquals(1, service.insert(documents));
+        assertEquals(1, metricRegistry.counter("mongo.bulk." + StreamsHelper.STREAM_NAME + ".errors").getCount());
+        assertEquals(1, metricRegistry.timer("mongo.bulk." + StreamsHelper.STREAM_NAME).getCount());
+    }
+}
@@ -15,25 +15,46 @@
  */
 package com.stratio.decision.service;
 
+import com.codahale.metrics.MetricRegistry;
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ColumnDefinitions;
+import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.querybuilder.Insert;
 import com.stratio.decision.commons.constants.ColumnType;
 import com.stratio.decision.commons.constants.STREAMING;
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
+import com.stratio.decision.configuration.CassandraTableConfigurationBean;
 import org.apache.commons.collections.set.ListOrderedSet;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.Set;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 /**
  * Created by aitor on 9/23/15.
@@ -130,4 +151,115 @@ public class SaveToCassandraOperationsServiceTest {
         assertEquals("Expected null but exception found", null, ex);
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCreateBoundInsertStatementUsesCache() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        service = new SaveToCassandraOperationsService(mockedSession, metricRegistry);
+
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        ColumnDefinitions variables = mock(ColumnDefinitions.class);
+        when(mockedSession.prepare(Mockito.any(RegularStatement.class))).thenReturn(preparedStatement);
+        when(preparedStatement.getVariables()).thenReturn(variables);
+        when(variables.getType(Mockito.anyInt())).thenReturn(DataType.text());
+        when(preparedStatement.bind((Object[]) Mockito.anyVararg())).thenReturn(mock(BoundStatement.class));
+
+        List<ColumnNameTypeValue> reversedColumns = new ArrayList<>(columns);
+        Collections.reverse(reversedColumns);
+
+        service.createBoundInsertStatement(TABLE, columns, "timestamp");
+        service.createBoundInsertStatement(TABLE, reversedColumns, "timestamp");
+
+        verify(mockedSession, times(1)).prepare(Mockito.any(RegularStatement.class));
+        assertEquals(1, metricRegistry.counter("cassandra.insert.statements.cache.hits").getCount());
+        assertEquals(1, metricRegistry.counter("cassandra.insert.statements.cache.misses").getCount());
+
+        Set<String> oldColumnNames = new ListOrderedSet();
+        oldColumnNames.add("id");
+        service.alterTable(TABLE, oldColumnNames, columns);
+        service.createBoundInsertStatement(TABLE, columns, "timestamp");
+
+        verify(mockedSession, times(2)).prepare(Mockito.any(RegularStatement.class));
+        assertEquals(2, metricRegistry.counter("cassandra.insert.statements.cache.misses").getCount());
+    }
+
+    @Test
+    public void testEnsureTableUsesRegistry() throws Exception {
+        service.ensureTable(TABLE, columns, "timestamp");
+        service.ensureTable(TABLE, columns, "timestamp");
+
+        verify(mockedSession, times(1)).execute(Mockito.anyString());
+        assertEquals(columns.size(), service.getTableColumns(TABLE).size());
+
+        List<ColumnNameTypeValue> enlargedColumns = new ArrayList<>(columns);
+        enlargedColumns.add(new ColumnNameTypeValue("newfield", ColumnType.STRING, "my new value"));
+        service.ensureTable(TABLE, enlargedColumns, "timestamp");
+        service.ensureTable(TABLE, enlargedColumns, "timestamp");
+
+        verify(mockedSession, times(2)).execute(Mockito.anyString());
+        assertEquals(enlargedColumns.size(), service.getTableColumns(TABLE).size());
+    }
+
+    @Test
+    public void testExecuteAsyncReleasesInFlightRequests() throws Exception {
+        MetricRegistry metricRegistry = new MetricRegistry();
+        service = new SaveToCassandraOperationsService(mockedSession, metricRegistry, 1);
+
+        ResultSetFuture future = mock(ResultSetFuture.class);
+        when(future.isDone()).thenReturn(true);
+        when(future.get()).thenReturn(mock(ResultSet.class));
+        Mockito.doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(future).addListener(Mockito.any(Runnable.class), Mockito.any(Executor.class));
+        when(mockedSession.executeAsync(Mockito.any(Statement.class))).thenReturn(future);
+
+        service.executeAsync(TABLE, mock(Statement.class));
+        service.executeAsync(TABLE, mock(Statement.class));
+
+        verify(mockedSession, times(2)).executeAsync(Mockito.any(Statement.class));
+        assertEquals(2, metricRegistry.timer(MetricRegistry.name("cassandra.write", TABLE)).getCount());
+    }
+
+    @Test
+    public void testCreateTimeBucketedTable() throws Exception {
+        CassandraTableConfigurationBean tableConfiguration = new CassandraTableConfigurationBean();
+        tableConfiguration.setLayout(CassandraTableConfigurationBean.Layout.TIME_BUCKETED);
+        tableConfiguration.setBucketUnit(TimeUnit.HOURS);
+        tableConfiguration.setShardColumn("id");
+        tableConfiguration.setCompression("LZ4Compressor");
+        tableConfiguration.setTimeWindowCompaction(true);
+        tableConfiguration.setDefaultTtl(3600);
+        service = new SaveToCassandraOperationsService(mockedSession, new MetricRegistry(), 1, tableConfiguration);
+
+        service.createTable(TABLE, columns, "ts");
+
+        ArgumentCaptor<String> cql = ArgumentCaptor.forClass(String.class);
+        verify(mockedSession).execute(cql.capture());
+        assertTrue(cql.getValue().contains("PRIMARY KEY ((\"time_bucket\", \"id\"), \"ts\")"));
+        assertTrue(cql.getValue().contains("CLUSTERING ORDER BY (\"ts\" DESC)"));
+        assertTrue(cql.getValue().contains("'sstable_compression': 'LZ4Compressor'"));
+        assertTrue(cql.getValue().contains("'compaction_window_unit': 'HOURS', 'compaction_window_size': 1"));
+        assertTrue(cql.getValue().contains("default_time_to_live = 3600"));
+        assertTrue(service.getTableColumns(TABLE).contains(SaveToCassandraOperationsService.TIME_BUCKET_COLUMN));
+
+        assertEquals(7200000L, service.getTimeBucket(7200000L + 1234L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectRowWithoutShardValue() throws Exception {
+        CassandraTableConfigurationBean tableConfiguration = new CassandraTableConfigurationBean();
+        tableConfiguration.setLayout(CassandraTableConfigurationBean.Layout.TIME_BUCKETED);
+        tableConfiguration.setShardColumn("id");
+        service = new SaveToCassandraOperationsService(mockedSession, new MetricRegistry(), 1, tableConfiguration);
+        service.createTable(TABLE, columns, "ts");
+
+        List<ColumnNameTypeValue> rowWithoutShard = new ArrayList<>(columns);
+        rowWithoutShard.remove(0);
+
+        service.createBoundInsertStatement(TABLE, rowWithoutShard, "ts");
+    }
+}
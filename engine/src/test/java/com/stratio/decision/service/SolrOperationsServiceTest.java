@@ -16,6 +16,9 @@
 package com.stratio.decision.service;
 
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.configuration.ConfigurationContext.SolrCommitPolicy;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.common.SolrInputDocument;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -25,8 +28,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * Created by aitor on 9/23/15.
@@ -87,4 +98,31 @@ public class SolrOperationsServiceTest {
         assertTrue("Expected true value not found", schemaFile.canRead());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testAddWithCommitWithin() throws Exception {
+        SolrClient solrClient = mock(SolrClient.class);
+        service = new SolrOperationsService(HOSTS, HOSTS, DATA_FOLDER.getRoot().getAbsolutePath(), IS_CLOUD,
+                SolrCommitPolicy.COMMIT_WITHIN, 1000, solrClient);
+        Collection<SolrInputDocument> documents = Collections.singletonList(new SolrInputDocument());
+
+        service.add(StreamsHelper.STREAM_NAME, documents);
+        service.commit(Collections.singletonList(StreamsHelper.STREAM_NAME));
+
+        verify(solrClient).add(StreamsHelper.STREAM_NAME, documents, 1000);
+        verify(solrClient, never()).commit(anyString(), anyBoolean(), anyBoolean(), anyBoolean());
+    }
+
+    @Test
+    public void testSoftCommitOnlyWrittenCores() throws Exception {
+        SolrClient solrClient = mock(SolrClient.class);
+        service = new SolrOperationsService(HOSTS, HOSTS, DATA_FOLDER.getRoot().getAbsolutePath(), IS_CLOUD,
+                SolrCommitPolicy.SOFT, 1000, solrClient);
+
+        service.commit(Arrays.asList("core1", "core2"));
+
+        verify(solrClient).commit("core1", true, true, true);
+        verify(solrClient).commit("core2", true, true, true);
+        verify(solrClient, never()).commit();
+    }
+
+}
@@ -22,6 +22,12 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.siddhi.core.SiddhiManager;
+import org.wso2.siddhi.core.event.Event;
+import org.wso2.siddhi.core.query.output.callback.QueryCallback;
+import org.wso2.siddhi.query.api.definition.Attribute;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -78,4 +84,56 @@ public class StreamMetadataServiceTest {
         assertTrue("Expected true value not found", snapshot.length > 0);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testRestoreSnapshotIntoAnotherSiddhiManager() throws Exception {
+        List<Long> totals = new ArrayList<>();
+        defineSensorWindow(siddhiManager, totals);
+        for (int value = 1; value <= 4; value++) {
+            siddhiManager.getInputHandler("sensors").send(new Object[] { "sensor", value });
+        }
+        byte[] snapshot = metadataService.getSnapshot();
+
+        SiddhiManager restoredSiddhiManager = new StreamingSiddhiConfiguration().siddhiManager();
+        try {
+            restoredSiddhiManager.defineStream(StreamsHelper.STREAM_DEFINITION);
+            List<Long> restoredTotals = new ArrayList<>();
+            defineSensorWindow(restoredSiddhiManager, restoredTotals);
+            new StreamMetadataService(restoredSiddhiManager).setSnapshot(snapshot);
+
+            // the restored window holds 2, 3 and 4, so 2 leaves it when 10 comes in
+            restoredSiddhiManager.getInputHandler("sensors").send(new Object[] { "sensor", 10 });
+            assertEquals("Expected value not found", 1, restoredTotals.size());
+            assertEquals("Expected value not found", Long.valueOf(17), restoredTotals.get(0));
+        } finally {
+            restoredSiddhiManager.shutdown();
+        }
+    }
+
+    @Test
+    public void testCompileCodecAfterAlteringStream() throws Exception {
+        assertEquals("Expected value not found", 6, metadataService.getCodec(StreamsHelper.STREAM_NAME).size());
+
+        siddhiManager.getStreamDefinition(StreamsHelper.STREAM_NAME).attribute("extra",
+                Attribute.Type.STRING);
+        assertEquals("Expected value not found", 6, metadataService.getCodec(StreamsHelper.STREAM_NAME).size());
+
+        metadataService.compileCodec(StreamsHelper.STREAM_NAME);
+        assertEquals("Expected value not found", 7, metadataService.getCodec(StreamsHelper.STREAM_NAME).size());
+    }
+
+    private void defineSensorWindow(SiddhiManager siddhiManager, List<Long> totals) {
+        siddhiManager.defineStream("define stream sensors (name string, value int)");
+        String queryId = siddhiManager.addQuery("from sensors#window.length(3) select name, sum(value) as total "
+                + "insert into totals;");
+        siddhiManager.addCallback(queryId, new QueryCallback() {
+            @Override
+            public void receive(long timeStamp, Event[] inEvents, Event[] removeEvents) {
+                if (inEvents != null) {
+                    for (Event event : inEvents) {
+                        totals.add(((Number) event.getData(1)).longValue());
+                    }
+                }
+            }
+        });
+    }
+}
@@ -157,6 +157,36 @@ public class StreamOperationServiceTest {
                 (StreamEvent) Mockito.any());
     }
 
+    @Test
+    public void sendBatchTest() throws ServiceException {
+        QueryCallback callback = Mockito.mock(QueryCallback.class);
+
+        Mockito.when(callbackFactory.add(Mockito.anyString(), (Set<StreamAction>) Mockito.anyObject(), Mockito
+                .anyString())).thenReturn(callback);
+        Mockito.when(configurationContext.getGroupId()).thenReturn(CLUSTER_ID);
+
+        createBaseStream();
+
+        streamOperationService.enableAction(STREAM_NAME_GOOD, StreamAction.SAVE_TO_ELASTICSEARCH);
+
+        List<ColumnNameTypeValue> goodColumns = new ArrayList<>();
+        goodColumns.add(new ColumnNameTypeValue("col1", ColumnType.INTEGER, 34));
+        goodColumns.add(new ColumnNameTypeValue("col2", ColumnType.STRING, "text value"));
+
+        List<ColumnNameTypeValue> badColumns = new ArrayList<>();
+        badColumns.add(new ColumnNameTypeValue("notExistingColumn", ColumnType.STRING, "text value"));
+
+        List<List<ColumnNameTypeValue>> rows = new ArrayList<>();
+        rows.add(goodColumns);
+        rows.add(badColumns);
+        rows.add(goodColumns);
+
+        Assert.assertEquals("Expected value not found", 2, streamOperationService.sendBatch(STREAM_NAME_GOOD, rows));
+
+        Mockito.verify(callback, Mockito.times(2)).receiveStreamEvent(Mockito.anyLong(), (StreamEvent) Mockito.any(),
+                (StreamEvent) Mockito.any());
+    }
+
     private void createBaseStream() {
         List<ColumnNameTypeValue> columns = new ArrayList<>();
         columns.add(new ColumnNameTypeValue("col1", ColumnType.INTEGER, 1));
@@ -19,7 +19,6 @@ import com.stratio.decision.commons.constants.ColumnType;
 import com.stratio.decision.commons.constants.StreamAction;
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
-import com.stratio.decision.configuration.ServiceConfiguration;
 import com.stratio.decision.configuration.StreamingSiddhiConfiguration;
 import com.stratio.decision.dao.StreamStatusDao;
 import com.stratio.decision.exception.ServiceException;
@@ -57,8 +56,7 @@ public class StreamOperationServiceWithoutMetricsTest {
         siddhiManager= new StreamingSiddhiConfiguration().siddhiManager();
         streamStatusDao= new StreamStatusDao();
         //callbackService= new CallbackService(producer, kafkaToJavaSerializer(), javaToSiddhiSerializer());
-        ServiceConfiguration serviceConfiguration= new ServiceConfiguration();
-        callbackService= serviceConfiguration.callbackService();
+        callbackService= StreamsHelper.callbackService(siddhiManager);
 
         streamOperationsService= new StreamOperationService(siddhiManager, streamStatusDao, callbackService);
 
@@ -50,9 +50,7 @@ public class StreamingFailoverServiceTest {
         streamMetadataService= new StreamMetadataService(siddhiManager);
 
         mockedDao= mock(StreamingFailoverDao.class);
-
-        ServiceConfiguration serviceConfiguration= new ServiceConfiguration();
-        callbackService= serviceConfiguration.callbackService();
+        callbackService= StreamsHelper.callbackService(siddhiManager);
 
         //operationService= new StreamOperationService(siddhiManager, streamStatusDao, callbackService);
         service= new StreamingFailoverService(streamStatusDao, streamMetadataService, mockedDao);
@@ -19,7 +19,12 @@ import com.stratio.decision.commons.constants.ColumnType;
 import com.stratio.decision.commons.constants.StreamAction;
 import com.stratio.decision.commons.messages.ColumnNameTypeValue;
 import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.factory.GsonFactory;
+import com.stratio.decision.serializer.impl.JavaToSiddhiSerializer;
+import com.stratio.decision.serializer.impl.KafkaToJavaSerializer;
 import org.apache.commons.collections.set.ListOrderedSet;
+import org.mockito.Mockito;
+import org.wso2.siddhi.core.SiddhiManager;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -88,4 +93,12 @@ public abstract class StreamsHelper {
         return message;
     }
 
+    /**
+     * Callback service whose action bus publisher discards the messages.
+     */
+    public static CallbackService callbackService(SiddhiManager siddhiManager) {
+        return new CallbackService(null, Mockito.mock(ActionBusPublisherService.class),
+                new KafkaToJavaSerializer(GsonFactory.getInstance()),
+                new JavaToSiddhiSerializer(new StreamMetadataService(siddhiManager)));
+    }
 }
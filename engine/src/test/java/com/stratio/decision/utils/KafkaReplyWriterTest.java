@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.stratio.decision.commons.constants.InternalTopic;
+import com.stratio.decision.commons.constants.ReplyCode;
+import com.stratio.decision.commons.constants.STREAMING;
+import com.stratio.decision.commons.dto.ActionCallbackDto;
+import com.stratio.decision.commons.messages.StratioStreamingMessage;
+import com.stratio.decision.factory.GsonFactory;
+
+import kafka.javaapi.producer.Producer;
+import kafka.producer.KeyedMessage;
+
+public class KafkaReplyWriterTest {
+
+    @Test
+    public void testNoKafkaReplyWithoutParameters() throws Exception {
+        StratioStreamingMessage message = new StratioStreamingMessage();
+        assertFalse(KafkaReplyWriter.isKafkaReply(message));
+
+        message.setAdditionalParameters(new HashMap<String, Object>());
+        assertFalse(KafkaReplyWriter.isKafkaReply(message));
+
+        message.getAdditionalParameters().put(STREAMING.REPLY_TOPIC_PARAMETER, InternalTopic.TOPIC_REPLY
+                .getTopicName());
+        assertTrue(KafkaReplyWriter.isKafkaReply(message));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReplyIsSentToTheReplyTopicKeyedByRequestId() throws Exception {
+        Producer<String, String> producer = mock(Producer.class);
+        KafkaReplyWriter writer = new KafkaReplyWriter(producer);
+
+        writer.write(newRequest("request1", InternalTopic.TOPIC_REPLY.getTopicName()), new ActionCallbackDto(
+                ReplyCode.OK.getCode()));
+
+        ArgumentCaptor<KeyedMessage> captor = ArgumentCaptor.forClass(KeyedMessage.class);
+        verify(producer).send(captor.capture());
+        KeyedMessage<String, String> sent = captor.getValue();
+        assertEquals(InternalTopic.TOPIC_REPLY.getTopicName(), sent.topic());
+        assertEquals("request1", sent.key());
+        assertEquals(ReplyCode.OK.getCode(),
+                GsonFactory.getInstance().fromJson(sent.message(), ActionCallbackDto.class).getErrorCode());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReplyIsNeverSentToTheTopicNamedByTheRequest() throws Exception {
+        Producer<String, String> producer = mock(Producer.class);
+        KafkaReplyWriter writer = new KafkaReplyWriter(producer);
+
+        writer.write(newRequest("request1", "stratio_decision_data"), new ActionCallbackDto(ReplyCode.OK.getCode()));
+
+        ArgumentCaptor<KeyedMessage> captor = ArgumentCaptor.forClass(KeyedMessage.class);
+        verify(producer).send(captor.capture());
+        assertEquals(InternalTopic.TOPIC_REPLY.getTopicName(), captor.getValue().topic());
+    }
+
+    private StratioStreamingMessage newRequest(String requestId, String replyTopic) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(STREAMING.REPLY_TOPIC_PARAMETER, replyTopic);
+        StratioStreamingMessage message = new StratioStreamingMessage();
+        message.setOperation("create");
+        message.setRequest_id(requestId);
+        message.setAdditionalParameters(parameters);
+        return message;
+    }
+}
@@ -99,6 +99,13 @@ public class SiddhiUtilsTest {
         assertEquals("Unexpected result", 22, SiddhiUtils.decodeSiddhiValue(d, Attribute.Type.INT));
         assertEquals("Unexpected result", 22L, SiddhiUtils.decodeSiddhiValue(d, Attribute.Type.LONG));
         assertEquals("Unexpected result", 22f, SiddhiUtils.decodeSiddhiValue(d, Attribute.Type.FLOAT));
+
+        Integer i= 22;
+        assertEquals("Unexpected result", "22", SiddhiUtils.decodeSiddhiValue(i, Attribute.Type.STRING));
+        assertEquals("Unexpected result", 22d, SiddhiUtils.decodeSiddhiValue(i, Attribute.Type.DOUBLE));
+        assertEquals("Unexpected result", i, SiddhiUtils.decodeSiddhiValue(i, Attribute.Type.INT));
+        assertEquals("Unexpected result", 22L, SiddhiUtils.decodeSiddhiValue(i, Attribute.Type.LONG));
+        assertEquals("Unexpected result", 22f, SiddhiUtils.decodeSiddhiValue(i, Attribute.Type.FLOAT));
     }
 
     @Test(expected = RuntimeException.class)
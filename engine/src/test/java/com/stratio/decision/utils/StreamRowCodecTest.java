@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.wso2.siddhi.query.api.QueryFactory;
+import org.wso2.siddhi.query.api.definition.Attribute;
+import org.wso2.siddhi.query.api.definition.StreamDefinition;
+import org.wso2.siddhi.query.api.exception.AttributeNotExistException;
+
+import com.stratio.decision.commons.constants.ColumnType;
+import com.stratio.decision.commons.messages.ColumnNameTypeValue;
+
+public class StreamRowCodecTest {
+
+    private StreamRowCodec codec;
+
+    @Before
+    public void setUp() throws Exception {
+        StreamDefinition definition = QueryFactory.createStreamDefinition().name("codecStream")
+                .attribute("name", Attribute.Type.STRING)
+                .attribute("value", Attribute.Type.INT)
+                .attribute("amount", Attribute.Type.DOUBLE);
+        codec = new StreamRowCodec(definition);
+    }
+
+    @Test
+    public void testToEventDataInDefinitionOrder() throws Exception {
+        List<ColumnNameTypeValue> columns = new ArrayList<>();
+        columns.add(new ColumnNameTypeValue("name", ColumnType.STRING, "test"));
+        columns.add(new ColumnNameTypeValue("value", ColumnType.INTEGER, "12"));
+        columns.add(new ColumnNameTypeValue("amount", ColumnType.DOUBLE, 3.5));
+
+        assertArrayEquals(new Object[] { "test", 12, 3.5 }, codec.toEventData(columns));
+    }
+
+    @Test
+    public void testToEventDataOutOfOrderAndMissingColumns() throws Exception {
+        List<ColumnNameTypeValue> columns = new ArrayList<>();
+        columns.add(new ColumnNameTypeValue("amount", ColumnType.DOUBLE, 3.5));
+        columns.add(new ColumnNameTypeValue("name", ColumnType.STRING, "test"));
+
+        assertArrayEquals(new Object[] { "test", null, 3.5 }, codec.toEventData(columns));
+    }
+
+    @Test(expected = AttributeNotExistException.class)
+    public void testToEventDataUnknownColumn() throws Exception {
+        List<ColumnNameTypeValue> columns = new ArrayList<>();
+        columns.add(new ColumnNameTypeValue("notExists", ColumnType.STRING, "test"));
+
+        codec.toEventData(columns);
+    }
+
+    @Test
+    public void testToColumns() throws Exception {
+        List<ColumnNameTypeValue> columns = codec.toColumns(new Object[] { "test", 12, 3.5 });
+
+        assertEquals("Expected value not found", 3, columns.size());
+        assertEquals("Expected value not found", "value", columns.get(1).getColumn());
+        assertEquals("Expected value not found", ColumnType.INTEGER, columns.get(1).getType());
+        assertEquals("Expected value not found", 12, columns.get(1).getValue());
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014 Stratio (http://stratio.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.decision.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.curator.framework.CuratorFramework;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+public class ZKAckWriterTest {
+
+    private MetricRegistry metricRegistry;
+    private RecordingAckWriter writer;
+
+    @Before
+    public void setUp() throws Exception {
+        metricRegistry = new MetricRegistry();
+        writer = new RecordingAckWriter(metricRegistry);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        writer.close();
+    }
+
+    @Test
+    public void testRepliesAreCommittedAndParentCreatedOnce() throws Exception {
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(writer.write("/stratio/decision/create/request" + i, "{}".getBytes()));
+        }
+        for (Future<Void> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(20, writer.committed.size());
+        assertEquals(Collections.singletonList("/stratio/decision/create"), writer.parents);
+        assertTrue(writer.written.isEmpty());
+        assertEquals(20, metricRegistry.histogram(ZKAckWriter.LATENCY_METRIC).getCount());
+    }
+
+    @Test
+    public void testFailedTransactionFallsBackToSingleWrites() throws Exception {
+        writer.failCommits = true;
+
+        writer.write("/stratio/decision/add_query/request1", "{}".getBytes()).get(5, TimeUnit.SECONDS);
+        writer.write("/stratio/decision/add_query/request2", "{}".getBytes()).get(5, TimeUnit.SECONDS);
+
+        assertTrue(writer.committed.isEmpty());
+        assertEquals(2, writer.written.size());
+        assertEquals(2, metricRegistry.histogram(ZKAckWriter.LATENCY_METRIC).getCount());
+    }
+
+    private static class RecordingAckWriter extends ZKAckWriter {
+
+        private final List<String> parents = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> committed = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> written = Collections.synchronizedList(new ArrayList<String>());
+        private volatile boolean failCommits;
+
+        RecordingAckWriter(MetricRegistry metricRegistry) {
+            super(mock(CuratorFramework.class), metricRegistry);
+        }
+
+        @Override
+        void createParent(String parent) throws Exception {
+            parents.add(parent);
+        }
+
+        @Override
+        void commit(List<PendingAck> batch) throws Exception {
+            if (failCommits) {
+                throw new Exception("NodeExists");
+            }
+            for (PendingAck ack : batch) {
+                committed.add(ack.getPath());
+            }
+        }
+
+        @Override
+        void writeSingle(PendingAck ack) throws Exception {
+            written.add(ack.getPath());
+        }
+    }
+}
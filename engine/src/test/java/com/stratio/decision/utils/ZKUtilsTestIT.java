@@ -109,6 +109,11 @@ public class ZKUtilsTestIT {
         } catch (Exception e)   { ex= e; }
 
         assertNull("Not exception expected", ex);
+
+        // replies are written in background
+        for (int i = 0; i < 50 && !zkUtils.existZNode(path); i++) {
+            Thread.sleep(100);
+        }
         assertTrue("The Node has not been created", zkUtils.existZNode(path));
         String result= new String(zkUtils.getZNode(path));//Base64.encodeBase64String(zkUtils.getZNode(path));
         assertEquals("Unexpected content from node", "\"" + reply + "\"", result);